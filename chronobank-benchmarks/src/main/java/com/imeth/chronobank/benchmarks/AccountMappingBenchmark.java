@@ -0,0 +1,91 @@
+package com.imeth.chronobank.benchmarks;
+
+import com.imeth.chronobank.common.dto.AccountDTO;
+import com.imeth.chronobank.common.entity.Account;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a page of accounts into {@link AccountDTO}s, as the account listing endpoints
+ * do. {@code mapPage} maps a page loaded once with its owners; {@code loadAndMapPage} also runs
+ * the listing query against the embedded database, so the mapping share of a request is visible.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountMappingBenchmark {
+
+    private static final String PAGE_QUERY = "SELECT a FROM Account a JOIN FETCH a.user ORDER BY a.id";
+
+    @Param({"100"})
+    private int pageSize;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private List<Account> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = BenchmarkDatabase.create("account-mapping");
+        BenchmarkDatabase.seedAccounts(emf, pageSize * 10);
+        em = emf.createEntityManager();
+        page = loadPage();
+        em.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public List<AccountDTO> mapPage() {
+        return map(page);
+    }
+
+    @Benchmark
+    public List<AccountDTO> loadAndMapPage() {
+        try {
+            return map(loadPage());
+        } finally {
+            em.clear();
+        }
+    }
+
+    private List<Account> loadPage() {
+        return em.createQuery(PAGE_QUERY, Account.class)
+                .setMaxResults(pageSize)
+                .getResultList();
+    }
+
+    private static List<AccountDTO> map(List<Account> accounts) {
+        List<AccountDTO> dtos = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            dtos.add(new AccountDTO(account));
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,97 @@
+package com.imeth.chronobank.benchmarks;
+
+import com.imeth.chronobank.common.dto.AccountDTO;
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@code GET /api/v1/accounts/{id}} lookups with and without the account summary
+ * cache. Each operation reads a random account from a working set of {@code hotAccounts} and then
+ * clears the persistence context, as a transaction-scoped context would be at the end of a
+ * request.
+ * <p>
+ * {@code uncached} is the former path: load the account, lazily load its owner, build the DTO.
+ * {@code cached} validates the cached summary against the account's version.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountSummaryCacheBenchmark {
+
+    @Param({"10000"})
+    private int accounts;
+
+    @Param({"1000"})
+    private int hotAccounts;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private AccountSummaryCache cache;
+    private SplittableRandom random;
+    private long[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = BenchmarkDatabase.create("account-summary-cache");
+        accountIds = BenchmarkDatabase.seedAccounts(emf, accounts);
+
+        em = emf.createEntityManager();
+        cache = new AccountSummaryCache();
+        BenchmarkDatabase.inject(cache, "em", em);
+        cache.init();
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.destroy();
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public AccountDTO uncached() {
+        try {
+            Account account = em.find(Account.class, nextAccountId());
+            return new AccountDTO(account);
+        } finally {
+            em.clear();
+        }
+    }
+
+    @Benchmark
+    public AccountDTO cached() {
+        try {
+            return cache.getAccountSummary(nextAccountId());
+        } finally {
+            em.clear();
+        }
+    }
+
+    private long nextAccountId() {
+        return accountIds[random.nextInt(hotAccounts)];
+    }
+}
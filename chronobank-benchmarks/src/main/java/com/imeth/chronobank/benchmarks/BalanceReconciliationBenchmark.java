@@ -0,0 +1,115 @@
+package com.imeth.chronobank.benchmarks;
+
+import com.imeth.chronobank.ejb.service.id.IdAllocator;
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+import com.imeth.chronobank.ejb.service.timer.DailyBalanceUpdateService;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Duration of the bulk balance reconciliation of {@code DailyBalanceUpdateService} over a seeded
+ * ledger of {@code accounts} accounts with {@code postingsPerAccount} deposits each.
+ * <p>
+ * {@code fullHistory} deletes all checkpoints first, so every posting is aggregated and every
+ * checkpoint is inserted. {@code incremental} runs against existing checkpoints, which is the
+ * nightly steady state: no posting is newer than the checkpoints and every checkpoint is updated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BalanceReconciliationBenchmark {
+
+    private static final String DATABASE = "balance-reconciliation";
+
+    @Param({"5000"})
+    private int accounts;
+
+    @Param({"10"})
+    private int postingsPerAccount;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private DataSource dataSource;
+    private DailyBalanceUpdateService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = BenchmarkDatabase.create(DATABASE);
+        long[] accountIds = BenchmarkDatabase.seedAccounts(emf, accounts);
+        BenchmarkDatabase.seedPostings(emf, accountIds, postingsPerAccount);
+
+        dataSource = BenchmarkDatabase.dataSource(DATABASE);
+        IdAllocator idAllocator = new IdAllocator();
+        BenchmarkDatabase.inject(idAllocator, "dataSource", dataSource);
+        JobMetrics jobMetrics = new JobMetrics();
+        BenchmarkDatabase.inject(jobMetrics, "dataSource", dataSource);
+        BenchmarkDatabase.inject(jobMetrics, "idAllocator", idAllocator);
+
+        em = emf.createEntityManager();
+        service = new DailyBalanceUpdateService();
+        BenchmarkDatabase.inject(service, "em", em);
+        BenchmarkDatabase.inject(service, "dataSource", dataSource);
+        BenchmarkDatabase.inject(service, "idAllocator", idAllocator);
+        BenchmarkDatabase.inject(service, "jobMetrics", jobMetrics);
+
+        // Create the checkpoints that the incremental runs update
+        if (service.reconcileAllAccounts() != 0) {
+            throw new IllegalStateException("The seeded ledger does not reconcile");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public int incremental() {
+        return service.reconcileAllAccounts();
+    }
+
+    @Benchmark
+    public int fullHistory(Checkpoints checkpoints) {
+        return service.reconcileAllAccounts();
+    }
+
+    /**
+     * Removes all checkpoints before each invocation of {@link #fullHistory(Checkpoints)}.
+     */
+    @State(Scope.Thread)
+    public static class Checkpoints {
+
+        @Setup(Level.Invocation)
+        public void delete(BalanceReconciliationBenchmark benchmark) throws SQLException {
+            try (Connection connection = benchmark.dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM balance_checkpoints");
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.imeth.chronobank.benchmarks;
+
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.Transaction;
+import com.imeth.chronobank.common.entity.User;
+import com.imeth.chronobank.common.util.ReferenceGenerator;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Embedded H2 databases and fixtures shared by the benchmarks.
+ */
+public final class BenchmarkDatabase {
+
+    public static final String PERSISTENCE_UNIT = "ChronoBankBenchmarkPU";
+
+    private static final int BATCH_SIZE = 500;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Create an empty in-memory database with the ChronoBank schema.
+     *
+     * @param name the database name, unique per benchmark
+     * @return the entity manager factory of the database
+     */
+    public static EntityManagerFactory create(String name) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("jakarta.persistence.jdbc.url", url(name));
+        return Persistence.createEntityManagerFactory(PERSISTENCE_UNIT, properties);
+    }
+
+    /**
+     * Get a data source for the raw JDBC paths of the services, such as the batch writes of the
+     * timer services. Connections are in auto-commit mode.
+     *
+     * @param name the database name passed to {@link #create(String)}
+     * @return a data source for the database
+     */
+    public static DataSource dataSource(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(url(name));
+        dataSource.setUser("sa");
+        dataSource.setPassword("");
+        return dataSource;
+    }
+
+    /**
+     * Insert customers with one active savings account each. Users and accounts draw ids from
+     * the same sequence, so the account ids are returned rather than assumed.
+     *
+     * @param emf the database
+     * @param count the number of accounts
+     * @return the ids of the new accounts, in insertion order
+     */
+    public static long[] seedAccounts(EntityManagerFactory emf, int count) {
+        long[] accountIds = new long[count];
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (int i = 1; i <= count; i++) {
+                User user = new User();
+                user.setUsername("customer" + i);
+                user.setPasswordHash("hash");
+                user.setFirstName("First" + i);
+                user.setLastName("Last" + i);
+                user.setEmail("customer" + i + "@example.com");
+                user.setRole(User.Role.CUSTOMER);
+                em.persist(user);
+
+                Account account = new Account();
+                account.setAccountNumber(String.format("CHB%07d", i));
+                account.setType(Account.Type.SAVINGS);
+                account.setBalance(BigDecimal.valueOf(1000L + i));
+                account.setAvailableBalance(BigDecimal.valueOf(1000L + i));
+                account.setInterestRate(new BigDecimal("0.0350"));
+                account.setUser(user);
+                em.persist(account);
+                accountIds[i - 1] = account.getId();
+
+                if (i % BATCH_SIZE == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+        return accountIds;
+    }
+
+    /**
+     * Post completed deposits to accounts, dated one day back, and set each account's balance to
+     * the sum of its deposits so that the ledger reconciles.
+     *
+     * @param emf the database
+     * @param accountIds the accounts to post to
+     * @param perAccount the number of deposits per account
+     */
+    public static void seedPostings(EntityManagerFactory emf, long[] accountIds, int perAccount) {
+        LocalDateTime postedAt = LocalDateTime.now().minusDays(1);
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            int persisted = 0;
+            for (long accountId : accountIds) {
+                Account account = em.getReference(Account.class, accountId);
+                for (int i = 1; i <= perAccount; i++) {
+                    Transaction deposit = new Transaction();
+                    deposit.setTransactionReference(ReferenceGenerator.newTransactionReference());
+                    deposit.setType(Transaction.Type.DEPOSIT);
+                    deposit.setAmount(BigDecimal.valueOf(i * 125L, 2));
+                    deposit.setStatus(Transaction.Status.COMPLETED);
+                    deposit.setTransactionDate(postedAt);
+                    deposit.setPostedAt(postedAt);
+                    deposit.setAccount(account);
+                    deposit.setTargetAccount(account);
+                    em.persist(deposit);
+
+                    if (++persisted % BATCH_SIZE == 0) {
+                        em.flush();
+                        em.clear();
+                        account = em.getReference(Account.class, accountId);
+                    }
+                }
+            }
+            em.flush();
+            em.createNativeQuery("UPDATE accounts a SET balance = " +
+                    "(SELECT COALESCE(SUM(t.amount), 0) FROM transactions t WHERE t.target_account_id = a.id)")
+                    .executeUpdate();
+            em.createNativeQuery("UPDATE accounts SET available_balance = balance").executeUpdate();
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Set a container-injected field, such as an {@code @PersistenceContext}, on a bean that is
+     * used outside the container.
+     *
+     * @param target the bean
+     * @param name the field name
+     * @param value the value to inject
+     */
+    public static void inject(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot inject " + name + " into " + target.getClass().getName(), e);
+        }
+    }
+
+    private static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+}
@@ -0,0 +1,189 @@
+package com.imeth.chronobank.benchmarks;
+
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+import com.imeth.chronobank.ejb.service.transfer.TransferEngine;
+import com.imeth.chronobank.ejb.service.transfer.TransferOutcome;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of credits into a single hot account, such as a merchant settlement account, when
+ * many threads each transfer from their own account into it through
+ * {@link TransferEngine#transfer(long, long, Money)}.
+ * <p>
+ * With {@code stripes} 0 every credit locks the hot account row, so the credits run one at a time.
+ * With stripes, each credit locks one stripe row of the hot account, so up to {@code stripes}
+ * credits run at once. With {@code journal}, each credit appends a balance journal entry and
+ * locks only its source account, whatever the number of stripes. The {@code conflicts} counter
+ * reports credits rolled back by a lock timeout or deadlock.
+ * <p>
+ * An embedded database commits in memory, so its locks are held for microseconds and the
+ * benchmark would only measure CPU. Each transaction therefore holds its locks for
+ * {@code holdMillis} before committing, standing in for the round trips and log flush of a
+ * networked database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Threads(8)
+@Fork(1)
+public class HotAccountBenchmark {
+
+    private static final String DATABASE = "hot-account";
+
+    private static final int SOURCE_ACCOUNTS = 64;
+
+    private static final Money AMOUNT = Money.ofMinor(1L);
+
+    @Param({"0", "8"})
+    private int stripes;
+
+    @Param({"false", "true"})
+    private boolean journal;
+
+    @Param({"5"})
+    private int holdMillis;
+
+    private EntityManagerFactory emf;
+    private EntityManager cacheEm;
+    private AccountSummaryCache cache;
+    private long hotAccountId;
+    private long[] sourceAccountIds;
+    private final AtomicInteger nextSource = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = BenchmarkDatabase.create(DATABASE);
+        long[] accountIds = BenchmarkDatabase.seedAccounts(emf, SOURCE_ACCOUNTS + 1);
+        hotAccountId = accountIds[0];
+        sourceAccountIds = new long[SOURCE_ACCOUNTS];
+        System.arraycopy(accountIds, 1, sourceAccountIds, 0, SOURCE_ACCOUNTS);
+
+        cacheEm = emf.createEntityManager();
+        cache = new AccountSummaryCache();
+        BenchmarkDatabase.inject(cache, "em", cacheEm);
+        cache.init();
+
+        if (stripes > 0) {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                newEngine(em, new LocalTransactionRegistry()).setStripeCount(hotAccountId, stripes);
+                em.getTransaction().commit();
+            } finally {
+                em.close();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.destroy();
+        cacheEm.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public TransferOutcome credit(Worker worker, Outcomes outcomes) {
+        EntityManager em = worker.em;
+        em.getTransaction().begin();
+        try {
+            TransferOutcome outcome = worker.engine.transfer(worker.sourceAccountId, hotAccountId, AMOUNT);
+            Thread.sleep(holdMillis);
+            em.getTransaction().commit();
+            outcomes.completed++;
+            return outcome;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            em.getTransaction().rollback();
+            return null;
+        } catch (PersistenceException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            outcomes.conflicts++;
+            return null;
+        } finally {
+            em.clear();
+            worker.transactionRegistry.clear();
+        }
+    }
+
+    private TransferEngine newEngine(EntityManager em, LocalTransactionRegistry transactionRegistry) {
+        TransferEngine engine = new TransferEngine();
+        BenchmarkDatabase.inject(engine, "em", em);
+        BenchmarkDatabase.inject(engine, "accountSummaryCache", cache);
+        BenchmarkDatabase.inject(engine, "balanceJournal", journal);
+        BenchmarkDatabase.inject(engine, "transactionRegistry", transactionRegistry);
+        return engine;
+    }
+
+    /**
+     * The entity manager, transaction resources, engine and source account of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Worker {
+
+        private EntityManager em;
+        private final LocalTransactionRegistry transactionRegistry = new LocalTransactionRegistry();
+        private TransferEngine engine;
+        private long sourceAccountId;
+
+        @Setup(Level.Trial)
+        public void setUp(HotAccountBenchmark benchmark) {
+            em = benchmark.emf.createEntityManager();
+            engine = benchmark.newEngine(em, transactionRegistry);
+            int source = benchmark.nextSource.getAndIncrement() % SOURCE_ACCOUNTS;
+            sourceAccountId = benchmark.sourceAccountIds[source];
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            // The factory may already have been closed by the last thread to finish
+            if (em.isOpen()) {
+                em.close();
+            }
+        }
+    }
+
+    /**
+     * Committed and rolled back credits per iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+
+        public long completed;
+        public long conflicts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            completed = 0L;
+            conflicts = 0L;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.imeth.chronobank.benchmarks;
+
+import com.imeth.chronobank.common.util.Money;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the daily interest calculation for one chunk of accounts, as done by the interest
+ * accrual chunk processor between reading the rows and binding the batch parameters.
+ * <p>
+ * {@code bigDecimal} is the former loop: divide the annual rate by 365 to six places, multiply
+ * and round to cents for every account. {@code money} converts each distinct rate once per chunk
+ * and applies it to long-backed balances. Both total the interest the same way.
+ * <p>
+ * Run with {@code -prof gc} to compare allocation per chunk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterestAccrualBenchmark {
+
+    private static final int DAYS_IN_YEAR = 365;
+    private static final int SCALE = 6;
+    private static final String[] RATES = {"0.0150", "0.0350", "0.0425", "0.0500"};
+
+    @Param({"500"})
+    private int chunkSize;
+
+    private BigDecimal[] decimalBalances;
+    private Money[] moneyBalances;
+    private BigDecimal[] rates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        decimalBalances = new BigDecimal[chunkSize];
+        moneyBalances = new Money[chunkSize];
+        rates = new BigDecimal[chunkSize];
+        for (int i = 0; i < chunkSize; i++) {
+            long cents = random.nextLong(100L, 10_000_000_00L);
+            decimalBalances[i] = BigDecimal.valueOf(cents, 2);
+            moneyBalances[i] = Money.ofMinor(cents);
+            // Rates are read from the database, so each row has its own instance
+            rates[i] = new BigDecimal(RATES[random.nextInt(RATES.length)]);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < chunkSize; i++) {
+            BigDecimal dailyRate = rates[i].divide(BigDecimal.valueOf(DAYS_IN_YEAR), SCALE, RoundingMode.HALF_UP);
+            BigDecimal interest = decimalBalances[i].multiply(dailyRate).setScale(2, RoundingMode.HALF_UP);
+            if (interest.signum() > 0) {
+                total = total.add(interest);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money money() {
+        Map<BigDecimal, Long> dailyRates = new HashMap<>();
+        Money total = Money.ZERO;
+        for (int i = 0; i < chunkSize; i++) {
+            long dailyRate = dailyRates.computeIfAbsent(rates[i], rate -> Money.periodicRate(rate, DAYS_IN_YEAR));
+            Money interest = moneyBalances[i].applyRate(dailyRate);
+            if (interest.signum() > 0) {
+                total = total.plus(interest);
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,92 @@
+package com.imeth.chronobank.benchmarks;
+
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+import com.imeth.chronobank.ejb.service.id.IdAllocator;
+import com.imeth.chronobank.ejb.service.timer.AccrualChunkResult;
+import com.imeth.chronobank.ejb.service.timer.InterestAccrualChunkProcessor;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Duration of one interest accrual chunk against the embedded database: the scalar account read,
+ * the interest calculation, the batched balance updates and the batched INTEREST inserts. The
+ * chunks cycle through the seeded accounts, so every invocation credits {@code chunkSize}
+ * accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterestAccrualChunkBenchmark {
+
+    private static final String DATABASE = "interest-accrual-chunk";
+
+    @Param({"20000"})
+    private int accounts;
+
+    @Param({"500"})
+    private int chunkSize;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private AccountSummaryCache cache;
+    private InterestAccrualChunkProcessor processor;
+    private long maxAccountId;
+    private long lastAccountId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = BenchmarkDatabase.create(DATABASE);
+        long[] accountIds = BenchmarkDatabase.seedAccounts(emf, accounts);
+        maxAccountId = accountIds[accountIds.length - 1];
+
+        DataSource dataSource = BenchmarkDatabase.dataSource(DATABASE);
+        IdAllocator idAllocator = new IdAllocator();
+        BenchmarkDatabase.inject(idAllocator, "dataSource", dataSource);
+
+        em = emf.createEntityManager();
+        cache = new AccountSummaryCache();
+        BenchmarkDatabase.inject(cache, "em", em);
+        cache.init();
+
+        processor = new InterestAccrualChunkProcessor();
+        BenchmarkDatabase.inject(processor, "em", em);
+        BenchmarkDatabase.inject(processor, "dataSource", dataSource);
+        BenchmarkDatabase.inject(processor, "accountSummaryCache", cache);
+        BenchmarkDatabase.inject(processor, "idAllocator", idAllocator);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.destroy();
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public AccrualChunkResult accrueChunk() {
+        AccrualChunkResult result = processor.accrueChunk(lastAccountId, maxAccountId, chunkSize);
+        lastAccountId = result.getAccountsScanned() < chunkSize ? 0L : result.getLastAccountId();
+        return result;
+    }
+}
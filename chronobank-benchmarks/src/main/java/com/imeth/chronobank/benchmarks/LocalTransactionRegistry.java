@@ -0,0 +1,60 @@
+package com.imeth.chronobank.benchmarks;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stand-in for the container's {@link TransactionSynchronizationRegistry}, for a bean used
+ * outside the container by one thread with resource-local transactions. It only keeps the
+ * transaction resources, which the caller drops with {@link #clear()} when its transaction ends.
+ */
+public final class LocalTransactionRegistry implements TransactionSynchronizationRegistry {
+
+    private final Map<Object, Object> resources = new HashMap<>();
+
+    /**
+     * Drop the resources of the transaction that has just ended.
+     */
+    public void clear() {
+        resources.clear();
+    }
+
+    @Override
+    public Object getTransactionKey() {
+        return this;
+    }
+
+    @Override
+    public void putResource(Object key, Object value) {
+        resources.put(key, value);
+    }
+
+    @Override
+    public Object getResource(Object key) {
+        return resources.get(key);
+    }
+
+    @Override
+    public void registerInterposedSynchronization(Synchronization sync) {
+        throw new UnsupportedOperationException("Synchronizations are not supported outside the container");
+    }
+
+    @Override
+    public int getTransactionStatus() {
+        return Status.STATUS_ACTIVE;
+    }
+
+    @Override
+    public void setRollbackOnly() {
+        throw new UnsupportedOperationException("Roll back the resource-local transaction instead");
+    }
+
+    @Override
+    public boolean getRollbackOnly() {
+        return false;
+    }
+}
@@ -0,0 +1,137 @@
+package com.imeth.chronobank.benchmarks;
+
+import com.imeth.chronobank.ejb.service.id.IdAllocator;
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+import com.imeth.chronobank.ejb.service.timer.DailyBalanceUpdateService;
+import com.imeth.chronobank.ejb.service.timer.DailyReportExporter;
+import com.imeth.chronobank.ejb.service.timer.ReportFileResult;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Duration of the nightly jobs over a data set from {@link SyntheticDataGenerator}: the bulk
+ * balance reconciliation and the daily transaction and account balance reports. Unlike the
+ * other database benchmarks the ledger has skewed activity, a mix of account types and
+ * statuses and several years of history, so the reports read the busiest day of a realistic
+ * ledger.
+ * <p>
+ * The defaults build in a few seconds; raise {@code users} with {@code -p users=100000} for a
+ * load test.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NightlyJobsBenchmark {
+
+    private static final String DATABASE = "nightly-jobs";
+
+    @Param({"2000"})
+    private int users;
+
+    @Param({"2"})
+    private int historyYears;
+
+    @Param({"24"})
+    private int transactionsPerAccountYear;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private DailyBalanceUpdateService reconciliation;
+    private DailyReportExporter exporter;
+    private LocalDate reportDate;
+    private Path reportDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        emf = BenchmarkDatabase.create(DATABASE);
+        DataSource dataSource = BenchmarkDatabase.dataSource(DATABASE);
+
+        LocalDateTime asOf = LocalDate.now().atStartOfDay();
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(dataSource);
+        generator.setUsers(users);
+        generator.setHistoryYears(historyYears);
+        generator.setTransactionsPerAccountYear(transactionsPerAccountYear);
+        generator.setAsOf(asOf);
+        generator.generate();
+        reportDate = asOf.toLocalDate().minusDays(1);
+        reportDirectory = Files.createTempDirectory("chronobank-reports");
+
+        IdAllocator idAllocator = new IdAllocator();
+        BenchmarkDatabase.inject(idAllocator, "dataSource", dataSource);
+        JobMetrics jobMetrics = new JobMetrics();
+        BenchmarkDatabase.inject(jobMetrics, "dataSource", dataSource);
+        BenchmarkDatabase.inject(jobMetrics, "idAllocator", idAllocator);
+
+        em = emf.createEntityManager();
+        reconciliation = new DailyBalanceUpdateService();
+        BenchmarkDatabase.inject(reconciliation, "em", em);
+        BenchmarkDatabase.inject(reconciliation, "dataSource", dataSource);
+        BenchmarkDatabase.inject(reconciliation, "idAllocator", idAllocator);
+        BenchmarkDatabase.inject(reconciliation, "jobMetrics", jobMetrics);
+        exporter = new DailyReportExporter();
+        BenchmarkDatabase.inject(exporter, "em", em);
+
+        // The generated balances must match the generated postings
+        if (reconciliation.reconcileAllAccounts() != 0) {
+            throw new IllegalStateException("The generated ledger does not reconcile");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        em.close();
+        emf.close();
+        try (Stream<Path> files = Files.walk(reportDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int reconcile() {
+        return reconciliation.reconcileAllAccounts();
+    }
+
+    @Benchmark
+    public ReportFileResult transactionReportCsv() throws IOException {
+        return exporter.exportTransactionReport(reportDate, reportDirectory.toString(), false);
+    }
+
+    @Benchmark
+    public ReportFileResult transactionReportColumnar() throws IOException {
+        return exporter.exportTransactionReport(reportDate, reportDirectory.toString(), true);
+    }
+
+    @Benchmark
+    public ReportFileResult accountBalanceReport() throws IOException {
+        return exporter.exportAccountBalanceReport(reportDate, reportDirectory.toString(), false);
+    }
+}
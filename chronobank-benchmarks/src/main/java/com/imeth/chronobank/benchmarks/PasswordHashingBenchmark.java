@@ -0,0 +1,51 @@
+package com.imeth.chronobank.benchmarks;
+
+import com.imeth.chronobank.common.util.SecurityUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the password operations in {@link SecurityUtils}: hashing a new password with a fresh
+ * salt, as on registration, and verifying a password against a stored hash, as on every login.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private String salt;
+    private String storedHash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        salt = SecurityUtils.generateSalt();
+        storedHash = SecurityUtils.hashPassword(PASSWORD, salt);
+    }
+
+    @Benchmark
+    public String hashNewPassword() {
+        return SecurityUtils.hashPassword(PASSWORD, SecurityUtils.generateSalt());
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return SecurityUtils.verifyPassword(PASSWORD, storedHash, salt);
+    }
+}
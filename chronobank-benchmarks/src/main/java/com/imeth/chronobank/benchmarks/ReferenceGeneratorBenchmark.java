@@ -0,0 +1,55 @@
+package com.imeth.chronobank.benchmarks;
+
+import com.imeth.chronobank.common.constants.AppConstants;
+import com.imeth.chronobank.common.util.ReferenceGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of generating a transaction reference. {@code uuidSubstring} is the former approach: a
+ * random UUID rendered to a 36-character string and cut down to the reference length.
+ * {@code referenceGenerator} is {@link ReferenceGenerator}. The {@code contended} variants run
+ * the same code on four threads sharing one generator.
+ * <p>
+ * Run with {@code -prof gc} to compare allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReferenceGeneratorBenchmark {
+
+    @Benchmark
+    public String uuidSubstring() {
+        return AppConstants.TRANSACTION_PREFIX +
+                UUID.randomUUID().toString().substring(0, AppConstants.TRANSACTION_REFERENCE_LENGTH - 3);
+    }
+
+    @Benchmark
+    public String referenceGenerator() {
+        return ReferenceGenerator.newTransactionReference();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String uuidSubstringContended() {
+        return uuidSubstring();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String referenceGeneratorContended() {
+        return referenceGenerator();
+    }
+}
@@ -0,0 +1,125 @@
+package com.imeth.chronobank.benchmarks;
+
+import com.imeth.chronobank.common.dto.TransactionReportRow;
+import com.imeth.chronobank.common.entity.Transaction;
+import com.imeth.chronobank.common.util.ColumnarReportFormat.Column;
+import com.imeth.chronobank.common.util.ColumnarReportFormat.ColumnType;
+import com.imeth.chronobank.common.util.ColumnarReportWriter;
+import com.imeth.chronobank.common.util.CsvChannelWriter;
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.common.util.ReferenceGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of formatting transaction report rows, field for field as the daily report exporter
+ * writes them, into a CSV file and into the compressed columnar format. Output is discarded, so
+ * only formatting and encoding are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportFormattingBenchmark {
+
+    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final List<Column> TRANSACTION_COLUMNS = Arrays.asList(
+            Column.of("Transaction ID", ColumnType.LONG_DELTA),
+            Column.of("Reference", ColumnType.STRING),
+            Column.of("Type", ColumnType.DICTIONARY),
+            Column.decimal("Amount", 2),
+            Column.of("Status", ColumnType.DICTIONARY),
+            Column.of("Date", ColumnType.TIMESTAMP_DELTA),
+            Column.of("Source Account", ColumnType.STRING),
+            Column.of("Target Account", ColumnType.STRING),
+            Column.of("Description", ColumnType.STRING));
+
+    @Param({"1000"})
+    private int rows;
+
+    private TransactionReportRow[] reportRows;
+    private CsvChannelWriter csv;
+    private ColumnarReportWriter columnar;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        Transaction.Type[] types = Transaction.Type.values();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        reportRows = new TransactionReportRow[rows];
+        for (int i = 0; i < rows; i++) {
+            reportRows[i] = new TransactionReportRow((long) i + 1, ReferenceGenerator.newTransactionReference(),
+                    types[random.nextInt(types.length)], Money.ofMinor(random.nextLong(1L, 1_000_000L)),
+                    Transaction.Status.COMPLETED, start.plusSeconds(i * 7L), (long) random.nextInt(1, 1000),
+                    String.format("CHB%07d", random.nextInt(1, 1000)), String.format("CHB%07d", random.nextInt(1, 1000)),
+                    "Payment, \"ref\" " + i);
+        }
+        csv = new CsvChannelWriter(Channels.newChannel(OutputStream.nullOutputStream()));
+        columnar = new ColumnarReportWriter(OutputStream.nullOutputStream(), TRANSACTION_COLUMNS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        csv.close();
+        columnar.close();
+    }
+
+    @Benchmark
+    public long csvRows() throws IOException {
+        for (TransactionReportRow row : reportRows) {
+            csv.field((long) row.getId())
+                    .field(row.getTransactionReference())
+                    .field(row.getType())
+                    .field(row.getAmount())
+                    .field(row.getStatus())
+                    .field(row.getTransactionDate().format(DATETIME_FORMATTER))
+                    .field(row.getSourceAccountNumber())
+                    .field(row.getTargetAccountNumber())
+                    .quoted(row.getDescription())
+                    .endRow();
+        }
+        return csv.getRowCount();
+    }
+
+    @Benchmark
+    public long columnarRows() throws IOException {
+        for (TransactionReportRow row : reportRows) {
+            columnar.value((long) row.getId())
+                    .value(row.getTransactionReference())
+                    .value(row.getType())
+                    .value(row.getAmount())
+                    .value(row.getStatus())
+                    .value(row.getTransactionDate())
+                    .value(row.getSourceAccountNumber())
+                    .value(row.getTargetAccountNumber())
+                    .value(row.getDescription())
+                    .endRow();
+        }
+        return columnar.getRowCount();
+    }
+}
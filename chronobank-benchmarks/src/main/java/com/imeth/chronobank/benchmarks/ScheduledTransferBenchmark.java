@@ -0,0 +1,110 @@
+package com.imeth.chronobank.benchmarks;
+
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+import com.imeth.chronobank.ejb.service.timer.ScheduledTransferChunkProcessor;
+import com.imeth.chronobank.ejb.service.timer.TransferChunkResult;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to drain a backlog of due scheduled transfers on one worker, each chunk claimed with
+ * {@code FOR UPDATE SKIP LOCKED} and committed in its own transaction. A chunk size of 1 is
+ * the cost of committing every transfer on its own. The backlog is regenerated with
+ * {@link SyntheticDataGenerator} before every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ScheduledTransferBenchmark {
+
+    private static final String DATABASE = "scheduled-transfers";
+
+    @Param({"2000"})
+    private int users;
+
+    @Param({"5000"})
+    private int transfers;
+
+    @Param({"1", "100"})
+    private int chunkSize;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private AccountSummaryCache cache;
+    private ScheduledTransferChunkProcessor processor;
+    private LocalDateTime dueBy;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws SQLException {
+        emf = BenchmarkDatabase.create(DATABASE);
+
+        // Generated transfers are due up to two days after the as-of time
+        LocalDateTime asOf = LocalDate.now().atStartOfDay();
+        dueBy = asOf.plusDays(2);
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(BenchmarkDatabase.dataSource(DATABASE));
+        generator.setUsers(users);
+        generator.setHistoryYears(1);
+        generator.setTransactionsPerAccountYear(2);
+        generator.setScheduledTransfers(transfers);
+        generator.setAsOf(asOf);
+        generator.generate();
+
+        em = emf.createEntityManager();
+        cache = new AccountSummaryCache();
+        BenchmarkDatabase.inject(cache, "em", em);
+        cache.init();
+
+        processor = new ScheduledTransferChunkProcessor();
+        BenchmarkDatabase.inject(processor, "em", em);
+        BenchmarkDatabase.inject(processor, "accountSummaryCache", cache);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        cache.destroy();
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public int drainBacklog() {
+        int processed = 0;
+        long lastTransactionId = 0L;
+        TransferChunkResult chunk;
+        do {
+            em.getTransaction().begin();
+            chunk = processor.processChunk(lastTransactionId, dueBy, chunkSize);
+            em.getTransaction().commit();
+            processed += chunk.getTransfersCompleted() + chunk.getTransfersFailed();
+            lastTransactionId = chunk.getLastTransactionId();
+        } while (chunk.getTransfersClaimed() == chunkSize);
+
+        if (processed != transfers) {
+            throw new IllegalStateException("Processed " + processed + " of " + transfers + " transfers");
+        }
+        return processed;
+    }
+}
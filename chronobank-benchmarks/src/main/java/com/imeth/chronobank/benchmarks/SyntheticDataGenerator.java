@@ -0,0 +1,692 @@
+package com.imeth.chronobank.benchmarks;
+
+import com.imeth.chronobank.common.constants.AppConstants;
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.Transaction;
+import com.imeth.chronobank.common.util.SecurityUtils;
+import com.imeth.chronobank.ejb.service.id.IdAllocator;
+import com.imeth.chronobank.ejb.service.id.IdBlock;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.SplittableRandom;
+import java.util.logging.Logger;
+
+/**
+ * Fills an empty ChronoBank schema with a realistic volume of users, accounts and transaction
+ * history, so that the nightly jobs and report exports can be measured at production scale.
+ * <p>
+ * The data is fully determined by the seed and the {@linkplain #setAsOf(LocalDateTime) as-of
+ * time}. Each user has one to five accounts with a fixed mix of types and statuses. Account
+ * activity follows a Pareto distribution, so a few accounts are very busy and most are quiet.
+ * Postings are denser towards the as-of time, and amounts are log-normal per transaction type.
+ * Every account's balance equals the sum of its completed postings, so reconciliation finds no
+ * discrepancies. A number of scheduled transfers are left due around the as-of time.
+ * <p>
+ * Rows are written with JDBC batches of {@link #setBatchSize(int) batchSize}, using ids reserved
+ * from the shared entity sequence. Account numbers and references are derived from the ids. The
+ * generator is meant for an empty schema created by the application or by
+ * {@link BenchmarkDatabase}.
+ * <p>
+ * Run it from the command line against an existing schema with
+ * <pre>
+ * java -cp chronobank-benchmarks/target/benchmarks.jar com.imeth.chronobank.benchmarks.SyntheticDataGenerator \
+ *     --url jdbc:mysql://localhost:3306/chronobank --user chronobank --password chronobank --users 1000000
+ * </pre>
+ * The JDBC driver of the target database must be on the class path.
+ */
+public final class SyntheticDataGenerator {
+
+    private static final Logger LOGGER = Logger.getLogger(SyntheticDataGenerator.class.getName());
+
+    private static final String PASSWORD = "password";
+    private static final String PASSWORD_SALT = Base64.getEncoder()
+            .encodeToString("chronobank-load".getBytes(StandardCharsets.UTF_8));
+
+    private static final String[] FIRST_NAMES = {
+            "Amal", "Nimal", "Kasun", "Dilani", "Sanduni", "Ruwan", "Ishara", "Tharindu", "Nadeesha", "Chamari",
+            "James", "Mary", "Robert", "Linda", "Michael", "Sarah", "David", "Emma", "Daniel", "Olivia"};
+
+    private static final String[] LAST_NAMES = {
+            "Perera", "Fernando", "Silva", "Jayasinghe", "Bandara", "Wijesinghe", "Dissanayake", "Herath",
+            "Smith", "Johnson", "Brown", "Taylor", "Wilson", "Clark", "Walker", "Young"};
+
+    // Account mix in percent, in enum order
+    private static final int[] TYPE_MIX = {50, 30, 12, 8};
+    private static final int[] STATUS_MIX = {92, 5, 2, 1};
+
+    // Transaction mix in percent, in enum order: DEPOSIT, WITHDRAWAL, TRANSFER, PAYMENT, FEE, INTEREST, ADJUSTMENT
+    private static final int[] TRANSACTION_MIX = {31, 24, 20, 15, 5, 4, 1};
+    private static final double[] MEDIAN_AMOUNT = {250.0, 80.0, 150.0, 60.0, 5.0, 2.0, 25.0};
+
+    private static final Account.Type[] ACCOUNT_TYPES = Account.Type.values();
+    private static final Account.Status[] ACCOUNT_STATUSES = Account.Status.values();
+    private static final Transaction.Type[] TRANSACTION_TYPES = Transaction.Type.values();
+
+    private static final double PARETO_ALPHA = 1.5;
+    private static final double MAX_ACTIVITY = 50.0;
+
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO users (id, username, password_hash, first_name, last_name, email, role, phone_number, " +
+            "address, active, version, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1, ?)";
+
+    private static final String INSERT_ACCOUNT_SQL =
+            "INSERT INTO accounts (id, account_number, type, balance, available_balance, interest_rate, status, " +
+            "user_id, version, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 1, ?)";
+
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO transactions (id, transaction_reference, type, amount, description, status, " +
+            "transaction_date, scheduled_date, posted_at, account_id, target_account_id, version, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1, ?)";
+
+    private final DataSource dataSource;
+    private final IdAllocator idAllocator;
+
+    private long seed = 42L;
+    private int users = 1000;
+    private int historyYears = 2;
+    private int transactionsPerAccountYear = 24;
+    private int scheduledTransfers = -1;
+    private int batchSize = 1000;
+    private LocalDateTime asOf = LocalDate.now().atStartOfDay();
+
+    // Plan of the accounts, indexed by account ordinal
+    private int accountCount;
+    private int[] accountOwner;
+    private byte[] accountType;
+    private byte[] accountStatus;
+    private long[] accountOpened;
+    private long[] accountBalance;
+
+    public SyntheticDataGenerator(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.idAllocator = new IdAllocator();
+        BenchmarkDatabase.inject(idAllocator, "dataSource", dataSource);
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setUsers(int users) {
+        this.users = users;
+    }
+
+    public void setHistoryYears(int historyYears) {
+        this.historyYears = historyYears;
+    }
+
+    /**
+     * @param transactionsPerAccountYear the average number of transactions per account and year
+     */
+    public void setTransactionsPerAccountYear(int transactionsPerAccountYear) {
+        this.transactionsPerAccountYear = transactionsPerAccountYear;
+    }
+
+    /**
+     * @param scheduledTransfers the number of pending scheduled transfers; by default one per ten users
+     */
+    public void setScheduledTransfers(int scheduledTransfers) {
+        this.scheduledTransfers = scheduledTransfers;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param asOf the time the generated history ends; postings are dated before it
+     */
+    public void setAsOf(LocalDateTime asOf) {
+        this.asOf = asOf;
+    }
+
+    /**
+     * Generate and insert the data set.
+     *
+     * @return the number of rows inserted per table
+     * @throws SQLException if an insert fails
+     */
+    public Result generate() throws SQLException {
+        long startTime = System.nanoTime();
+        planAccounts();
+
+        // First pass: settle every account's balance so that accounts can be inserted before their postings
+        long transactions = 0L;
+        for (int i = 0; i < accountCount; i++) {
+            int account = i;
+            transactions += postings(account, (type, status, amount, target, epochSecond) -> {
+                if (status == Transaction.Status.COMPLETED) {
+                    book(account, target, type, amount);
+                }
+            });
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            long firstUserId = insertUsers(connection);
+            long firstAccountId = insertAccounts(connection, firstUserId);
+            insertTransactions(connection, firstAccountId);
+            int scheduled = insertScheduledTransfers(connection, firstAccountId);
+            connection.commit();
+
+            Result result = new Result(users, accountCount, transactions + scheduled,
+                    (System.nanoTime() - startTime) / 1_000_000L);
+            LOGGER.info("Generated " + result);
+            return result;
+        }
+    }
+
+    private void planAccounts() {
+        SplittableRandom random = new SplittableRandom(seed);
+        int capacity = users * 2;
+        accountOwner = new int[capacity];
+        accountType = new byte[capacity];
+        accountStatus = new byte[capacity];
+        accountOpened = new long[capacity];
+        accountCount = 0;
+
+        long historyStart = epochSecond(asOf.minusYears(historyYears));
+        long historySeconds = epochSecond(asOf) - historyStart;
+        for (int user = 0; user < users; user++) {
+            // One account, then each further account with a chance of 45%, up to five
+            int accounts = 1;
+            while (accounts < 5 && random.nextInt(100) < 45) {
+                accounts++;
+            }
+            for (int i = 0; i < accounts; i++) {
+                if (accountCount == accountOwner.length) {
+                    growPlan();
+                }
+                accountOwner[accountCount] = user;
+                accountType[accountCount] = (byte) pick(random, TYPE_MIX);
+                accountStatus[accountCount] = (byte) pick(random, STATUS_MIX);
+                // Older accounts are more common than new ones
+                accountOpened[accountCount] = historyStart + (long) (historySeconds * Math.pow(random.nextDouble(), 2.0));
+                accountCount++;
+            }
+        }
+        accountBalance = new long[accountCount];
+    }
+
+    private void growPlan() {
+        int capacity = accountOwner.length * 2;
+        accountOwner = Arrays.copyOf(accountOwner, capacity);
+        accountType = Arrays.copyOf(accountType, capacity);
+        accountStatus = Arrays.copyOf(accountStatus, capacity);
+        accountOpened = Arrays.copyOf(accountOpened, capacity);
+    }
+
+    /**
+     * Generate the postings of one account. The sequence depends only on the seed and the account
+     * ordinal, so both passes see the same postings.
+     *
+     * @return the number of postings
+     */
+    private int postings(int account, PostingSink sink) {
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + account);
+        long asOfSecond = epochSecond(asOf);
+        long opened = accountOpened[account];
+        double years = (asOfSecond - opened) / (365.0 * 86_400.0);
+
+        // Pareto activity with a mean of one, capped so that no single account dominates
+        double xm = (PARETO_ALPHA - 1.0) / PARETO_ALPHA;
+        double activity = Math.min(MAX_ACTIVITY, xm / Math.pow(1.0 - random.nextDouble(), 1.0 / PARETO_ALPHA));
+        Account.Status status = ACCOUNT_STATUSES[accountStatus[account]];
+        if (status != Account.Status.ACTIVE) {
+            activity *= 0.2;
+        }
+        int count = (int) Math.round(activity * transactionsPerAccountYear * years);
+
+        // The opening deposit funds the account
+        sink.accept(Transaction.Type.DEPOSIT, Transaction.Status.COMPLETED,
+                cents(random, 1500.0), -1, opened);
+        for (int i = 0; i < count; i++) {
+            Transaction.Type type = TRANSACTION_TYPES[pick(random, TRANSACTION_MIX)];
+            int roll = random.nextInt(100);
+            Transaction.Status transactionStatus = roll < 97 ? Transaction.Status.COMPLETED
+                    : roll < 99 ? Transaction.Status.FAILED : Transaction.Status.CANCELLED;
+            int target = -1;
+            if (type == Transaction.Type.TRANSFER) {
+                target = random.nextInt(accountCount);
+                if (target == account) {
+                    target = (target + 1) % accountCount;
+                }
+            }
+            // Recent postings are denser than old ones
+            long when = opened + (long) ((asOfSecond - 1 - opened) * Math.pow(random.nextDouble(), 0.6));
+            sink.accept(type, transactionStatus, cents(random, MEDIAN_AMOUNT[type.ordinal()]), target, when);
+        }
+        return count + 1;
+    }
+
+    /**
+     * Apply a completed posting to the planned balances, with the same sides as reconciliation.
+     */
+    private void book(int account, int target, Transaction.Type type, long amount) {
+        switch (type) {
+            case DEPOSIT:
+            case INTEREST:
+            case ADJUSTMENT:
+                accountBalance[account] += amount;
+                break;
+            case TRANSFER:
+                accountBalance[account] -= amount;
+                accountBalance[target] += amount;
+                break;
+            default:
+                accountBalance[account] -= amount;
+                break;
+        }
+    }
+
+    private long insertUsers(Connection connection) throws SQLException {
+        // Every user shares one hash, which keeps generation fast and the output reproducible
+        String passwordHash = SecurityUtils.hashPassword(PASSWORD, PASSWORD_SALT);
+        SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+        Timestamp created = Timestamp.valueOf(asOf.minusYears(historyYears));
+        // One block for all users, so that a user's id follows from its ordinal
+        IdBlock ids = idAllocator.allocate(users);
+        long firstId = 0L;
+
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_USER_SQL)) {
+            for (int user = 0; user < users; user++) {
+                long id = ids.next();
+                if (user == 0) {
+                    firstId = id;
+                }
+                insert.setLong(1, id);
+                insert.setString(2, "lt" + id);
+                insert.setString(3, passwordHash);
+                insert.setString(4, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+                insert.setString(5, LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+                insert.setString(6, "lt" + id + "@example.com");
+                insert.setString(7, "CUSTOMER");
+                insert.setString(8, String.format("+9477%07d", random.nextInt(10_000_000)));
+                insert.setString(9, (1 + random.nextInt(400)) + " Galle Road, Colombo");
+                insert.setBoolean(10, random.nextInt(100) < 98);
+                insert.setTimestamp(11, created);
+                addToBatch(connection, insert, user + 1);
+            }
+            flush(connection, insert);
+        }
+        return firstId;
+    }
+
+    private long insertAccounts(Connection connection, long firstUserId) throws SQLException {
+        SplittableRandom random = new SplittableRandom(seed ^ 0x2545F4914F6CDD1DL);
+        IdBlock ids = idAllocator.allocate(accountCount);
+        long firstId = 0L;
+
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_ACCOUNT_SQL)) {
+            for (int account = 0; account < accountCount; account++) {
+                long id = ids.next();
+                if (account == 0) {
+                    firstId = id;
+                }
+                Account.Type type = ACCOUNT_TYPES[accountType[account]];
+                BigDecimal balance = BigDecimal.valueOf(accountBalance[account], 2);
+                insert.setLong(1, id);
+                insert.setString(2, AppConstants.ACCOUNT_PREFIX + base36(id, AppConstants.ACCOUNT_NUMBER_LENGTH - 3));
+                insert.setString(3, type.name());
+                insert.setBigDecimal(4, balance);
+                insert.setBigDecimal(5, balance);
+                if (type == Account.Type.SAVINGS) {
+                    insert.setBigDecimal(6, BigDecimal.valueOf(150 + random.nextInt(300), 4));
+                } else if (type == Account.Type.INVESTMENT) {
+                    insert.setBigDecimal(6, BigDecimal.valueOf(400 + random.nextInt(300), 4));
+                } else {
+                    insert.setNull(6, Types.DECIMAL);
+                }
+                insert.setString(7, ACCOUNT_STATUSES[accountStatus[account]].name());
+                insert.setLong(8, firstUserId + accountOwner[account]);
+                insert.setTimestamp(9, timestamp(accountOpened[account]));
+                addToBatch(connection, insert, account + 1);
+            }
+            flush(connection, insert);
+        }
+        return firstId;
+    }
+
+    private void insertTransactions(Connection connection, long firstAccountId) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_TRANSACTION_SQL)) {
+            IdBlock[] ids = new IdBlock[1];
+            long[] rows = new long[1];
+            SQLException[] failure = new SQLException[1];
+            for (int account = 0; account < accountCount && failure[0] == null; account++) {
+                long accountId = firstAccountId + account;
+                postings(account, (type, status, amount, target, epochSecond) -> {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    try {
+                        if (ids[0] == null || !ids[0].hasNext()) {
+                            ids[0] = idAllocator.allocate(batchSize);
+                        }
+                        Timestamp when = timestamp(epochSecond);
+                        bindTransaction(insert, ids[0].next(), type, status, amount, when, null, accountId,
+                                targetId(type, accountId, target, firstAccountId));
+                        addToBatch(connection, insert, ++rows[0]);
+                    } catch (SQLException e) {
+                        failure[0] = e;
+                    }
+                });
+            }
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            flush(connection, insert);
+        }
+    }
+
+    private int insertScheduledTransfers(Connection connection, long firstAccountId) throws SQLException {
+        int count = scheduledTransfers >= 0 ? scheduledTransfers : users / 10;
+        if (count == 0 || accountCount < 2) {
+            return 0;
+        }
+        SplittableRandom random = new SplittableRandom(seed ^ 0x632BE59BD9B4E019L);
+        long asOfSecond = epochSecond(asOf);
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_TRANSACTION_SQL)) {
+            IdBlock ids = null;
+            for (int i = 0; i < count; i++) {
+                if (ids == null || !ids.hasNext()) {
+                    ids = idAllocator.allocate(Math.min(batchSize, count - i));
+                }
+                int source = random.nextInt(accountCount);
+                int target = (source + 1 + random.nextInt(accountCount - 1)) % accountCount;
+                // Due from a day before to two days after the as-of time
+                Timestamp due = timestamp(asOfSecond - 86_400L + random.nextLong(3L * 86_400L));
+                bindTransaction(insert, ids.next(), Transaction.Type.TRANSFER, Transaction.Status.SCHEDULED,
+                        cents(random, MEDIAN_AMOUNT[Transaction.Type.TRANSFER.ordinal()]),
+                        timestamp(asOfSecond - 7L * 86_400L), due, firstAccountId + source, firstAccountId + target);
+                addToBatch(connection, insert, i + 1);
+            }
+            flush(connection, insert);
+        }
+        return count;
+    }
+
+    private static void bindTransaction(PreparedStatement insert, long id, Transaction.Type type,
+                                        Transaction.Status status, long amount, Timestamp date, Timestamp scheduled,
+                                        long accountId, Long targetAccountId) throws SQLException {
+        insert.setLong(1, id);
+        insert.setString(2, AppConstants.TRANSACTION_PREFIX + base36(id, AppConstants.TRANSACTION_REFERENCE_LENGTH - 3));
+        insert.setString(3, type.name());
+        insert.setBigDecimal(4, BigDecimal.valueOf(amount, 2));
+        insert.setString(5, type.name().charAt(0) + type.name().substring(1).toLowerCase());
+        insert.setString(6, status.name());
+        insert.setTimestamp(7, date);
+        insert.setTimestamp(8, scheduled);
+        insert.setTimestamp(9, status == Transaction.Status.COMPLETED ? date : null);
+        insert.setLong(10, accountId);
+        if (targetAccountId != null) {
+            insert.setLong(11, targetAccountId);
+        } else {
+            insert.setNull(11, Types.BIGINT);
+        }
+        insert.setTimestamp(12, date);
+    }
+
+    private static Long targetId(Transaction.Type type, long accountId, int target, long firstAccountId) {
+        switch (type) {
+            case DEPOSIT:
+            case INTEREST:
+                return accountId;
+            case TRANSFER:
+                return firstAccountId + target;
+            default:
+                return null;
+        }
+    }
+
+    private void addToBatch(Connection connection, PreparedStatement statement, long rows) throws SQLException {
+        statement.addBatch();
+        if (rows % batchSize == 0) {
+            flush(connection, statement);
+        }
+    }
+
+    private static void flush(Connection connection, PreparedStatement statement) throws SQLException {
+        statement.executeBatch();
+        connection.commit();
+    }
+
+    /**
+     * Pick an index with the given percentages, which must add up to 100.
+     */
+    private static int pick(SplittableRandom random, int[] percentages) {
+        int roll = random.nextInt(100);
+        for (int i = 0; i < percentages.length; i++) {
+            roll -= percentages[i];
+            if (roll < 0) {
+                return i;
+            }
+        }
+        return percentages.length - 1;
+    }
+
+    /**
+     * A log-normal amount in cents with the given median and a spread of about one order of
+     * magnitude, at least one cent.
+     */
+    private static long cents(SplittableRandom random, double median) {
+        // Box-Muller transform; SplittableRandom has no Gaussian on Java 11
+        double gaussian = Math.sqrt(-2.0 * Math.log(1.0 - random.nextDouble())) * Math.cos(2.0 * Math.PI * random.nextDouble());
+        return Math.max(1L, Math.round(median * Math.exp(0.9 * gaussian) * 100.0));
+    }
+
+    private static String base36(long value, int digits) {
+        String text = Long.toString(value, 36).toUpperCase();
+        if (text.length() > digits) {
+            throw new IllegalStateException("Id " + value + " does not fit in " + digits + " base-36 digits");
+        }
+        StringBuilder padded = new StringBuilder(digits);
+        for (int i = text.length(); i < digits; i++) {
+            padded.append('0');
+        }
+        return padded.append(text).toString();
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static Timestamp timestamp(long epochSecond) {
+        return Timestamp.valueOf(LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC));
+    }
+
+    /**
+     * Receives the postings of one account.
+     */
+    @FunctionalInterface
+    private interface PostingSink {
+
+        /**
+         * @param target the ordinal of the target account of a transfer, -1 otherwise
+         */
+        void accept(Transaction.Type type, Transaction.Status status, long amount, int target, long epochSecond);
+    }
+
+    /**
+     * Number of rows generated per table.
+     */
+    public static final class Result {
+
+        private final int users;
+        private final int accounts;
+        private final long transactions;
+        private final long elapsedMillis;
+
+        Result(int users, int accounts, long transactions, long elapsedMillis) {
+            this.users = users;
+            this.accounts = accounts;
+            this.transactions = transactions;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getUsers() {
+            return users;
+        }
+
+        public int getAccounts() {
+            return accounts;
+        }
+
+        public long getTransactions() {
+            return transactions;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return users + " users, " + accounts + " accounts and " + transactions + " transactions in " +
+                    elapsedMillis + " ms";
+        }
+    }
+
+    /**
+     * Generate a data set into an existing schema. Options: {@code --url} (required),
+     * {@code --user}, {@code --password}, {@code --seed}, {@code --users}, {@code --years},
+     * {@code --transactions-per-account-year}, {@code --scheduled-transfers}, {@code --batch-size}
+     * and {@code --as-of} (an ISO date).
+     *
+     * @param args the options
+     * @throws SQLException if generation fails
+     */
+    public static void main(String[] args) throws SQLException {
+        String url = null;
+        String user = null;
+        String password = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--url":
+                    url = value;
+                    break;
+                case "--user":
+                    user = value;
+                    break;
+                case "--password":
+                    password = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (url == null) {
+            System.err.println("Usage: SyntheticDataGenerator --url <jdbc url> [--user <user>] [--password <password>] " +
+                    "[--seed <n>] [--users <n>] [--years <n>] [--transactions-per-account-year <n>] " +
+                    "[--scheduled-transfers <n>] [--batch-size <n>] [--as-of <yyyy-mm-dd>]");
+            System.exit(2);
+        }
+
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(new DriverManagerDataSource(url, user, password));
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--seed":
+                    generator.setSeed(Long.parseLong(value));
+                    break;
+                case "--users":
+                    generator.setUsers(Integer.parseInt(value));
+                    break;
+                case "--years":
+                    generator.setHistoryYears(Integer.parseInt(value));
+                    break;
+                case "--transactions-per-account-year":
+                    generator.setTransactionsPerAccountYear(Integer.parseInt(value));
+                    break;
+                case "--scheduled-transfers":
+                    generator.setScheduledTransfers(Integer.parseInt(value));
+                    break;
+                case "--batch-size":
+                    generator.setBatchSize(Integer.parseInt(value));
+                    break;
+                case "--as-of":
+                    generator.setAsOf(LocalDate.parse(value).atStartOfDay());
+                    break;
+                default:
+                    break;
+            }
+        }
+        System.out.println(generator.generate());
+    }
+
+    /**
+     * Minimal data source over {@link DriverManager} for command line runs outside a container.
+     */
+    private static final class DriverManagerDataSource implements DataSource {
+
+        private final String url;
+        private final String user;
+        private final String password;
+
+        private DriverManagerDataSource(String url, String user, String password) {
+            this.url = url;
+            this.user = user;
+            this.password = password;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return DriverManager.getConnection(url, user, password);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return DriverManager.getConnection(url, username, password);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return DriverManager.getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {
+            DriverManager.setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) {
+            DriverManager.setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() {
+            return DriverManager.getLoginTimeout();
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            throw new SQLException("Not a wrapper");
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.imeth.chronobank.benchmarks;
+
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+import com.imeth.chronobank.ejb.service.transfer.TransferEngine;
+import com.imeth.chronobank.ejb.service.transfer.TransferOutcome;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of account-to-account transfers when many threads move money at random between a
+ * small set of {@code hotAccounts} accounts, in both directions.
+ * <p>
+ * {@code orderedLocks} goes through {@link TransferEngine#transfer(long, long, Money)}, which locks
+ * both accounts in id order. {@code optimisticMerge} is the previous approach: read both accounts
+ * without locks and rely on the version check at commit. The {@code conflicts} counter reports
+ * transfers that were rolled back by a version conflict, deadlock or lock timeout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Threads(8)
+@Fork(1)
+public class TransferContentionBenchmark {
+
+    private static final String DATABASE = "transfer-contention";
+
+    private static final Money AMOUNT = Money.ofMinor(1L);
+
+    @Param({"4", "32"})
+    private int hotAccounts;
+
+    private EntityManagerFactory emf;
+    private EntityManager cacheEm;
+    private AccountSummaryCache cache;
+    private long[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = BenchmarkDatabase.create(DATABASE);
+        accountIds = BenchmarkDatabase.seedAccounts(emf, hotAccounts);
+
+        cacheEm = emf.createEntityManager();
+        cache = new AccountSummaryCache();
+        BenchmarkDatabase.inject(cache, "em", cacheEm);
+        cache.init();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.destroy();
+        cacheEm.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public TransferOutcome orderedLocks(Worker worker, Outcomes outcomes) {
+        long[] pair = pickPair();
+        EntityManager em = worker.em;
+        em.getTransaction().begin();
+        try {
+            TransferOutcome outcome = worker.engine.transfer(pair[0], pair[1], AMOUNT);
+            em.getTransaction().commit();
+            outcomes.completed++;
+            return outcome;
+        } catch (PersistenceException e) {
+            return conflict(em, outcomes);
+        } finally {
+            em.clear();
+        }
+    }
+
+    @Benchmark
+    public TransferOutcome optimisticMerge(Worker worker, Outcomes outcomes) {
+        long[] pair = pickPair();
+        EntityManager em = worker.em;
+        em.getTransaction().begin();
+        try {
+            Account source = em.find(Account.class, pair[0]);
+            Account target = em.find(Account.class, pair[1]);
+            TransferOutcome outcome = worker.engine.apply(source, target, AMOUNT);
+            em.getTransaction().commit();
+            outcomes.completed++;
+            return outcome;
+        } catch (PersistenceException e) {
+            return conflict(em, outcomes);
+        } finally {
+            em.clear();
+        }
+    }
+
+    private long[] pickPair() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int source = random.nextInt(accountIds.length);
+        int target = (source + 1 + random.nextInt(accountIds.length - 1)) % accountIds.length;
+        return new long[] {accountIds[source], accountIds[target]};
+    }
+
+    private static TransferOutcome conflict(EntityManager em, Outcomes outcomes) {
+        if (em.getTransaction().isActive()) {
+            em.getTransaction().rollback();
+        }
+        outcomes.conflicts++;
+        return null;
+    }
+
+    /**
+     * The entity manager and engine of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Worker {
+
+        private EntityManager em;
+        private TransferEngine engine;
+
+        @Setup(Level.Trial)
+        public void setUp(TransferContentionBenchmark benchmark) {
+            em = benchmark.emf.createEntityManager();
+            engine = new TransferEngine();
+            BenchmarkDatabase.inject(engine, "em", em);
+            BenchmarkDatabase.inject(engine, "accountSummaryCache", benchmark.cache);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            // The factory may already have been closed by the last thread to finish
+            if (em.isOpen()) {
+                em.close();
+            }
+        }
+    }
+
+    /**
+     * Committed and rolled back transfers per iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+
+        public long completed;
+        public long conflicts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            completed = 0L;
+            conflicts = 0L;
+        }
+    }
+}
@@ -19,11 +19,27 @@ public final class AppConstants {
     public static final String ACCOUNT_PREFIX = "CHB";
     public static final int ACCOUNT_NUMBER_LENGTH = 10;
     
+    // Cluster Constants
+    public static final String NODE_ID_PROPERTY = "chronobank.node.id";
+    
     // Timer Service Constants
     public static final String DAILY_BALANCE_UPDATE_TIMER = "DailyBalanceUpdateTimer";
     public static final String INTEREST_CALCULATION_TIMER = "InterestCalculationTimer";
     public static final String SCHEDULED_TRANSFER_TIMER = "ScheduledTransferTimer";
     public static final String REPORT_GENERATION_TIMER = "ReportGenerationTimer";
+    public static final String BALANCE_STRIPE_FOLD_TIMER = "BalanceStripeFoldTimer";
+    public static final String BALANCE_JOURNAL_COMPACTION_TIMER = "BalanceJournalCompactionTimer";
+    
+    // Batch Processing Constants
+    public static final int DEFAULT_BATCH_CHUNK_SIZE = 500;
+    public static final int DEFAULT_ACCRUAL_SHARDS = 4;
+    public static final int DEFAULT_TRANSFER_CHUNK_SIZE = 100;
+    public static final int DEFAULT_TRANSFER_WORKERS = 4;
+    public static final int DEFAULT_TRANSFER_TICK_SECONDS = 1;
+    public static final int TRANSFER_WHEEL_SIZE = 64;
+    public static final int TRANSFER_WHEEL_HORIZON_MINUTES = 120;
+    public static final int MAX_BALANCE_STRIPES = 64;
+    public static final int DEFAULT_JOURNAL_COMPACTION_CHUNK_SIZE = 500;
     
     // API Paths
     public static final String API_BASE_PATH = "/api";
@@ -31,10 +47,17 @@ public final class AppConstants {
     public static final String API_ADMIN_PATH = "/admin";
     public static final String API_MANAGER_PATH = "/manager";
     public static final String API_CUSTOMER_PATH = "/customer";
+    public static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+    public static final int MAX_ACCOUNT_BATCH_SIZE = 50000;
     
     // Pagination Constants
     public static final int DEFAULT_PAGE_SIZE = 20;
     public static final int MAX_PAGE_SIZE = 100;
+    public static final int ACCOUNT_COUNT_ESTIMATE_TTL_SECONDS = 60;
+    
+    // Cache Constants
+    public static final int PRINCIPAL_CACHE_MAX_ENTRIES = 10000;
+    public static final int PRINCIPAL_CACHE_TTL_SECONDS = 300;
     
     private AppConstants() {
         // Private constructor to prevent instantiation
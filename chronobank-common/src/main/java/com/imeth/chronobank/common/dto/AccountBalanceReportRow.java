@@ -0,0 +1,101 @@
+package com.imeth.chronobank.common.dto;
+
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.util.Money;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * Immutable row of an account balance report, populated directly by a JPQL constructor
+ * expression so that no Account or User entities are managed while exporting.
+ */
+public final class AccountBalanceReportRow implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String CSV_HEADER =
+            "Account ID,Account Number,Type,Balance,Available Balance,Status,Owner,Owner Email";
+
+    private final Long id;
+    private final String accountNumber;
+    private final Account.Type type;
+    private final Money balance;
+    private final Money availableBalance;
+    private final Account.Status status;
+    private final String ownerFirstName;
+    private final String ownerLastName;
+    private final String ownerEmail;
+
+    /**
+     * Create a row. The credits still pending in the account's balance stripes and balance
+     * journal are added to both balances, as in the account summaries.
+     */
+    public AccountBalanceReportRow(Long id, String accountNumber, Account.Type type, Money balance,
+                                   Money availableBalance, Number pendingAmount, Account.Status status,
+                                   String ownerFirstName, String ownerLastName, String ownerEmail) {
+        Money pending = Money.of(new BigDecimal(pendingAmount.toString()));
+        this.id = id;
+        this.accountNumber = accountNumber;
+        this.type = type;
+        this.balance = balance.plus(pending);
+        this.availableBalance = availableBalance.plus(pending);
+        this.status = status;
+        this.ownerFirstName = ownerFirstName;
+        this.ownerLastName = ownerLastName;
+        this.ownerEmail = ownerEmail;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public Account.Type getType() {
+        return type;
+    }
+
+    public Money getBalance() {
+        return balance;
+    }
+
+    public Money getAvailableBalance() {
+        return availableBalance;
+    }
+
+    public Account.Status getStatus() {
+        return status;
+    }
+
+    public String getOwnerFirstName() {
+        return ownerFirstName;
+    }
+
+    public String getOwnerLastName() {
+        return ownerLastName;
+    }
+
+    public String getOwnerName() {
+        return ownerFirstName + " " + ownerLastName;
+    }
+
+    public String getOwnerEmail() {
+        return ownerEmail;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountBalanceReportRow{" +
+                "id=" + id +
+                ", accountNumber='" + accountNumber + '\'' +
+                ", type=" + type +
+                ", balance=" + balance +
+                ", availableBalance=" + availableBalance +
+                ", status=" + status +
+                ", ownerEmail='" + ownerEmail + '\'' +
+                '}';
+    }
+}
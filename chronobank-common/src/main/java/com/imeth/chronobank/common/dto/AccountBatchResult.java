@@ -0,0 +1,98 @@
+package com.imeth.chronobank.common.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk account creation, with one result per submitted row in submission order.
+ */
+public class AccountBatchResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String CREATED = "CREATED";
+    public static final String REJECTED = "REJECTED";
+
+    private final List<Row> results = new ArrayList<>();
+    private int created;
+    private int rejected;
+
+    /**
+     * Record a created account.
+     *
+     * @param index the 0-based position of the row in the request
+     * @param accountId the id of the new account
+     * @param accountNumber the number of the new account
+     */
+    public void created(int index, Long accountId, String accountNumber) {
+        results.add(new Row(index, CREATED, accountId, accountNumber, null));
+        created++;
+    }
+
+    /**
+     * Record a rejected row.
+     *
+     * @param index the 0-based position of the row in the request
+     * @param error why the row was rejected
+     */
+    public void rejected(int index, String error) {
+        results.add(new Row(index, REJECTED, null, null, error));
+        rejected++;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public List<Row> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Result of one submitted row.
+     */
+    public static class Row implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int index;
+        private final String status;
+        private final Long accountId;
+        private final String accountNumber;
+        private final String error;
+
+        public Row(int index, String status, Long accountId, String accountNumber, String error) {
+            this.index = index;
+            this.status = status;
+            this.accountId = accountId;
+            this.accountNumber = accountNumber;
+            this.error = error;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public Long getAccountId() {
+            return accountId;
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
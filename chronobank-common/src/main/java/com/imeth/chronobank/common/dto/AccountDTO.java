@@ -24,6 +24,7 @@ public class AccountDTO implements Serializable {
     private String userName;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version;
 
     public AccountDTO() {
     }
@@ -42,6 +43,7 @@ public class AccountDTO implements Serializable {
         }
         this.createdAt = account.getCreatedAt();
         this.updatedAt = account.getUpdatedAt();
+        this.version = account.getVersion();
     }
 
     public Long getId() {
@@ -131,4 +133,12 @@ public class AccountDTO implements Serializable {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
-}
\ No newline at end of file
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,161 @@
+package com.imeth.chronobank.common.dto;
+
+import com.imeth.chronobank.common.entity.JobRun;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Data Transfer Object for JobRun entity.
+ */
+public class JobRunDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+    private String jobName;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long durationMillis;
+    private long windowMillis;
+    private long itemsProcessed;
+    private long itemsFailed;
+    private double itemsPerSecond;
+    private long p50ItemMicros;
+    private long p99ItemMicros;
+    private long maxItemMicros;
+    private String status;
+    private String error;
+
+    public JobRunDTO() {
+    }
+
+    public JobRunDTO(JobRun run) {
+        this.id = run.getId();
+        this.jobName = run.getJobName();
+        this.startedAt = run.getStartedAt();
+        this.finishedAt = run.getFinishedAt();
+        this.durationMillis = run.getDurationMillis();
+        this.windowMillis = run.getWindowMillis();
+        this.itemsProcessed = run.getItemsProcessed();
+        this.itemsFailed = run.getItemsFailed();
+        this.itemsPerSecond = run.getItemsProcessed() * 1000.0 / Math.max(1L, run.getDurationMillis());
+        this.p50ItemMicros = run.getP50ItemMicros();
+        this.p99ItemMicros = run.getP99ItemMicros();
+        this.maxItemMicros = run.getMaxItemMicros();
+        this.status = run.getStatus().name();
+        this.error = run.getError();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public void setWindowMillis(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public long getItemsProcessed() {
+        return itemsProcessed;
+    }
+
+    public void setItemsProcessed(long itemsProcessed) {
+        this.itemsProcessed = itemsProcessed;
+    }
+
+    public long getItemsFailed() {
+        return itemsFailed;
+    }
+
+    public void setItemsFailed(long itemsFailed) {
+        this.itemsFailed = itemsFailed;
+    }
+
+    public double getItemsPerSecond() {
+        return itemsPerSecond;
+    }
+
+    public void setItemsPerSecond(double itemsPerSecond) {
+        this.itemsPerSecond = itemsPerSecond;
+    }
+
+    public long getP50ItemMicros() {
+        return p50ItemMicros;
+    }
+
+    public void setP50ItemMicros(long p50ItemMicros) {
+        this.p50ItemMicros = p50ItemMicros;
+    }
+
+    public long getP99ItemMicros() {
+        return p99ItemMicros;
+    }
+
+    public void setP99ItemMicros(long p99ItemMicros) {
+        this.p99ItemMicros = p99ItemMicros;
+    }
+
+    public long getMaxItemMicros() {
+        return maxItemMicros;
+    }
+
+    public void setMaxItemMicros(long maxItemMicros) {
+        this.maxItemMicros = maxItemMicros;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,102 @@
+package com.imeth.chronobank.common.dto;
+
+import com.imeth.chronobank.common.entity.Transaction;
+import com.imeth.chronobank.common.util.Money;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable row of a transaction report, populated directly by a JPQL constructor expression
+ * so that no Transaction, Account or User entities are managed while exporting.
+ */
+public final class TransactionReportRow implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String CSV_HEADER =
+            "Transaction ID,Reference,Type,Amount,Status,Date,Source Account,Target Account,Description";
+
+    private final Long id;
+    private final String transactionReference;
+    private final Transaction.Type type;
+    private final Money amount;
+    private final Transaction.Status status;
+    private final LocalDateTime transactionDate;
+    private final Long sourceAccountId;
+    private final String sourceAccountNumber;
+    private final String targetAccountNumber;
+    private final String description;
+
+    public TransactionReportRow(Long id, String transactionReference, Transaction.Type type, Money amount,
+                                Transaction.Status status, LocalDateTime transactionDate, Long sourceAccountId,
+                                String sourceAccountNumber, String targetAccountNumber, String description) {
+        this.id = id;
+        this.transactionReference = transactionReference;
+        this.type = type;
+        this.amount = amount;
+        this.status = status;
+        this.transactionDate = transactionDate;
+        this.sourceAccountId = sourceAccountId;
+        this.sourceAccountNumber = sourceAccountNumber;
+        this.targetAccountNumber = targetAccountNumber;
+        this.description = description;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTransactionReference() {
+        return transactionReference;
+    }
+
+    public Transaction.Type getType() {
+        return type;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public Transaction.Status getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getTransactionDate() {
+        return transactionDate;
+    }
+
+    public Long getSourceAccountId() {
+        return sourceAccountId;
+    }
+
+    public String getSourceAccountNumber() {
+        return sourceAccountNumber;
+    }
+
+    /**
+     * @return the target account number, null for transactions without a target account
+     */
+    public String getTargetAccountNumber() {
+        return targetAccountNumber;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionReportRow{" +
+                "id=" + id +
+                ", transactionReference='" + transactionReference + '\'' +
+                ", type=" + type +
+                ", amount=" + amount +
+                ", status=" + status +
+                ", transactionDate=" + transactionDate +
+                ", sourceAccountNumber='" + sourceAccountNumber + '\'' +
+                ", targetAccountNumber='" + targetAccountNumber + '\'' +
+                '}';
+    }
+}
@@ -1,6 +1,10 @@
 package com.imeth.chronobank.common.entity;
 
+import com.imeth.chronobank.common.util.Money;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
@@ -18,9 +22,14 @@ import java.util.List;
 
 /**
  * Entity representing a bank account.
+ * <p>
+ * Accounts are kept out of the shared cache, as the interest accrual updates their balances and
+ * versions with JDBC batches that the persistence provider does not see, and the balance journal
+ * compaction folds journaled credits into them with native updates that it does not track.
  */
 @Entity
 @Table(name = "accounts")
+@Cacheable(false)
 public class Account extends BaseEntity {
 
     private static final long serialVersionUID = 1L;
@@ -44,12 +53,14 @@ public class Account extends BaseEntity {
     private Type type;
 
     @NotNull
-    @Column(name = "balance", nullable = false)
-    private BigDecimal balance = BigDecimal.ZERO;
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "balance", nullable = false, precision = 19, scale = 2)
+    private Money balance = Money.ZERO;
 
     @NotNull
-    @Column(name = "available_balance", nullable = false)
-    private BigDecimal availableBalance = BigDecimal.ZERO;
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "available_balance", nullable = false, precision = 19, scale = 2)
+    private Money availableBalance = Money.ZERO;
 
     @Column(name = "interest_rate")
     private BigDecimal interestRate;
@@ -66,6 +77,13 @@ public class Account extends BaseEntity {
     @OneToMany(mappedBy = "account")
     private List<Transaction> transactions = new ArrayList<>();
 
+    // Null if the account has never been striped, 0 if striping has been turned off
+    @Column(name = "balance_stripes")
+    private Integer stripeCount;
+
+    @OneToMany(mappedBy = "account")
+    private List<AccountBalanceStripe> balanceStripes = new ArrayList<>();
+
     public String getAccountNumber() {
         return accountNumber;
     }
@@ -83,18 +101,34 @@ public class Account extends BaseEntity {
     }
 
     public BigDecimal getBalance() {
-        return balance;
+        return balance != null ? balance.toBigDecimal() : null;
     }
 
     public void setBalance(BigDecimal balance) {
+        this.balance = Money.of(balance);
+    }
+
+    public Money getBalanceMoney() {
+        return balance;
+    }
+
+    public void setBalanceMoney(Money balance) {
         this.balance = balance;
     }
 
     public BigDecimal getAvailableBalance() {
-        return availableBalance;
+        return availableBalance != null ? availableBalance.toBigDecimal() : null;
     }
 
     public void setAvailableBalance(BigDecimal availableBalance) {
+        this.availableBalance = Money.of(availableBalance);
+    }
+
+    public Money getAvailableBalanceMoney() {
+        return availableBalance;
+    }
+
+    public void setAvailableBalanceMoney(Money availableBalance) {
         this.availableBalance = availableBalance;
     }
 
@@ -130,6 +164,33 @@ public class Account extends BaseEntity {
         this.transactions = transactions;
     }
 
+    /**
+     * @return the number of stripes that credits are spread over, null if the account has never
+     *         been striped
+     */
+    public Integer getStripeCount() {
+        return stripeCount;
+    }
+
+    public void setStripeCount(Integer stripeCount) {
+        this.stripeCount = stripeCount;
+    }
+
+    /**
+     * @return whether credits to the account go to its balance stripes
+     */
+    public boolean isStriped() {
+        return stripeCount != null && stripeCount > 0;
+    }
+
+    public List<AccountBalanceStripe> getBalanceStripes() {
+        return balanceStripes;
+    }
+
+    public void setBalanceStripes(List<AccountBalanceStripe> balanceStripes) {
+        this.balanceStripes = balanceStripes;
+    }
+
     @Override
     public String toString() {
         return "Account{" +
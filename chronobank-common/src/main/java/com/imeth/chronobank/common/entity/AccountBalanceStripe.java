@@ -0,0 +1,70 @@
+package com.imeth.chronobank.common.entity;
+
+import com.imeth.chronobank.common.util.Money;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Entity holding credits to a hot account that have not yet been folded into its balance.
+ * A striped account spreads its credits over several of these rows, so concurrent credits do not
+ * all wait for the account row. The account's balance is its own balance plus the amounts of
+ * its stripes.
+ */
+@Entity
+@Table(name = "account_balance_stripes",
+        uniqueConstraints = @UniqueConstraint(name = "uk_account_balance_stripes", columnNames = {"account_id", "stripe"}))
+public class AccountBalanceStripe extends BaseEntity {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", nullable = false)
+    private Account account;
+
+    @Column(name = "stripe", nullable = false)
+    private int stripe;
+
+    @NotNull
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "amount", nullable = false, precision = 19, scale = 2)
+    private Money amount = Money.ZERO;
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public void setAccount(Account account) {
+        this.account = account;
+    }
+
+    /**
+     * @return the index of the stripe, from 0 to the account's stripe count - 1
+     */
+    public int getStripe() {
+        return stripe;
+    }
+
+    public void setStripe(int stripe) {
+        this.stripe = stripe;
+    }
+
+    /**
+     * @return the credits not yet folded into the account balance
+     */
+    public Money getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Money amount) {
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,109 @@
+package com.imeth.chronobank.common.entity;
+
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Entity recording the last verified reconciliation of an account.
+ * The verified balance is the ledger balance of all COMPLETED transactions posted before the
+ * covered-before time, so the next reconciliation only needs to aggregate newer postings.
+ * <p>
+ * Checkpoints are kept out of the shared cache, as the bulk reconciliation writes them with JDBC
+ * batches while the per-account reconciliation reads and writes them as entities.
+ */
+@Entity
+@Table(name = "balance_checkpoints")
+@Cacheable(false)
+public class BalanceCheckpoint extends BaseEntity {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", unique = true, nullable = false)
+    private Account account;
+
+    @Column(name = "verified_balance")
+    private BigDecimal verifiedBalance;
+
+    @Column(name = "recorded_balance")
+    private BigDecimal recordedBalance;
+
+    @NotNull
+    @Column(name = "covered_before", nullable = false)
+    private LocalDateTime coveredBefore;
+
+    @Column(name = "reconciled_at")
+    private LocalDateTime reconciledAt;
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public void setAccount(Account account) {
+        this.account = account;
+    }
+
+    /**
+     * @return the ledger balance covered by the checkpoint, null if nothing has been posted yet
+     */
+    public BigDecimal getVerifiedBalance() {
+        return verifiedBalance;
+    }
+
+    public void setVerifiedBalance(BigDecimal verifiedBalance) {
+        this.verifiedBalance = verifiedBalance;
+    }
+
+    /**
+     * @return the recorded balance of the account when it was reconciled, less the postings made
+     *         since the covered-before time
+     */
+    public BigDecimal getRecordedBalance() {
+        return recordedBalance;
+    }
+
+    public void setRecordedBalance(BigDecimal recordedBalance) {
+        this.recordedBalance = recordedBalance;
+    }
+
+    /**
+     * @return the exclusive upper bound of the posting times covered by the verified balance
+     */
+    public LocalDateTime getCoveredBefore() {
+        return coveredBefore;
+    }
+
+    public void setCoveredBefore(LocalDateTime coveredBefore) {
+        this.coveredBefore = coveredBefore;
+    }
+
+    public LocalDateTime getReconciledAt() {
+        return reconciledAt;
+    }
+
+    public void setReconciledAt(LocalDateTime reconciledAt) {
+        this.reconciledAt = reconciledAt;
+    }
+
+    @Override
+    public String toString() {
+        return "BalanceCheckpoint{" +
+                "id=" + getId() +
+                ", accountId=" + (account != null ? account.getId() : null) +
+                ", verifiedBalance=" + verifiedBalance +
+                ", recordedBalance=" + recordedBalance +
+                ", coveredBefore=" + coveredBefore +
+                ", reconciledAt=" + reconciledAt +
+                '}';
+    }
+}
@@ -0,0 +1,76 @@
+package com.imeth.chronobank.common.entity;
+
+import com.imeth.chronobank.common.util.Money;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.ConstraintMode;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.ForeignKey;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Entity representing a balance change that has been appended to the balance journal but not
+ * yet compacted into the account's balance. The account's balance is its stored balance plus
+ * the deltas of its journal entries.
+ * <p>
+ * The account column has no foreign key constraint, so appending an entry takes no lock on the
+ * account row; entries are only written for accounts that have been loaded.
+ */
+@Entity
+@Table(name = "balance_journal", indexes = {
+        @Index(name = "idx_balance_journal_account", columnList = "account_id")
+})
+public class BalanceJournalEntry extends BaseEntity {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", nullable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Account account;
+
+    @NotNull
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "delta", nullable = false, precision = 19, scale = 2)
+    private Money delta;
+
+    @Column(name = "reference")
+    private String reference;
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public void setAccount(Account account) {
+        this.account = account;
+    }
+
+    /**
+     * @return the amount added to the balance, negative for a debit
+     */
+    public Money getDelta() {
+        return delta;
+    }
+
+    public void setDelta(Money delta) {
+        this.delta = delta;
+    }
+
+    /**
+     * @return the reference of the transaction that caused the change, if any
+     */
+    public String getReference() {
+        return reference;
+    }
+
+    public void setReference(String reference) {
+        this.reference = reference;
+    }
+}
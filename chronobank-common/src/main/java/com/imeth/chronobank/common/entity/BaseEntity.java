@@ -7,6 +7,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.MappedSuperclass;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.TableGenerator;
 import jakarta.persistence.Version;
 
 import java.io.Serializable;
@@ -20,8 +21,20 @@ public abstract class BaseEntity implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    // All entities draw their ids from one pooled table sequence. Unlike IDENTITY columns this lets
+    // ids be assigned on persist and inserts be batched; code writing rows with plain JDBC takes
+    // blocks from the same sequence.
+    public static final String ID_SEQUENCE_TABLE = "id_sequences";
+    public static final String ID_SEQUENCE_NAME_COLUMN = "sequence_name";
+    public static final String ID_SEQUENCE_VALUE_COLUMN = "next_val";
+    public static final String ID_SEQUENCE = "entity_id";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TableGenerator(name = ID_SEQUENCE, table = ID_SEQUENCE_TABLE,
+            pkColumnName = ID_SEQUENCE_NAME_COLUMN, valueColumnName = ID_SEQUENCE_VALUE_COLUMN,
+            pkColumnValue = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = ID_SEQUENCE)
     private Long id;
 
     @Version
@@ -0,0 +1,190 @@
+package com.imeth.chronobank.common.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity recording one run of a timer job: when it ran, how many items it processed and how
+ * long an item took. Rows are written once, when the run finishes.
+ */
+@Entity
+@Table(name = "job_runs", indexes = {
+        @Index(name = "idx_job_runs_job_started", columnList = "job_name, started_at")
+})
+public class JobRun extends BaseEntity {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Status {
+        /** Every item was processed. */
+        SUCCEEDED,
+        /** The run completed, but some items failed. */
+        PARTIAL,
+        /** The run stopped early. */
+        FAILED
+    }
+
+    @NotNull
+    @Column(name = "job_name", nullable = false, length = 64)
+    private String jobName;
+
+    @NotNull
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "duration_millis", nullable = false)
+    private long durationMillis;
+
+    @Column(name = "items_processed", nullable = false)
+    private long itemsProcessed;
+
+    @Column(name = "items_failed", nullable = false)
+    private long itemsFailed;
+
+    @Column(name = "p50_item_micros", nullable = false)
+    private long p50ItemMicros;
+
+    @Column(name = "p99_item_micros", nullable = false)
+    private long p99ItemMicros;
+
+    @Column(name = "max_item_micros", nullable = false)
+    private long maxItemMicros;
+
+    @Column(name = "window_millis", nullable = false)
+    private long windowMillis;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status;
+
+    @Column(name = "error", length = 1000)
+    private String error;
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return the number of items the run worked on, including the failed ones
+     */
+    public long getItemsProcessed() {
+        return itemsProcessed;
+    }
+
+    public void setItemsProcessed(long itemsProcessed) {
+        this.itemsProcessed = itemsProcessed;
+    }
+
+    public long getItemsFailed() {
+        return itemsFailed;
+    }
+
+    public void setItemsFailed(long itemsFailed) {
+        this.itemsFailed = itemsFailed;
+    }
+
+    public long getP50ItemMicros() {
+        return p50ItemMicros;
+    }
+
+    public void setP50ItemMicros(long p50ItemMicros) {
+        this.p50ItemMicros = p50ItemMicros;
+    }
+
+    public long getP99ItemMicros() {
+        return p99ItemMicros;
+    }
+
+    public void setP99ItemMicros(long p99ItemMicros) {
+        this.p99ItemMicros = p99ItemMicros;
+    }
+
+    public long getMaxItemMicros() {
+        return maxItemMicros;
+    }
+
+    public void setMaxItemMicros(long maxItemMicros) {
+        this.maxItemMicros = maxItemMicros;
+    }
+
+    /**
+     * @return the time the run is expected to finish within
+     */
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public void setWindowMillis(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "JobRun{" +
+                "id=" + getId() +
+                ", jobName='" + jobName + '\'' +
+                ", startedAt=" + startedAt +
+                ", durationMillis=" + durationMillis +
+                ", itemsProcessed=" + itemsProcessed +
+                ", itemsFailed=" + itemsFailed +
+                ", p50ItemMicros=" + p50ItemMicros +
+                ", p99ItemMicros=" + p99ItemMicros +
+                ", status=" + status +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package com.imeth.chronobank.common.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity recording a server instance that shares the database, with the node id embedded in the
+ * references it generates. A running instance refreshes its {@code lastSeen} time every minute.
+ */
+@Entity
+@Table(name = "server_nodes")
+public class ServerNode extends BaseEntity {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    @Column(name = "instance_name", nullable = false, unique = true)
+    private String instanceName;
+
+    @Column(name = "node_id", nullable = false)
+    private int nodeId;
+
+    @NotNull
+    @Column(name = "last_seen", nullable = false)
+    private LocalDateTime lastSeen;
+
+    public String getInstanceName() {
+        return instanceName;
+    }
+
+    public void setInstanceName(String instanceName) {
+        this.instanceName = instanceName;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(int nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public LocalDateTime getLastSeen() {
+        return lastSeen;
+    }
+
+    public void setLastSeen(LocalDateTime lastSeen) {
+        this.lastSeen = lastSeen;
+    }
+
+    @Override
+    public String toString() {
+        return "ServerNode{" +
+                "id=" + getId() +
+                ", instanceName='" + instanceName + '\'' +
+                ", nodeId=" + nodeId +
+                ", lastSeen=" + lastSeen +
+                '}';
+    }
+}
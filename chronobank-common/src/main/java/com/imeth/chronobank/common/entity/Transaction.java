@@ -1,12 +1,18 @@
 package com.imeth.chronobank.common.entity;
 
+import com.imeth.chronobank.common.util.Money;
+
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotNull;
 
@@ -17,7 +23,13 @@ import java.time.LocalDateTime;
  * Entity representing a financial transaction.
  */
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_posted_at", columnList = "posted_at"),
+        @Index(name = "idx_transactions_account_posted", columnList = "account_id, posted_at"),
+        @Index(name = "idx_transactions_target_posted", columnList = "target_account_id, posted_at"),
+        @Index(name = "idx_transactions_date", columnList = "transaction_date, id"),
+        @Index(name = "idx_transactions_status", columnList = "status, id")
+})
 public class Transaction extends BaseEntity {
 
     private static final long serialVersionUID = 1L;
@@ -40,8 +52,9 @@ public class Transaction extends BaseEntity {
     private Type type;
 
     @NotNull
-    @Column(name = "amount", nullable = false)
-    private BigDecimal amount;
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "amount", nullable = false, precision = 19, scale = 2)
+    private Money amount;
 
     @Column(name = "description")
     private String description;
@@ -57,6 +70,12 @@ public class Transaction extends BaseEntity {
     @Column(name = "scheduled_date")
     private LocalDateTime scheduledDate;
 
+    /**
+     * The time the transaction reached COMPLETED status, i.e. its position in the ledger.
+     */
+    @Column(name = "posted_at")
+    private LocalDateTime postedAt;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "account_id", nullable = false)
     private Account account;
@@ -82,10 +101,18 @@ public class Transaction extends BaseEntity {
     }
 
     public BigDecimal getAmount() {
-        return amount;
+        return amount != null ? amount.toBigDecimal() : null;
     }
 
     public void setAmount(BigDecimal amount) {
+        this.amount = Money.of(amount);
+    }
+
+    public Money getAmountMoney() {
+        return amount;
+    }
+
+    public void setAmountMoney(Money amount) {
         this.amount = amount;
     }
 
@@ -121,6 +148,14 @@ public class Transaction extends BaseEntity {
         this.scheduledDate = scheduledDate;
     }
 
+    public LocalDateTime getPostedAt() {
+        return postedAt;
+    }
+
+    public void setPostedAt(LocalDateTime postedAt) {
+        this.postedAt = postedAt;
+    }
+
     public Account getAccount() {
         return account;
     }
@@ -137,6 +172,14 @@ public class Transaction extends BaseEntity {
         this.targetAccount = targetAccount;
     }
 
+    @PrePersist
+    @PreUpdate
+    public void stampPostedAt() {
+        if (status == Status.COMPLETED && postedAt == null) {
+            postedAt = LocalDateTime.now();
+        }
+    }
+
     @Override
     public String toString() {
         return "Transaction{" +
@@ -147,6 +190,7 @@ public class Transaction extends BaseEntity {
                 ", status=" + status +
                 ", transactionDate=" + transactionDate +
                 ", scheduledDate=" + scheduledDate +
+                ", postedAt=" + postedAt +
                 ", accountId=" + (account != null ? account.getId() : null) +
                 ", targetAccountId=" + (targetAccount != null ? targetAccount.getId() : null) +
                 '}';
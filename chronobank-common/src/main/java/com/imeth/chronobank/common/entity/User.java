@@ -2,6 +2,7 @@ package com.imeth.chronobank.common.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Table;
@@ -14,6 +15,7 @@ import jakarta.validation.constraints.Size;
  */
 @Entity
 @Table(name = "users")
+@EntityListeners(UserChangeListener.class)
 public class User extends BaseEntity {
 
     private static final long serialVersionUID = 1L;
@@ -0,0 +1,49 @@
+package com.imeth.chronobank.common.entity;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Entity listener that tells subscribers, such as caches of caller identities, when a user is
+ * updated or removed. Subscribers receive the username of the changed user.
+ * <p>
+ * Only changes made through the persistence context are seen; bulk JPQL or native updates of
+ * the users table bypass entity callbacks, so caches must still bound staleness with a TTL.
+ */
+public class UserChangeListener {
+
+    private static final Logger LOGGER = Logger.getLogger(UserChangeListener.class.getName());
+
+    private static final List<Consumer<String>> SUBSCRIBERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Register a subscriber for user changes.
+     *
+     * @param subscriber receives the username of each changed user
+     */
+    public static void subscribe(Consumer<String> subscriber) {
+        SUBSCRIBERS.add(subscriber);
+    }
+
+    public static void unsubscribe(Consumer<String> subscriber) {
+        SUBSCRIBERS.remove(subscriber);
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void userChanged(User user) {
+        for (Consumer<String> subscriber : SUBSCRIBERS) {
+            try {
+                subscriber.accept(user.getUsername());
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "User change subscriber failed for " + user.getUsername(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.imeth.chronobank.common.util;
+
+/**
+ * Management view of an in-memory cache, registered with JMX under
+ * {@code com.imeth.chronobank:type=Cache,name=<cache name>}.
+ */
+public interface CacheStatisticsMXBean {
+
+    String getName();
+
+    int getSize();
+
+    int getMaxEntries();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    double getHitRatio();
+
+    /**
+     * Remove every entry from the cache.
+     */
+    void invalidateAll();
+}
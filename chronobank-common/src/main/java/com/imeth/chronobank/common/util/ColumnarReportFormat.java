@@ -0,0 +1,197 @@
+package com.imeth.chronobank.common.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Definitions shared by {@link ColumnarReportWriter} and {@link ColumnarReportReader}.
+ * <p>
+ * A columnar report starts with the magic bytes {@code CBCR}, a format version and the column
+ * definitions. Rows follow in row groups; each group holds its row count and then one deflated
+ * block per column, so a reader can skip the columns it does not need. A row group with zero
+ * rows ends the file. All integers are unsigned LEB128 varints; signed values are zigzag encoded.
+ */
+public final class ColumnarReportFormat {
+
+    static final byte[] MAGIC = {'C', 'B', 'C', 'R'};
+    static final int VERSION = 1;
+
+    /** File extension used for columnar reports. */
+    public static final String FILE_EXTENSION = ".cbcr";
+
+    private ColumnarReportFormat() {
+    }
+
+    /**
+     * How the values of a column are encoded.
+     */
+    public enum ColumnType {
+        /** Non-null longs stored as zigzag deltas from the previous row, suited to ids. */
+        LONG_DELTA,
+        /** Non-null date-times stored as deltas of UTC epoch seconds; sub-second precision is dropped. */
+        TIMESTAMP_DELTA,
+        /** Non-null decimals stored as zigzag unscaled longs at the column's fixed scale. */
+        DECIMAL,
+        /** Nullable low-cardinality strings stored as indexes into a per-row-group dictionary. */
+        DICTIONARY,
+        /** Nullable strings stored as length-prefixed UTF-8. */
+        STRING
+    }
+
+    /**
+     * A named, typed column. The scale is only meaningful for {@link ColumnType#DECIMAL}.
+     */
+    public static final class Column {
+
+        private final String name;
+        private final ColumnType type;
+        private final int scale;
+
+        private Column(String name, ColumnType type, int scale) {
+            this.name = name;
+            this.type = type;
+            this.scale = scale;
+        }
+
+        public static Column of(String name, ColumnType type) {
+            if (type == ColumnType.DECIMAL) {
+                throw new IllegalArgumentException("Decimal columns require a scale");
+            }
+            return new Column(name, type, 0);
+        }
+
+        public static Column decimal(String name, int scale) {
+            return new Column(name, ColumnType.DECIMAL, scale);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ColumnType getType() {
+            return type;
+        }
+
+        public int getScale() {
+            return scale;
+        }
+
+        @Override
+        public String toString() {
+            return name + ":" + type + (type == ColumnType.DECIMAL ? "(" + scale + ")" : "");
+        }
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated columnar report");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in columnar report");
+    }
+
+    /**
+     * Growable byte array used to build one column block of a row group.
+     */
+    static final class ByteSink {
+
+        private byte[] bytes = new byte[1024];
+        private int size;
+
+        void write(int b) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void write(byte[] source, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        byte[] array() {
+            return bytes;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    /**
+     * Cursor over a decoded column block.
+     */
+    static final class ByteSource {
+
+        private final byte[] bytes;
+        private int position;
+
+        ByteSource(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        String readUtf8(int length) {
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
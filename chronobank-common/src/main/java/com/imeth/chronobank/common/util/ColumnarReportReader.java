@@ -0,0 +1,285 @@
+package com.imeth.chronobank.common.util;
+
+import com.imeth.chronobank.common.util.ColumnarReportFormat.ByteSource;
+import com.imeth.chronobank.common.util.ColumnarReportFormat.Column;
+import com.imeth.chronobank.common.util.ColumnarReportFormat.ColumnType;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads reports written by {@link ColumnarReportWriter} one row group at a time.
+ * Column blocks are only inflated and decoded when a value of that column is first requested,
+ * so scans that touch a few columns skip the cost of the others entirely.
+ * <p>
+ * Run with a file argument to print the report as CSV.
+ */
+public final class ColumnarReportReader implements Closeable {
+
+    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final DataInputStream in;
+    private final List<Column> columns;
+    private final Inflater inflater = new Inflater();
+    private boolean finished;
+
+    public ColumnarReportReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        byte[] magic = new byte[ColumnarReportFormat.MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, ColumnarReportFormat.MAGIC)) {
+            throw new IOException("Not a columnar report");
+        }
+        int version = this.in.readUnsignedByte();
+        if (version != ColumnarReportFormat.VERSION) {
+            throw new IOException("Unsupported columnar report version: " + version);
+        }
+        int count = (int) ColumnarReportFormat.readVarLong(this.in);
+        List<Column> read = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = this.in.readUTF();
+            ColumnType type = ColumnType.values()[this.in.readUnsignedByte()];
+            int scale = this.in.readUnsignedByte();
+            read.add(type == ColumnType.DECIMAL ? Column.decimal(name, scale) : Column.of(name, type));
+        }
+        this.columns = Collections.unmodifiableList(read);
+    }
+
+    /**
+     * Open a columnar report file.
+     *
+     * @param path the report file
+     * @return a reader positioned at the first row group
+     * @throws IOException if the file cannot be opened or is not a columnar report
+     */
+    public static ColumnarReportReader open(Path path) throws IOException {
+        return new ColumnarReportReader(Files.newInputStream(path));
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Find a column by name.
+     *
+     * @param name the column name
+     * @return the column index
+     * @throws IllegalArgumentException if there is no such column
+     */
+    public int columnIndex(String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No column named " + name);
+    }
+
+    /**
+     * Read the next row group.
+     *
+     * @return the row group, or null at the end of the report
+     * @throws IOException if the report cannot be read
+     */
+    public RowGroup nextRowGroup() throws IOException {
+        if (finished) {
+            return null;
+        }
+        int rowCount = (int) ColumnarReportFormat.readVarLong(in);
+        if (rowCount == 0) {
+            finished = true;
+            return null;
+        }
+        byte[][] blocks = new byte[columns.size()][];
+        int[] rawLengths = new int[columns.size()];
+        for (int i = 0; i < blocks.length; i++) {
+            rawLengths[i] = (int) ColumnarReportFormat.readVarLong(in);
+            blocks[i] = new byte[(int) ColumnarReportFormat.readVarLong(in)];
+            in.readFully(blocks[i]);
+        }
+        return new RowGroup(rowCount, blocks, rawLengths);
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+
+    /**
+     * The rows of one row group. Values are addressed by column index and row index.
+     */
+    public final class RowGroup {
+
+        private final int rowCount;
+        private final byte[][] blocks;
+        private final int[] rawLengths;
+        private final long[][] longValues;
+        private final String[][] stringValues;
+
+        private RowGroup(int rowCount, byte[][] blocks, int[] rawLengths) {
+            this.rowCount = rowCount;
+            this.blocks = blocks;
+            this.rawLengths = rawLengths;
+            this.longValues = new long[blocks.length][];
+            this.stringValues = new String[blocks.length][];
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * @return the value of a LONG_DELTA column, the epoch second of a TIMESTAMP_DELTA column
+         *         or the unscaled value of a DECIMAL column
+         */
+        public long getLong(int column, int row) {
+            return longs(column)[row];
+        }
+
+        public BigDecimal getDecimal(int column, int row) {
+            return BigDecimal.valueOf(longs(column)[row], columns.get(column).getScale());
+        }
+
+        public LocalDateTime getTimestamp(int column, int row) {
+            return LocalDateTime.ofEpochSecond(longs(column)[row], 0, ZoneOffset.UTC);
+        }
+
+        /**
+         * @return the value of a STRING or DICTIONARY column, possibly null
+         */
+        public String getString(int column, int row) {
+            return strings(column)[row];
+        }
+
+        private long[] longs(int column) {
+            long[] values = longValues[column];
+            if (values == null) {
+                ColumnType type = columns.get(column).getType();
+                if (type == ColumnType.STRING || type == ColumnType.DICTIONARY) {
+                    throw new IllegalArgumentException("Column " + columns.get(column) + " is not numeric");
+                }
+                ByteSource source = new ByteSource(inflate(column));
+                values = new long[rowCount];
+                long previous = 0;
+                for (int i = 0; i < rowCount; i++) {
+                    long value = ColumnarReportFormat.unzigzag(source.readVarLong());
+                    if (type != ColumnType.DECIMAL) {
+                        value += previous;
+                        previous = value;
+                    }
+                    values[i] = value;
+                }
+                longValues[column] = values;
+            }
+            return values;
+        }
+
+        private String[] strings(int column) {
+            String[] values = stringValues[column];
+            if (values == null) {
+                ColumnType type = columns.get(column).getType();
+                if (type != ColumnType.STRING && type != ColumnType.DICTIONARY) {
+                    throw new IllegalArgumentException("Column " + columns.get(column) + " is not a string column");
+                }
+                ByteSource source = new ByteSource(inflate(column));
+                String[] dictionary = null;
+                if (type == ColumnType.DICTIONARY) {
+                    dictionary = new String[(int) source.readVarLong()];
+                    for (int i = 0; i < dictionary.length; i++) {
+                        dictionary[i] = source.readUtf8((int) source.readVarLong());
+                    }
+                }
+                values = new String[rowCount];
+                for (int i = 0; i < rowCount; i++) {
+                    int code = (int) source.readVarLong();
+                    if (code == 0) {
+                        continue;
+                    }
+                    values[i] = dictionary != null ? dictionary[code - 1] : source.readUtf8(code - 1);
+                }
+                stringValues[column] = values;
+            }
+            return values;
+        }
+
+        private byte[] inflate(int column) {
+            byte[] raw = new byte[rawLengths[column]];
+            inflater.reset();
+            inflater.setInput(blocks[column]);
+            try {
+                int length = 0;
+                while (length < raw.length && !inflater.finished()) {
+                    length += inflater.inflate(raw, length, raw.length - length);
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt column block for " + columns.get(column), e);
+            }
+            blocks[column] = null;
+            return raw;
+        }
+    }
+
+    /**
+     * Print a columnar report to standard output as CSV.
+     *
+     * @param args the report file
+     * @throws IOException if the report cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: ColumnarReportReader <report" + ColumnarReportFormat.FILE_EXTENSION + ">");
+            return;
+        }
+        try (ColumnarReportReader reader = open(Paths.get(args[0]));
+             CsvChannelWriter writer = new CsvChannelWriter(Channels.newChannel(System.out))) {
+            List<Column> columns = reader.getColumns();
+            StringBuilder header = new StringBuilder();
+            for (Column column : columns) {
+                header.append(header.length() > 0 ? "," : "").append(column.getName());
+            }
+            writer.writeLine(header.toString());
+
+            RowGroup group;
+            while ((group = reader.nextRowGroup()) != null) {
+                for (int row = 0; row < group.getRowCount(); row++) {
+                    for (int c = 0; c < columns.size(); c++) {
+                        switch (columns.get(c).getType()) {
+                            case LONG_DELTA:
+                                writer.field(group.getLong(c, row));
+                                break;
+                            case TIMESTAMP_DELTA:
+                                writer.field(group.getTimestamp(c, row).format(DATETIME_FORMATTER));
+                                break;
+                            case DECIMAL:
+                                writer.field(group.getDecimal(c, row));
+                                break;
+                            default:
+                                writer.quoted(group.getString(c, row));
+                                break;
+                        }
+                    }
+                    writer.endRow();
+                }
+            }
+        }
+    }
+}
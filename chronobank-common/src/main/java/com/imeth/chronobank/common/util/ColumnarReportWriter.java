@@ -0,0 +1,302 @@
+package com.imeth.chronobank.common.util;
+
+import com.imeth.chronobank.common.util.ColumnarReportFormat.ByteSink;
+import com.imeth.chronobank.common.util.ColumnarReportFormat.Column;
+import com.imeth.chronobank.common.util.ColumnarReportFormat.ColumnType;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes report rows in the compressed, column-oriented format described by
+ * {@link ColumnarReportFormat}. Values are supplied column by column in schema order, then the
+ * row is ended. Only one row group is buffered at a time, so memory use is bounded by the row
+ * group size rather than the number of rows.
+ */
+public final class ColumnarReportWriter implements Closeable {
+
+    public static final int DEFAULT_ROW_GROUP_SIZE = 8192;
+
+    private final DataOutputStream out;
+    private final Column[] columns;
+    private final ColumnBuffer[] buffers;
+    private final int rowGroupSize;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private byte[] compressed = new byte[64 * 1024];
+
+    private int column;
+    private int groupRows;
+    private long rowCount;
+
+    public ColumnarReportWriter(OutputStream out, List<Column> columns) throws IOException {
+        this(out, columns, DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    public ColumnarReportWriter(OutputStream out, List<Column> columns, int rowGroupSize) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.columns = columns.toArray(new Column[0]);
+        this.buffers = new ColumnBuffer[this.columns.length];
+        this.rowGroupSize = rowGroupSize;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new ColumnBuffer(this.columns[i].getType() == ColumnType.DICTIONARY);
+        }
+        writeHeader();
+    }
+
+    /**
+     * Writes the next value of a {@link ColumnType#LONG_DELTA} column.
+     *
+     * @param value the value
+     * @return this writer
+     */
+    public ColumnarReportWriter value(long value) {
+        nextBuffer(ColumnType.LONG_DELTA).writeDelta(value);
+        return this;
+    }
+
+    /**
+     * Writes the next value of a {@link ColumnType#TIMESTAMP_DELTA} column.
+     *
+     * @param value the value, truncated to whole seconds
+     * @return this writer
+     */
+    public ColumnarReportWriter value(LocalDateTime value) {
+        nextBuffer(ColumnType.TIMESTAMP_DELTA).writeDelta(value.toEpochSecond(ZoneOffset.UTC));
+        return this;
+    }
+
+    /**
+     * Writes the next value of a {@link ColumnType#DECIMAL} column.
+     *
+     * @param value the value
+     * @return this writer
+     * @throws ArithmeticException if the value has more fraction digits than the column's scale
+     */
+    public ColumnarReportWriter value(BigDecimal value) {
+        int scale = columns[column].getScale();
+        ColumnBuffer buffer = nextBuffer(ColumnType.DECIMAL);
+        buffer.data.writeVarLong(ColumnarReportFormat.zigzag(
+                value.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact()));
+        return this;
+    }
+
+    /**
+     * Writes the next value of a {@link ColumnType#DECIMAL} column without going through
+     * {@link BigDecimal}.
+     *
+     * @param value the value
+     * @return this writer
+     * @throws ArithmeticException if the value has more fraction digits than the column's scale
+     */
+    public ColumnarReportWriter value(Money value) {
+        int scale = columns[column].getScale();
+        long unscaled = value.getMinorUnits();
+        for (int i = Money.SCALE; i < scale; i++) {
+            unscaled = Math.multiplyExact(unscaled, 10L);
+        }
+        for (int i = scale; i < Money.SCALE; i++) {
+            if (unscaled % 10L != 0L) {
+                throw new ArithmeticException("Rounding necessary");
+            }
+            unscaled /= 10L;
+        }
+        nextBuffer(ColumnType.DECIMAL).data.writeVarLong(ColumnarReportFormat.zigzag(unscaled));
+        return this;
+    }
+
+    /**
+     * Writes the next value of a {@link ColumnType#STRING} or {@link ColumnType#DICTIONARY} column.
+     *
+     * @param value the value, may be null
+     * @return this writer
+     */
+    public ColumnarReportWriter value(String value) {
+        if (column < columns.length && columns[column].getType() == ColumnType.DICTIONARY) {
+            nextBuffer(ColumnType.DICTIONARY).writeDictionary(value);
+        } else {
+            nextBuffer(ColumnType.STRING).writeString(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes an enum constant's name to the next string or dictionary column.
+     *
+     * @param value the value, may be null
+     * @return this writer
+     */
+    public ColumnarReportWriter value(Enum<?> value) {
+        return value(value != null ? value.name() : null);
+    }
+
+    /**
+     * Ends the current row, writing the row group once it is full.
+     *
+     * @throws IOException if the row group cannot be written
+     */
+    public void endRow() throws IOException {
+        if (column != columns.length) {
+            throw new IllegalStateException("Row ended after " + column + " of " + columns.length + " columns");
+        }
+        column = 0;
+        groupRows++;
+        rowCount++;
+        if (groupRows == rowGroupSize) {
+            writeRowGroup();
+        }
+    }
+
+    /**
+     * @return the number of rows written
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (groupRows > 0) {
+                writeRowGroup();
+            }
+            ColumnarReportFormat.writeVarLong(out, 0);
+            out.flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private ColumnBuffer nextBuffer(ColumnType expected) {
+        if (column >= columns.length) {
+            throw new IllegalStateException("Row already has " + columns.length + " columns");
+        }
+        if (columns[column].getType() != expected) {
+            throw new IllegalArgumentException("Column " + columns[column] + " cannot hold a " + expected + " value");
+        }
+        return buffers[column++];
+    }
+
+    private void writeHeader() throws IOException {
+        out.write(ColumnarReportFormat.MAGIC);
+        out.writeByte(ColumnarReportFormat.VERSION);
+        ColumnarReportFormat.writeVarLong(out, columns.length);
+        for (Column c : columns) {
+            out.writeUTF(c.getName());
+            out.writeByte(c.getType().ordinal());
+            out.writeByte(c.getScale());
+        }
+    }
+
+    private void writeRowGroup() throws IOException {
+        ColumnarReportFormat.writeVarLong(out, groupRows);
+        for (ColumnBuffer buffer : buffers) {
+            ByteSink raw = buffer.finish();
+            int length = deflate(raw);
+            ColumnarReportFormat.writeVarLong(out, raw.size());
+            ColumnarReportFormat.writeVarLong(out, length);
+            out.write(compressed, 0, length);
+            buffer.reset();
+        }
+        groupRows = 0;
+    }
+
+    private int deflate(ByteSink raw) {
+        deflater.reset();
+        deflater.setInput(raw.array(), 0, raw.size());
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        return length;
+    }
+
+    /**
+     * Encoded values of one column for the current row group.
+     */
+    private static final class ColumnBuffer {
+
+        private final ByteSink data = new ByteSink();
+        private final ByteSink block = new ByteSink();
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> dictionaryValues = new ArrayList<>();
+        private final boolean dictionaryEncoded;
+        private long previous;
+
+        ColumnBuffer(boolean dictionaryEncoded) {
+            this.dictionaryEncoded = dictionaryEncoded;
+        }
+
+        void writeDelta(long value) {
+            data.writeVarLong(ColumnarReportFormat.zigzag(value - previous));
+            previous = value;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                data.writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            data.writeVarLong(bytes.length + 1L);
+            data.write(bytes, 0, bytes.length);
+        }
+
+        void writeDictionary(String value) {
+            if (value == null) {
+                data.writeVarLong(0);
+                return;
+            }
+            Integer index = dictionary.get(value);
+            if (index == null) {
+                index = dictionaryValues.size();
+                dictionary.put(value, index);
+                dictionaryValues.add(value);
+            }
+            data.writeVarLong(index + 1L);
+        }
+
+        /**
+         * @return the complete block, with the dictionary ahead of the values when there is one
+         */
+        ByteSink finish() {
+            if (!dictionaryEncoded) {
+                return data;
+            }
+            block.writeVarLong(dictionaryValues.size());
+            for (String value : dictionaryValues) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                block.writeVarLong(bytes.length);
+                block.write(bytes, 0, bytes.length);
+            }
+            block.write(data.array(), 0, data.size());
+            return block;
+        }
+
+        void reset() {
+            data.reset();
+            block.reset();
+            dictionary.clear();
+            dictionaryValues.clear();
+            previous = 0;
+        }
+    }
+}
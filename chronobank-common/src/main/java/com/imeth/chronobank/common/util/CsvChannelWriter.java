@@ -0,0 +1,203 @@
+package com.imeth.chronobank.common.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes CSV rows as UTF-8 straight into a byte channel through one large buffer.
+ * ASCII text is copied byte by byte without intermediate strings or char arrays, so memory use
+ * stays constant regardless of how many rows are written.
+ */
+public final class CsvChannelWriter implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    private static final byte SEPARATOR = ',';
+    private static final byte QUOTE = '"';
+    private static final byte NEWLINE = '\n';
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private boolean rowStarted;
+    private long rowCount;
+    private long bytesWritten;
+
+    public CsvChannelWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvChannelWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Writes a raw line such as a header or summary. Raw lines are not counted as rows.
+     *
+     * @param line the complete line without the line terminator
+     * @throws IOException if the channel cannot be written
+     */
+    public void writeLine(String line) throws IOException {
+        append(line);
+        put(NEWLINE);
+    }
+
+    /**
+     * Writes an unquoted field. Null is written as an empty field.
+     *
+     * @param value the field value
+     * @return this writer
+     * @throws IOException if the channel cannot be written
+     */
+    public CsvChannelWriter field(String value) throws IOException {
+        separate();
+        if (value != null) {
+            append(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a field enclosed in quotes, doubling any embedded quotes. Null is written as an
+     * empty, unquoted field.
+     *
+     * @param value the field value
+     * @return this writer
+     * @throws IOException if the channel cannot be written
+     */
+    public CsvChannelWriter quoted(String value) throws IOException {
+        separate();
+        if (value != null) {
+            put(QUOTE);
+            int start = 0;
+            int quote;
+            while ((quote = value.indexOf('"', start)) >= 0) {
+                append(value, start, quote + 1);
+                put(QUOTE);
+                start = quote + 1;
+            }
+            append(value, start, value.length());
+            put(QUOTE);
+        }
+        return this;
+    }
+
+    public CsvChannelWriter field(long value) throws IOException {
+        return field(Long.toString(value));
+    }
+
+    public CsvChannelWriter field(BigDecimal value) throws IOException {
+        return field(value != null ? value.toPlainString() : null);
+    }
+
+    public CsvChannelWriter field(Money value) throws IOException {
+        return field(value != null ? value.toString() : null);
+    }
+
+    public CsvChannelWriter field(Object value) throws IOException {
+        return field(value != null ? value.toString() : null);
+    }
+
+    /**
+     * Terminates the current row.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    public void endRow() throws IOException {
+        put(NEWLINE);
+        rowStarted = false;
+        rowCount++;
+    }
+
+    /**
+     * @return the number of rows written, excluding raw lines
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the number of bytes written, including those still buffered
+     */
+    public long getBytesWritten() {
+        return bytesWritten + buffer.position();
+    }
+
+    /**
+     * Writes all buffered bytes to the channel.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void separate() throws IOException {
+        if (rowStarted) {
+            put(SEPARATOR);
+        }
+        rowStarted = true;
+    }
+
+    private void put(byte b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put(b);
+    }
+
+    private void append(String value) throws IOException {
+        append(value, 0, value.length());
+    }
+
+    private void append(String value, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                encode(value, i, end);
+                return;
+            }
+            put((byte) c);
+        }
+    }
+
+    private void encode(String value, int start, int end) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(value, start, end);
+        encoder.reset();
+        CoderResult result;
+        while ((result = encoder.encode(chars, buffer, true)).isOverflow()) {
+            flush();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.imeth.chronobank.common.util;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registers application MBeans with the platform MBean server under the
+ * {@code com.imeth.chronobank} domain. Failures are logged rather than thrown, since monitoring
+ * must never prevent a component from starting.
+ */
+public final class JmxRegistration {
+
+    private static final Logger LOGGER = Logger.getLogger(JmxRegistration.class.getName());
+
+    public static final String DOMAIN = "com.imeth.chronobank";
+
+    private JmxRegistration() {
+    }
+
+    /**
+     * Register an MBean, replacing any MBean already registered under the same name.
+     *
+     * @param mbean the MBean or MXBean implementation
+     * @param type the value of the {@code type} key
+     * @param name the value of the {@code name} key
+     */
+    public static void register(Object mbean, String type, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(type, name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Could not register MBean " + type + "/" + name, e);
+        }
+    }
+
+    /**
+     * Unregister an MBean if it is registered.
+     *
+     * @param type the value of the {@code type} key
+     * @param name the value of the {@code name} key
+     */
+    public static void unregister(String type, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(type, name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Could not unregister MBean " + type + "/" + name, e);
+        }
+    }
+
+    public static ObjectName objectName(String type, String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + ObjectName.quote(type) + ",name=" + ObjectName.quote(name));
+    }
+}
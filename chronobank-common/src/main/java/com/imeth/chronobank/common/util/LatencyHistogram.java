@@ -0,0 +1,118 @@
+package com.imeth.chronobank.common.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of non-negative latencies with a fixed memory footprint.
+ * <p>
+ * Values below 16 have a bucket each. Larger values fall into eight buckets per power of two,
+ * so a reported percentile is at most 12.5% above the true value. Recording is a few atomic
+ * increments and allocates nothing, so concurrent workers can share one histogram. The unit of
+ * the values is up to the caller.
+ */
+public final class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_EXPONENT = 4;
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - LINEAR_EXPONENT) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Record one value.
+     *
+     * @param value the value, negative values are recorded as zero
+     */
+    public void record(long value) {
+        record(value, 1L);
+    }
+
+    /**
+     * Record the same value several times, e.g. the average latency of the items of a batch.
+     *
+     * @param value the value, negative values are recorded as zero
+     * @param times the number of times to record it
+     */
+    public void record(long value, long times) {
+        if (times <= 0L) {
+            return;
+        }
+        long v = Math.max(0L, value);
+        counts.addAndGet(bucketOf(v), times);
+        count.add(times);
+        sum.add(v * times);
+        max.accumulate(v);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the exact mean of the recorded values, or 0 if nothing has been recorded
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n > 0L ? (double) sum.sum() / n : 0.0;
+    }
+
+    /**
+     * Get a percentile of the recorded values.
+     *
+     * @param percentile the percentile between 0 and 100, e.g. 99 for p99
+     * @return the upper bound of the bucket holding the percentile, never above the maximum,
+     *         or 0 if nothing has been recorded
+     */
+    public long getPercentile(double percentile) {
+        long total = 0L;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - LINEAR_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + LINEAR_EXPONENT;
+        long subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lower = (SUB_BUCKETS + subBucket) * width;
+        // The last bucket ends at Long.MAX_VALUE; avoid overflowing past it
+        return lower + (width - 1L);
+    }
+}
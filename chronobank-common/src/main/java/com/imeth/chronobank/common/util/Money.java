@@ -0,0 +1,172 @@
+package com.imeth.chronobank.common.util;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Immutable amount of money held as a whole number of minor units (cents).
+ * <p>
+ * Arithmetic is done on a {@code long}, so adding, comparing and applying interest rates
+ * allocates nothing beyond the result. Operations that would overflow throw
+ * {@link ArithmeticException} instead of wrapping. Interest rates are passed as fixed-point
+ * longs with {@link #RATE_SCALE} decimal places; see {@link #periodicRate(BigDecimal, int)}.
+ */
+public final class Money implements Comparable<Money>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Number of decimal places of an amount. */
+    public static final int SCALE = 2;
+
+    /** Number of decimal places of a rate passed to {@link #applyRate(long)}. */
+    public static final int RATE_SCALE = 6;
+
+    private static final long RATE_ONE = 1_000_000L;
+
+    public static final Money ZERO = new Money(0L);
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    /**
+     * Create an amount from minor units.
+     *
+     * @param minorUnits the amount in cents
+     * @return the amount
+     */
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0L ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * Create an amount from a decimal.
+     *
+     * @param amount the amount, may be null
+     * @return the amount, or null if {@code amount} is null
+     * @throws ArithmeticException if the amount has more than two decimal places or is out of range
+     */
+    public static Money of(BigDecimal amount) {
+        if (amount == null) {
+            return null;
+        }
+        BigDecimal cents;
+        try {
+            cents = amount.setScale(SCALE, RoundingMode.UNNECESSARY);
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Amount " + amount.toPlainString() + " has more than " + SCALE +
+                    " decimal places");
+        }
+        return ofMinor(cents.unscaledValue().longValueExact());
+    }
+
+    /**
+     * Convert an annual rate to the rate for one of a number of equal periods, rounded half up
+     * to {@link #RATE_SCALE} decimal places.
+     *
+     * @param annualRate the annual rate, e.g. 0.035 for 3.5%
+     * @param periodsPerYear the number of periods in a year, e.g. 365 for daily interest
+     * @return the periodic rate in millionths
+     */
+    public static long periodicRate(BigDecimal annualRate, int periodsPerYear) {
+        return annualRate.divide(BigDecimal.valueOf(periodsPerYear), RATE_SCALE, RoundingMode.HALF_UP)
+                .unscaledValue()
+                .longValueExact();
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public Money negate() {
+        return ofMinor(Math.negateExact(minorUnits));
+    }
+
+    /**
+     * Multiply by a fixed-point rate and round half up to whole minor units.
+     *
+     * @param rate the rate in millionths, as returned by {@link #periodicRate(BigDecimal, int)}
+     * @return the amount times the rate
+     * @throws ArithmeticException if the result is out of range
+     */
+    public Money applyRate(long rate) {
+        if (rate == 0L || minorUnits == 0L) {
+            return ZERO;
+        }
+        long high = Math.multiplyHigh(minorUnits, rate);
+        long low = minorUnits * rate;
+        if ((high == 0L && low >= 0L) || (high == -1L && low < 0L)) {
+            return ofMinor(divideHalfUp(low, RATE_ONE));
+        }
+        // The product needs more than 64 bits; only the rounded result has to fit
+        return ofMinor(BigDecimal.valueOf(minorUnits)
+                .multiply(BigDecimal.valueOf(rate))
+                .divide(BigDecimal.valueOf(RATE_ONE), 0, RoundingMode.HALF_UP)
+                .longValueExact());
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public boolean isLessThan(Money other) {
+        return minorUnits < other.minorUnits;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Money && minorUnits == ((Money) o).minorUnits);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    /**
+     * @return the amount with two decimal places, e.g. {@code -12.30}
+     */
+    @Override
+    public String toString() {
+        long whole = minorUnits / 100;
+        long cents = Math.abs(minorUnits % 100);
+        StringBuilder text = new StringBuilder(24);
+        if (minorUnits < 0 && whole == 0) {
+            text.append('-');
+        }
+        text.append(whole).append('.');
+        if (cents < 10) {
+            text.append('0');
+        }
+        return text.append(cents).toString();
+    }
+
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        if (remainder >= divisor - remainder) {
+            quotient += dividend < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+}
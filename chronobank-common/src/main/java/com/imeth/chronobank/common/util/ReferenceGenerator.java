@@ -0,0 +1,196 @@
+package com.imeth.chronobank.common.util;
+
+import com.imeth.chronobank.common.constants.AppConstants;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free generator of unique, fixed-length references such as transaction references and
+ * account numbers.
+ * <p>
+ * Each reference is a prefix followed by a base-36 number. The number is laid out like a
+ * Snowflake id: a counter in the high bits and this node's id in the low bits. The counter holds
+ * the time in ticks since {@link #EPOCH_MILLIS} shifted left by a sequence field. Each call takes
+ * {@code max(previous + 1, now)}, so it never repeats within a process and never waits. A burst
+ * faster than the sequence allows borrows ticks from the future. So that a restart does not
+ * reissue the ticks borrowed before it, the counters are seeded at startup with the highest
+ * reference in the database (see {@link #seedTransactionReferences(String)}).
+ * <p>
+ * Nodes sharing a database must use different node ids, configured through the
+ * {@value AppConstants#NODE_ID_PROPERTY} system property.
+ */
+public final class ReferenceGenerator {
+
+    /** Start of the time field: 2025-01-01T00:00:00Z. */
+    static final long EPOCH_MILLIS = 1735689600000L;
+
+    /** How far ahead of the clock a seed is looked for; no burst borrows a whole day. */
+    static final long SEED_HORIZON_MILLIS = 86_400_000L;
+
+    private static final char[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    private static final int RADIX = DIGITS.length;
+
+    /** Transaction references: 3 node bits, 14 sequence bits and 29 bits of seconds (17 years). */
+    private static final ReferenceGenerator TRANSACTIONS = new ReferenceGenerator(
+            AppConstants.TRANSACTION_PREFIX, AppConstants.TRANSACTION_REFERENCE_LENGTH,
+            3, 14, 1000L, configuredNodeId(), System::currentTimeMillis);
+
+    /** Account numbers: 3 node bits, 10 sequence bits and 23 bits of minutes (15 years). */
+    private static final ReferenceGenerator ACCOUNTS = new ReferenceGenerator(
+            AppConstants.ACCOUNT_PREFIX, AppConstants.ACCOUNT_NUMBER_LENGTH,
+            3, 10, 60000L, configuredNodeId(), System::currentTimeMillis);
+
+    private final String prefix;
+    private final int digits;
+    private final int nodeBits;
+    private final int sequenceBits;
+    private final long counterMask;
+    private final long tickMillis;
+    private final long nodeId;
+    private final LongSupplier clock;
+    private final AtomicLong counter = new AtomicLong();
+
+    ReferenceGenerator(String prefix, int length, int nodeBits, int sequenceBits, long tickMillis,
+                       long nodeId, LongSupplier clock) {
+        this.prefix = prefix;
+        this.digits = length - prefix.length();
+        int capacityBits = (int) Math.floor(digits * Math.log(RADIX) / Math.log(2));
+        if (nodeBits + sequenceBits >= capacityBits) {
+            throw new IllegalArgumentException("No bits left for the time field in " + digits + " digits");
+        }
+        if (nodeId < 0 || nodeId >= (1L << nodeBits)) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + ((1L << nodeBits) - 1));
+        }
+        this.nodeBits = nodeBits;
+        this.sequenceBits = sequenceBits;
+        this.counterMask = (1L << (capacityBits - nodeBits)) - 1;
+        this.tickMillis = tickMillis;
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    /**
+     * Generate a new transaction reference.
+     *
+     * @return a unique reference of {@link AppConstants#TRANSACTION_REFERENCE_LENGTH} characters
+     */
+    public static String newTransactionReference() {
+        return TRANSACTIONS.next();
+    }
+
+    /**
+     * Generate a new account number.
+     *
+     * @return a unique account number of {@link AppConstants#ACCOUNT_NUMBER_LENGTH} characters
+     */
+    public static String newAccountNumber() {
+        return ACCOUNTS.next();
+    }
+
+    /**
+     * Get the node id embedded in the references of this node.
+     *
+     * @return the {@value AppConstants#NODE_ID_PROPERTY} system property, or 0 if it is not set
+     */
+    public static long nodeId() {
+        return TRANSACTIONS.nodeId;
+    }
+
+    /**
+     * Get the bound below which the highest issued transaction reference is looked for.
+     *
+     * @return a transaction reference one day ahead of the clock
+     * @see #seedTransactionReferences(String)
+     */
+    public static String transactionReferenceCeiling() {
+        return TRANSACTIONS.ceiling();
+    }
+
+    /**
+     * Get the bound below which the highest issued account number is looked for.
+     *
+     * @return an account number one day ahead of the clock
+     * @see #seedAccountNumbers(String)
+     */
+    public static String accountNumberCeiling() {
+        return ACCOUNTS.ceiling();
+    }
+
+    /**
+     * Make sure that transaction references are generated above one already issued.
+     * It is called at startup with the highest reference in the database below
+     * {@link #transactionReferenceCeiling()}. The ceiling leaves out references in other formats
+     * that sort higher, such as those issued before this generator.
+     *
+     * @param highest the highest issued reference, or {@code null} if there is none
+     */
+    public static void seedTransactionReferences(String highest) {
+        TRANSACTIONS.seed(highest);
+    }
+
+    /**
+     * Make sure that account numbers are generated above one already issued.
+     *
+     * @param highest the highest account number below {@link #accountNumberCeiling()}, or
+     *                {@code null} if there is none
+     * @see #seedTransactionReferences(String)
+     */
+    public static void seedAccountNumbers(String highest) {
+        ACCOUNTS.seed(highest);
+    }
+
+    /**
+     * Generate the next reference.
+     *
+     * @return the prefix followed by a fixed-width base-36 number
+     */
+    String next() {
+        long now = ((clock.getAsLong() - EPOCH_MILLIS) / tickMillis) << sequenceBits;
+        long value = counter.accumulateAndGet(now, (previous, floor) -> Math.max(previous + 1, floor));
+        return format(((value & counterMask) << nodeBits) | nodeId);
+    }
+
+    /**
+     * Move the counter past an issued reference, which may come from any node.
+     * Characters that are not base-36 digits count as 0, which keeps the value at or above every
+     * generated reference that sorts below it.
+     *
+     * @param issued the reference, ignored unless it has this generator's prefix and length
+     */
+    void seed(String issued) {
+        if (issued == null || issued.length() != prefix.length() + digits || !issued.startsWith(prefix)) {
+            return;
+        }
+        long value = 0L;
+        for (int i = prefix.length(); i < issued.length(); i++) {
+            value = value * RADIX + Math.max(Character.digit(issued.charAt(i), RADIX), 0);
+        }
+        counter.accumulateAndGet((value >>> nodeBits) & counterMask, Math::max);
+    }
+
+    /**
+     * Get the reference that starts the tick one {@link #SEED_HORIZON_MILLIS} ahead of the clock.
+     *
+     * @return a reference above every one this generator could have issued by then
+     */
+    String ceiling() {
+        long tick = (clock.getAsLong() + SEED_HORIZON_MILLIS - EPOCH_MILLIS) / tickMillis;
+        return format(((tick << sequenceBits) & counterMask) << nodeBits);
+    }
+
+    private String format(long value) {
+        int length = prefix.length() + digits;
+        char[] chars = new char[length];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        for (int i = length - 1; i >= prefix.length(); i--) {
+            chars[i] = DIGITS[(int) (value % RADIX)];
+            value /= RADIX;
+        }
+        return new String(chars);
+    }
+
+    private static long configuredNodeId() {
+        return Integer.getInteger(AppConstants.NODE_ID_PROPERTY, 0);
+    }
+}
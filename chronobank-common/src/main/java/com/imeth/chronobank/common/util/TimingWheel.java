@@ -0,0 +1,211 @@
+package com.imeth.chronobank.common.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thread-safe hierarchical timing wheel that holds items until their due time. Scheduling and
+ * cancelling are O(1), and time only moves when {@link #advance(long)} is called, so one periodic
+ * timer can drive any number of scheduled items.
+ * <p>
+ * Level 0 has {@code wheelSize} buckets of one tick each. Each higher level has {@code wheelSize}
+ * buckets, each as wide as the whole level below it. An item is placed on the lowest level that
+ * can hold its due time. Each time the wheel reaches the item's bucket, the item moves down a
+ * level, until it fires from level 0. Due times are rounded up to a whole tick, so items never
+ * fire early. Each item is held at most once; scheduling it again moves it.
+ *
+ * @param <T> the item type
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<Level<T>> levels = new ArrayList<>();
+    private final Map<T, Entry<T>> entries = new HashMap<>();
+    private final List<Entry<T>> ready = new ArrayList<>();
+    private long currentTick;
+
+    /**
+     * @param tickMillis the width of a level 0 bucket, and the resolution of due times
+     * @param wheelSize the number of buckets per level
+     * @param startMillis the current time
+     */
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        if (wheelSize < 2) {
+            throw new IllegalArgumentException("wheelSize must be at least 2");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /**
+     * Schedule an item, or move it if it is already scheduled. An item that is already due fires
+     * on the next {@link #advance(long)}.
+     *
+     * @param item the item
+     * @param dueMillis when the item is due
+     * @return false if the item was already scheduled for the same tick
+     */
+    public synchronized boolean schedule(T item, long dueMillis) {
+        long dueTick = -Math.floorDiv(-dueMillis, tickMillis);
+        Entry<T> existing = entries.get(item);
+        if (existing != null) {
+            if (existing.dueTick == dueTick) {
+                return false;
+            }
+            existing.cancelled = true;
+        }
+        Entry<T> entry = new Entry<>(item, dueTick);
+        entries.put(item, entry);
+        place(entry);
+        return true;
+    }
+
+    /**
+     * Remove a scheduled item.
+     *
+     * @param item the item
+     * @return whether the item was scheduled
+     */
+    public synchronized boolean cancel(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry == null) {
+            return false;
+        }
+        entry.cancelled = true;
+        return true;
+    }
+
+    public synchronized boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    /**
+     * @return the number of scheduled items
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Move the wheel forward to the given time and remove the items that have become due.
+     *
+     * @param nowMillis the current time; a time before the wheel's current tick is ignored
+     * @return the due items, in the order of their due ticks
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        List<T> due = new ArrayList<>();
+        fireReady(due);
+
+        while (currentTick < targetTick) {
+            if (entries.isEmpty()) {
+                // Nothing to cascade or fire on the way
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+
+            // Move the entries of every higher level bucket that starts now one level down
+            for (int level = levels.size() - 1; level >= 1; level--) {
+                Level<T> wheel = levels.get(level);
+                if (Math.floorMod(currentTick, wheel.ticksPerBucket) == 0) {
+                    for (Entry<T> entry : wheel.take(currentTick)) {
+                        if (!entry.cancelled) {
+                            place(entry);
+                        }
+                    }
+                }
+            }
+
+            if (!levels.isEmpty()) {
+                ready.addAll(levels.get(0).take(currentTick));
+            }
+            fireReady(due);
+        }
+        return due;
+    }
+
+    private void fireReady(List<T> due) {
+        for (Entry<T> entry : ready) {
+            if (!entry.cancelled) {
+                entries.remove(entry.item);
+                due.add(entry.item);
+            }
+        }
+        ready.clear();
+    }
+
+    /**
+     * Put an entry on the lowest level whose buckets, counted from the current one, reach its
+     * due tick. Entries above level 0 are never put in the current bucket of their level, so
+     * every entry is moved down before it is due.
+     */
+    private void place(Entry<T> entry) {
+        if (entry.dueTick <= currentTick) {
+            ready.add(entry);
+            return;
+        }
+        for (int level = 0; ; level++) {
+            if (level == levels.size()) {
+                long ticksPerBucket = level == 0 ? 1L : Math.multiplyExact(levels.get(level - 1).ticksPerBucket, wheelSize);
+                levels.add(new Level<>(ticksPerBucket, wheelSize));
+            }
+            Level<T> wheel = levels.get(level);
+            long bucket = Math.floorDiv(entry.dueTick, wheel.ticksPerBucket);
+            if (bucket - Math.floorDiv(currentTick, wheel.ticksPerBucket) < wheelSize) {
+                wheel.bucket(bucket).add(entry);
+                return;
+            }
+        }
+    }
+
+    private static final class Level<T> {
+
+        private final long ticksPerBucket;
+        private final List<List<Entry<T>>> buckets;
+
+        Level(long ticksPerBucket, int wheelSize) {
+            this.ticksPerBucket = ticksPerBucket;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new ArrayList<>());
+            }
+        }
+
+        List<Entry<T>> bucket(long bucket) {
+            return buckets.get((int) Math.floorMod(bucket, (long) buckets.size()));
+        }
+
+        /**
+         * Empty the bucket that starts at the given tick.
+         */
+        List<Entry<T>> take(long tick) {
+            List<Entry<T>> bucket = bucket(Math.floorDiv(tick, ticksPerBucket));
+            if (bucket.isEmpty()) {
+                return bucket;
+            }
+            List<Entry<T>> taken = new ArrayList<>(bucket);
+            bucket.clear();
+            return taken;
+        }
+    }
+
+    private static final class Entry<T> {
+
+        private final T item;
+        private final long dueTick;
+        private boolean cancelled;
+
+        Entry(T item, long dueTick) {
+            this.item = item;
+            this.dueTick = dueTick;
+        }
+    }
+}
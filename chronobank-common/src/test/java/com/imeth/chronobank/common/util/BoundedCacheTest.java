@@ -0,0 +1,82 @@
+package com.imeth.chronobank.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit tests for the BoundedCache class.
+ */
+public class BoundedCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000L);
+
+    private final BoundedCache<String, String> cache = new BoundedCache<>("test", 3, 100L, now::get);
+
+    @Test
+    public void testEntriesExpireAfterTtl() {
+        cache.put("alice", "1");
+        now.addAndGet(99L);
+        assertEquals("1", cache.get("alice"));
+
+        now.addAndGet(1L);
+        assertNull(cache.get("alice"));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        cache.get("a");
+
+        cache.put("d", "4");
+
+        assertEquals(3, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals("4", cache.get("d"));
+    }
+
+    @Test
+    public void testLoaderRunsOnlyOnMiss() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("value", cache.get("key", key -> {
+                loads.incrementAndGet();
+                return "value";
+            }));
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.75, cache.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    public void testNullValuesAreNotCached() {
+        assertNull(cache.get("missing", key -> null));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertEquals("2", cache.get("b"));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.getSize());
+    }
+}
@@ -0,0 +1,143 @@
+package com.imeth.chronobank.common.util;
+
+import com.imeth.chronobank.common.util.ColumnarReportFormat.Column;
+import com.imeth.chronobank.common.util.ColumnarReportFormat.ColumnType;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ColumnarReportWriter and ColumnarReportReader classes.
+ */
+public class ColumnarReportWriterTest {
+
+    private static final List<Column> COLUMNS = Arrays.asList(
+            Column.of("ID", ColumnType.LONG_DELTA),
+            Column.of("Type", ColumnType.DICTIONARY),
+            Column.decimal("Amount", 2),
+            Column.of("Date", ColumnType.TIMESTAMP_DELTA),
+            Column.of("Description", ColumnType.STRING));
+
+    private static final String[] TYPES = {"DEPOSIT", "WITHDRAWAL", "TRANSFER"};
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Test
+    public void testRoundTripAcrossRowGroups() throws IOException {
+        byte[] report = writeReport(250, 100);
+
+        try (ColumnarReportReader reader = new ColumnarReportReader(new ByteArrayInputStream(report))) {
+            assertEquals(5, reader.getColumns().size());
+            assertEquals(2, reader.getColumns().get(reader.columnIndex("Amount")).getScale());
+
+            int rows = 0;
+            int groups = 0;
+            ColumnarReportReader.RowGroup group;
+            while ((group = reader.nextRowGroup()) != null) {
+                groups++;
+                for (int row = 0; row < group.getRowCount(); row++, rows++) {
+                    assertEquals(1000L + rows * 3, group.getLong(0, row));
+                    assertEquals(rows % 7 == 0 ? null : TYPES[rows % 3], group.getString(1, row));
+                    assertEquals(amount(rows), group.getDecimal(2, row));
+                    assertEquals(START.plusSeconds(rows * 17L), group.getTimestamp(3, row));
+                    assertEquals(rows % 5 == 0 ? null : "Payment ünïcode " + rows, group.getString(4, row));
+                }
+            }
+            assertEquals(250, rows);
+            assertEquals(3, groups);
+        }
+    }
+
+    @Test
+    public void testReadsSingleColumnWithoutDecodingOthers() throws IOException {
+        byte[] report = writeReport(50, 1000);
+
+        try (ColumnarReportReader reader = new ColumnarReportReader(new ByteArrayInputStream(report))) {
+            int amount = reader.columnIndex("Amount");
+            BigDecimal total = BigDecimal.ZERO;
+            ColumnarReportReader.RowGroup group;
+            while ((group = reader.nextRowGroup()) != null) {
+                for (int row = 0; row < group.getRowCount(); row++) {
+                    total = total.add(group.getDecimal(amount, row));
+                }
+            }
+            BigDecimal expected = BigDecimal.ZERO;
+            for (int i = 0; i < 50; i++) {
+                expected = expected.add(amount(i));
+            }
+            assertEquals(expected, total);
+        }
+    }
+
+    @Test
+    public void testSmallerThanCsv() throws IOException {
+        int rowCount = 5000;
+        byte[] report = writeReport(rowCount, ColumnarReportWriter.DEFAULT_ROW_GROUP_SIZE);
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        try (CsvChannelWriter writer = new CsvChannelWriter(Channels.newChannel(csv))) {
+            for (int i = 0; i < rowCount; i++) {
+                writer.field(1000L + i * 3)
+                        .field(i % 7 == 0 ? null : TYPES[i % 3])
+                        .field(amount(i))
+                        .field(START.plusSeconds(i * 17L).toString())
+                        .quoted(i % 5 == 0 ? null : "Payment ünïcode " + i)
+                        .endRow();
+            }
+        }
+
+        assertTrue(report.length * 3 < csv.size(),
+                "columnar " + report.length + " bytes vs CSV " + csv.size() + " bytes");
+    }
+
+    @Test
+    public void testRejectsAmountBeyondColumnScale() throws IOException {
+        ColumnarReportWriter writer = new ColumnarReportWriter(new ByteArrayOutputStream(), COLUMNS);
+        writer.value(1L).value("DEPOSIT");
+
+        assertThrows(ArithmeticException.class, () -> writer.value(new BigDecimal("1.005")));
+    }
+
+    @Test
+    public void testRejectsWrongValueType() throws IOException {
+        ColumnarReportWriter writer = new ColumnarReportWriter(new ByteArrayOutputStream(), COLUMNS);
+
+        assertThrows(IllegalArgumentException.class, () -> writer.value("not an id"));
+    }
+
+    @Test
+    public void testRejectsOtherFiles() {
+        byte[] csv = "ID,Type\n1,DEPOSIT\n".getBytes();
+
+        assertThrows(IOException.class, () -> new ColumnarReportReader(new ByteArrayInputStream(csv)));
+    }
+
+    private static byte[] writeReport(int rowCount, int rowGroupSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ColumnarReportWriter writer = new ColumnarReportWriter(out, COLUMNS, rowGroupSize)) {
+            for (int i = 0; i < rowCount; i++) {
+                writer.value(1000L + i * 3)
+                        .value(i % 7 == 0 ? null : TYPES[i % 3])
+                        .value(amount(i))
+                        .value(START.plusSeconds(i * 17L))
+                        .value(i % 5 == 0 ? null : "Payment ünïcode " + i)
+                        .endRow();
+            }
+            assertEquals(rowCount, writer.getRowCount());
+        }
+        return out.toByteArray();
+    }
+
+    private static BigDecimal amount(int i) {
+        return BigDecimal.valueOf((i % 2 == 0 ? 1 : -1) * (i * 1234L % 100000), 2);
+    }
+}
@@ -0,0 +1,63 @@
+package com.imeth.chronobank.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the CsvChannelWriter class.
+ */
+public class CsvChannelWriterTest {
+
+    @Test
+    public void testWritesHeaderAndRows() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (CsvChannelWriter writer = new CsvChannelWriter(Channels.newChannel(out))) {
+            writer.writeLine("ID,Amount,Description");
+            writer.field(1L).field(new BigDecimal("150.00")).quoted("Rent").endRow();
+            writer.field(2L).field((BigDecimal) null).quoted(null).endRow();
+
+            assertEquals(2, writer.getRowCount());
+        }
+
+        assertEquals("ID,Amount,Description\n1,150.00,\"Rent\"\n2,,\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testQuotedFieldEscapesQuotes() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (CsvChannelWriter writer = new CsvChannelWriter(Channels.newChannel(out))) {
+            writer.quoted("Say \"hi\", twice").endRow();
+        }
+
+        assertEquals("\"Say \"\"hi\"\", twice\"\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEncodesNonAsciiAcrossSmallBuffer() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String name = "Zoë Ångström €100";
+
+        try (CsvChannelWriter writer = new CsvChannelWriter(Channels.newChannel(out), 4)) {
+            for (int i = 0; i < 50; i++) {
+                writer.field(i).field(name).endRow();
+            }
+            writer.flush();
+
+            assertEquals(out.size(), writer.getBytesWritten());
+        }
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(50, lines.length);
+        assertEquals("49," + name, lines[49]);
+    }
+}
@@ -0,0 +1,82 @@
+package com.imeth.chronobank.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the LatencyHistogram class.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(10L, histogram.getCount());
+        assertEquals(5L, histogram.getPercentile(50));
+        assertEquals(10L, histogram.getPercentile(99));
+        assertEquals(1L, histogram.getPercentile(0));
+        assertEquals(10L, histogram.getMax());
+    }
+
+    @Test
+    public void testBucketsCoverTheWholeRange() {
+        long previousUpperBound = -1L;
+        for (int bucket = 0; bucket < LatencyHistogram.bucketOf(Long.MAX_VALUE) + 1; bucket++) {
+            long upperBound = LatencyHistogram.upperBoundOf(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(previousUpperBound + 1));
+            assertEquals(bucket, LatencyHistogram.bucketOf(upperBound));
+            previousUpperBound = upperBound;
+        }
+        assertEquals(Long.MAX_VALUE, previousUpperBound);
+    }
+
+    @Test
+    public void testPercentilesAreWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        SplittableRandom random = new SplittableRandom(11);
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 14);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(values.length * percentile / 100.0) - 1];
+            long reported = histogram.getPercentile(percentile);
+            assertTrue(reported >= exact && reported <= exact + exact / 8 + 1,
+                    "p" + percentile + ": exact " + exact + ", reported " + reported);
+        }
+    }
+
+    @Test
+    public void testRecordingABatchCountsEveryItem() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(2_000L, 99L);
+        histogram.record(100_000L);
+        histogram.record(-5L);
+        histogram.record(1L, 0L);
+
+        assertEquals(101L, histogram.getCount());
+        assertEquals(2_047L, histogram.getPercentile(50));
+        assertEquals(100_000L, histogram.getPercentile(100));
+        assertEquals((2_000.0 * 99 + 100_000.0) / 101, histogram.getMean(), 1e-9);
+    }
+}
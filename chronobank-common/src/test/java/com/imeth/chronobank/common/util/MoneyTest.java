@@ -0,0 +1,80 @@
+package com.imeth.chronobank.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for the Money class.
+ */
+public class MoneyTest {
+
+    @Test
+    public void testConversionToAndFromBigDecimal() {
+        assertEquals(12345L, Money.of(new BigDecimal("123.45")).getMinorUnits());
+        assertEquals(12340L, Money.of(new BigDecimal("123.4")).getMinorUnits());
+        assertEquals(-5L, Money.of(new BigDecimal("-0.050")).getMinorUnits());
+        assertEquals(new BigDecimal("123.40"), Money.ofMinor(12340L).toBigDecimal());
+        assertSame(Money.ZERO, Money.of(BigDecimal.ZERO));
+        assertNull(Money.of(null));
+
+        ArithmeticException e = assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1.005")));
+        assertEquals("Amount 1.005 has more than 2 decimal places", e.getMessage());
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1E+20")));
+    }
+
+    @Test
+    public void testToString() {
+        assertEquals("123.45", Money.ofMinor(12345L).toString());
+        assertEquals("0.05", Money.ofMinor(5L).toString());
+        assertEquals("-0.05", Money.ofMinor(-5L).toString());
+        assertEquals("-12.30", Money.ofMinor(-1230L).toString());
+        assertEquals(Money.ofMinor(Long.MIN_VALUE).toBigDecimal().toPlainString(),
+                Money.ofMinor(Long.MIN_VALUE).toString());
+    }
+
+    @Test
+    public void testArithmeticOverflowIsDetected() {
+        assertEquals(Money.ofMinor(300L), Money.ofMinor(100L).plus(Money.ofMinor(200L)));
+        assertEquals(Money.ofMinor(-100L), Money.ofMinor(100L).minus(Money.ofMinor(200L)));
+
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE).plus(Money.ofMinor(1L)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE).minus(Money.ofMinor(1L)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE).negate());
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE).applyRate(2_000_000L));
+    }
+
+    @Test
+    public void testApplyRateRoundsHalfUp() {
+        // 10.00 * 0.000050 = 0.0005 -> 0.00; 10.00 * 0.000500 = 0.005 -> 0.01
+        assertEquals(Money.ZERO, Money.ofMinor(1000L).applyRate(50L));
+        assertEquals(Money.ofMinor(1L), Money.ofMinor(1000L).applyRate(500L));
+        assertEquals(Money.ofMinor(-1L), Money.ofMinor(-1000L).applyRate(500L));
+        // A product wider than 64 bits is still rounded correctly
+        assertEquals(Money.ofMinor(Long.MAX_VALUE / 2 + 1), Money.ofMinor(Long.MAX_VALUE).applyRate(500_000L));
+    }
+
+    @Test
+    public void testApplyRateMatchesBigDecimalArithmetic() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal balance = BigDecimal.valueOf(random.nextLong(-1_000_000_000_00L, 1_000_000_000_00L), 2);
+            BigDecimal annualRate = BigDecimal.valueOf(random.nextInt(0, 200_000), 6);
+            int periods = random.nextBoolean() ? 365 : 12;
+
+            BigDecimal expected = balance
+                    .multiply(annualRate.divide(BigDecimal.valueOf(periods), 6, RoundingMode.HALF_UP))
+                    .setScale(2, RoundingMode.HALF_UP);
+            Money actual = Money.of(balance).applyRate(Money.periodicRate(annualRate, periods));
+
+            assertEquals(expected, actual.toBigDecimal(), balance + " at " + annualRate + "/" + periods);
+        }
+    }
+}
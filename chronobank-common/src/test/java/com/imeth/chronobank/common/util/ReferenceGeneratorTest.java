@@ -0,0 +1,148 @@
+package com.imeth.chronobank.common.util;
+
+import com.imeth.chronobank.common.constants.AppConstants;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the ReferenceGenerator class.
+ */
+public class ReferenceGeneratorTest {
+
+    private final AtomicLong now = new AtomicLong(ReferenceGenerator.EPOCH_MILLIS + 86_400_000L);
+
+    @Test
+    public void testReferencesKeepTheConfiguredFormat() {
+        String reference = ReferenceGenerator.newTransactionReference();
+        assertEquals(AppConstants.TRANSACTION_REFERENCE_LENGTH, reference.length());
+        assertTrue(reference.matches(AppConstants.TRANSACTION_PREFIX + "[0-9A-Z]+"), reference);
+
+        String accountNumber = ReferenceGenerator.newAccountNumber();
+        assertEquals(AppConstants.ACCOUNT_NUMBER_LENGTH, accountNumber.length());
+        assertTrue(accountNumber.matches(AppConstants.ACCOUNT_PREFIX + "[0-9A-Z]+"), accountNumber);
+    }
+
+    @Test
+    public void testBurstsBorrowFromTheNextTick() {
+        // Two sequence bits allow four references per tick; the clock does not move
+        ReferenceGenerator generator = new ReferenceGenerator("T", 6, 1, 2, 1000L, 0, now::get);
+
+        List<String> references = IntStream.range(0, 10)
+                .mapToObj(i -> generator.next())
+                .collect(Collectors.toList());
+
+        assertEquals(10, new HashSet<>(references).size());
+        for (int i = 1; i < references.size(); i++) {
+            assertTrue(references.get(i).compareTo(references.get(i - 1)) > 0, references.toString());
+        }
+    }
+
+    @Test
+    public void testReferencesSurviveARestartAfterTheClockMoves() {
+        ReferenceGenerator before = new ReferenceGenerator("T", 6, 1, 2, 1000L, 0, now::get);
+        Set<String> issued = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            issued.add(before.next());
+        }
+
+        now.addAndGet(1000L);
+        ReferenceGenerator after = new ReferenceGenerator("T", 6, 1, 2, 1000L, 0, now::get);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(issued.add(after.next()));
+        }
+    }
+
+    @Test
+    public void testSeedingSkipsTheTicksBorrowedBeforeARestart() {
+        ReferenceGenerator before = new ReferenceGenerator("T", 6, 1, 2, 1000L, 1, now::get);
+        Set<String> issued = new HashSet<>();
+        String highest = null;
+        for (int i = 0; i < 40; i++) {
+            highest = before.next();
+            issued.add(highest);
+        }
+
+        // Restarted within the ten seconds borrowed by the burst
+        now.addAndGet(1000L);
+        ReferenceGenerator after = new ReferenceGenerator("T", 6, 1, 2, 1000L, 1, now::get);
+        after.seed(highest);
+        for (int i = 0; i < 40; i++) {
+            String reference = after.next();
+            assertTrue(reference.compareTo(highest) > 0, reference);
+            assertTrue(issued.add(reference));
+        }
+    }
+
+    @Test
+    public void testSeedingIgnoresReferencesOfOtherFormats() {
+        ReferenceGenerator generator = new ReferenceGenerator("T", 6, 1, 2, 1000L, 0, now::get);
+        String first = generator.next();
+
+        generator.seed(null);
+        generator.seed("X99999");
+        generator.seed("T9999");
+        generator.seed(first);
+
+        assertTrue(generator.next().compareTo(first) > 0);
+        assertTrue(generator.ceiling().compareTo(generator.next()) > 0);
+    }
+
+    @Test
+    public void testNodesNeverIssueTheSameReference() {
+        ReferenceGenerator first = new ReferenceGenerator("T", 6, 1, 2, 1000L, 0, now::get);
+        ReferenceGenerator second = new ReferenceGenerator("T", 6, 1, 2, 1000L, 1, now::get);
+
+        for (int i = 0; i < 100; i++) {
+            assertNotEquals(first.next(), second.next());
+        }
+    }
+
+    @Test
+    public void testConcurrentCallersGetDistinctReferences() throws Exception {
+        ReferenceGenerator generator = new ReferenceGenerator(AppConstants.TRANSACTION_PREFIX,
+                AppConstants.TRANSACTION_REFERENCE_LENGTH, 3, 14, 1000L, 0, now::get);
+        Set<String> issued = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = IntStream.range(0, 4)
+                    .mapToObj(t -> executor.submit(() -> {
+                        for (int i = 0; i < 50_000; i++) {
+                            issued.add(generator.next());
+                        }
+                    }))
+                    .collect(Collectors.toList());
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(200_000, issued.size());
+    }
+
+    @Test
+    public void testInvalidLayoutsAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ReferenceGenerator("T", 6, 1, 2, 1000L, 2, now::get));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ReferenceGenerator("T", 3, 4, 8, 1000L, 0, now::get));
+    }
+}
@@ -0,0 +1,112 @@
+package com.imeth.chronobank.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the TimingWheel class.
+ */
+public class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    // Ticks of 10 ms and 4 buckets per level: level 0 spans 40 ms, level 1 160 ms, level 2 640 ms
+    private final TimingWheel<String> wheel = new TimingWheel<>(10L, 4, START);
+
+    @Test
+    public void testItemFiresAtItsTickAndNotBefore() {
+        wheel.schedule("a", START + 25L);
+
+        assertTrue(wheel.advance(START + 29L).isEmpty());
+        assertEquals(Collections.singletonList("a"), wheel.advance(START + 30L));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testItemsCascadeDownFromHigherLevels() {
+        wheel.schedule("level0", START + 30L);
+        wheel.schedule("level1", START + 150L);
+        wheel.schedule("level2", START + 600L);
+        wheel.schedule("level3", START + 2_000L);
+
+        List<String> fired = new ArrayList<>();
+        for (long now = START; now <= START + 2_000L; now += 10L) {
+            for (String item : wheel.advance(now)) {
+                fired.add(item + "@" + (now - START));
+            }
+        }
+
+        assertEquals(Arrays.asList("level0@30", "level1@150", "level2@600", "level3@2000"), fired);
+    }
+
+    @Test
+    public void testLargeStepFiresEverythingDueInOrder() {
+        wheel.schedule("late", START + 900L);
+        wheel.schedule("early", START + 50L);
+        wheel.schedule("later", START + 5_000L);
+
+        assertEquals(Arrays.asList("early", "late"), wheel.advance(START + 1_000L));
+        assertTrue(wheel.contains("later"));
+    }
+
+    @Test
+    public void testOverdueItemFiresOnNextAdvance() {
+        wheel.schedule("overdue", START - 5_000L);
+
+        assertEquals(Collections.singletonList("overdue"), wheel.advance(START));
+    }
+
+    @Test
+    public void testRescheduleMovesItem() {
+        assertTrue(wheel.schedule("a", START + 20L));
+        assertFalse(wheel.schedule("a", START + 15L));
+        assertTrue(wheel.schedule("a", START + 300L));
+
+        assertTrue(wheel.advance(START + 290L).isEmpty());
+        assertEquals(Collections.singletonList("a"), wheel.advance(START + 300L));
+    }
+
+    @Test
+    public void testCancelledItemDoesNotFire() {
+        wheel.schedule("a", START + 20L);
+        wheel.schedule("b", START + 20L);
+
+        assertTrue(wheel.cancel("a"));
+        assertFalse(wheel.cancel("a"));
+
+        assertEquals(Collections.singletonList("b"), wheel.advance(START + 20L));
+    }
+
+    @Test
+    public void testRandomItemsFireExactlyOnceAtTheirTick() {
+        TimingWheel<Integer> random = new TimingWheel<>(1L, 8, 0L);
+        Random dueTimes = new Random(42L);
+        long[] due = new long[2_000];
+        for (int i = 0; i < due.length; i++) {
+            due[i] = 1L + dueTimes.nextInt(100_000);
+            random.schedule(i, due[i]);
+        }
+
+        int fired = 0;
+        for (long now = 0L; now <= 100_000L; now += 1L + dueTimes.nextInt(50)) {
+            for (Integer item : random.advance(now)) {
+                assertTrue(due[item] <= now);
+                assertTrue(due[item] > now - 50L);
+                fired++;
+            }
+        }
+        fired += random.advance(100_001L).size();
+
+        assertEquals(due.length, fired);
+        assertEquals(0, random.size());
+    }
+}
@@ -0,0 +1,240 @@
+package com.imeth.chronobank.ejb.service.cache;
+
+import com.imeth.chronobank.common.dto.AccountDTO;
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.AccountBalanceStripe;
+import com.imeth.chronobank.common.util.BoundedCache;
+import com.imeth.chronobank.common.util.JmxRegistration;
+import com.imeth.chronobank.common.util.Money;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Read-through cache of account summaries keyed by account id.
+ * <p>
+ * A cached summary is only served while its version matches the account's current
+ * {@code version} column, which is checked with a primary key lookup of that single column. Every
+ * balance change bumps the version, including the JDBC batch writes of the interest accrual, so a
+ * summary can never be served after the account has changed. Code that mutates accounts also
+ * evicts their summaries so that stale entries do not occupy the cache until they expire.
+ * <p>
+ * The balance of a striped account includes the credits held in its stripes, and its version is
+ * the sum of the account's version and its stripes' versions, so a credit to a stripe also
+ * outdates the summary. In the same way the balance includes the deltas of the account's pending
+ * balance journal entries, and the version adds their number; compacting the entries raises the
+ * account's version by as many, so the version never goes back.
+ * <p>
+ * Summaries are shared between callers and must not be modified.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class AccountSummaryCache {
+
+    static final String CACHE_NAME = "accounts";
+
+    /**
+     * The versions of the stripes of {@code Account a} plus the number of its pending journal
+     * entries, to be added to {@code a.version} in queries that list accounts.
+     */
+    public static final String PENDING_VERSIONS =
+            "COALESCE((SELECT SUM(s.version) FROM AccountBalanceStripe s WHERE s.account = a), 0) + " +
+            "(SELECT COUNT(j) FROM BalanceJournalEntry j WHERE j.account = a)";
+
+    /**
+     * The credits held in the stripes of {@code Account a} plus the deltas of its pending journal
+     * entries, to be added to its balances in queries that list accounts.
+     */
+    public static final String PENDING_AMOUNT =
+            "COALESCE((SELECT SUM(s.amount) FROM AccountBalanceStripe s WHERE s.account = a), 0) + " +
+            "COALESCE((SELECT SUM(j.delta) FROM BalanceJournalEntry j WHERE j.account = a), 0)";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Resource(name = "accountCacheMaxEntries")
+    private int maxEntries = 10000;
+
+    @Resource(name = "accountCacheTtlSeconds")
+    private int ttlSeconds = 300;
+
+    private BoundedCache<Long, AccountDTO> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new BoundedCache<>(CACHE_NAME, maxEntries, ttlSeconds * 1000L);
+        JmxRegistration.register(cache, "Cache", CACHE_NAME);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        JmxRegistration.unregister("Cache", CACHE_NAME);
+    }
+
+    /**
+     * Get the summary of an account, loading it if it is not cached or its version is outdated.
+     *
+     * @param accountId the account ID
+     * @return the account summary, or null if the account does not exist
+     */
+    public AccountDTO getAccountSummary(Long accountId) {
+        AccountDTO cached = cache.get(accountId);
+        if (cached != null) {
+            Long version = getCurrentVersion(accountId);
+            if (version == null) {
+                cache.invalidate(accountId);
+                return null;
+            }
+            if (version.equals(cached.getVersion())) {
+                return cached;
+            }
+        }
+
+        List<Account> accounts = em.createQuery(
+                "SELECT a FROM Account a JOIN FETCH a.user WHERE a.id = :id", Account.class)
+                .setParameter("id", accountId)
+                .getResultList();
+        if (accounts.isEmpty()) {
+            cache.invalidate(accountId);
+            return null;
+        }
+
+        Account account = accounts.get(0);
+        AccountDTO summary = new AccountDTO(account);
+        if (account.getStripeCount() != null) {
+            addStripes(summary, account);
+        }
+        addJournal(summary, accountId);
+        cache.put(accountId, summary);
+        return summary;
+    }
+
+    /**
+     * Build the summary of an account that was listed together with {@link #PENDING_AMOUNT} and
+     * {@code a.version + }{@link #PENDING_VERSIONS}.
+     *
+     * @param account the account
+     * @param pendingAmount the pending amount of the account
+     * @param version the version of the account including its pending versions
+     * @return the account summary
+     */
+    public static AccountDTO summarize(Account account, Number pendingAmount, Number version) {
+        AccountDTO summary = new AccountDTO(account);
+        // SUM of a converted column is returned as the raw DECIMAL
+        Money pending = Money.of(new BigDecimal(pendingAmount.toString()));
+        summary.setBalance(account.getBalanceMoney().plus(pending).toBigDecimal());
+        summary.setAvailableBalance(account.getAvailableBalanceMoney().plus(pending).toBigDecimal());
+        summary.setVersion(version.longValue());
+        return summary;
+    }
+
+    /**
+     * Add the pending credits of an account's stripes to its summary, and their versions to its
+     * version.
+     */
+    private void addStripes(AccountDTO summary, Account account) {
+        List<AccountBalanceStripe> stripes = em.createQuery(
+                "SELECT s FROM AccountBalanceStripe s WHERE s.account.id = :id", AccountBalanceStripe.class)
+                .setParameter("id", account.getId())
+                .getResultList();
+        Money pending = Money.ZERO;
+        long version = account.getVersion();
+        for (AccountBalanceStripe stripe : stripes) {
+            pending = pending.plus(stripe.getAmount());
+            version += stripe.getVersion();
+        }
+        summary.setBalance(account.getBalanceMoney().plus(pending).toBigDecimal());
+        summary.setAvailableBalance(account.getAvailableBalanceMoney().plus(pending).toBigDecimal());
+        summary.setVersion(version);
+    }
+
+    /**
+     * Add the deltas of an account's pending journal entries to its summary, and their number to
+     * its version.
+     */
+    private void addJournal(AccountDTO summary, Long accountId) {
+        Object[] pending = em.createQuery(
+                "SELECT COUNT(j), SUM(j.delta) FROM BalanceJournalEntry j WHERE j.account.id = :id", Object[].class)
+                .setParameter("id", accountId)
+                .getSingleResult();
+        long entries = ((Number) pending[0]).longValue();
+        if (entries == 0L) {
+            return;
+        }
+        // SUM of a converted column is returned as the raw DECIMAL
+        Money delta = Money.of((BigDecimal) pending[1]);
+        summary.setBalance(Money.of(summary.getBalance()).plus(delta).toBigDecimal());
+        summary.setAvailableBalance(Money.of(summary.getAvailableBalance()).plus(delta).toBigDecimal());
+        summary.setVersion(summary.getVersion() + entries);
+    }
+
+    /**
+     * Get the current version of an account without loading it.
+     *
+     * @param accountId the account ID
+     * @return the version, or null if the account does not exist
+     */
+    public Long getCurrentVersion(Long accountId) {
+        // SUM of a BIGINT column is returned as a DECIMAL
+        List<Number> versions = em.createQuery(
+                "SELECT a.version + " + PENDING_VERSIONS + " FROM Account a WHERE a.id = :id", Number.class)
+                .setParameter("id", accountId)
+                .getResultList();
+        return versions.isEmpty() ? null : versions.get(0).longValue();
+    }
+
+    /**
+     * Get the current version and owner of an account without loading it, for answering
+     * conditional requests.
+     *
+     * @param accountId the account ID
+     * @return the version and owner, or null if the account does not exist
+     */
+    public AccountVersion getAccountVersion(Long accountId) {
+        List<Object[]> rows = em.createQuery(
+                "SELECT a.version + " + PENDING_VERSIONS + ", a.user.id FROM Account a WHERE a.id = :id",
+                Object[].class)
+                .setParameter("id", accountId)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        return new AccountVersion(accountId, (Long) row[1], ((Number) row[0]).longValue());
+    }
+
+    /**
+     * Evict the summary of an account after it has been changed.
+     *
+     * @param accountId the account ID
+     */
+    public void invalidate(Long accountId) {
+        if (accountId != null) {
+            cache.invalidate(accountId);
+        }
+    }
+
+    /**
+     * Evict the summaries of several accounts after they have been changed.
+     *
+     * @param accountIds the account IDs
+     */
+    public void invalidateAll(Collection<Long> accountIds) {
+        for (Long accountId : accountIds) {
+            invalidate(accountId);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.imeth.chronobank.ejb.service.cache;
+
+import java.io.Serializable;
+
+/**
+ * The current version of an account together with its owner, read without loading the account.
+ */
+public final class AccountVersion implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long accountId;
+    private final Long userId;
+    private final Long version;
+
+    public AccountVersion(Long accountId, Long userId, Long version) {
+        this.accountId = accountId;
+        this.userId = userId;
+        this.version = version;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,67 @@
+package com.imeth.chronobank.ejb.service.id;
+
+import com.imeth.chronobank.common.entity.BaseEntity;
+
+import jakarta.annotation.Resource;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * EJB that reserves blocks of entity ids for rows written with plain JDBC.
+ * It increments the same table sequence that JPA uses for {@link BaseEntity} ids, with the same
+ * update-then-read protocol, so ids from both never collide. Each block is reserved in its own
+ * short transaction so that the sequence row is not locked for the caller's whole transaction.
+ */
+@Stateless
+public class IdAllocator {
+
+    private static final String RESERVE_SQL =
+            "UPDATE " + BaseEntity.ID_SEQUENCE_TABLE + " SET " + BaseEntity.ID_SEQUENCE_VALUE_COLUMN + " = " +
+            BaseEntity.ID_SEQUENCE_VALUE_COLUMN + " + ? WHERE " + BaseEntity.ID_SEQUENCE_NAME_COLUMN + " = ?";
+
+    private static final String READ_SQL =
+            "SELECT " + BaseEntity.ID_SEQUENCE_VALUE_COLUMN + " FROM " + BaseEntity.ID_SEQUENCE_TABLE +
+            " WHERE " + BaseEntity.ID_SEQUENCE_NAME_COLUMN + " = ?";
+
+    @Resource(lookup = "jdbc/ChronoBankDS")
+    private DataSource dataSource;
+
+    /**
+     * Reserve a block of entity ids.
+     *
+     * @param size the number of ids to reserve
+     * @return the reserved block
+     * @throws SQLException if the sequence cannot be advanced
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public IdBlock allocate(int size) throws SQLException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement reserve = connection.prepareStatement(RESERVE_SQL)) {
+                reserve.setInt(1, size);
+                reserve.setString(2, BaseEntity.ID_SEQUENCE);
+                if (reserve.executeUpdate() != 1) {
+                    throw new SQLException("Id sequence " + BaseEntity.ID_SEQUENCE + " is missing from " +
+                            BaseEntity.ID_SEQUENCE_TABLE);
+                }
+            }
+            try (PreparedStatement read = connection.prepareStatement(READ_SQL)) {
+                read.setString(1, BaseEntity.ID_SEQUENCE);
+                try (ResultSet rs = read.executeQuery()) {
+                    rs.next();
+                    long last = rs.getLong(1);
+                    return new IdBlock(last - size + 1, size);
+                }
+            }
+        }
+    }
+}
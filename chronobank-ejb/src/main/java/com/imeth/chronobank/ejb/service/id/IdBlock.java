@@ -0,0 +1,46 @@
+package com.imeth.chronobank.ejb.service.id;
+
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+
+/**
+ * A contiguous block of entity ids reserved from the id sequence, handed out in ascending order.
+ * Ids that are not used are simply skipped; the sequence never reissues them.
+ */
+public class IdBlock implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long last;
+    private long next;
+
+    /**
+     * @param first the first id of the block
+     * @param size the number of ids in the block
+     */
+    public IdBlock(long first, int size) {
+        this.next = first;
+        this.last = first + size - 1;
+    }
+
+    public boolean hasNext() {
+        return next <= last;
+    }
+
+    /**
+     * Take the next id of the block.
+     *
+     * @return the id
+     * @throws NoSuchElementException if the block is used up
+     */
+    public long next() {
+        if (next > last) {
+            throw new NoSuchElementException("Id block exhausted at " + last);
+        }
+        return next++;
+    }
+
+    public int remaining() {
+        return (int) (last - next + 1);
+    }
+}
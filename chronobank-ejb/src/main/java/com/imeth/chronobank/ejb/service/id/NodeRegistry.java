@@ -0,0 +1,122 @@
+package com.imeth.chronobank.ejb.service.id;
+
+import com.imeth.chronobank.common.constants.AppConstants;
+import com.imeth.chronobank.common.entity.ServerNode;
+import com.imeth.chronobank.common.util.ReferenceGenerator;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * EJB that prepares {@link ReferenceGenerator} when the application starts.
+ * <p>
+ * Every server instance sharing the database records itself in {@code server_nodes} with its
+ * node id and refreshes the row every minute. Startup fails while another instance seen in the
+ * last {@value #LEASE_MINUTES} minutes has the same node id, which is what happens when a second
+ * node is started without {@value AppConstants#NODE_ID_PROPERTY}. Instances started at the same
+ * moment may miss each other. The generators are then seeded with the highest transaction
+ * reference and account number in the database, so that references borrowed ahead of the clock
+ * before a restart are not issued again.
+ */
+@Singleton
+@Startup
+public class NodeRegistry {
+
+    private static final Logger LOGGER = Logger.getLogger(NodeRegistry.class.getName());
+
+    // An instance that has not refreshed its row for this long is taken to be stopped
+    static final long LEASE_MINUTES = 3L;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private String instanceName = localInstanceName();
+
+    /**
+     * Register this instance and seed the reference generators.
+     *
+     * @throws IllegalStateException if a running instance uses the same node id
+     */
+    @PostConstruct
+    public void register() {
+        LocalDateTime now = LocalDateTime.now();
+        int nodeId = (int) ReferenceGenerator.nodeId();
+        ServerNode self = null;
+        for (ServerNode node : em.createQuery("SELECT n FROM ServerNode n", ServerNode.class).getResultList()) {
+            if (node.getInstanceName().equals(instanceName)) {
+                self = node;
+            } else if (node.getNodeId() == nodeId && node.getLastSeen().isAfter(now.minusMinutes(LEASE_MINUTES))) {
+                throw new IllegalStateException("Node id " + nodeId + " is already used by " +
+                        node.getInstanceName() + "; give every instance sharing the database its own " +
+                        AppConstants.NODE_ID_PROPERTY + " system property");
+            }
+        }
+        if (self == null) {
+            self = new ServerNode();
+            self.setInstanceName(instanceName);
+            em.persist(self);
+        }
+        self.setNodeId(nodeId);
+        self.setLastSeen(now);
+
+        String highestReference = em.createQuery(
+                "SELECT MAX(t.transactionReference) FROM Transaction t WHERE t.transactionReference < :ceiling",
+                String.class)
+                .setParameter("ceiling", ReferenceGenerator.transactionReferenceCeiling())
+                .getSingleResult();
+        String highestAccountNumber = em.createQuery(
+                "SELECT MAX(a.accountNumber) FROM Account a WHERE a.accountNumber < :ceiling", String.class)
+                .setParameter("ceiling", ReferenceGenerator.accountNumberCeiling())
+                .getSingleResult();
+        ReferenceGenerator.seedTransactionReferences(highestReference);
+        ReferenceGenerator.seedAccountNumbers(highestAccountNumber);
+        LOGGER.info("Registered " + instanceName + " as node " + nodeId + "; references continue after " +
+                highestReference + " and account numbers after " + highestAccountNumber);
+    }
+
+    /**
+     * Scheduled method that runs every minute to show that this instance is still running.
+     */
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void heartbeat() {
+        em.createQuery("UPDATE ServerNode n SET n.lastSeen = :now WHERE n.instanceName = :instanceName")
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("instanceName", instanceName)
+                .executeUpdate();
+    }
+
+    /**
+     * Remove this instance, so that its node id can be taken over at once.
+     */
+    @PreDestroy
+    public void unregister() {
+        try {
+            em.createQuery("DELETE FROM ServerNode n WHERE n.instanceName = :instanceName")
+                    .setParameter("instanceName", instanceName)
+                    .executeUpdate();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Could not unregister " + instanceName, e);
+        }
+    }
+
+    private static String localInstanceName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        return host + "/" + System.getProperty("com.sun.aas.instanceName", "server");
+    }
+}
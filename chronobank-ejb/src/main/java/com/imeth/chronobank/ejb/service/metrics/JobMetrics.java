@@ -0,0 +1,133 @@
+package com.imeth.chronobank.ejb.service.metrics;
+
+import com.imeth.chronobank.common.entity.JobRun;
+import com.imeth.chronobank.common.util.JmxRegistration;
+import com.imeth.chronobank.ejb.service.id.IdAllocator;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records the runs of the timer jobs.
+ * <p>
+ * Every finished run is written to the {@code job_runs} history table in its own transaction,
+ * so a run that rolls back is still recorded. Each job also gets a {@link JobStatisticsMXBean}
+ * under {@code com.imeth.chronobank:type=Job} showing the run in progress and the last finished
+ * run. Failures to record are logged rather than thrown, since monitoring must never fail a job.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class JobMetrics {
+
+    private static final Logger LOGGER = Logger.getLogger(JobMetrics.class.getName());
+
+    static final String MBEAN_TYPE = "Job";
+
+    private static final String INSERT_RUN_SQL =
+            "INSERT INTO job_runs (id, job_name, started_at, finished_at, duration_millis, items_processed, " +
+            "items_failed, p50_item_micros, p99_item_micros, max_item_micros, window_millis, status, error, " +
+            "created_at, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1)";
+
+    @Resource(lookup = "jdbc/ChronoBankDS")
+    private DataSource dataSource;
+
+    @EJB
+    private IdAllocator idAllocator;
+
+    private final ConcurrentMap<String, JobStatistics> statistics = new ConcurrentHashMap<>();
+
+    @PreDestroy
+    public void destroy() {
+        for (String jobName : statistics.keySet()) {
+            JmxRegistration.unregister(MBEAN_TYPE, jobName);
+        }
+    }
+
+    /**
+     * Mark a run as in progress.
+     *
+     * @param run the recorder of the run
+     */
+    public void started(JobRunRecorder run) {
+        statistics(run.getJobName()).started(run);
+    }
+
+    /**
+     * Record a finished run in the history and in the job's statistics.
+     *
+     * @param run the recorder of the run
+     * @return the recorded run
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public JobRun finished(JobRunRecorder run) {
+        JobRun summary = run.toJobRun();
+        statistics(run.getJobName()).finished(run, summary);
+        if (summary.getWindowMillis() > 0L && summary.getDurationMillis() > summary.getWindowMillis()) {
+            LOGGER.warning("Job " + summary.getJobName() + " took " + summary.getDurationMillis() +
+                    " ms, overrunning its window of " + summary.getWindowMillis() + " ms");
+        }
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement(INSERT_RUN_SQL)) {
+            summary.setId(idAllocator.allocate(1).next());
+            insert.setLong(1, summary.getId());
+            insert.setString(2, summary.getJobName());
+            insert.setTimestamp(3, Timestamp.valueOf(summary.getStartedAt()));
+            insert.setTimestamp(4, Timestamp.valueOf(summary.getFinishedAt()));
+            insert.setLong(5, summary.getDurationMillis());
+            insert.setLong(6, summary.getItemsProcessed());
+            insert.setLong(7, summary.getItemsFailed());
+            insert.setLong(8, summary.getP50ItemMicros());
+            insert.setLong(9, summary.getP99ItemMicros());
+            insert.setLong(10, summary.getMaxItemMicros());
+            insert.setLong(11, summary.getWindowMillis());
+            insert.setString(12, summary.getStatus().name());
+            insert.setString(13, summary.getError());
+            insert.setTimestamp(14, Timestamp.valueOf(LocalDateTime.now()));
+            insert.executeUpdate();
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Could not record run of job " + summary.getJobName(), e);
+        }
+        return summary;
+    }
+
+    /**
+     * Get the live statistics of every job that has run since the application started.
+     *
+     * @return the statistics, ordered by job name
+     */
+    public List<JobStatistics> getStatistics() {
+        List<JobStatistics> result = new ArrayList<>(statistics.values());
+        result.sort(Comparator.comparing(JobStatistics::getJobName));
+        return result;
+    }
+
+    private JobStatistics statistics(String jobName) {
+        return statistics.computeIfAbsent(jobName, name -> {
+            JobStatistics jobStatistics = new JobStatistics(name);
+            JmxRegistration.register(jobStatistics, MBEAN_TYPE, name);
+            return jobStatistics;
+        });
+    }
+}
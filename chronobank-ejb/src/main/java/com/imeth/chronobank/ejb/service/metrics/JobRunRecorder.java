@@ -0,0 +1,142 @@
+package com.imeth.chronobank.ejb.service.metrics;
+
+import com.imeth.chronobank.common.entity.JobRun;
+import com.imeth.chronobank.common.util.LatencyHistogram;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the measurements of one run of a timer job while it is running.
+ * <p>
+ * A job creates a recorder when a run starts, reports each item or batch of items as it
+ * completes, and hands the recorder to {@link JobMetrics#finished(JobRunRecorder)} at the end.
+ * Recording is thread-safe and allocation-free, so the shards of a partitioned run can share one
+ * recorder.
+ */
+public class JobRunRecorder {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final String jobName;
+    private final long windowMillis;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final long startNanos = System.nanoTime();
+    private final LatencyHistogram itemMicros = new LatencyHistogram();
+    private final LongAdder itemsFailed = new LongAdder();
+    private volatile String error;
+
+    /**
+     * Start recording a run.
+     *
+     * @param jobName the name of the job
+     * @param windowMillis the time the run is expected to finish within
+     */
+    public JobRunRecorder(String jobName, long windowMillis) {
+        this.jobName = jobName;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Record an item that was processed successfully.
+     *
+     * @param nanos the time the item took
+     */
+    public void itemCompleted(long nanos) {
+        itemMicros.record(nanos / 1_000L);
+    }
+
+    /**
+     * Record an item that failed.
+     *
+     * @param nanos the time the item took
+     */
+    public void itemFailed(long nanos) {
+        itemMicros.record(nanos / 1_000L);
+        itemsFailed.increment();
+    }
+
+    /**
+     * Record a batch of items that were processed together. Each item is recorded with the
+     * average time of the batch.
+     *
+     * @param count the number of items in the batch
+     * @param failed the number of items of the batch that failed
+     * @param nanos the time the whole batch took
+     */
+    public void itemsCompleted(int count, int failed, long nanos) {
+        if (count <= 0) {
+            return;
+        }
+        itemMicros.record(nanos / 1_000L / count, count);
+        itemsFailed.add(failed);
+    }
+
+    /**
+     * Record that the run stopped early.
+     *
+     * @param error the cause
+     */
+    public void failed(Throwable error) {
+        failed(String.valueOf(error));
+    }
+
+    /**
+     * Record that the run stopped early.
+     *
+     * @param error a description of the cause
+     */
+    public void failed(String error) {
+        this.error = error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
+    public long getItemsProcessed() {
+        return itemMicros.getCount();
+    }
+
+    public long getItemsFailed() {
+        return itemsFailed.sum();
+    }
+
+    /**
+     * Summarize the run as it stands.
+     *
+     * @return a job run row for the history, not yet persisted
+     */
+    public JobRun toJobRun() {
+        JobRun run = new JobRun();
+        run.setJobName(jobName);
+        run.setStartedAt(startedAt);
+        run.setDurationMillis(getElapsedMillis());
+        run.setFinishedAt(startedAt.plusNanos(run.getDurationMillis() * 1_000_000L));
+        run.setItemsProcessed(itemMicros.getCount());
+        run.setItemsFailed(itemsFailed.sum());
+        run.setP50ItemMicros(itemMicros.getPercentile(50));
+        run.setP99ItemMicros(itemMicros.getPercentile(99));
+        run.setMaxItemMicros(itemMicros.getMax());
+        run.setWindowMillis(windowMillis);
+        run.setError(error);
+        if (error != null) {
+            run.setStatus(JobRun.Status.FAILED);
+        } else {
+            run.setStatus(run.getItemsFailed() > 0 ? JobRun.Status.PARTIAL : JobRun.Status.SUCCEEDED);
+        }
+        return run;
+    }
+}
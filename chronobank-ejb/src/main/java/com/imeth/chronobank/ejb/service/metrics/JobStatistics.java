@@ -0,0 +1,143 @@
+package com.imeth.chronobank.ejb.service.metrics;
+
+import com.imeth.chronobank.common.entity.JobRun;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live statistics of one timer job: the run in progress, if any, and the last finished run.
+ */
+public class JobStatistics implements JobStatisticsMXBean {
+
+    private final String jobName;
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong failedRunCount = new AtomicLong();
+    private volatile JobRunRecorder current;
+    private volatile JobRun last;
+
+    JobStatistics(String jobName) {
+        this.jobName = jobName;
+    }
+
+    void started(JobRunRecorder run) {
+        current = run;
+    }
+
+    void finished(JobRunRecorder run, JobRun summary) {
+        last = summary;
+        runCount.incrementAndGet();
+        if (summary.getStatus() == JobRun.Status.FAILED) {
+            failedRunCount.incrementAndGet();
+        }
+        if (current == run) {
+            current = null;
+        }
+    }
+
+    @Override
+    public String getJobName() {
+        return jobName;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return current != null;
+    }
+
+    @Override
+    public long getCurrentRunMillis() {
+        JobRunRecorder run = current;
+        return run != null ? run.getElapsedMillis() : 0L;
+    }
+
+    @Override
+    public long getCurrentItemsProcessed() {
+        JobRunRecorder run = current;
+        return run != null ? run.getItemsProcessed() : 0L;
+    }
+
+    @Override
+    public long getWindowMillis() {
+        JobRunRecorder run = current;
+        if (run != null) {
+            return run.getWindowMillis();
+        }
+        JobRun lastRun = last;
+        return lastRun != null ? lastRun.getWindowMillis() : 0L;
+    }
+
+    @Override
+    public double getWindowUsage() {
+        JobRunRecorder run = current;
+        if (run != null) {
+            return usage(run.getElapsedMillis(), run.getWindowMillis());
+        }
+        JobRun lastRun = last;
+        return lastRun != null ? usage(lastRun.getDurationMillis(), lastRun.getWindowMillis()) : 0.0;
+    }
+
+    @Override
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    @Override
+    public long getFailedRunCount() {
+        return failedRunCount.get();
+    }
+
+    @Override
+    public String getLastStatus() {
+        JobRun lastRun = last;
+        return lastRun != null ? lastRun.getStatus().name() : null;
+    }
+
+    @Override
+    public String getLastStartedAt() {
+        JobRun lastRun = last;
+        return lastRun != null ? lastRun.getStartedAt().toString() : null;
+    }
+
+    @Override
+    public long getLastDurationMillis() {
+        JobRun lastRun = last;
+        return lastRun != null ? lastRun.getDurationMillis() : 0L;
+    }
+
+    @Override
+    public long getLastItemsProcessed() {
+        JobRun lastRun = last;
+        return lastRun != null ? lastRun.getItemsProcessed() : 0L;
+    }
+
+    @Override
+    public long getLastItemsFailed() {
+        JobRun lastRun = last;
+        return lastRun != null ? lastRun.getItemsFailed() : 0L;
+    }
+
+    @Override
+    public double getLastItemsPerSecond() {
+        JobRun lastRun = last;
+        if (lastRun == null) {
+            return 0.0;
+        }
+        return lastRun.getItemsProcessed() * 1000.0 / Math.max(1L, lastRun.getDurationMillis());
+    }
+
+    @Override
+    public long getLastP50ItemMicros() {
+        JobRun lastRun = last;
+        return lastRun != null ? lastRun.getP50ItemMicros() : 0L;
+    }
+
+    @Override
+    public long getLastP99ItemMicros() {
+        JobRun lastRun = last;
+        return lastRun != null ? lastRun.getP99ItemMicros() : 0L;
+    }
+
+    private static double usage(long millis, long windowMillis) {
+        return windowMillis > 0L ? (double) millis / windowMillis : 0.0;
+    }
+}
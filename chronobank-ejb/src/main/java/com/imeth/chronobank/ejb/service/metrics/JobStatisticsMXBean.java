@@ -0,0 +1,55 @@
+package com.imeth.chronobank.ejb.service.metrics;
+
+/**
+ * Management view of a timer job, registered with JMX under
+ * {@code com.imeth.chronobank:type=Job,name=<job name>}.
+ * <p>
+ * Alert on {@link #getWindowUsage()} to catch a run before it overruns its window.
+ */
+public interface JobStatisticsMXBean {
+
+    String getJobName();
+
+    boolean isRunning();
+
+    /**
+     * @return the time the current run has taken so far, 0 if the job is idle
+     */
+    long getCurrentRunMillis();
+
+    /**
+     * @return the number of items the current run has processed so far, 0 if the job is idle
+     */
+    long getCurrentItemsProcessed();
+
+    long getWindowMillis();
+
+    /**
+     * @return the duration of the current run, or of the last run if the job is idle, as a
+     *         fraction of the job's window; above 1 means the run overran it
+     */
+    double getWindowUsage();
+
+    long getRunCount();
+
+    long getFailedRunCount();
+
+    /**
+     * @return the status of the last finished run, null if none has finished yet
+     */
+    String getLastStatus();
+
+    String getLastStartedAt();
+
+    long getLastDurationMillis();
+
+    long getLastItemsProcessed();
+
+    long getLastItemsFailed();
+
+    double getLastItemsPerSecond();
+
+    long getLastP50ItemMicros();
+
+    long getLastP99ItemMicros();
+}
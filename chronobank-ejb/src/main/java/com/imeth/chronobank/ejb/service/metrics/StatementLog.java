@@ -0,0 +1,39 @@
+package com.imeth.chronobank.ejb.service.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The SQL statements sent to the database by one thread while it was being tracked by
+ * {@link StatementTracker}. Only the first {@link #MAX_STATEMENTS} statements are kept; all are
+ * counted.
+ */
+public class StatementLog {
+
+    static final int MAX_STATEMENTS = 50;
+
+    private int count;
+    private final List<String> statements = new ArrayList<>();
+
+    void record(String sql) {
+        count++;
+        if (sql != null && statements.size() < MAX_STATEMENTS) {
+            statements.add(sql);
+        }
+    }
+
+    /**
+     * @return the number of statements executed
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the SQL of the first statements, with parameters as placeholders
+     */
+    public List<String> getStatements() {
+        return Collections.unmodifiableList(statements);
+    }
+}
@@ -0,0 +1,48 @@
+package com.imeth.chronobank.ejb.service.metrics;
+
+/**
+ * Records the SQL statements executed on a thread between {@link #begin()} and {@link #end()}.
+ * <p>
+ * The REST layer brackets each request with these calls to find endpoints whose statement count
+ * grows with the size of their result. Statements are reported by
+ * {@link StatementTrackingListener}; on threads that are not being tracked, such as the timer
+ * jobs, reporting costs a single thread-local lookup.
+ */
+public final class StatementTracker {
+
+    private static final ThreadLocal<StatementLog> CURRENT = new ThreadLocal<>();
+
+    private StatementTracker() {
+    }
+
+    /**
+     * Start recording the statements of the current thread, discarding any earlier recording.
+     */
+    public static void begin() {
+        CURRENT.set(new StatementLog());
+    }
+
+    /**
+     * Stop recording the statements of the current thread.
+     *
+     * @return the statements recorded since {@link #begin()}, or an empty log if recording was
+     *         not started
+     */
+    public static StatementLog end() {
+        StatementLog log = CURRENT.get();
+        CURRENT.remove();
+        return log != null ? log : new StatementLog();
+    }
+
+    /**
+     * Report a statement executed on the current thread.
+     *
+     * @param sql the SQL of the statement, null if unknown
+     */
+    static void executed(String sql) {
+        StatementLog log = CURRENT.get();
+        if (log != null) {
+            log.record(sql);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.imeth.chronobank.ejb.service.metrics;
+
+import org.eclipse.persistence.internal.databaseaccess.DatabaseCall;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+
+/**
+ * EclipseLink session listener that reports every statement sent to the database to
+ * {@link StatementTracker}. Registered through the {@code eclipselink.session-event-listener}
+ * property of the persistence unit.
+ */
+public class StatementTrackingListener extends SessionEventAdapter {
+
+    @Override
+    public void preExecuteCall(SessionEvent event) {
+        StatementTracker.executed(event.getCall() instanceof DatabaseCall
+                ? ((DatabaseCall) event.getCall()).getSQLString() : null);
+    }
+}
@@ -0,0 +1,71 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * Outcome of accruing interest for one chunk of accounts.
+ */
+public class AccrualChunkResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long lastAccountId;
+    private final int accountsScanned;
+    private final int accountsCredited;
+    private final int accountsFailed;
+    private final BigDecimal totalInterest;
+
+    public AccrualChunkResult(long lastAccountId, int accountsScanned, int accountsCredited,
+                              int accountsFailed, BigDecimal totalInterest) {
+        this.lastAccountId = lastAccountId;
+        this.accountsScanned = accountsScanned;
+        this.accountsCredited = accountsCredited;
+        this.accountsFailed = accountsFailed;
+        this.totalInterest = totalInterest;
+    }
+
+    /**
+     * Creates a result for a chunk that found no further accounts.
+     *
+     * @param lastAccountId the id the chunk started after
+     * @return an empty chunk result
+     */
+    public static AccrualChunkResult empty(long lastAccountId) {
+        return new AccrualChunkResult(lastAccountId, 0, 0, 0, BigDecimal.ZERO);
+    }
+
+    /**
+     * @return the highest account id examined by the chunk, used as the cursor for the next chunk
+     */
+    public long getLastAccountId() {
+        return lastAccountId;
+    }
+
+    public int getAccountsScanned() {
+        return accountsScanned;
+    }
+
+    public int getAccountsCredited() {
+        return accountsCredited;
+    }
+
+    public int getAccountsFailed() {
+        return accountsFailed;
+    }
+
+    public BigDecimal getTotalInterest() {
+        return totalInterest;
+    }
+
+    @Override
+    public String toString() {
+        return "AccrualChunkResult{" +
+                "lastAccountId=" + lastAccountId +
+                ", accountsScanned=" + accountsScanned +
+                ", accountsCredited=" + accountsCredited +
+                ", accountsFailed=" + accountsFailed +
+                ", totalInterest=" + totalInterest +
+                '}';
+    }
+}
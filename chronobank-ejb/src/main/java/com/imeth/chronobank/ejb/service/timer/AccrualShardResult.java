@@ -0,0 +1,119 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * Outcome of accruing interest for one shard of the account id space.
+ * A shard is a contiguous id range that is processed chunk by chunk on a single thread.
+ */
+public class AccrualShardResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int shardIndex;
+    private final long afterAccountId;
+    private final long maxAccountId;
+    private int chunks;
+    private int accountsScanned;
+    private int accountsCredited;
+    private int accountsFailed;
+    private BigDecimal totalInterest = BigDecimal.ZERO;
+    private long elapsedMillis;
+    private String error;
+
+    public AccrualShardResult(int shardIndex, long afterAccountId, long maxAccountId) {
+        this.shardIndex = shardIndex;
+        this.afterAccountId = afterAccountId;
+        this.maxAccountId = maxAccountId;
+    }
+
+    /**
+     * Add the counts of a completed chunk to this shard.
+     *
+     * @param chunk the chunk result
+     */
+    void addChunk(AccrualChunkResult chunk) {
+        chunks++;
+        accountsScanned += chunk.getAccountsScanned();
+        accountsCredited += chunk.getAccountsCredited();
+        accountsFailed += chunk.getAccountsFailed();
+        totalInterest = totalInterest.add(chunk.getTotalInterest());
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    /**
+     * @return the exclusive lower bound of the shard's id range
+     */
+    public long getAfterAccountId() {
+        return afterAccountId;
+    }
+
+    /**
+     * @return the inclusive upper bound of the shard's id range
+     */
+    public long getMaxAccountId() {
+        return maxAccountId;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public int getAccountsScanned() {
+        return accountsScanned;
+    }
+
+    public int getAccountsCredited() {
+        return accountsCredited;
+    }
+
+    public int getAccountsFailed() {
+        return accountsFailed;
+    }
+
+    public BigDecimal getTotalInterest() {
+        return totalInterest;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return the error that stopped the shard early, or null if it ran to completion
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "AccrualShardResult{" +
+                "shardIndex=" + shardIndex +
+                ", range=(" + afterAccountId + ", " + maxAccountId + "]" +
+                ", chunks=" + chunks +
+                ", accountsScanned=" + accountsScanned +
+                ", accountsCredited=" + accountsCredited +
+                ", accountsFailed=" + accountsFailed +
+                ", totalInterest=" + totalInterest +
+                ", elapsedMillis=" + elapsedMillis +
+                ", error=" + error +
+                '}';
+    }
+}
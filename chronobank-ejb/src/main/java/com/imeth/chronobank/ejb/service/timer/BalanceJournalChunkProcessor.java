@@ -0,0 +1,154 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+import com.imeth.chronobank.ejb.service.transfer.TransferEngine;
+
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.SessionContext;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * EJB that compacts one chunk of balance journal entries into the account balances in its own
+ * transaction.
+ * <p>
+ * The entries of the chunk are read without locks, their accounts are locked in id order
+ * through the {@link TransferEngine}, and only then are the entries themselves locked by primary
+ * key. An entry that another compaction folded in the meantime is no longer found, so no entry is
+ * folded twice. Entries appended while the chunk runs are not read and are left for the next run;
+ * appends never wait for a compaction, as they insert new rows and lock no account.
+ * <p>
+ * Each account's version is raised by the number of entries folded into it, so the version of an
+ * account plus the number of its pending entries never decreases. The balances are written with a
+ * native update, which is safe because {@code Account} is kept out of the shared cache; the
+ * account summaries of the chunk are invalidated once it is folded.
+ */
+@Stateless
+public class BalanceJournalChunkProcessor {
+
+    private static final Logger LOGGER = Logger.getLogger(BalanceJournalChunkProcessor.class.getName());
+
+    private static final String FOLD_SQL =
+            "UPDATE accounts SET balance = balance + ?, available_balance = available_balance + ?, " +
+            "version = version + ?, updated_at = ? WHERE id = ?";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Resource
+    private SessionContext sessionContext;
+
+    @EJB
+    private AccountSummaryCache accountSummaryCache;
+
+    @EJB
+    private TransferEngine transferEngine;
+
+    /**
+     * Find the id of the last entry in the balance journal.
+     *
+     * @return the greatest entry id, or null if the journal is empty
+     */
+    public Long findLastEntryId() {
+        return em.createQuery("SELECT MAX(j.id) FROM BalanceJournalEntry j", Long.class)
+                .getSingleResult();
+    }
+
+    /**
+     * Fold the next chunk of journal entries into the balances of their accounts and delete them.
+     * If the chunk cannot be written it is rolled back and reported as failed, and its entries stay
+     * in the journal for the next run.
+     *
+     * @param afterEntryId only entries with a greater id are considered
+     * @param chunkSize the maximum number of entries in the chunk
+     * @return the outcome of the chunk
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public JournalChunkResult compactChunk(long afterEntryId, int chunkSize) {
+        try {
+            List<Object[]> pending = em.createQuery(
+                    "SELECT j.id, j.account.id FROM BalanceJournalEntry j WHERE j.id > :afterId ORDER BY j.id",
+                    Object[].class)
+                    .setParameter("afterId", afterEntryId)
+                    .setMaxResults(chunkSize)
+                    .getResultList();
+            if (pending.isEmpty()) {
+                return JournalChunkResult.empty(afterEntryId);
+            }
+
+            List<Long> entryIds = new ArrayList<>(pending.size());
+            TreeSet<Long> accountIds = new TreeSet<>();
+            for (Object[] row : pending) {
+                entryIds.add((Long) row[0]);
+                accountIds.add((Long) row[1]);
+            }
+            long lastEntryId = entryIds.get(entryIds.size() - 1);
+
+            try {
+                return fold(entryIds, accountIds, lastEntryId);
+            } catch (PersistenceException e) {
+                LOGGER.log(Level.WARNING, "Rolling back balance journal chunk ending at entry ID: " + lastEntryId, e);
+                sessionContext.setRollbackOnly();
+                return new JournalChunkResult(lastEntryId, 0, 0, true);
+            }
+        } finally {
+            em.clear();
+        }
+    }
+
+    private JournalChunkResult fold(List<Long> entryIds, TreeSet<Long> accountIds, long lastEntryId) {
+        transferEngine.lockAccounts(accountIds);
+        List<Object[]> entries = em.createQuery(
+                "SELECT j.id, j.account.id, j.delta FROM BalanceJournalEntry j WHERE j.id IN :ids",
+                Object[].class)
+                .setParameter("ids", entryIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        if (entries.isEmpty()) {
+            return JournalChunkResult.empty(lastEntryId);
+        }
+
+        List<Long> foldedIds = new ArrayList<>(entries.size());
+        Map<Long, Money> deltas = new TreeMap<>();
+        Map<Long, Integer> counts = new TreeMap<>();
+        for (Object[] entry : entries) {
+            foldedIds.add((Long) entry[0]);
+            deltas.merge((Long) entry[1], (Money) entry[2], Money::plus);
+            counts.merge((Long) entry[1], 1, Integer::sum);
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Map.Entry<Long, Money> delta : deltas.entrySet()) {
+            em.createNativeQuery(FOLD_SQL)
+                    .setParameter(1, delta.getValue().toBigDecimal())
+                    .setParameter(2, delta.getValue().toBigDecimal())
+                    .setParameter(3, counts.get(delta.getKey()))
+                    .setParameter(4, now)
+                    .setParameter(5, delta.getKey())
+                    .executeUpdate();
+        }
+        em.createQuery("DELETE FROM BalanceJournalEntry j WHERE j.id IN :ids")
+                .setParameter("ids", foldedIds)
+                .executeUpdate();
+
+        accountSummaryCache.invalidateAll(deltas.keySet());
+        return new JournalChunkResult(lastEntryId, deltas.size(), foldedIds.size(), false);
+    }
+}
@@ -0,0 +1,84 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.common.constants.AppConstants;
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+import com.imeth.chronobank.ejb.service.metrics.JobRunRecorder;
+
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * EJB service that compacts the balance journal into the account balances, so that journaled
+ * credits can be spent and the journal stays short.
+ * <p>
+ * The journal is read in entry id order, one chunk per transaction through the
+ * {@link BalanceJournalChunkProcessor}. A failed chunk is skipped and retried by the next run.
+ * A run stops at the last entry that was in the journal when it started, so that steady appends
+ * cannot keep it going into the next run; later entries are left for the next run.
+ */
+@Singleton
+public class BalanceJournalCompactionService {
+
+    private static final Logger LOGGER = Logger.getLogger(BalanceJournalCompactionService.class.getName());
+
+    // A run should be done before the next one starts
+    private static final long RUN_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @EJB
+    private BalanceJournalChunkProcessor chunkProcessor;
+
+    @EJB
+    private JobMetrics jobMetrics;
+
+    @Resource(name = "balanceJournalChunkSize")
+    private Integer chunkSize = AppConstants.DEFAULT_JOURNAL_COMPACTION_CHUNK_SIZE;
+
+    /**
+     * Scheduled method that runs every minute to compact the balance journal.
+     */
+    @Schedule(hour = "*", minute = "*", second = "15", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void compactBalanceJournal() {
+        JobRunRecorder run = new JobRunRecorder(AppConstants.BALANCE_JOURNAL_COMPACTION_TIMER, RUN_WINDOW_MILLIS);
+        jobMetrics.started(run);
+        try {
+            // Entries appended after this point are left for the next run
+            Long lastEntryId = chunkProcessor.findLastEntryId();
+            long untilEntryId = lastEntryId != null ? lastEntryId : 0L;
+            long afterEntryId = 0L;
+            int accounts = 0;
+            int entries = 0;
+            boolean advanced = true;
+            while (advanced && afterEntryId < untilEntryId) {
+                long chunkStart = System.nanoTime();
+                JournalChunkResult chunk = chunkProcessor.compactChunk(afterEntryId, chunkSize);
+                if (chunk.isFailed()) {
+                    run.itemFailed(System.nanoTime() - chunkStart);
+                } else if (chunk.getEntriesCompacted() > 0) {
+                    run.itemCompleted(System.nanoTime() - chunkStart);
+                    accounts += chunk.getAccountsCompacted();
+                    entries += chunk.getEntriesCompacted();
+                }
+                // An empty chunk returns the cursor it was given
+                advanced = chunk.getLastEntryId() > afterEntryId;
+                afterEntryId = chunk.getLastEntryId();
+            }
+
+            if (entries > 0) {
+                LOGGER.info("Compacted " + entries + " balance journal entries into " + accounts + " account(s)");
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Error during balance journal compaction", e);
+            run.failed(e);
+        }
+        jobMetrics.finished(run);
+    }
+}
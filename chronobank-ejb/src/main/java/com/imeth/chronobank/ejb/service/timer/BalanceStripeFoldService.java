@@ -0,0 +1,81 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.common.constants.AppConstants;
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+import com.imeth.chronobank.ejb.service.metrics.JobRunRecorder;
+import com.imeth.chronobank.ejb.service.transfer.TransferEngine;
+
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * EJB service that folds the credits held in the balance stripes of hot accounts back into their
+ * balances, so that they can be spent and so that the stripes stay small.
+ * <p>
+ * Each account is folded in its own transaction by {@link TransferEngine#foldStripes(long)}.
+ * Accounts whose striping has been turned off are folded as well, in case a credit reached a
+ * stripe while the count was being changed.
+ */
+@Singleton
+public class BalanceStripeFoldService {
+
+    private static final Logger LOGGER = Logger.getLogger(BalanceStripeFoldService.class.getName());
+
+    // A run should be done before the next one starts
+    private static final long RUN_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @EJB
+    private TransferEngine transferEngine;
+
+    @EJB
+    private JobMetrics jobMetrics;
+
+    /**
+     * Scheduled method that runs every five minutes to fold the balance stripes.
+     */
+    @Schedule(hour = "*", minute = "*/5", second = "30", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void foldBalanceStripes() {
+        JobRunRecorder run = new JobRunRecorder(AppConstants.BALANCE_STRIPE_FOLD_TIMER, RUN_WINDOW_MILLIS);
+        jobMetrics.started(run);
+        try {
+            List<Long> accountIds = em.createQuery(
+                    "SELECT a.id FROM Account a WHERE a.stripeCount IS NOT NULL ORDER BY a.id", Long.class)
+                    .getResultList();
+
+            Money folded = Money.ZERO;
+            for (Long accountId : accountIds) {
+                long itemStart = System.nanoTime();
+                try {
+                    folded = folded.plus(transferEngine.foldStripes(accountId));
+                    run.itemCompleted(System.nanoTime() - itemStart);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, "Error folding balance stripes of account ID: " + accountId, e);
+                    run.itemFailed(System.nanoTime() - itemStart);
+                }
+            }
+
+            if (!accountIds.isEmpty()) {
+                LOGGER.info("Folded " + folded + " from the balance stripes of " + accountIds.size() + " account(s)");
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Error during balance stripe fold", e);
+            run.failed(e);
+        }
+        jobMetrics.finished(run);
+    }
+}
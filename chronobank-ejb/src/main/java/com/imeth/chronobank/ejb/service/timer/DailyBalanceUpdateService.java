@@ -1,17 +1,37 @@
 package com.imeth.chronobank.ejb.service.timer;
 
+import com.imeth.chronobank.common.constants.AppConstants;
 import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.AccountBalanceStripe;
+import com.imeth.chronobank.common.entity.BalanceCheckpoint;
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.ejb.service.id.IdAllocator;
+import com.imeth.chronobank.ejb.service.id.IdBlock;
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+import com.imeth.chronobank.ejb.service.metrics.JobRunRecorder;
 
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
 import jakarta.ejb.Schedule;
 import jakarta.ejb.Singleton;
 import jakarta.ejb.TransactionAttribute;
 import jakarta.ejb.TransactionAttributeType;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 
-import java.time.LocalDate;
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,10 +42,77 @@ import java.util.logging.Logger;
 public class DailyBalanceUpdateService {
 
     private static final Logger LOGGER = Logger.getLogger(DailyBalanceUpdateService.class.getName());
+    
+    // Minimum age of a posting before it is folded into a checkpoint
+    private static final long SETTLE_LAG_MINUTES = 5;
+    
+    // The run starts at 23:45 and should be done before interest accrual starts at midnight
+    private static final long RUN_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    
+    // Whether all active accounts have a checkpoint, and the oldest of them
+    private static final String OLDEST_CHECKPOINT_SQL =
+            "SELECT SUM(CASE WHEN c.id IS NULL THEN 1 ELSE 0 END), MIN(c.covered_before) " +
+            "FROM accounts a LEFT JOIN balance_checkpoints c ON c.account_id = a.id " +
+            "WHERE a.status = 'ACTIVE'";
+    
+    // Net movement per account: the target side and the source side of each posting, combined in one pass.
+    // This mirrors the CASE expression of the per-account reconciliation, including self-transfers.
+    // The movement before the cutoff and the unsettled movement since it are summed separately.
+    private static final String MOVEMENT_SQL =
+            "SELECT m.account_id, SUM(CASE WHEN m.posted_at IS NULL OR m.posted_at < ? THEN m.delta END), " +
+            "SUM(CASE WHEN m.posted_at >= ? THEN m.delta END) FROM (" +
+            "SELECT t.target_account_id AS account_id, t.amount AS delta, t.posted_at AS posted_at " +
+            "FROM transactions t WHERE t.status = 'COMPLETED' AND t.target_account_id IS NOT NULL " +
+            "AND t.type IN ('DEPOSIT', 'TRANSFER', 'INTEREST', 'ADJUSTMENT'){window} " +
+            "UNION ALL " +
+            "SELECT t.account_id, CASE WHEN t.type = 'ADJUSTMENT' THEN t.amount ELSE -t.amount END, t.posted_at " +
+            "FROM transactions t WHERE t.status = 'COMPLETED' " +
+            "AND (t.type IN ('WITHDRAWAL', 'PAYMENT', 'FEE') OR (t.type IN ('TRANSFER', 'ADJUSTMENT') " +
+            "AND (t.target_account_id IS NULL OR t.target_account_id <> t.account_id))){window}" +
+            ") m LEFT JOIN balance_checkpoints c ON c.account_id = m.account_id " +
+            "WHERE c.covered_before IS NULL OR m.posted_at >= c.covered_before " +
+            "GROUP BY m.account_id";
+    
+    // The movement of one account, as in MOVEMENT_SQL
+    private static final String ACCOUNT_MOVEMENT_JPQL =
+            "SELECT SUM(CASE WHEN t.type IN ('DEPOSIT', 'TRANSFER', 'INTEREST') AND t.targetAccount = :account THEN t.amount " +
+            "WHEN t.type IN ('WITHDRAWAL', 'TRANSFER', 'PAYMENT', 'FEE') AND t.account = :account THEN -t.amount " +
+            "WHEN t.type = 'ADJUSTMENT' THEN t.amount ELSE 0 END) " +
+            "FROM Transaction t " +
+            "WHERE (t.account = :account OR t.targetAccount = :account) " +
+            "AND t.status = 'COMPLETED' ";
+    
+    // The recorded balance includes the credits that have not yet been folded out of the account's stripes
+    private static final String ACTIVE_ACCOUNTS_SQL =
+            "SELECT a.id, a.balance + COALESCE((SELECT SUM(s.amount) FROM account_balance_stripes s " +
+            "WHERE s.account_id = a.id), 0) + COALESCE((SELECT SUM(j.delta) FROM balance_journal j " +
+            "WHERE j.account_id = a.id), 0), c.id, c.verified_balance " +
+            "FROM accounts a LEFT JOIN balance_checkpoints c ON c.account_id = a.id " +
+            "WHERE a.status = 'ACTIVE' AND a.id > ? ORDER BY a.id";
+    
+    private static final String UPDATE_CHECKPOINT_SQL =
+            "UPDATE balance_checkpoints SET verified_balance = ?, recorded_balance = ?, covered_before = ?, " +
+            "reconciled_at = ?, updated_at = ?, version = version + 1 WHERE id = ?";
+    
+    private static final String INSERT_CHECKPOINT_SQL =
+            "INSERT INTO balance_checkpoints (id, account_id, verified_balance, recorded_balance, covered_before, " +
+            "reconciled_at, created_at, version) VALUES (?, ?, ?, ?, ?, ?, ?, 1)";
 
     @PersistenceContext
     private EntityManager em;
 
+    @Resource(lookup = "jdbc/ChronoBankDS")
+    private DataSource dataSource;
+
+    @Resource(name = "bulkReconciliation")
+    private Boolean bulkReconciliation = Boolean.TRUE;
+
+    @EJB
+    private IdAllocator idAllocator;
+
+    @EJB
+    private JobMetrics jobMetrics;
+
     /**
      * Scheduled method that runs daily at 23:45 to update and reconcile account balances.
      */
@@ -34,6 +121,13 @@ public class DailyBalanceUpdateService {
     public void updateDailyBalances() {
         LOGGER.info("Starting daily balance update and reconciliation...");
         
+        if (bulkReconciliation == null || bulkReconciliation) {
+            reconcileAllAccounts();
+            return;
+        }
+        
+        JobRunRecorder run = new JobRunRecorder(AppConstants.DAILY_BALANCE_UPDATE_TIMER, RUN_WINDOW_MILLIS);
+        jobMetrics.started(run);
         try {
             // Get all active accounts
             List<Account> accounts = em.createQuery(
@@ -44,60 +138,289 @@ public class DailyBalanceUpdateService {
             LOGGER.info("Found " + accounts.size() + " active accounts for daily balance update");
             
             for (Account account : accounts) {
-                updateAccountBalance(account);
+                long itemStart = System.nanoTime();
+                if (updateAccountBalance(account)) {
+                    run.itemCompleted(System.nanoTime() - itemStart);
+                } else {
+                    run.itemFailed(System.nanoTime() - itemStart);
+                }
             }
             
             // Record the completion of the daily balance update
             LOGGER.info("Daily balance update completed at " + LocalDateTime.now());
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error during daily balance update", e);
+            run.failed(e);
+        }
+        jobMetrics.finished(run);
+    }
+
+    /**
+     * Reconcile all active accounts in bulk.
+     * The movement since each account's checkpoint is computed for every account at once with a
+     * single grouped query over the source and target sides of the ledger. The results are then
+     * compared in memory with the recorded balances while paging through the active accounts, and
+     * the checkpoints are written back with JDBC batches. Postings younger than the settle lag are
+     * left out of the checkpoint, and are taken off the recorded balance before it is compared. The
+     * run is recorded in the job history, with the time per account taken from the page that
+     * contained it.
+     *
+     * @return the number of accounts with a balance discrepancy, or -1 if the run failed
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public int reconcileAllAccounts() {
+        long startTime = System.nanoTime();
+        JobRunRecorder run = new JobRunRecorder(AppConstants.DAILY_BALANCE_UPDATE_TIMER, RUN_WINDOW_MILLIS);
+        jobMetrics.started(run);
+        LocalDateTime coveredBefore = LocalDateTime.now().minusMinutes(SETTLE_LAG_MINUTES);
+        Timestamp coveredBeforeTs = Timestamp.valueOf(coveredBefore);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int accounts = 0;
+        int discrepancies = 0;
+        
+        try (Connection connection = dataSource.getConnection()) {
+            // Only postings newer than the oldest active checkpoint need to be scanned
+            Timestamp scanFrom = null;
+            try (PreparedStatement statement = connection.prepareStatement(OLDEST_CHECKPOINT_SQL);
+                 ResultSet rs = statement.executeQuery()) {
+                if (rs.next() && rs.getLong(1) == 0L) {
+                    scanFrom = rs.getTimestamp(2);
+                }
+            }
+            
+            Map<Long, BigDecimal[]> movements = loadMovements(connection, scanFrom, coveredBeforeTs);
+            LOGGER.info("Computed ledger movements for " + movements.size() + " accounts" +
+                    (scanFrom != null ? " posted since " + scanFrom : " over the full history"));
+            
+            try (PreparedStatement select = connection.prepareStatement(ACTIVE_ACCOUNTS_SQL);
+                 PreparedStatement update = connection.prepareStatement(UPDATE_CHECKPOINT_SQL);
+                 PreparedStatement insert = connection.prepareStatement(INSERT_CHECKPOINT_SQL)) {
+                int pageSize = AppConstants.DEFAULT_BATCH_CHUNK_SIZE;
+                select.setMaxRows(pageSize);
+                long lastAccountId = 0L;
+                IdBlock checkpointIds = null;
+                int rows;
+                do {
+                    long pageStart = System.nanoTime();
+                    rows = 0;
+                    select.setLong(1, lastAccountId);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            rows++;
+                            lastAccountId = rs.getLong(1);
+                            BigDecimal[] movement = movements.remove(lastAccountId);
+                            BigDecimal recorded = settledBalance(rs.getBigDecimal(2), movement != null ? movement[1] : null);
+                            long checkpointId = rs.getLong(3);
+                            boolean hasCheckpoint = !rs.wasNull();
+                            BigDecimal calculated = calculateBalance(rs.getBigDecimal(4), movement != null ? movement[0] : null);
+                            
+                            if (isDiscrepancy(recorded, calculated)) {
+                                discrepancies++;
+                                LOGGER.warning("Balance discrepancy detected for account ID " + lastAccountId + 
+                                        ": recorded=" + recorded + ", calculated=" + calculated);
+                            }
+                            
+                            if (hasCheckpoint) {
+                                update.setBigDecimal(1, calculated);
+                                update.setBigDecimal(2, recorded);
+                                update.setTimestamp(3, coveredBeforeTs);
+                                update.setTimestamp(4, now);
+                                update.setTimestamp(5, now);
+                                update.setLong(6, checkpointId);
+                                update.addBatch();
+                            } else {
+                                if (checkpointIds == null || !checkpointIds.hasNext()) {
+                                    checkpointIds = idAllocator.allocate(pageSize);
+                                }
+                                insert.setLong(1, checkpointIds.next());
+                                insert.setLong(2, lastAccountId);
+                                insert.setBigDecimal(3, calculated);
+                                insert.setBigDecimal(4, recorded);
+                                insert.setTimestamp(5, coveredBeforeTs);
+                                insert.setTimestamp(6, now);
+                                insert.setTimestamp(7, now);
+                                insert.addBatch();
+                            }
+                        }
+                    }
+                    update.executeBatch();
+                    insert.executeBatch();
+                    accounts += rows;
+                    run.itemsCompleted(rows, 0, System.nanoTime() - pageStart);
+                } while (rows == pageSize);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error during bulk balance reconciliation", e);
+            run.failed(e);
+            jobMetrics.finished(run);
+            return -1;
+        }
+        jobMetrics.finished(run);
+        
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000L;
+        LOGGER.info("Bulk reconciliation of " + accounts + " active accounts completed in " + elapsedMillis + 
+                " ms with " + discrepancies + " discrepancies");
+        return discrepancies;
+    }
+
+    /**
+     * Compute the net movement per account of all completed postings that are not yet covered by
+     * the account's checkpoint, split at the cutoff of the run.
+     *
+     * @param connection the connection to use
+     * @param scanFrom the earliest posting time that can be uncovered, or null to scan the full history
+     * @param coveredBefore the cutoff of the run
+     * @return per account id, the movement before the cutoff and the movement since it; either is
+     *         null if there is none
+     * @throws SQLException if the query fails
+     */
+    private Map<Long, BigDecimal[]> loadMovements(Connection connection, Timestamp scanFrom, Timestamp coveredBefore)
+            throws SQLException {
+        String window = scanFrom != null ? " AND t.posted_at >= ?" : "";
+        Map<Long, BigDecimal[]> movements = new HashMap<>();
+        
+        try (PreparedStatement statement = connection.prepareStatement(MOVEMENT_SQL.replace("{window}", window))) {
+            statement.setTimestamp(1, coveredBefore);
+            statement.setTimestamp(2, coveredBefore);
+            if (scanFrom != null) {
+                statement.setTimestamp(3, scanFrom);
+                statement.setTimestamp(4, scanFrom);
+            }
+            statement.setFetchSize(AppConstants.DEFAULT_BATCH_CHUNK_SIZE);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    movements.put(rs.getLong(1), new BigDecimal[] {rs.getBigDecimal(2), rs.getBigDecimal(3)});
+                }
+            }
+        }
+        return movements;
+    }
+
+    /**
+     * Take the postings that are younger than the settle lag off a recorded balance, so that it can
+     * be compared with a ledger balance that stops at the cutoff.
+     *
+     * @param recorded the recorded balance of the account
+     * @param unsettled the movement since the cutoff, null if nothing has been posted since
+     * @return the recorded balance as of the cutoff
+     */
+    static BigDecimal settledBalance(BigDecimal recorded, BigDecimal unsettled) {
+        return unsettled != null ? recorded.subtract(unsettled) : recorded;
+    }
+
+    /**
+     * Calculate the ledger balance from a checkpoint and the movement since it.
+     *
+     * @param verifiedBalance the verified balance of the checkpoint, null if nothing has been posted yet
+     * @param movement the movement since the checkpoint, null if nothing has been posted since
+     * @return the ledger balance, null if nothing has ever been posted
+     */
+    static BigDecimal calculateBalance(BigDecimal verifiedBalance, BigDecimal movement) {
+        if (verifiedBalance == null) {
+            return movement;
         }
+        return movement != null ? verifiedBalance.add(movement) : verifiedBalance;
+    }
+
+    private static boolean isDiscrepancy(BigDecimal recorded, BigDecimal calculated) {
+        return calculated != null && recorded.compareTo(calculated) != 0;
     }
 
     /**
      * Update and reconcile the balance for a single account.
+     * Only transactions posted since the account's checkpoint are aggregated; the checkpoint is
+     * then moved forward to cover them.
      *
      * @param account the account to update
+     * @return true if the account was reconciled, false if an error occurred
      */
     @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
-    private void updateAccountBalance(Account account) {
+    private boolean updateAccountBalance(Account account) {
         try {
             LOGGER.info("Updating balance for account: " + account.getAccountNumber());
             
-            // Calculate the actual balance based on transactions
-            // This is a simplified example - in a real system, you would perform a more thorough reconciliation
-            Object result = em.createQuery(
-                    "SELECT SUM(CASE WHEN t.type IN ('DEPOSIT', 'TRANSFER', 'INTEREST') AND t.targetAccount = :account THEN t.amount " +
-                    "WHEN t.type IN ('WITHDRAWAL', 'TRANSFER', 'PAYMENT', 'FEE') AND t.account = :account THEN -t.amount " +
-                    "WHEN t.type = 'ADJUSTMENT' THEN t.amount ELSE 0 END) " +
-                    "FROM Transaction t " +
-                    "WHERE (t.account = :account OR t.targetAccount = :account) " +
-                    "AND t.status = 'COMPLETED'")
+            List<BalanceCheckpoint> checkpoints = em.createQuery(
+                    "SELECT c FROM BalanceCheckpoint c WHERE c.account = :account", BalanceCheckpoint.class)
+                    .setParameter("account", account)
+                    .getResultList();
+            BalanceCheckpoint checkpoint = checkpoints.isEmpty() ? null : checkpoints.get(0);
+            
+            // Postings younger than the settle lag may still have uncommitted neighbours, so they are
+            // left for the next run
+            LocalDateTime coveredBefore = LocalDateTime.now().minusMinutes(SETTLE_LAG_MINUTES);
+            
+            // Calculate the movement since the checkpoint based on transactions
+            // Without a checkpoint the whole history is aggregated, including rows posted before posted_at existed
+            TypedQuery<BigDecimal> query = em.createQuery(ACCOUNT_MOVEMENT_JPQL +
+                    (checkpoint != null
+                            ? "AND t.postedAt >= :coveredFrom AND t.postedAt < :coveredBefore"
+                            : "AND (t.postedAt IS NULL OR t.postedAt < :coveredBefore)"),
+                    BigDecimal.class)
                     .setParameter("account", account)
+                    .setParameter("coveredBefore", coveredBefore);
+            if (checkpoint != null) {
+                query.setParameter("coveredFrom", checkpoint.getCoveredBefore());
+            }
+            BigDecimal movement = query.getSingleResult();
+            
+            if (checkpoint == null) {
+                checkpoint = new BalanceCheckpoint();
+                checkpoint.setAccount(account);
+                em.persist(checkpoint);
+            }
+            
+            // The recorded balance already includes the postings that are left for the next run
+            BigDecimal unsettled = em.createQuery(ACCOUNT_MOVEMENT_JPQL + "AND t.postedAt >= :coveredBefore",
+                    BigDecimal.class)
+                    .setParameter("account", account)
+                    .setParameter("coveredBefore", coveredBefore)
                     .getSingleResult();
             
-            // If there are no transactions, the result might be null
-            if (result != null) {
-                // Update the account balance if there's a discrepancy
-                // In a real system, you would log discrepancies and possibly alert administrators
-                if (!account.getBalance().equals(result)) {
-                    LOGGER.warning("Balance discrepancy detected for account " + account.getAccountNumber() + 
-                            ": recorded=" + account.getBalance() + ", calculated=" + result);
-                    
-                    // For this example, we'll just update to match the calculated balance
-                    // In a real system, you might create an adjustment transaction
-                    account.setBalance(account.getBalance());
-                    account.setAvailableBalance(account.getAvailableBalance());
-                    em.merge(account);
-                }
+            BigDecimal calculated = calculateBalance(checkpoint.getVerifiedBalance(), movement);
+            BigDecimal recorded = settledBalance(recordedBalance(account), unsettled);
+            
+            // If nothing has ever been posted, there is nothing to reconcile against
+            if (isDiscrepancy(recorded, calculated)) {
+                // In a real system, you might create an adjustment transaction
+                LOGGER.warning("Balance discrepancy detected for account " + account.getAccountNumber() + 
+                        ": recorded=" + recorded + ", calculated=" + calculated);
             }
             
-            // Update the last reconciliation date
-            // In a real system, you would store this in a separate table or field
+            // Move the checkpoint forward and record the reconciliation date
+            checkpoint.setVerifiedBalance(calculated);
+            checkpoint.setRecordedBalance(recorded);
+            checkpoint.setCoveredBefore(coveredBefore);
+            checkpoint.setReconciledAt(LocalDateTime.now());
+            
             LOGGER.info("Balance update completed for account: " + account.getAccountNumber());
+            return true;
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error updating balance for account: " + account.getAccountNumber(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Get the balance of an account including the credits held in its stripes and its pending
+     * balance journal entries.
+     */
+    private BigDecimal recordedBalance(Account account) {
+        Money balance = account.getBalanceMoney();
+        if (account.getStripeCount() != null) {
+            for (AccountBalanceStripe stripe : em.createQuery(
+                    "SELECT s FROM AccountBalanceStripe s WHERE s.account = :account", AccountBalanceStripe.class)
+                    .setParameter("account", account)
+                    .getResultList()) {
+                balance = balance.plus(stripe.getAmount());
+            }
+        }
+        for (Money delta : em.createQuery(
+                "SELECT j.delta FROM BalanceJournalEntry j WHERE j.account = :account", Money.class)
+                .setParameter("account", account)
+                .getResultList()) {
+            balance = balance.plus(delta);
         }
+        return balance.toBigDecimal();
     }
 
     /**
@@ -0,0 +1,432 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.common.dto.AccountBalanceReportRow;
+import com.imeth.chronobank.common.dto.TransactionReportRow;
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.Transaction;
+import com.imeth.chronobank.common.entity.User;
+import com.imeth.chronobank.common.util.ColumnarReportFormat;
+import com.imeth.chronobank.common.util.ColumnarReportFormat.Column;
+import com.imeth.chronobank.common.util.ColumnarReportFormat.ColumnType;
+import com.imeth.chronobank.common.util.ColumnarReportWriter;
+import com.imeth.chronobank.common.util.CsvChannelWriter;
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * EJB that writes report files. Each daily report runs in its own transaction so reports can be
+ * generated concurrently; rows are read as constructor projections, so the transactions only
+ * read and nothing is flushed when they commit.
+ */
+@Stateless
+public class DailyReportExporter {
+
+    private static final Logger LOGGER = Logger.getLogger(DailyReportExporter.class.getName());
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int REPORT_PAGE_SIZE = 1000;
+
+    static final String TRANSACTION_REPORT = "transactions";
+    static final String ACCOUNT_BALANCE_REPORT = "account_balances";
+
+    private static final List<Column> TRANSACTION_COLUMNS = Arrays.asList(
+            Column.of("Transaction ID", ColumnType.LONG_DELTA),
+            Column.of("Reference", ColumnType.STRING),
+            Column.of("Type", ColumnType.DICTIONARY),
+            Column.decimal("Amount", 2),
+            Column.of("Status", ColumnType.DICTIONARY),
+            Column.of("Date", ColumnType.TIMESTAMP_DELTA),
+            Column.of("Source Account", ColumnType.STRING),
+            Column.of("Target Account", ColumnType.STRING),
+            Column.of("Description", ColumnType.STRING));
+
+    private static final List<Column> ACCOUNT_BALANCE_COLUMNS = Arrays.asList(
+            Column.of("Account ID", ColumnType.LONG_DELTA),
+            Column.of("Account Number", ColumnType.STRING),
+            Column.of("Type", ColumnType.DICTIONARY),
+            Column.decimal("Balance", 2),
+            Column.decimal("Available Balance", 2),
+            Column.of("Status", ColumnType.DICTIONARY),
+            Column.of("Owner", ColumnType.STRING),
+            Column.of("Owner Email", ColumnType.STRING));
+
+    private static final String TRANSACTION_ROW_SELECT =
+            "SELECT NEW com.imeth.chronobank.common.dto.TransactionReportRow(t.id, t.transactionReference, t.type, " +
+            "t.amount, t.status, t.transactionDate, a.id, a.accountNumber, ta.accountNumber, t.description) " +
+            "FROM Transaction t JOIN t.account a LEFT JOIN t.targetAccount ta " +
+            "WHERE t.transactionDate >= :startDate AND t.transactionDate < :endDate " +
+            "AND (t.transactionDate > :lastDate OR (t.transactionDate = :lastDate AND t.id > :lastId)) ";
+
+    private static final String ACCOUNT_BALANCE_ROW_SELECT =
+            "SELECT NEW com.imeth.chronobank.common.dto.AccountBalanceReportRow(a.id, a.accountNumber, a.type, " +
+            "a.balance, a.availableBalance, " + AccountSummaryCache.PENDING_AMOUNT + ", a.status, " +
+            "u.firstName, u.lastName, u.email) " +
+            "FROM Account a JOIN a.user u " +
+            "WHERE a.status = :status AND a.id > :lastId ORDER BY a.id";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Generate a report of all transactions for a specific date.
+     * Rows are read as projections in keyset-ordered pages and streamed to the file, so memory
+     * use does not grow with the number of transactions in the day.
+     *
+     * @param date the date to generate the report for
+     * @param reportDirectory the directory to write the report to
+     * @param columnar true to write the compressed columnar format instead of CSV
+     * @return the generated file with its row count, size and duration
+     * @throws IOException if there is an error writing the report
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public ReportFileResult exportTransactionReport(LocalDate date, String reportDirectory, boolean columnar)
+            throws IOException {
+        long startTime = System.nanoTime();
+        String dateStr = date.format(DATE_FORMATTER);
+        String baseName = reportDirectory + "/transaction_report_" + dateStr;
+        String fileName;
+        LocalDateTime startOfDay = date.atStartOfDay();
+        LocalDateTime nextDay = date.plusDays(1).atStartOfDay();
+        long rowCount;
+        
+        if (columnar) {
+            fileName = baseName + ColumnarReportFormat.FILE_EXTENSION;
+            LOGGER.info("Generating columnar transaction report for " + dateStr + " to " + fileName);
+            
+            try (ColumnarReportWriter writer = openColumnarReport(fileName, TRANSACTION_COLUMNS)) {
+                streamTransactionRows(createTransactionRowQuery(""), startOfDay, nextDay,
+                        row -> writer.value((long) row.getId())
+                                .value(row.getTransactionReference())
+                                .value(row.getType())
+                                .value(row.getAmount())
+                                .value(row.getStatus())
+                                .value(row.getTransactionDate())
+                                .value(row.getSourceAccountNumber())
+                                .value(row.getTargetAccountNumber())
+                                .value(row.getDescription())
+                                .endRow());
+                rowCount = writer.getRowCount();
+            }
+        } else {
+            fileName = baseName + ".csv";
+            LOGGER.info("Generating transaction report for " + dateStr + " to " + fileName);
+            
+            try (CsvChannelWriter writer = openReport(fileName)) {
+                writer.writeLine(TransactionReportRow.CSV_HEADER);
+                streamTransactionRows(createTransactionRowQuery(""), startOfDay, nextDay,
+                        row -> writeTransactionRow(writer, row));
+                rowCount = writer.getRowCount();
+            }
+        }
+        
+        LOGGER.info("Transaction report generated with " + rowCount + " transactions");
+        return new ReportFileResult(TRANSACTION_REPORT, fileName, rowCount, Files.size(Paths.get(fileName)),
+                elapsedMillis(startTime));
+    }
+
+    /**
+     * Generate a report of all account balances as of a specific date.
+     * Accounts and their owners are read as projections in id-ordered pages and streamed to the
+     * file. The balances include the credits still pending in balance stripes and the balance
+     * journal, so they match the account summaries.
+     *
+     * @param date the date to generate the report for
+     * @param reportDirectory the directory to write the report to
+     * @param columnar true to write the compressed columnar format instead of CSV
+     * @return the generated file with its row count, size and duration
+     * @throws IOException if there is an error writing the report
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public ReportFileResult exportAccountBalanceReport(LocalDate date, String reportDirectory, boolean columnar)
+            throws IOException {
+        long startTime = System.nanoTime();
+        String dateStr = date.format(DATE_FORMATTER);
+        String baseName = reportDirectory + "/account_balance_report_" + dateStr;
+        String fileName;
+        long rowCount;
+        
+        if (columnar) {
+            fileName = baseName + ColumnarReportFormat.FILE_EXTENSION;
+            LOGGER.info("Generating columnar account balance report for " + dateStr + " to " + fileName);
+            
+            try (ColumnarReportWriter writer = openColumnarReport(fileName, ACCOUNT_BALANCE_COLUMNS)) {
+                streamAccountBalanceRows(row -> writer.value((long) row.getId())
+                        .value(row.getAccountNumber())
+                        .value(row.getType())
+                        .value(row.getBalance())
+                        .value(row.getAvailableBalance())
+                        .value(row.getStatus())
+                        .value(row.getOwnerName())
+                        .value(row.getOwnerEmail())
+                        .endRow());
+                rowCount = writer.getRowCount();
+            }
+        } else {
+            fileName = baseName + ".csv";
+            LOGGER.info("Generating account balance report for " + dateStr + " to " + fileName);
+            
+            try (CsvChannelWriter writer = openReport(fileName)) {
+                writer.writeLine(AccountBalanceReportRow.CSV_HEADER);
+                streamAccountBalanceRows(row -> writer.field((long) row.getId())
+                        .field(row.getAccountNumber())
+                        .field(row.getType())
+                        .field(row.getBalance())
+                        .field(row.getAvailableBalance())
+                        .field(row.getStatus())
+                        .field(row.getOwnerName())
+                        .field(row.getOwnerEmail())
+                        .endRow());
+                rowCount = writer.getRowCount();
+            }
+        }
+        
+        LOGGER.info("Account balance report generated with " + rowCount + " accounts");
+        return new ReportFileResult(ACCOUNT_BALANCE_REPORT, fileName, rowCount, Files.size(Paths.get(fileName)),
+                elapsedMillis(startTime));
+    }
+
+    /**
+     * Generate a custom report for a specific user.
+     *
+     * @param userId the ID of the user to generate the report for
+     * @param startDate the start date for the report period
+     * @param endDate the end date for the report period
+     * @param reportDirectory the directory to write the report to
+     * @return the path to the generated report file
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public String exportUserTransactionReport(Long userId, LocalDate startDate, LocalDate endDate,
+                                              String reportDirectory) {
+        String startDateStr = startDate.format(DATE_FORMATTER);
+        String endDateStr = endDate.format(DATE_FORMATTER);
+        String fileName = reportDirectory + "/user_" + userId + "_transactions_" + startDateStr + "_to_" + endDateStr + ".csv";
+        
+        LOGGER.info("Generating user transaction report for user ID " + userId + 
+                " from " + startDateStr + " to " + endDateStr);
+        
+        try {
+            // Create report directory if it doesn't exist
+            File directory = new File(reportDirectory);
+            if (!directory.exists()) {
+                directory.mkdirs();
+            }
+            
+            // Get the user
+            User user = em.find(User.class, userId);
+            if (user == null) {
+                LOGGER.warning("User not found with ID: " + userId);
+                return null;
+            }
+            
+            // Get the IDs of all accounts for the user
+            List<Long> userAccountIds = em.createQuery(
+                    "SELECT a.id FROM Account a WHERE a.user.id = :userId", Long.class)
+                    .setParameter("userId", userId)
+                    .getResultList();
+            Set<Long> accountIds = new HashSet<>(userAccountIds);
+            
+            Map<Transaction.Type, Money> typeTotals = new EnumMap<>(Transaction.Type.class);
+            
+            try (CsvChannelWriter writer = openReport(fileName)) {
+                writer.writeLine(TransactionReportRow.CSV_HEADER);
+                
+                // Stream transactions for the user's accounts within the date range, totalling by type as we go
+                if (!accountIds.isEmpty()) {
+                    TypedQuery<TransactionReportRow> query =
+                            createTransactionRowQuery("AND (a.id IN :accountIds OR ta.id IN :accountIds) ");
+                    query.setParameter("accountIds", userAccountIds);
+                    
+                    streamTransactionRows(query, startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay(), row -> {
+                        writeTransactionRow(writer, row);
+                        
+                        Transaction.Type type = row.getType();
+                        Money amount = row.getAmount();
+                        
+                        // For outgoing transactions from user accounts, make the amount negative
+                        if (accountIds.contains(row.getSourceAccountId()) &&
+                                (type == Transaction.Type.WITHDRAWAL || type == Transaction.Type.TRANSFER || 
+                                 type == Transaction.Type.PAYMENT || type == Transaction.Type.FEE)) {
+                            amount = amount.negate();
+                        }
+                        
+                        typeTotals.merge(type, amount, Money::plus);
+                    });
+                }
+                
+                // Write summary
+                writer.writeLine("");
+                writer.writeLine("Summary for " + user.getFirstName() + " " + user.getLastName() + " (" + user.getEmail() + ")");
+                writer.writeLine("Period: " + startDateStr + " to " + endDateStr);
+                writer.writeLine("Total Transactions: " + writer.getRowCount());
+                
+                // Write totals by type
+                writer.writeLine("");
+                writer.writeLine("Totals by Transaction Type:");
+                for (Map.Entry<Transaction.Type, Money> entry : typeTotals.entrySet()) {
+                    writer.writeLine(entry.getKey() + ": " + entry.getValue());
+                }
+                
+                LOGGER.info("User transaction report generated with " + writer.getRowCount() + " transactions");
+            }
+            
+            return fileName;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error generating user transaction report", e);
+            return null;
+        }
+    }
+
+    /**
+     * Create a keyset-paged transaction row query.
+     *
+     * @param filter additional JPQL conditions, starting with AND, or an empty string
+     * @return the query, limited to one page of rows
+     */
+    private TypedQuery<TransactionReportRow> createTransactionRowQuery(String filter) {
+        return em.createQuery(TRANSACTION_ROW_SELECT + filter + "ORDER BY t.transactionDate, t.id",
+                TransactionReportRow.class)
+                .setMaxResults(REPORT_PAGE_SIZE);
+    }
+
+    /**
+     * Pass every transaction row in a date range to a handler, one keyset page at a time.
+     *
+     * @param query a query created by {@link #createTransactionRowQuery(String)}
+     * @param startDate the inclusive start of the range
+     * @param endDate the exclusive end of the range
+     * @param handler the handler receiving each row in (transactionDate, id) order
+     * @throws IOException if the handler fails to write a row
+     */
+    private static void streamTransactionRows(TypedQuery<TransactionReportRow> query, LocalDateTime startDate,
+                                              LocalDateTime endDate, ReportRowHandler<TransactionReportRow> handler)
+            throws IOException {
+        query.setParameter("startDate", startDate);
+        query.setParameter("endDate", endDate);
+        
+        // Keyset on (transactionDate, id) so each page is an index range scan
+        LocalDateTime lastDate = startDate;
+        long lastId = 0L;
+        
+        List<TransactionReportRow> page;
+        do {
+            page = query.setParameter("lastDate", lastDate)
+                    .setParameter("lastId", lastId)
+                    .getResultList();
+            
+            for (TransactionReportRow row : page) {
+                handler.accept(row);
+            }
+            
+            if (!page.isEmpty()) {
+                TransactionReportRow last = page.get(page.size() - 1);
+                lastId = last.getId();
+                lastDate = last.getTransactionDate();
+            }
+        } while (page.size() == REPORT_PAGE_SIZE);
+    }
+
+    /**
+     * Pass every active account's balance row to a handler, one id-ordered page at a time.
+     *
+     * @param handler the handler receiving each row in id order
+     * @throws IOException if the handler fails to write a row
+     */
+    private void streamAccountBalanceRows(ReportRowHandler<AccountBalanceReportRow> handler) throws IOException {
+        TypedQuery<AccountBalanceReportRow> query = em.createQuery(ACCOUNT_BALANCE_ROW_SELECT,
+                AccountBalanceReportRow.class);
+        query.setParameter("status", Account.Status.ACTIVE);
+        query.setMaxResults(REPORT_PAGE_SIZE);
+        
+        long lastId = 0L;
+        
+        List<AccountBalanceReportRow> page;
+        do {
+            page = query.setParameter("lastId", lastId).getResultList();
+            
+            for (AccountBalanceReportRow row : page) {
+                handler.accept(row);
+            }
+            
+            if (!page.isEmpty()) {
+                lastId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == REPORT_PAGE_SIZE);
+    }
+
+    private static void writeTransactionRow(CsvChannelWriter writer, TransactionReportRow row) throws IOException {
+        writer.field((long) row.getId())
+                .field(row.getTransactionReference())
+                .field(row.getType())
+                .field(row.getAmount())
+                .field(row.getStatus())
+                .field(row.getTransactionDate().format(DATETIME_FORMATTER))
+                .field(row.getSourceAccountNumber())
+                .field(row.getTargetAccountNumber())
+                .quoted(row.getDescription())
+                .endRow();
+    }
+
+    /**
+     * Open a report file for streaming, replacing any existing file with the same name.
+     *
+     * @param fileName the report file path
+     * @return a CSV writer backed by the file's channel
+     * @throws IOException if the file cannot be opened
+     */
+    private static CsvChannelWriter openReport(String fileName) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return new CsvChannelWriter(channel);
+    }
+
+    /**
+     * Open a columnar archival report file, replacing any existing file with the same name.
+     *
+     * @param fileName the report file path
+     * @param columns the report's columns
+     * @return a columnar writer backed by the file
+     * @throws IOException if the file cannot be opened
+     */
+    private static ColumnarReportWriter openColumnarReport(String fileName, List<Column> columns) throws IOException {
+        return new ColumnarReportWriter(Files.newOutputStream(Paths.get(fileName)), columns);
+    }
+
+    private static long elapsedMillis(long startTime) {
+        return (System.nanoTime() - startTime) / 1_000_000;
+    }
+
+    /**
+     * Receives report rows as they are streamed from the database.
+     *
+     * @param <T> the row type
+     */
+    @FunctionalInterface
+    private interface ReportRowHandler<T> {
+        void accept(T row) throws IOException;
+    }
+}
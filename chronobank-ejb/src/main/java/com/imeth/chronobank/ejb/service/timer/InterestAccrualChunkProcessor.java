@@ -0,0 +1,277 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.Transaction;
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.common.util.ReferenceGenerator;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+import com.imeth.chronobank.ejb.service.id.IdAllocator;
+import com.imeth.chronobank.ejb.service.id.IdBlock;
+
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.SessionContext;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * EJB that accrues daily interest for one chunk of accounts in its own transaction.
+ * Accounts are read as scalar rows so nothing is held in the persistence context, and the
+ * balance updates and INTEREST transactions are written with JDBC batches. Interest is computed
+ * in fixed-point {@link Money} arithmetic; each distinct rate is converted to a daily rate once
+ * per chunk.
+ * <p>
+ * In balance journal mode the interest is appended to the balance journal instead of updating
+ * the accounts, and interest is paid on the balance including the pending journal entries.
+ */
+@Stateless
+public class InterestAccrualChunkProcessor {
+
+    private static final Logger LOGGER = Logger.getLogger(InterestAccrualChunkProcessor.class.getName());
+
+    // Daily interest calculation (APR / 365)
+    private static final int DAYS_IN_YEAR = 365;
+
+    private static final String UPDATE_BALANCE_SQL =
+            "UPDATE accounts SET balance = balance + ?, available_balance = available_balance + ?, " +
+            "version = version + 1, updated_at = ? WHERE id = ? AND version = ?";
+
+    private static final String INSERT_JOURNAL_SQL =
+            "INSERT INTO balance_journal (id, account_id, delta, reference, version, created_at) " +
+            "VALUES (?, ?, ?, ?, 1, ?)";
+
+    private static final String INSERT_INTEREST_SQL =
+            "INSERT INTO transactions (id, transaction_reference, type, amount, description, status, " +
+            "transaction_date, posted_at, account_id, version, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 1, ?)";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Resource(lookup = "jdbc/ChronoBankDS")
+    private DataSource dataSource;
+
+    @Resource
+    private SessionContext sessionContext;
+
+    @EJB
+    private AccountSummaryCache accountSummaryCache;
+
+    @EJB
+    private IdAllocator idAllocator;
+
+    @Resource(name = "balanceJournal")
+    private Boolean balanceJournal = Boolean.FALSE;
+
+    /**
+     * Accrue daily interest for the next chunk of eligible accounts.
+     * If the batch write fails the chunk is rolled back and reported as failed so that the
+     * caller can move on to the next chunk. Any other failure rolls the chunk back and is thrown;
+     * the caller can then skip the chunk with {@link #findChunkAccountIds(long, long, int)}.
+     *
+     * @param afterAccountId only accounts with a greater id are considered
+     * @param maxAccountId only accounts with this id or lower are considered
+     * @param chunkSize the maximum number of accounts in the chunk
+     * @return the outcome of the chunk
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public AccrualChunkResult accrueChunk(long afterAccountId, long maxAccountId, int chunkSize) {
+        try {
+            boolean journal = isJournaling();
+            List<Object[]> rows = chunkQuery(
+                    "SELECT a.id, a.version, a.balance, a.interestRate" +
+                    (journal ? ", (SELECT SUM(j.delta) FROM BalanceJournalEntry j WHERE j.account = a)" : ""),
+                    Object[].class, afterAccountId, maxAccountId, chunkSize)
+                    .getResultList();
+
+            if (rows.isEmpty()) {
+                return AccrualChunkResult.empty(afterAccountId);
+            }
+
+            long lastAccountId = (Long) rows.get(rows.size() - 1)[0];
+            try {
+                return writeChunk(rows, lastAccountId, journal);
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Error writing interest chunk ending at account ID: " + lastAccountId, e);
+                sessionContext.setRollbackOnly();
+                return new AccrualChunkResult(lastAccountId, rows.size(), 0, rows.size(), BigDecimal.ZERO);
+            }
+        } finally {
+            em.clear();
+        }
+    }
+
+    /**
+     * Find the ids of the accounts that {@link #accrueChunk(long, long, int)} would accrue for the
+     * same arguments, without accruing anything. Used to move past a chunk that failed.
+     *
+     * @param afterAccountId only accounts with a greater id are considered
+     * @param maxAccountId only accounts with this id or lower are considered
+     * @param chunkSize the maximum number of accounts in the chunk
+     * @return the account ids of the chunk, in ascending order
+     */
+    public List<Long> findChunkAccountIds(long afterAccountId, long maxAccountId, int chunkSize) {
+        return chunkQuery("SELECT a.id", Long.class, afterAccountId, maxAccountId, chunkSize).getResultList();
+    }
+
+    private <T> TypedQuery<T> chunkQuery(String select, Class<T> resultClass, long afterAccountId,
+                                         long maxAccountId, int chunkSize) {
+        return em.createQuery(select + " FROM Account a " +
+                "WHERE a.id > :afterId AND a.id <= :maxId AND a.status = :status AND a.interestRate IS NOT NULL " +
+                "AND (a.type = :savingsType OR a.type = :investmentType) ORDER BY a.id",
+                resultClass)
+                .setParameter("afterId", afterAccountId)
+                .setParameter("maxId", maxAccountId)
+                .setParameter("status", Account.Status.ACTIVE)
+                .setParameter("savingsType", Account.Type.SAVINGS)
+                .setParameter("investmentType", Account.Type.INVESTMENT)
+                .setMaxResults(chunkSize);
+    }
+
+    private AccrualChunkResult writeChunk(List<Object[]> rows, long lastAccountId, boolean journal)
+            throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> accountIds = new ArrayList<>(rows.size());
+        List<Long> versions = new ArrayList<>(rows.size());
+        List<Money> amounts = new ArrayList<>(rows.size());
+        Map<BigDecimal, Long> dailyRates = new HashMap<>();
+
+        for (Object[] row : rows) {
+            long dailyRate = dailyRates.computeIfAbsent((BigDecimal) row[3],
+                    rate -> Money.periodicRate(rate, DAYS_IN_YEAR));
+            Money balance = (Money) row[2];
+            if (journal && row[4] != null) {
+                balance = balance.plus(Money.of((BigDecimal) row[4]));
+            }
+            Money interestAmount = dailyInterest(balance, dailyRate);
+
+            // Only process if interest amount is greater than zero
+            if (interestAmount.signum() > 0) {
+                accountIds.add((Long) row[0]);
+                versions.add((Long) row[1]);
+                amounts.add(interestAmount);
+            }
+        }
+        if (accountIds.isEmpty()) {
+            return new AccrualChunkResult(lastAccountId, rows.size(), 0, 0, BigDecimal.ZERO);
+        }
+
+        List<String> references = new ArrayList<>(accountIds.size());
+        for (int i = 0; i < accountIds.size(); i++) {
+            references.add(ReferenceGenerator.newTransactionReference());
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            int[] updateCounts = journal
+                    ? appendToJournal(connection, accountIds, amounts, references, now)
+                    : updateBalances(connection, accountIds, versions, amounts, now);
+
+            int credited = 0;
+            int failed = 0;
+            Money totalInterest = Money.ZERO;
+            List<Long> creditedIds = new ArrayList<>(accountIds.size());
+            IdBlock transactionIds = idAllocator.allocate(accountIds.size());
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_INTEREST_SQL)) {
+                for (int i = 0; i < accountIds.size(); i++) {
+                    // A zero count means the account changed since it was read; it is skipped this run
+                    if (updateCounts[i] == 0) {
+                        LOGGER.warning("Account ID " + accountIds.get(i) + " was modified concurrently; interest not applied");
+                        failed++;
+                        continue;
+                    }
+                    insert.setLong(1, transactionIds.next());
+                    insert.setString(2, references.get(i));
+                    insert.setString(3, Transaction.Type.INTEREST.name());
+                    insert.setBigDecimal(4, amounts.get(i).toBigDecimal());
+                    insert.setString(5, "Daily interest accrual");
+                    insert.setString(6, Transaction.Status.COMPLETED.name());
+                    insert.setTimestamp(7, now);
+                    insert.setTimestamp(8, now);
+                    insert.setLong(9, accountIds.get(i));
+                    insert.setTimestamp(10, now);
+                    insert.addBatch();
+                    credited++;
+                    totalInterest = totalInterest.plus(amounts.get(i));
+                    creditedIds.add(accountIds.get(i));
+                }
+                if (credited > 0) {
+                    insert.executeBatch();
+                }
+            }
+            accountSummaryCache.invalidateAll(creditedIds);
+            return new AccrualChunkResult(lastAccountId, rows.size(), credited, failed, totalInterest.toBigDecimal());
+        }
+    }
+
+    private static int[] updateBalances(Connection connection, List<Long> accountIds, List<Long> versions,
+                                        List<Money> amounts, Timestamp now) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(UPDATE_BALANCE_SQL)) {
+            for (int i = 0; i < accountIds.size(); i++) {
+                BigDecimal amount = amounts.get(i).toBigDecimal();
+                update.setBigDecimal(1, amount);
+                update.setBigDecimal(2, amount);
+                update.setTimestamp(3, now);
+                update.setLong(4, accountIds.get(i));
+                update.setLong(5, versions.get(i));
+                update.addBatch();
+            }
+            return update.executeBatch();
+        }
+    }
+
+    /**
+     * Append the interest to the balance journal. The accounts are not updated, so there is no
+     * version to check and every entry counts as applied.
+     */
+    private int[] appendToJournal(Connection connection, List<Long> accountIds, List<Money> amounts,
+                                  List<String> references, Timestamp now) throws SQLException {
+        IdBlock entryIds = idAllocator.allocate(accountIds.size());
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_JOURNAL_SQL)) {
+            for (int i = 0; i < accountIds.size(); i++) {
+                insert.setLong(1, entryIds.next());
+                insert.setLong(2, accountIds.get(i));
+                insert.setBigDecimal(3, amounts.get(i).toBigDecimal());
+                insert.setString(4, references.get(i));
+                insert.setTimestamp(5, now);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        int[] counts = new int[accountIds.size()];
+        Arrays.fill(counts, 1);
+        return counts;
+    }
+
+    private boolean isJournaling() {
+        return Boolean.TRUE.equals(balanceJournal);
+    }
+
+    /**
+     * Calculate one day of interest on a balance.
+     *
+     * @param balance the account balance
+     * @param dailyRate the annual interest rate divided by 365, in millionths
+     * @return the interest amount rounded half up to whole cents
+     */
+    static Money dailyInterest(Money balance, long dailyRate) {
+        return balance.applyRate(dailyRate);
+    }
+}
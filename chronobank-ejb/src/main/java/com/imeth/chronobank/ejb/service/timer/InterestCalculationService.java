@@ -3,20 +3,32 @@ package com.imeth.chronobank.ejb.service.timer;
 import com.imeth.chronobank.common.constants.AppConstants;
 import com.imeth.chronobank.common.entity.Account;
 import com.imeth.chronobank.common.entity.Transaction;
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.common.util.ReferenceGenerator;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+import com.imeth.chronobank.ejb.service.metrics.JobRunRecorder;
 
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
 import jakarta.ejb.Schedule;
 import jakarta.ejb.Singleton;
 import jakarta.ejb.TransactionAttribute;
 import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.TypedQuery;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,84 +42,241 @@ public class InterestCalculationService {
     
     // Daily interest calculation (APR / 365)
     private static final int DAYS_IN_YEAR = 365;
-    private static final int SCALE = 6;
+    
+    // The run starts at midnight and should be done before the daily reports start at 01:00
+    private static final long RUN_WINDOW_MILLIS = TimeUnit.HOURS.toMillis(1);
 
     @PersistenceContext
     private EntityManager em;
 
+    @EJB
+    private InterestAccrualChunkProcessor accrualProcessor;
+
+    @EJB
+    private AccountSummaryCache accountSummaryCache;
+
+    @EJB
+    private JobMetrics jobMetrics;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    @Resource(name = "interestAccrualChunkSize")
+    private Integer chunkSize = AppConstants.DEFAULT_BATCH_CHUNK_SIZE;
+
+    @Resource(name = "interestAccrualShards")
+    private Integer shardCount = AppConstants.DEFAULT_ACCRUAL_SHARDS;
+
+    private volatile List<AccrualShardResult> lastAccrualRun = Collections.emptyList();
+
     /**
      * Scheduled method that runs daily at midnight to calculate interest.
+     * The eligible account id space is split into shards that run concurrently on the managed
+     * executor. Each shard processes its range in chunks ordered by id, and each chunk commits
+     * on its own, so a failing shard does not roll back the work of the others.
      */
     @Schedule(hour = "0", minute = "0", second = "0", persistent = false)
-    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     public void calculateDailyInterest() {
         LOGGER.info("Calculating daily interest for accounts...");
         
+        int shards = shardCount != null && shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        calculateDailyInterestPartitioned(shards);
+    }
+
+    /**
+     * Accrue daily interest with the eligible accounts split into the given number of shards.
+     * With a single shard, or when no managed executor is available, the run happens on the
+     * calling thread.
+     *
+     * The run is recorded in the job history, with the time per account taken from the chunk
+     * that contained it.
+     *
+     * @param shards the number of shards to run concurrently
+     * @return the per-shard results of the run
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public List<AccrualShardResult> calculateDailyInterestPartitioned(int shards) {
+        long startTime = System.nanoTime();
+        List<AccrualShardResult> results = new ArrayList<>();
+        JobRunRecorder run = new JobRunRecorder(AppConstants.INTEREST_CALCULATION_TIMER, RUN_WINDOW_MILLIS);
+        jobMetrics.started(run);
+        
         try {
-            // Find all active savings and investment accounts with interest rates
-            TypedQuery<Account> query = em.createQuery(
-                    "SELECT a FROM Account a WHERE a.status = :status AND a.interestRate IS NOT NULL " +
+            // Find the id range of all active savings and investment accounts with interest rates
+            Object[] bounds = em.createQuery(
+                    "SELECT MIN(a.id), MAX(a.id) FROM Account a WHERE a.status = :status AND a.interestRate IS NOT NULL " +
                     "AND (a.type = :savingsType OR a.type = :investmentType)",
-                    Account.class);
-            query.setParameter("status", Account.Status.ACTIVE);
-            query.setParameter("savingsType", Account.Type.SAVINGS);
-            query.setParameter("investmentType", Account.Type.INVESTMENT);
+                    Object[].class)
+                    .setParameter("status", Account.Status.ACTIVE)
+                    .setParameter("savingsType", Account.Type.SAVINGS)
+                    .setParameter("investmentType", Account.Type.INVESTMENT)
+                    .getSingleResult();
             
-            List<Account> accounts = query.getResultList();
-            LOGGER.info("Found " + accounts.size() + " accounts for interest calculation");
+            if (bounds == null || bounds[0] == null) {
+                LOGGER.info("Found no accounts for interest calculation");
+                lastAccrualRun = results;
+                jobMetrics.finished(run);
+                return results;
+            }
             
-            for (Account account : accounts) {
-                calculateInterestForAccount(account);
+            long minId = (Long) bounds[0];
+            long maxId = (Long) bounds[1];
+            List<AccrualShardResult> plan = planShards(minId, maxId, Math.max(1, shards));
+            LOGGER.info("Accruing interest for account IDs " + minId + " to " + maxId + " in " + plan.size() + " shard(s)");
+            
+            if (plan.size() == 1 || executor == null) {
+                for (AccrualShardResult shard : plan) {
+                    results.add(runShard(shard, run));
+                }
+            } else {
+                List<Future<AccrualShardResult>> futures = new ArrayList<>(plan.size());
+                for (AccrualShardResult shard : plan) {
+                    futures.add(executor.submit(() -> runShard(shard, run)));
+                }
+                
+                // Join: wait for every shard and record its outcome
+                for (int i = 0; i < futures.size(); i++) {
+                    AccrualShardResult shard = plan.get(i);
+                    try {
+                        results.add(futures.get(i).get());
+                    } catch (ExecutionException e) {
+                        shard.setError(String.valueOf(e.getCause()));
+                        results.add(shard);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        shard.setError("Interrupted while waiting for shard");
+                        results.add(shard);
+                    }
+                }
             }
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error calculating daily interest", e);
+            run.failed(e);
+        }
+        
+        logRunSummary(results, startTime);
+        long failedShards = results.stream().filter(shard -> !shard.isSuccessful()).count();
+        if (failedShards > 0) {
+            run.failed(failedShards + " shard(s) stopped early");
         }
+        lastAccrualRun = results;
+        jobMetrics.finished(run);
+        return results;
     }
 
     /**
-     * Calculate and apply interest for a single account.
+     * Get the per-shard results of the most recent daily interest run.
      *
-     * @param account the account to calculate interest for
+     * @return the shard results, empty if no run has completed yet
      */
-    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
-    private void calculateInterestForAccount(Account account) {
-        try {
-            LOGGER.info("Calculating interest for account: " + account.getAccountNumber());
-            
-            // Calculate daily interest rate (annual rate / 365)
-            BigDecimal dailyRate = account.getInterestRate()
-                    .divide(BigDecimal.valueOf(DAYS_IN_YEAR), SCALE, RoundingMode.HALF_UP);
-            
-            // Calculate interest amount
-            BigDecimal interestAmount = account.getBalance()
-                    .multiply(dailyRate)
-                    .setScale(2, RoundingMode.HALF_UP);
-            
-            // Only process if interest amount is greater than zero
-            if (interestAmount.compareTo(BigDecimal.ZERO) > 0) {
-                // Update account balance
-                account.setBalance(account.getBalance().add(interestAmount));
-                account.setAvailableBalance(account.getAvailableBalance().add(interestAmount));
-                em.merge(account);
-                
-                // Create interest transaction record
-                Transaction interestTransaction = new Transaction();
-                interestTransaction.setTransactionReference(AppConstants.TRANSACTION_PREFIX + 
-                        UUID.randomUUID().toString().substring(0, AppConstants.TRANSACTION_REFERENCE_LENGTH - 3));
-                interestTransaction.setType(Transaction.Type.INTEREST);
-                interestTransaction.setAmount(interestAmount);
-                interestTransaction.setDescription("Daily interest accrual");
-                interestTransaction.setStatus(Transaction.Status.COMPLETED);
-                interestTransaction.setTransactionDate(LocalDateTime.now());
-                interestTransaction.setAccount(account);
-                
-                em.persist(interestTransaction);
-                
-                LOGGER.info("Applied interest of " + interestAmount + " to account: " + account.getAccountNumber());
+    @Lock(LockType.READ)
+    public List<AccrualShardResult> getLastAccrualRun() {
+        return Collections.unmodifiableList(lastAccrualRun);
+    }
+
+    /**
+     * Split the id range [minId, maxId] into contiguous shards of equal width.
+     *
+     * @param minId the lowest eligible account id
+     * @param maxId the highest eligible account id
+     * @param shards the requested number of shards
+     * @return one empty result per shard, describing its id range
+     */
+    static List<AccrualShardResult> planShards(long minId, long maxId, int shards) {
+        long span = maxId - minId + 1;
+        int count = (int) Math.min(shards, span);
+        long width = (span + count - 1) / count;
+        
+        List<AccrualShardResult> plan = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long after = minId - 1 + i * width;
+            if (after >= maxId) {
+                break;
             }
+            plan.add(new AccrualShardResult(i, after, Math.min(after + width, maxId)));
+        }
+        return plan;
+    }
+
+    /**
+     * Process one shard chunk by chunk until its id range is exhausted.
+     * A chunk that throws is counted as failed for all its accounts and skipped, so a failing
+     * chunk does not stop the shard. If the accounts of the failed chunk cannot be found either,
+     * the error is recorded on the shard and the shard stops; other shards are unaffected.
+     *
+     * @param shard the shard to process
+     * @param run the recorder of the run the shard belongs to
+     * @return the shard with its counts filled in
+     */
+    private AccrualShardResult runShard(AccrualShardResult shard, JobRunRecorder run) {
+        int size = chunkSize != null && chunkSize > 0 ? chunkSize : AppConstants.DEFAULT_BATCH_CHUNK_SIZE;
+        long startTime = System.nanoTime();
+        long lastAccountId = shard.getAfterAccountId();
+        
+        try {
+            AccrualChunkResult chunk;
+            do {
+                long chunkStart = System.nanoTime();
+                try {
+                    chunk = accrualProcessor.accrueChunk(lastAccountId, shard.getMaxAccountId(), size);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, "Error in interest chunk of shard " + shard.getShardIndex() +
+                            " after account ID: " + lastAccountId, e);
+                    chunk = skipChunk(lastAccountId, shard.getMaxAccountId(), size);
+                }
+                if (chunk.getAccountsScanned() > 0) {
+                    shard.addChunk(chunk);
+                    run.itemsCompleted(chunk.getAccountsScanned(), chunk.getAccountsFailed(),
+                            System.nanoTime() - chunkStart);
+                }
+                lastAccountId = chunk.getLastAccountId();
+            } while (chunk.getAccountsScanned() == size);
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error calculating interest for account: " + account.getAccountNumber(), e);
+            LOGGER.log(Level.SEVERE, "Error in interest shard " + shard.getShardIndex() +
+                    " after account ID: " + lastAccountId, e);
+            shard.setError(String.valueOf(e));
+        }
+        
+        shard.setElapsedMillis((System.nanoTime() - startTime) / 1_000_000L);
+        return shard;
+    }
+
+    /**
+     * Report a chunk that could not be accrued as failed for all its accounts.
+     */
+    private AccrualChunkResult skipChunk(long afterAccountId, long maxAccountId, int size) {
+        List<Long> accountIds = accrualProcessor.findChunkAccountIds(afterAccountId, maxAccountId, size);
+        if (accountIds.isEmpty()) {
+            return AccrualChunkResult.empty(afterAccountId);
+        }
+        return new AccrualChunkResult(accountIds.get(accountIds.size() - 1), accountIds.size(), 0,
+                accountIds.size(), BigDecimal.ZERO);
+    }
+
+    private void logRunSummary(List<AccrualShardResult> results, long startTime) {
+        int scanned = 0;
+        int credited = 0;
+        int failed = 0;
+        int failedShards = 0;
+        BigDecimal totalInterest = BigDecimal.ZERO;
+        
+        for (AccrualShardResult shard : results) {
+            LOGGER.info("Interest shard " + shard);
+            scanned += shard.getAccountsScanned();
+            credited += shard.getAccountsCredited();
+            failed += shard.getAccountsFailed();
+            totalInterest = totalInterest.add(shard.getTotalInterest());
+            if (!shard.isSuccessful()) {
+                failedShards++;
+            }
         }
+        
+        long elapsedMillis = Math.max(1L, (System.nanoTime() - startTime) / 1_000_000L);
+        LOGGER.info(String.format("Daily interest accrual processed %d accounts in %d shard(s) " +
+                        "(%d credited, %d failed, %d failed shard(s), total interest %s) in %d ms - %.1f accounts/sec",
+                scanned, results.size(), credited, failed, failedShards, totalInterest, elapsedMillis,
+                scanned * 1000.0 / elapsedMillis));
     }
 
     /**
@@ -126,27 +295,24 @@ public class InterestCalculationService {
             }
             
             // Calculate monthly interest (annual rate / 12)
-            BigDecimal monthlyRate = account.getInterestRate()
-                    .divide(BigDecimal.valueOf(12), SCALE, RoundingMode.HALF_UP);
+            long monthlyRate = Money.periodicRate(account.getInterestRate(), 12);
             
             // Calculate interest amount
-            BigDecimal interestAmount = account.getBalance()
-                    .multiply(monthlyRate)
-                    .setScale(2, RoundingMode.HALF_UP);
+            Money interestAmount = account.getBalanceMoney().applyRate(monthlyRate);
             
             // Only process if interest amount is greater than zero
-            if (interestAmount.compareTo(BigDecimal.ZERO) > 0) {
+            if (interestAmount.signum() > 0) {
                 // Update account balance
-                account.setBalance(account.getBalance().add(interestAmount));
-                account.setAvailableBalance(account.getAvailableBalance().add(interestAmount));
+                account.setBalanceMoney(account.getBalanceMoney().plus(interestAmount));
+                account.setAvailableBalanceMoney(account.getAvailableBalanceMoney().plus(interestAmount));
                 em.merge(account);
+                accountSummaryCache.invalidate(account.getId());
                 
                 // Create interest transaction record
                 Transaction interestTransaction = new Transaction();
-                interestTransaction.setTransactionReference(AppConstants.TRANSACTION_PREFIX + 
-                        UUID.randomUUID().toString().substring(0, AppConstants.TRANSACTION_REFERENCE_LENGTH - 3));
+                interestTransaction.setTransactionReference(ReferenceGenerator.newTransactionReference());
                 interestTransaction.setType(Transaction.Type.INTEREST);
-                interestTransaction.setAmount(interestAmount);
+                interestTransaction.setAmountMoney(interestAmount);
                 interestTransaction.setDescription("Monthly compound interest");
                 interestTransaction.setStatus(Transaction.Status.COMPLETED);
                 interestTransaction.setTransactionDate(LocalDateTime.now());
@@ -157,7 +323,7 @@ public class InterestCalculationService {
                 LOGGER.info("Applied monthly compound interest of " + interestAmount + 
                         " to account: " + account.getAccountNumber());
                 
-                return interestAmount;
+                return interestAmount.toBigDecimal();
             }
             
             return BigDecimal.ZERO;
@@ -0,0 +1,65 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of compacting the balance journal entries of one chunk of accounts.
+ */
+public class JournalChunkResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long lastEntryId;
+    private final int accountsCompacted;
+    private final int entriesCompacted;
+    private final boolean failed;
+
+    public JournalChunkResult(long lastEntryId, int accountsCompacted, int entriesCompacted, boolean failed) {
+        this.lastEntryId = lastEntryId;
+        this.accountsCompacted = accountsCompacted;
+        this.entriesCompacted = entriesCompacted;
+        this.failed = failed;
+    }
+
+    /**
+     * Creates a result for a chunk that found no further journal entries.
+     *
+     * @param lastEntryId the id the chunk started after
+     * @return an empty chunk result
+     */
+    public static JournalChunkResult empty(long lastEntryId) {
+        return new JournalChunkResult(lastEntryId, 0, 0, false);
+    }
+
+    /**
+     * @return the highest entry id examined by the chunk, used as the cursor for the next chunk
+     */
+    public long getLastEntryId() {
+        return lastEntryId;
+    }
+
+    public int getAccountsCompacted() {
+        return accountsCompacted;
+    }
+
+    public int getEntriesCompacted() {
+        return entriesCompacted;
+    }
+
+    /**
+     * @return whether the chunk was rolled back; its entries stay in the journal for the next run
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalChunkResult{" +
+                "lastEntryId=" + lastEntryId +
+                ", accountsCompacted=" + accountsCompacted +
+                ", entriesCompacted=" + entriesCompacted +
+                ", failed=" + failed +
+                '}';
+    }
+}
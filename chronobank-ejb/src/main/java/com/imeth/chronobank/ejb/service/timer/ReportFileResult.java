@@ -0,0 +1,90 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of generating one report file, as listed in the daily report manifest.
+ */
+public class ReportFileResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String reportName;
+    private final String fileName;
+    private final long rowCount;
+    private final long byteSize;
+    private final long elapsedMillis;
+    private final String error;
+
+    public ReportFileResult(String reportName, String fileName, long rowCount, long byteSize, long elapsedMillis) {
+        this(reportName, fileName, rowCount, byteSize, elapsedMillis, null);
+    }
+
+    private ReportFileResult(String reportName, String fileName, long rowCount, long byteSize,
+                             long elapsedMillis, String error) {
+        this.reportName = reportName;
+        this.fileName = fileName;
+        this.rowCount = rowCount;
+        this.byteSize = byteSize;
+        this.elapsedMillis = elapsedMillis;
+        this.error = error;
+    }
+
+    /**
+     * Creates a result for a report that could not be generated.
+     *
+     * @param reportName the report name
+     * @param elapsedMillis the time spent before the failure
+     * @param error a description of the failure
+     * @return a failed report result
+     */
+    public static ReportFileResult failed(String reportName, long elapsedMillis, String error) {
+        return new ReportFileResult(reportName, null, 0, 0, elapsedMillis, error);
+    }
+
+    public String getReportName() {
+        return reportName;
+    }
+
+    /**
+     * @return the path of the generated file, null if the report failed
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getByteSize() {
+        return byteSize;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return the error that stopped the report, or null if it was generated
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "ReportFileResult{" +
+                "reportName='" + reportName + '\'' +
+                ", fileName='" + fileName + '\'' +
+                ", rowCount=" + rowCount +
+                ", byteSize=" + byteSize +
+                ", elapsedMillis=" + elapsedMillis +
+                ", error=" + error +
+                '}';
+    }
+}
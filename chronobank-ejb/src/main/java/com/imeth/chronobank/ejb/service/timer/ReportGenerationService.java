@@ -1,29 +1,32 @@
 package com.imeth.chronobank.ejb.service.timer;
 
-import com.imeth.chronobank.common.entity.Account;
-import com.imeth.chronobank.common.entity.Transaction;
-import com.imeth.chronobank.common.entity.User;
+import com.imeth.chronobank.common.constants.AppConstants;
+import com.imeth.chronobank.common.util.CsvChannelWriter;
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+import com.imeth.chronobank.ejb.service.metrics.JobRunRecorder;
 
 import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
 import jakarta.ejb.Schedule;
 import jakarta.ejb.Singleton;
 import jakarta.ejb.TransactionAttribute;
 import jakarta.ejb.TransactionAttributeType;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.TypedQuery;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,138 +38,121 @@ public class ReportGenerationService {
 
     private static final Logger LOGGER = Logger.getLogger(ReportGenerationService.class.getName());
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    @PersistenceContext
-    private EntityManager em;
+    private static final String FORMAT_CSV = "CSV";
+    private static final String FORMAT_COLUMNAR = "COLUMNAR";
+
+    static final String MANIFEST_HEADER = "Report,File,Rows,Bytes,Duration (ms),Status";
+
+    // The run starts at 01:00; reports should be ready well before the working day starts
+    private static final long RUN_WINDOW_MILLIS = TimeUnit.HOURS.toMillis(2);
+
+    @EJB
+    private DailyReportExporter exporter;
+
+    @EJB
+    private JobMetrics jobMetrics;
+
+    @Resource
+    private ManagedExecutorService executor;
 
     @Resource(name = "java:global/ChronoBank/ReportDirectory")
     private String reportDirectory;
 
+    @Resource(name = "reportFormat")
+    private String reportFormat = FORMAT_CSV;
+
     /**
      * Scheduled method that runs daily at 1:00 AM to generate daily reports.
      */
     @Schedule(hour = "1", minute = "0", second = "0", persistent = false)
-    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     public void generateDailyReports() {
         LOGGER.info("Starting daily report generation...");
-        
-        LocalDate yesterday = LocalDate.now().minusDays(1);
-        String dateStr = yesterday.format(DATE_FORMATTER);
-        
-        try {
-            // Create report directory if it doesn't exist
-            File directory = new File(reportDirectory);
-            if (!directory.exists()) {
-                directory.mkdirs();
-            }
-            
-            // Generate transaction report
-            generateTransactionReport(yesterday);
-            
-            // Generate account balance report
-            generateAccountBalanceReport(yesterday);
-            
-            LOGGER.info("Daily report generation completed for " + dateStr);
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error generating daily reports for " + dateStr, e);
-        }
+
+        generateReportsForDate(LocalDate.now().minusDays(1));
     }
 
     /**
-     * Generate a report of all transactions for a specific date.
+     * Generate the daily reports for a date and write a manifest listing the generated files.
+     * The reports run concurrently on the managed executor, each in its own transaction, so a
+     * slow or failing report neither holds a transaction open for nor affects the others. When
+     * no managed executor is available they run one after the other on the calling thread.
+     * The run is recorded in the job history with each report as one item.
      *
-     * @param date the date to generate the report for
-     * @throws IOException if there is an error writing the report
+     * @param date the date to generate the reports for
+     * @return the result of each report, in manifest order
      */
-    private void generateTransactionReport(LocalDate date) throws IOException {
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public List<ReportFileResult> generateReportsForDate(LocalDate date) {
         String dateStr = date.format(DATE_FORMATTER);
-        String fileName = reportDirectory + "/transaction_report_" + dateStr + ".csv";
-        
-        LOGGER.info("Generating transaction report for " + dateStr + " to " + fileName);
-        
-        // Get all transactions for the specified date
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.plusDays(1).atStartOfDay().minusSeconds(1);
-        
-        TypedQuery<Transaction> query = em.createQuery(
-                "SELECT t FROM Transaction t WHERE t.transactionDate BETWEEN :startDate AND :endDate",
-                Transaction.class);
-        query.setParameter("startDate", startOfDay);
-        query.setParameter("endDate", endOfDay);
-        
-        List<Transaction> transactions = query.getResultList();
-        
-        // Write transactions to CSV file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
-            // Write header
-            writer.write("Transaction ID,Reference,Type,Amount,Status,Date,Source Account,Target Account,Description");
-            writer.newLine();
-            
-            // Write transaction data
-            for (Transaction transaction : transactions) {
-                writer.write(String.join(",",
-                        transaction.getId().toString(),
-                        transaction.getTransactionReference(),
-                        transaction.getType().toString(),
-                        transaction.getAmount().toString(),
-                        transaction.getStatus().toString(),
-                        transaction.getTransactionDate().format(DATETIME_FORMATTER),
-                        transaction.getAccount().getAccountNumber(),
-                        transaction.getTargetAccount() != null ? transaction.getTargetAccount().getAccountNumber() : "",
-                        transaction.getDescription() != null ? "\"" + transaction.getDescription() + "\"" : ""
-                ));
-                writer.newLine();
+        boolean columnar = FORMAT_COLUMNAR.equalsIgnoreCase(reportFormat);
+        List<ReportFileResult> results = new ArrayList<>();
+        JobRunRecorder run = new JobRunRecorder(AppConstants.REPORT_GENERATION_TIMER, RUN_WINDOW_MILLIS);
+        jobMetrics.started(run);
+
+        // Create report directory if it doesn't exist
+        File directory = new File(reportDirectory);
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+
+        List<String> names = new ArrayList<>();
+        List<Callable<ReportFileResult>> tasks = new ArrayList<>();
+        names.add(DailyReportExporter.TRANSACTION_REPORT);
+        tasks.add(() -> exporter.exportTransactionReport(date, reportDirectory, columnar));
+        names.add(DailyReportExporter.ACCOUNT_BALANCE_REPORT);
+        tasks.add(() -> exporter.exportAccountBalanceReport(date, reportDirectory, columnar));
+
+        if (executor == null) {
+            for (int i = 0; i < tasks.size(); i++) {
+                results.add(runReport(names.get(i), tasks.get(i)));
+            }
+        } else {
+            List<Future<ReportFileResult>> futures = new ArrayList<>(tasks.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                String name = names.get(i);
+                Callable<ReportFileResult> task = tasks.get(i);
+                futures.add(executor.submit(() -> runReport(name, task)));
+            }
+
+            // Join: wait for every report and record its outcome
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(ReportFileResult.failed(names.get(i), 0, String.valueOf(e.getCause())));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(ReportFileResult.failed(names.get(i), 0, "Interrupted while waiting for report"));
+                }
             }
         }
-        
-        LOGGER.info("Transaction report generated with " + transactions.size() + " transactions");
-    }
 
-    /**
-     * Generate a report of all account balances as of a specific date.
-     *
-     * @param date the date to generate the report for
-     * @throws IOException if there is an error writing the report
-     */
-    private void generateAccountBalanceReport(LocalDate date) throws IOException {
-        String dateStr = date.format(DATE_FORMATTER);
-        String fileName = reportDirectory + "/account_balance_report_" + dateStr + ".csv";
-        
-        LOGGER.info("Generating account balance report for " + dateStr + " to " + fileName);
-        
-        // Get all active accounts
-        TypedQuery<Account> query = em.createQuery(
-                "SELECT a FROM Account a WHERE a.status = :status",
-                Account.class);
-        query.setParameter("status", Account.Status.ACTIVE);
-        
-        List<Account> accounts = query.getResultList();
-        
-        // Write account balances to CSV file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
-            // Write header
-            writer.write("Account ID,Account Number,Type,Balance,Available Balance,Status,Owner,Owner Email");
-            writer.newLine();
-            
-            // Write account data
-            for (Account account : accounts) {
-                User owner = account.getUser();
-                writer.write(String.join(",",
-                        account.getId().toString(),
-                        account.getAccountNumber(),
-                        account.getType().toString(),
-                        account.getBalance().toString(),
-                        account.getAvailableBalance().toString(),
-                        account.getStatus().toString(),
-                        owner.getFirstName() + " " + owner.getLastName(),
-                        owner.getEmail()
-                ));
-                writer.newLine();
+        Path manifest = Paths.get(reportDirectory, "report_manifest_" + dateStr + ".csv");
+        try {
+            writeManifest(manifest, results);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error writing report manifest " + manifest, e);
+        }
+
+        for (ReportFileResult result : results) {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(result.getElapsedMillis());
+            if (result.isSuccessful()) {
+                run.itemCompleted(nanos);
+            } else {
+                run.itemFailed(nanos);
             }
         }
-        
-        LOGGER.info("Account balance report generated with " + accounts.size() + " accounts");
+        jobMetrics.finished(run);
+
+        long failed = results.stream().filter(r -> !r.isSuccessful()).count();
+        if (failed == 0) {
+            LOGGER.info("Daily report generation completed for " + dateStr);
+        } else {
+            LOGGER.warning("Daily report generation for " + dateStr + " completed with " + failed + " failed report(s)");
+        }
+        return results;
     }
 
     /**
@@ -179,112 +165,47 @@ public class ReportGenerationService {
      */
     @TransactionAttribute(TransactionAttributeType.REQUIRED)
     public String generateUserTransactionReport(Long userId, LocalDate startDate, LocalDate endDate) {
-        String startDateStr = startDate.format(DATE_FORMATTER);
-        String endDateStr = endDate.format(DATE_FORMATTER);
-        String fileName = reportDirectory + "/user_" + userId + "_transactions_" + startDateStr + "_to_" + endDateStr + ".csv";
-        
-        LOGGER.info("Generating user transaction report for user ID " + userId + 
-                " from " + startDateStr + " to " + endDateStr);
-        
-        try {
-            // Create report directory if it doesn't exist
-            File directory = new File(reportDirectory);
-            if (!directory.exists()) {
-                directory.mkdirs();
-            }
-            
-            // Get the user
-            User user = em.find(User.class, userId);
-            if (user == null) {
-                LOGGER.warning("User not found with ID: " + userId);
-                return null;
-            }
-            
-            // Get all accounts for the user
-            TypedQuery<Account> accountQuery = em.createQuery(
-                    "SELECT a FROM Account a WHERE a.user = :user",
-                    Account.class);
-            accountQuery.setParameter("user", user);
-            
-            List<Account> userAccounts = accountQuery.getResultList();
-            
-            // Get all transactions for the user's accounts within the date range
-            LocalDateTime startDateTime = startDate.atStartOfDay();
-            LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay().minusSeconds(1);
-            
-            TypedQuery<Transaction> transactionQuery = em.createQuery(
-                    "SELECT t FROM Transaction t WHERE (t.account IN :accounts OR t.targetAccount IN :accounts) " +
-                    "AND t.transactionDate BETWEEN :startDate AND :endDate " +
-                    "ORDER BY t.transactionDate",
-                    Transaction.class);
-            transactionQuery.setParameter("accounts", userAccounts);
-            transactionQuery.setParameter("startDate", startDateTime);
-            transactionQuery.setParameter("endDate", endDateTime);
-            
-            List<Transaction> transactions = transactionQuery.getResultList();
-            
-            // Write transactions to CSV file
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
-                // Write header
-                writer.write("Transaction ID,Reference,Type,Amount,Status,Date,Source Account,Target Account,Description");
-                writer.newLine();
-                
-                // Write transaction data
-                for (Transaction transaction : transactions) {
-                    writer.write(String.join(",",
-                            transaction.getId().toString(),
-                            transaction.getTransactionReference(),
-                            transaction.getType().toString(),
-                            transaction.getAmount().toString(),
-                            transaction.getStatus().toString(),
-                            transaction.getTransactionDate().format(DATETIME_FORMATTER),
-                            transaction.getAccount().getAccountNumber(),
-                            transaction.getTargetAccount() != null ? transaction.getTargetAccount().getAccountNumber() : "",
-                            transaction.getDescription() != null ? "\"" + transaction.getDescription() + "\"" : ""
-                    ));
-                    writer.newLine();
-                }
-                
-                // Write summary
-                writer.newLine();
-                writer.write("Summary for " + user.getFirstName() + " " + user.getLastName() + " (" + user.getEmail() + ")");
-                writer.newLine();
-                writer.write("Period: " + startDateStr + " to " + endDateStr);
-                writer.newLine();
-                writer.write("Total Transactions: " + transactions.size());
-                writer.newLine();
-                
-                // Calculate totals by transaction type
-                Map<Transaction.Type, BigDecimal> typeTotals = new HashMap<>();
-                for (Transaction transaction : transactions) {
-                    Transaction.Type type = transaction.getType();
-                    BigDecimal amount = transaction.getAmount();
-                    
-                    // For outgoing transactions from user accounts, make the amount negative
-                    if (transaction.getAccount() != null && userAccounts.contains(transaction.getAccount()) &&
-                            (type == Transaction.Type.WITHDRAWAL || type == Transaction.Type.TRANSFER || 
-                             type == Transaction.Type.PAYMENT || type == Transaction.Type.FEE)) {
-                        amount = amount.negate();
-                    }
-                    
-                    typeTotals.put(type, typeTotals.getOrDefault(type, BigDecimal.ZERO).add(amount));
-                }
-                
-                // Write totals by type
-                writer.newLine();
-                writer.write("Totals by Transaction Type:");
-                writer.newLine();
-                for (Map.Entry<Transaction.Type, BigDecimal> entry : typeTotals.entrySet()) {
-                    writer.write(entry.getKey() + ": " + entry.getValue());
-                    writer.newLine();
-                }
+        return exporter.exportUserTransactionReport(userId, startDate, endDate, reportDirectory);
+    }
+
+    /**
+     * Write the manifest of a report run as CSV, one line per report.
+     *
+     * @param manifest the manifest file
+     * @param results the report results
+     * @throws IOException if the manifest cannot be written
+     */
+    static void writeManifest(Path manifest, List<ReportFileResult> results) throws IOException {
+        FileChannel channel = FileChannel.open(manifest,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try (CsvChannelWriter writer = new CsvChannelWriter(channel, 4096)) {
+            writer.writeLine(MANIFEST_HEADER);
+            for (ReportFileResult result : results) {
+                writer.field(result.getReportName())
+                        .field(result.getFileName())
+                        .field(result.getRowCount())
+                        .field(result.getByteSize())
+                        .field(result.getElapsedMillis())
+                        .quoted(result.isSuccessful() ? "OK" : "FAILED: " + result.getError())
+                        .endRow();
             }
-            
-            LOGGER.info("User transaction report generated with " + transactions.size() + " transactions");
-            return fileName;
+        }
+    }
+
+    /**
+     * Run one report, recording a failure rather than throwing it.
+     *
+     * @param name the report name
+     * @param task the report task
+     * @return the report result
+     */
+    private static ReportFileResult runReport(String name, Callable<ReportFileResult> task) {
+        long startTime = System.nanoTime();
+        try {
+            return task.call();
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error generating user transaction report", e);
-            return null;
+            LOGGER.log(Level.SEVERE, "Error generating " + name + " report", e);
+            return ReportFileResult.failed(name, (System.nanoTime() - startTime) / 1_000_000, String.valueOf(e));
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,258 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.common.entity.Transaction;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+import com.imeth.chronobank.ejb.service.transfer.TransferEngine;
+import com.imeth.chronobank.ejb.service.transfer.TransferOutcome;
+
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.EJBException;
+import jakarta.ejb.SessionContext;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.Query;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * EJB that executes one chunk of due scheduled transfers in its own transaction.
+ * <p>
+ * Transfers are claimed with {@code SELECT ... FOR UPDATE SKIP LOCKED}, so concurrent workers,
+ * on this node or another, never claim the same transfer and never wait for each other. The row
+ * locks are held until the chunk commits, which also moves the transfers out of SCHEDULED. The
+ * accounts of the chunk are then locked in id order through the {@link TransferEngine}, so
+ * chunks that share accounts wait for each other rather than deadlock or fail on flush. Chunks
+ * that only credit a striped account lock one of its stripes instead, and in balance journal
+ * mode credited accounts are not locked at all. A
+ * transfer that cannot be executed is marked FAILED without affecting the rest of the chunk; if
+ * the chunk cannot be written at all it is rolled back and reported with its claimed ids.
+ */
+@Stateless
+public class ScheduledTransferChunkProcessor {
+
+    private static final Logger LOGGER = Logger.getLogger(ScheduledTransferChunkProcessor.class.getName());
+
+    private static final String CLAIM_DUE_SQL =
+            "SELECT id, account_id, target_account_id FROM transactions " +
+            "WHERE status = ? AND scheduled_date <= ? AND id > ? " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String CLAIM_LISTED_SQL =
+            "SELECT id, account_id, target_account_id FROM transactions " +
+            "WHERE status = ? AND id IN (%s) ORDER BY id FOR UPDATE SKIP LOCKED";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Resource
+    private SessionContext sessionContext;
+
+    @EJB
+    private AccountSummaryCache accountSummaryCache;
+
+    @EJB
+    private TransferEngine transferEngine;
+
+    /**
+     * Claim and execute the next chunk of transfers that are due.
+     *
+     * @param afterTransactionId only transfers with a greater id are considered
+     * @param dueBy only transfers scheduled at or before this time are considered
+     * @param chunkSize the maximum number of transfers in the chunk
+     * @return the outcome of the chunk
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public TransferChunkResult processChunk(long afterTransactionId, LocalDateTime dueBy, int chunkSize) {
+        try {
+            List<?> claimed = em.createNativeQuery(CLAIM_DUE_SQL)
+                    .setParameter(1, Transaction.Status.SCHEDULED.name())
+                    .setParameter(2, Timestamp.valueOf(dueBy))
+                    .setParameter(3, afterTransactionId)
+                    .setParameter(4, chunkSize)
+                    .getResultList();
+            if (claimed.isEmpty()) {
+                return TransferChunkResult.empty(afterTransactionId);
+            }
+            return execute(claimed);
+        } finally {
+            em.clear();
+        }
+    }
+
+    /**
+     * Claim and execute a single transfer if it is still scheduled and not claimed by another
+     * worker, regardless of its scheduled date.
+     *
+     * @param transactionId the id of the transfer
+     * @return the outcome, with no claimed ids if the transfer was not available
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public TransferChunkResult processTransfer(long transactionId) {
+        return processTransfers(Collections.singletonList(transactionId));
+    }
+
+    /**
+     * Claim and execute the listed transfers that are still scheduled and not claimed by another
+     * worker, regardless of their scheduled date.
+     *
+     * @param transactionIds the ids of the transfers, in ascending order
+     * @return the outcome, with only the transfers that were available among the claimed ids
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public TransferChunkResult processTransfers(List<Long> transactionIds) {
+        long lastTransactionId = transactionIds.get(transactionIds.size() - 1);
+        try {
+            Query claim = em.createNativeQuery(String.format(CLAIM_LISTED_SQL,
+                    String.join(", ", Collections.nCopies(transactionIds.size(), "?"))))
+                    .setParameter(1, Transaction.Status.SCHEDULED.name());
+            for (int i = 0; i < transactionIds.size(); i++) {
+                claim.setParameter(i + 2, transactionIds.get(i));
+            }
+            List<?> claimed = claim.getResultList();
+            if (claimed.isEmpty()) {
+                return TransferChunkResult.empty(lastTransactionId);
+            }
+            return execute(claimed);
+        } finally {
+            em.clear();
+        }
+    }
+
+    /**
+     * Find scheduled transfers that are due by the given time, for the in-memory wheel of
+     * {@link ScheduledTransferService}. Pages are read in id order.
+     *
+     * @param afterTransactionId only transfers with a greater id are returned
+     * @param dueBy only transfers scheduled at or before this time are returned
+     * @param limit the maximum number of transfers
+     * @return the scheduled date of each transfer by id, in id order
+     */
+    public Map<Long, LocalDateTime> findScheduledTransfers(long afterTransactionId, LocalDateTime dueBy, int limit) {
+        List<Object[]> rows = em.createQuery(
+                "SELECT t.id, t.scheduledDate FROM Transaction t " +
+                "WHERE t.status = :status AND t.id > :afterId AND t.scheduledDate <= :dueBy ORDER BY t.id",
+                Object[].class)
+                .setParameter("status", Transaction.Status.SCHEDULED)
+                .setParameter("afterId", afterTransactionId)
+                .setParameter("dueBy", dueBy)
+                .setMaxResults(limit)
+                .getResultList();
+
+        Map<Long, LocalDateTime> scheduled = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            scheduled.put((Long) row[0], (LocalDateTime) row[1]);
+        }
+        return scheduled;
+    }
+
+    /**
+     * Mark a transfer that could not be committed as FAILED, so it is not claimed again.
+     *
+     * @param transactionId the id of the transfer
+     * @param reason why it failed
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void markFailed(long transactionId, String reason) {
+        Transaction transaction = em.find(Transaction.class, transactionId);
+        if (transaction != null && transaction.getStatus() == Transaction.Status.SCHEDULED) {
+            fail(transaction, reason);
+        }
+    }
+
+    /**
+     * Execute claimed transfers. Each claimed row holds the transaction id and the ids of its
+     * source and target account.
+     */
+    private TransferChunkResult execute(List<?> claimed) {
+        List<Long> claimedIds = new ArrayList<>(claimed.size());
+        Set<Long> sourceIds = new HashSet<>();
+        Set<Long> targetIds = new HashSet<>();
+        for (Object row : claimed) {
+            Object[] columns = (Object[]) row;
+            claimedIds.add(toId(columns[0]));
+            sourceIds.add(toId(columns[1]));
+            targetIds.add(toId(columns[2]));
+        }
+        long lastTransactionId = claimedIds.get(claimedIds.size() - 1);
+
+        int completed = 0;
+        int failed = 0;
+        Set<Long> changedAccounts = new HashSet<>();
+        try {
+            // Lock the accounts before the transactions resolve them from the persistence context
+            transferEngine.lockAccounts(sourceIds, targetIds);
+            List<Transaction> transactions = em.createQuery(
+                    "SELECT t FROM Transaction t WHERE t.id IN :ids ORDER BY t.id", Transaction.class)
+                    .setParameter("ids", claimedIds)
+                    .getResultList();
+
+            for (Transaction transaction : transactions) {
+                if (transfer(transaction, changedAccounts)) {
+                    completed++;
+                } else {
+                    failed++;
+                }
+            }
+            em.flush();
+        } catch (PersistenceException | EJBException e) {
+            // A failure inside the transfer engine arrives as an EJBException and has already marked
+            // the transaction for rollback, so the whole chunk is handed back to be retried per transfer
+            LOGGER.log(Level.WARNING, "Rolling back scheduled transfer chunk ending at transaction ID: " +
+                    lastTransactionId, e);
+            sessionContext.setRollbackOnly();
+            return TransferChunkResult.rolledBack(claimedIds, String.valueOf(e));
+        }
+
+        for (Long accountId : changedAccounts) {
+            accountSummaryCache.invalidate(accountId);
+        }
+        return new TransferChunkResult(lastTransactionId, claimedIds, completed, failed, null);
+    }
+
+    /**
+     * Execute one transfer on the locked accounts. A transfer the engine refuses is marked FAILED;
+     * an error in the engine is thrown, as it has doomed the transaction of the whole chunk.
+     *
+     * @return whether the transfer completed
+     */
+    private boolean transfer(Transaction transaction, Set<Long> changedAccounts) {
+        TransferOutcome outcome = transferEngine.apply(
+                transaction.getAccount(), transaction.getTargetAccount(), transaction.getAmountMoney(),
+                transaction.getTransactionReference());
+        if (!outcome.isCompleted()) {
+            fail(transaction, outcome.getReason());
+            return false;
+        }
+
+        changedAccounts.add(transaction.getAccount().getId());
+        if (transaction.getTargetAccount() != null) {
+            changedAccounts.add(transaction.getTargetAccount().getId());
+        }
+        transaction.setStatus(Transaction.Status.COMPLETED);
+        return true;
+    }
+
+    private static void fail(Transaction transaction, String reason) {
+        transaction.setStatus(Transaction.Status.FAILED);
+        transaction.setDescription(transaction.getDescription() + " - Failed: " + reason);
+    }
+
+    private static Long toId(Object column) {
+        return column == null ? null : ((Number) column).longValue();
+    }
+}
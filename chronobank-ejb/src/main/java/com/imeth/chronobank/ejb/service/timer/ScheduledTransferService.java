@@ -1,10 +1,15 @@
 package com.imeth.chronobank.ejb.service.timer;
 
 import com.imeth.chronobank.common.constants.AppConstants;
-import com.imeth.chronobank.common.entity.Account;
-import com.imeth.chronobank.common.entity.Transaction;
+import com.imeth.chronobank.common.util.TimingWheel;
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+import com.imeth.chronobank.ejb.service.metrics.JobRunRecorder;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
 import jakarta.ejb.Schedule;
 import jakarta.ejb.Singleton;
 import jakarta.ejb.Startup;
@@ -14,142 +19,365 @@ import jakarta.ejb.TimerConfig;
 import jakarta.ejb.TimerService;
 import jakarta.ejb.TransactionAttribute;
 import jakarta.ejb.TransactionAttributeType;
-import jakarta.inject.Inject;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.TypedQuery;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * EJB service that handles scheduled fund transfers.
+ * The transfers themselves are executed in chunks by {@link ScheduledTransferChunkProcessor}.
+ * <p>
+ * Transfers due within the next two hours are held in an in-memory {@link TimingWheel}. It is
+ * rebuilt from the transactions table at startup and topped up by the hourly sweep. A single
+ * non-persistent interval timer advances the wheel, so a transfer runs within a tick of its
+ * scheduled date. The sweep still runs every transfer that is due, so nothing is lost if a node
+ * stops before its wheel fires. Every node keeps its own wheel; a transfer claimed by one node is
+ * skipped by the others.
+ * <p>
+ * The bean state is the wheel, which guards itself, so all methods take the read lock and wheel
+ * ticks are not held up by a running sweep.
  */
 @Singleton
 @Startup
+@Lock(LockType.READ)
 public class ScheduledTransferService {
 
     private static final Logger LOGGER = Logger.getLogger(ScheduledTransferService.class.getName());
 
-    @PersistenceContext
-    private EntityManager em;
+    // The run should be done before the next hourly run starts
+    private static final long RUN_WINDOW_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    // Info of the interval timer that advances the wheel; per-transfer timers carry the transaction ID
+    private static final String WHEEL_TIMER_INFO = "ScheduledTransferWheel";
+
+    private static final int WHEEL_LOAD_PAGE_SIZE = 1000;
 
     @Resource
     private TimerService timerService;
 
+    @EJB
+    private ScheduledTransferChunkProcessor transferProcessor;
+
+    @EJB
+    private JobMetrics jobMetrics;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    @Resource(name = "scheduledTransferChunkSize")
+    private Integer chunkSize = AppConstants.DEFAULT_TRANSFER_CHUNK_SIZE;
+
+    @Resource(name = "scheduledTransferWorkers")
+    private Integer workerCount = AppConstants.DEFAULT_TRANSFER_WORKERS;
+
+    @Resource(name = "scheduledTransferTickSeconds")
+    private Integer tickSeconds = AppConstants.DEFAULT_TRANSFER_TICK_SECONDS;
+
+    private TimingWheel<Long> wheel;
+
+    /**
+     * Build the wheel from the transfers that are due within the horizon, including overdue ones,
+     * and start the timer that advances it.
+     */
+    @PostConstruct
+    public void init() {
+        long tickMillis = TimeUnit.SECONDS.toMillis(tickSeconds != null && tickSeconds > 0
+                ? tickSeconds : AppConstants.DEFAULT_TRANSFER_TICK_SECONDS);
+        wheel = new TimingWheel<>(tickMillis, AppConstants.TRANSFER_WHEEL_SIZE, System.currentTimeMillis());
+        try {
+            int loaded = loadWheel(LocalDateTime.now().plusMinutes(AppConstants.TRANSFER_WHEEL_HORIZON_MINUTES));
+            LOGGER.info("Scheduled transfer wheel loaded with " + loaded + " transfer(s)");
+        } catch (Exception e) {
+            // The hourly sweep tops the wheel up and runs anything that is overdue
+            LOGGER.log(Level.SEVERE, "Error loading scheduled transfers into the wheel", e);
+        }
+        timerService.createIntervalTimer(tickMillis, tickMillis, new TimerConfig(WHEEL_TIMER_INFO, false));
+    }
+
     /**
      * Scheduled method that runs every hour to process scheduled transfers.
      */
     @Schedule(hour = "*", minute = "0", second = "0", persistent = false)
-    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     public void processScheduledTransfers() {
         LOGGER.info("Processing scheduled transfers...");
         
+        int workers = workerCount != null && workerCount > 0 ? workerCount : AppConstants.DEFAULT_TRANSFER_WORKERS;
+        LocalDateTime now = LocalDateTime.now();
+        processDueTransfers(now, workers);
+
         try {
-            // Find all scheduled transactions that are due
-            TypedQuery<Transaction> query = em.createQuery(
-                    "SELECT t FROM Transaction t WHERE t.status = :status AND t.scheduledDate <= CURRENT_TIMESTAMP",
-                    Transaction.class);
-            query.setParameter("status", Transaction.Status.SCHEDULED);
-            
-            List<Transaction> scheduledTransactions = query.getResultList();
-            LOGGER.info("Found " + scheduledTransactions.size() + " scheduled transactions to process");
-            
-            for (Transaction transaction : scheduledTransactions) {
-                processTransaction(transaction);
-            }
+            int loaded = loadWheel(now.plusMinutes(AppConstants.TRANSFER_WHEEL_HORIZON_MINUTES));
+            LOGGER.info("Scheduled transfer wheel topped up with " + loaded + " transfer(s)");
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error processing scheduled transfers", e);
+            LOGGER.log(Level.SEVERE, "Error loading scheduled transfers into the wheel", e);
         }
     }
 
     /**
-     * Process a single scheduled transaction.
+     * Add the transfers that are due by the given time to the wheel. Transfers already in the
+     * wheel for the same time are left where they are.
      *
-     * @param transaction the transaction to process
+     * @param dueBy the end of the horizon
+     * @return the number of transfers added or moved
      */
-    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
-    private void processTransaction(Transaction transaction) {
-        try {
-            LOGGER.info("Processing scheduled transaction: " + transaction.getTransactionReference());
-            
-            Account sourceAccount = transaction.getAccount();
-            Account targetAccount = transaction.getTargetAccount();
-            
-            // Verify accounts are active
-            if (sourceAccount.getStatus() != Account.Status.ACTIVE || 
-                (targetAccount != null && targetAccount.getStatus() != Account.Status.ACTIVE)) {
-                transaction.setStatus(Transaction.Status.FAILED);
-                transaction.setDescription(transaction.getDescription() + " - Failed: Account inactive");
-                em.merge(transaction);
-                return;
+    private int loadWheel(LocalDateTime dueBy) {
+        int loaded = 0;
+        long lastTransactionId = 0L;
+        Map<Long, LocalDateTime> page;
+        do {
+            page = transferProcessor.findScheduledTransfers(lastTransactionId, dueBy, WHEEL_LOAD_PAGE_SIZE);
+            for (Map.Entry<Long, LocalDateTime> transfer : page.entrySet()) {
+                if (wheel.schedule(transfer.getKey(), toMillis(transfer.getValue()))) {
+                    loaded++;
+                }
+                lastTransactionId = transfer.getKey();
             }
-            
-            // Verify sufficient funds
-            if (sourceAccount.getAvailableBalance().compareTo(transaction.getAmount()) < 0) {
-                transaction.setStatus(Transaction.Status.FAILED);
-                transaction.setDescription(transaction.getDescription() + " - Failed: Insufficient funds");
-                em.merge(transaction);
-                return;
+        } while (page.size() == WHEEL_LOAD_PAGE_SIZE);
+        return loaded;
+    }
+
+    /**
+     * Advance the wheel to now and run the transfers that have become due, in chunks. A chunk
+     * that cannot be committed is retried one transfer at a time, as in the sweep.
+     */
+    private void fireDueTransfers() {
+        List<Long> due = wheel.advance(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return;
+        }
+
+        TransferRunResult result = new TransferRunResult();
+
+        long startTime = System.nanoTime();
+        due.sort(null);
+        int size = chunkSize != null && chunkSize > 0 ? chunkSize : AppConstants.DEFAULT_TRANSFER_CHUNK_SIZE;
+        for (int from = 0; from < due.size(); from += size) {
+            List<Long> ids = due.subList(from, Math.min(from + size, due.size()));
+            try {
+                TransferChunkResult chunk = transferProcessor.processTransfers(ids);
+                if (chunk.isRolledBack()) {
+                    result.addRolledBackChunk(chunk);
+                    for (Long transactionId : chunk.getClaimedIds()) {
+                        processAlone(transactionId, result);
+                    }
+                } else if (chunk.getTransfersClaimed() > 0) {
+                    result.addChunk(chunk);
+                }
+            } catch (Exception e) {
+                // The sweep picks these transfers up again
+                LOGGER.log(Level.SEVERE, "Error processing due transfers from transaction ID: " + ids.get(0), e);
+                result.setError(String.valueOf(e));
             }
-            
-            // Process the transfer
-            sourceAccount.setBalance(sourceAccount.getBalance().subtract(transaction.getAmount()));
-            sourceAccount.setAvailableBalance(sourceAccount.getAvailableBalance().subtract(transaction.getAmount()));
-            em.merge(sourceAccount);
-            
-            if (targetAccount != null) {
-                targetAccount.setBalance(targetAccount.getBalance().add(transaction.getAmount()));
-                targetAccount.setAvailableBalance(targetAccount.getAvailableBalance().add(transaction.getAmount()));
-                em.merge(targetAccount);
+        }
+
+        result.setElapsedMillis((System.nanoTime() - startTime) / 1_000_000L);
+        LOGGER.info(String.format("Scheduled transfer wheel fired %d transfer(s) (%d completed, %d failed) in %d ms",
+                due.size(), result.getTransfersCompleted(), result.getTransfersFailed(), result.getElapsedMillis()));
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Process every transfer that is due, with the given number of workers draining the backlog
+     * concurrently. Each worker claims chunks of transfers that no other worker holds, and each
+     * chunk commits on its own. A chunk that cannot be committed is retried one transfer at a
+     * time, and a transfer that still cannot be committed is marked FAILED, so one bad transfer
+     * does not hold up the others. With a single worker, or when no managed executor is
+     * available, the run happens on the calling thread.
+     *
+     * The run is recorded in the job history; a transfer that ends up FAILED counts as a failed item.
+     *
+     * @param dueBy only transfers scheduled at or before this time are processed
+     * @param workers the number of workers to run concurrently
+     * @return the outcome of the run
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public TransferRunResult processDueTransfers(LocalDateTime dueBy, int workers) {
+        long startTime = System.nanoTime();
+        TransferRunResult result = new TransferRunResult();
+        JobRunRecorder run = new JobRunRecorder(AppConstants.SCHEDULED_TRANSFER_TIMER, RUN_WINDOW_MILLIS);
+        jobMetrics.started(run);
+        
+        if (workers <= 1 || executor == null) {
+            result.merge(drain(dueBy, run));
+        } else {
+            List<Future<TransferRunResult>> futures = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(() -> drain(dueBy, run)));
             }
             
-            // Update transaction status
-            transaction.setStatus(Transaction.Status.COMPLETED);
-            em.merge(transaction);
-            
-            LOGGER.info("Successfully processed scheduled transaction: " + transaction.getTransactionReference());
+            // Join: wait for every worker and add up its counts
+            for (Future<TransferRunResult> future : futures) {
+                TransferRunResult worker = new TransferRunResult();
+                try {
+                    worker = future.get();
+                } catch (ExecutionException e) {
+                    worker.setError(String.valueOf(e.getCause()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    worker.setError("Interrupted while waiting for worker");
+                }
+                result.merge(worker);
+            }
+        }
+        
+        result.setElapsedMillis((System.nanoTime() - startTime) / 1_000_000L);
+        LOGGER.info(String.format("Scheduled transfers processed %d transfers in %d chunk(s) with %d worker(s) " +
+                        "(%d completed, %d failed, %d retried from %d rolled back chunk(s)) in %d ms - %.1f transfers/sec",
+                result.getTransfersProcessed(), result.getChunks(), Math.max(1, workers),
+                result.getTransfersCompleted(), result.getTransfersFailed(), result.getTransfersRetried(),
+                result.getRolledBackChunks(), result.getElapsedMillis(), result.getTransfersPerSecond()));
+        if (!result.isSuccessful()) {
+            run.failed(result.getError());
+        }
+        jobMetrics.finished(run);
+        return result;
+    }
+
+    /**
+     * Claim and process chunks until no due transfers are left above the worker's cursor.
+     * Errors are recorded on the result rather than thrown, so other workers are unaffected. A
+     * chunk that throws is retried transfer by transfer like a rolled back chunk, and the worker
+     * moves on to the next chunk.
+     *
+     * @param dueBy only transfers scheduled at or before this time are processed
+     * @param run the recorder of the run the worker belongs to
+     * @return the counts of this worker
+     */
+    private TransferRunResult drain(LocalDateTime dueBy, JobRunRecorder run) {
+        int size = chunkSize != null && chunkSize > 0 ? chunkSize : AppConstants.DEFAULT_TRANSFER_CHUNK_SIZE;
+        TransferRunResult result = new TransferRunResult();
+        long lastTransactionId = 0L;
+        
+        try {
+            TransferChunkResult chunk;
+            do {
+                long chunkStart = System.nanoTime();
+                try {
+                    chunk = transferProcessor.processChunk(lastTransactionId, dueBy, size);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, "Error processing scheduled transfer chunk after transaction ID: " +
+                            lastTransactionId, e);
+                    result.setError(String.valueOf(e));
+                    chunk = failedChunk(lastTransactionId, dueBy, size, e);
+                }
+                if (chunk.isRolledBack()) {
+                    result.addRolledBackChunk(chunk);
+                    for (Long transactionId : chunk.getClaimedIds()) {
+                        retry(transactionId, result, run);
+                    }
+                } else if (chunk.getTransfersClaimed() > 0) {
+                    result.addChunk(chunk);
+                    run.itemsCompleted(chunk.getTransfersCompleted() + chunk.getTransfersFailed(),
+                            chunk.getTransfersFailed(), System.nanoTime() - chunkStart);
+                }
+                lastTransactionId = chunk.getLastTransactionId();
+            } while (chunk.getTransfersClaimed() == size);
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error processing transaction: " + transaction.getTransactionReference(), e);
-            transaction.setStatus(Transaction.Status.FAILED);
-            transaction.setDescription(transaction.getDescription() + " - Failed: " + e.getMessage());
-            em.merge(transaction);
+            LOGGER.log(Level.SEVERE, "Error processing scheduled transfers after transaction ID: " + lastTransactionId, e);
+            result.setError(String.valueOf(e));
         }
+        return result;
     }
 
     /**
-     * Creates a timer for a specific scheduled transfer.
+     * Report a chunk that threw as rolled back for the transfers it would have claimed, so that
+     * they are retried one by one.
+     */
+    private TransferChunkResult failedChunk(long afterTransactionId, LocalDateTime dueBy, int size, Exception cause) {
+        List<Long> transactionIds = new ArrayList<>(
+                transferProcessor.findScheduledTransfers(afterTransactionId, dueBy, size).keySet());
+        if (transactionIds.isEmpty()) {
+            return TransferChunkResult.empty(afterTransactionId);
+        }
+        return TransferChunkResult.rolledBack(transactionIds, String.valueOf(cause));
+    }
+
+    /**
+     * Process a transfer of a rolled back chunk on its own, and mark it FAILED if it still
+     * cannot be committed.
+     */
+    private void retry(long transactionId, TransferRunResult result, JobRunRecorder run) {
+        long itemStart = System.nanoTime();
+        TransferChunkResult transfer = processAlone(transactionId, result);
+        if (transfer.isRolledBack()) {
+            run.itemFailed(System.nanoTime() - itemStart);
+        } else if (transfer.getTransfersClaimed() > 0) {
+            run.itemsCompleted(1, transfer.getTransfersFailed(), System.nanoTime() - itemStart);
+        }
+    }
+
+    /**
+     * Process a transfer on its own and add it to the result, marking it FAILED if it cannot be
+     * committed.
+     */
+    private TransferChunkResult processAlone(long transactionId, TransferRunResult result) {
+        TransferChunkResult transfer;
+        try {
+            transfer = transferProcessor.processTransfer(transactionId);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Error processing scheduled transfer for transaction ID: " + transactionId, e);
+            transfer = TransferChunkResult.rolledBack(Collections.singletonList(transactionId), String.valueOf(e));
+        }
+        if (transfer.isRolledBack()) {
+            transferProcessor.markFailed(transactionId, transfer.getRollbackCause());
+            result.addFailedTransfer();
+        } else if (transfer.getTransfersClaimed() > 0) {
+            result.addRetried(transfer);
+        }
+        return transfer;
+    }
+
+    /**
+     * Schedule a transfer to run after a delay. The transfer is held in the in-memory wheel; its
+     * scheduled date in the transactions table should match, as that is what a restarted node
+     * and the hourly sweep go by.
      *
      * @param transactionId the ID of the transaction to schedule
      * @param delay the delay in milliseconds
      */
     public void scheduleTransfer(Long transactionId, long delay) {
-        TimerConfig config = new TimerConfig();
-        config.setInfo(transactionId);
-        config.setPersistent(true);
-        timerService.createSingleActionTimer(delay, config);
-        LOGGER.info("Scheduled transfer timer created for transaction ID: " + transactionId);
+        wheel.schedule(transactionId, System.currentTimeMillis() + delay);
+        LOGGER.fine("Scheduled transfer added to the wheel for transaction ID: " + transactionId);
     }
 
     /**
-     * Handles timer expiration events.
+     * Handles timer expiration events: ticks of the wheel, and the per-transfer persistent
+     * timers created by earlier versions.
      *
      * @param timer the timer that expired
      */
     @Timeout
-    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     public void handleTimeout(Timer timer) {
+        if (WHEEL_TIMER_INFO.equals(timer.getInfo())) {
+            fireDueTransfers();
+            return;
+        }
+
         Long transactionId = (Long) timer.getInfo();
         LOGGER.info("Timer expired for transaction ID: " + transactionId);
         
         try {
-            Transaction transaction = em.find(Transaction.class, transactionId);
-            if (transaction != null && transaction.getStatus() == Transaction.Status.SCHEDULED) {
-                processTransaction(transaction);
+            TransferChunkResult transfer = transferProcessor.processTransfer(transactionId);
+            if (transfer.isRolledBack()) {
+                transferProcessor.markFailed(transactionId, transfer.getRollbackCause());
             }
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error handling timer for transaction ID: " + transactionId, e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of processing one chunk of claimed scheduled transfers.
+ * <p>
+ * A chunk that could not be committed is reported as rolled back, with the ids it had claimed,
+ * so that the caller can retry those transfers one by one.
+ */
+public class TransferChunkResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long lastTransactionId;
+    private final List<Long> claimedIds;
+    private final int transfersCompleted;
+    private final int transfersFailed;
+    private final String rollbackCause;
+
+    public TransferChunkResult(long lastTransactionId, List<Long> claimedIds, int transfersCompleted,
+                               int transfersFailed, String rollbackCause) {
+        this.lastTransactionId = lastTransactionId;
+        this.claimedIds = claimedIds;
+        this.transfersCompleted = transfersCompleted;
+        this.transfersFailed = transfersFailed;
+        this.rollbackCause = rollbackCause;
+    }
+
+    /**
+     * Creates a result for a chunk that found no further due transfers.
+     *
+     * @param lastTransactionId the id the chunk started after
+     * @return an empty chunk result
+     */
+    public static TransferChunkResult empty(long lastTransactionId) {
+        return new TransferChunkResult(lastTransactionId, Collections.emptyList(), 0, 0, null);
+    }
+
+    /**
+     * Creates a result for a chunk whose changes were rolled back.
+     *
+     * @param claimedIds the ids of the transfers the chunk had claimed
+     * @param cause a description of the failure
+     * @return a rolled back chunk result
+     */
+    public static TransferChunkResult rolledBack(List<Long> claimedIds, String cause) {
+        return new TransferChunkResult(claimedIds.get(claimedIds.size() - 1), claimedIds, 0, 0, cause);
+    }
+
+    /**
+     * @return the highest transaction id claimed by the chunk, used as the cursor for the next chunk
+     */
+    public long getLastTransactionId() {
+        return lastTransactionId;
+    }
+
+    public List<Long> getClaimedIds() {
+        return Collections.unmodifiableList(claimedIds);
+    }
+
+    public int getTransfersClaimed() {
+        return claimedIds.size();
+    }
+
+    public int getTransfersCompleted() {
+        return transfersCompleted;
+    }
+
+    public int getTransfersFailed() {
+        return transfersFailed;
+    }
+
+    public boolean isRolledBack() {
+        return rollbackCause != null;
+    }
+
+    /**
+     * @return why the chunk was rolled back, null if it was committed
+     */
+    public String getRollbackCause() {
+        return rollbackCause;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferChunkResult{" +
+                "lastTransactionId=" + lastTransactionId +
+                ", transfersClaimed=" + claimedIds.size() +
+                ", transfersCompleted=" + transfersCompleted +
+                ", transfersFailed=" + transfersFailed +
+                ", rollbackCause=" + rollbackCause +
+                '}';
+    }
+}
@@ -0,0 +1,139 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of one run of the scheduled transfer processor, summed over its workers.
+ */
+public class TransferRunResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int chunks;
+    private int rolledBackChunks;
+    private int transfersCompleted;
+    private int transfersFailed;
+    private int transfersRetried;
+    private long elapsedMillis;
+    private String error;
+
+    /**
+     * Add the counts of a committed chunk.
+     *
+     * @param chunk the chunk result
+     */
+    void addChunk(TransferChunkResult chunk) {
+        chunks++;
+        addRetried(chunk);
+    }
+
+    /**
+     * Add the counts of a transfer that was retried and committed on its own.
+     *
+     * @param transfer the result of the single transfer
+     */
+    void addRetried(TransferChunkResult transfer) {
+        transfersCompleted += transfer.getTransfersCompleted();
+        transfersFailed += transfer.getTransfersFailed();
+    }
+
+    /**
+     * Record a chunk that was rolled back; its transfers are retried one by one.
+     *
+     * @param chunk the chunk result
+     */
+    void addRolledBackChunk(TransferChunkResult chunk) {
+        rolledBackChunks++;
+        transfersRetried += chunk.getTransfersClaimed();
+    }
+
+    /**
+     * Record a transfer that could not be committed even on its own and was marked FAILED.
+     */
+    void addFailedTransfer() {
+        transfersFailed++;
+    }
+
+    /**
+     * Add the counts of another worker of the same run.
+     *
+     * @param other the other worker's result
+     */
+    void merge(TransferRunResult other) {
+        chunks += other.chunks;
+        rolledBackChunks += other.rolledBackChunks;
+        transfersCompleted += other.transfersCompleted;
+        transfersFailed += other.transfersFailed;
+        transfersRetried += other.transfersRetried;
+        if (other.error != null) {
+            error = error == null ? other.error : error + "; " + other.error;
+        }
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public int getRolledBackChunks() {
+        return rolledBackChunks;
+    }
+
+    public int getTransfersProcessed() {
+        return transfersCompleted + transfersFailed;
+    }
+
+    public int getTransfersCompleted() {
+        return transfersCompleted;
+    }
+
+    public int getTransfersFailed() {
+        return transfersFailed;
+    }
+
+    /**
+     * @return the number of transfers retried one by one after their chunk was rolled back
+     */
+    public int getTransfersRetried() {
+        return transfersRetried;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getTransfersPerSecond() {
+        return getTransfersProcessed() * 1000.0 / Math.max(1L, elapsedMillis);
+    }
+
+    /**
+     * @return why a worker stopped early, null if all workers drained the backlog
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferRunResult{" +
+                "chunks=" + chunks +
+                ", rolledBackChunks=" + rolledBackChunks +
+                ", transfersCompleted=" + transfersCompleted +
+                ", transfersFailed=" + transfersFailed +
+                ", transfersRetried=" + transfersRetried +
+                ", elapsedMillis=" + elapsedMillis +
+                ", error=" + error +
+                '}';
+    }
+}
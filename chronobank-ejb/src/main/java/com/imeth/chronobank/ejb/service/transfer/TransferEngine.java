@@ -0,0 +1,365 @@
+package com.imeth.chronobank.ejb.service.transfer;
+
+import com.imeth.chronobank.common.constants.AppConstants;
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.AccountBalanceStripe;
+import com.imeth.chronobank.common.entity.BalanceJournalEntry;
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * EJB that moves money between accounts under pessimistic row locks.
+ * <p>
+ * All accounts a transaction changes are locked up front with a single
+ * {@code SELECT ... ORDER BY id FOR UPDATE}, before any balance is read. Every transaction takes
+ * its account locks in ascending id order, so two transfers between the same accounts in opposite
+ * directions queue behind each other instead of deadlocking. The version check on flush cannot
+ * fail for a locked account.
+ * <p>
+ * A hot account that receives many concurrent credits can be striped. Credits to a striped
+ * account are added to one of its {@link AccountBalanceStripe} rows instead of its balance, and
+ * the account row itself is not locked, so up to as many credits as it has stripes proceed in
+ * parallel. Each transaction picks one of the stripes at random and keeps to it, so concurrent
+ * credits spread evenly over the stripes whichever threads run them. Stripe locks are taken after all account locks, in ascending
+ * account id order. The stripes are folded back into the balance by {@link #foldStripes(long)}.
+ * Until then a credit counts towards the balance shown for the account, but cannot be spent.
+ * <p>
+ * In balance journal mode, credits are appended to the {@link BalanceJournalEntry} table instead,
+ * and no credited account is locked or written. The inserts go to the end of the journal instead
+ * of updating hot account rows in place, so credits do not wait for each other. Debits still
+ * change the locked source account, so the funds check stays exact. Journal entries are
+ * compacted into the balances by {@code BalanceJournalChunkProcessor}; as with stripes, a pending
+ * credit counts towards the balance shown for the account, but cannot be spent until then.
+ */
+@Stateless
+public class TransferEngine {
+
+    // Transaction resource holding the stripe a transaction credits, followed by the account id
+    private static final String CREDIT_STRIPE_KEY = TransferEngine.class.getName() + ".creditStripe.";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    @EJB
+    private AccountSummaryCache accountSummaryCache;
+
+    @Resource(name = "balanceJournal")
+    private Boolean balanceJournal = Boolean.FALSE;
+
+    /**
+     * Lock accounts for update in ascending id order and load them into the persistence context.
+     * Call this once per transaction, with every account the transaction will change; taking
+     * further locks later in the transaction breaks the ordering.
+     *
+     * @param accountIds the ids of the accounts, in any order; null ids are ignored
+     * @return the locked accounts by id, in ascending id order; missing accounts are absent
+     */
+    @TransactionAttribute(TransactionAttributeType.MANDATORY)
+    public Map<Long, Account> lockAccounts(Collection<Long> accountIds) {
+        return lockAccounts(accountIds, Collections.<Long>emptyList());
+    }
+
+    /**
+     * Lock the accounts a transaction will debit and credit. Striped accounts that are only
+     * credited are loaded without a lock, and the stripe the transaction will credit is locked
+     * instead. In balance journal mode every account that is only credited is loaded without a
+     * lock. Call this once per transaction, as {@link #lockAccounts(Collection)}.
+     *
+     * @param debitedIds the ids of the accounts to debit, in any order; null ids are ignored
+     * @param creditedIds the ids of the accounts to credit, in any order; null ids are ignored
+     * @return the accounts by id, in ascending id order; missing accounts are absent
+     */
+    @TransactionAttribute(TransactionAttributeType.MANDATORY)
+    public Map<Long, Account> lockAccounts(Collection<Long> debitedIds, Collection<Long> creditedIds) {
+        TreeSet<Long> ids = new TreeSet<>();
+        addIds(ids, debitedIds);
+        TreeSet<Long> creditOnlyIds = new TreeSet<>();
+        addIds(creditOnlyIds, creditedIds);
+        creditOnlyIds.removeAll(ids);
+
+        boolean journal = isJournaling();
+        Map<Long, Account> accounts = new TreeMap<>();
+        if (!creditOnlyIds.isEmpty()) {
+            List<Account> unlocked = em.createQuery(journal
+                    ? "SELECT a FROM Account a WHERE a.id IN :ids"
+                    : "SELECT a FROM Account a WHERE a.id IN :ids AND a.stripeCount > 0", Account.class)
+                    .setParameter("ids", new ArrayList<>(creditOnlyIds))
+                    .getResultList();
+            for (Account account : unlocked) {
+                accounts.put(account.getId(), account);
+                creditOnlyIds.remove(account.getId());
+            }
+        }
+        ids.addAll(creditOnlyIds);
+
+        if (!ids.isEmpty()) {
+            // A primary key range scan locks the rows in index order
+            List<Account> locked = em.createQuery(
+                    "SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id", Account.class)
+                    .setParameter("ids", new ArrayList<>(ids))
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList();
+            for (Account account : locked) {
+                accounts.put(account.getId(), account);
+            }
+        }
+
+        if (creditedIds != null && !journal) {
+            Set<Long> credited = new HashSet<>(creditedIds);
+            for (Account account : accounts.values()) {
+                if (account.isStriped() && credited.contains(account.getId())) {
+                    lockStripe(account);
+                }
+            }
+        }
+        return accounts;
+    }
+
+    private static void addIds(Set<Long> ids, Collection<Long> accountIds) {
+        if (accountIds == null) {
+            return;
+        }
+        for (Long accountId : accountIds) {
+            if (accountId != null) {
+                ids.add(accountId);
+            }
+        }
+    }
+
+    /**
+     * Move money between two accounts that were locked with {@link #lockAccounts(Collection, Collection)}.
+     * The new balances are computed before any of them is set, so a rejected transfer leaves both
+     * accounts untouched. A striped target is credited through its stripe.
+     *
+     * @param source the account to debit
+     * @param target the account to credit, or null for a debit only
+     * @param amount the amount to move
+     * @return the outcome of the transfer
+     */
+    @TransactionAttribute(TransactionAttributeType.MANDATORY)
+    public TransferOutcome apply(Account source, Account target, Money amount) {
+        return apply(source, target, amount, null);
+    }
+
+    /**
+     * Move money between two accounts as {@link #apply(Account, Account, Money)}. In balance
+     * journal mode the credit is appended to the journal under the given reference.
+     *
+     * @param source the account to debit
+     * @param target the account to credit, or null for a debit only
+     * @param amount the amount to move
+     * @param reference the reference of the transaction that moves the money, or null
+     * @return the outcome of the transfer
+     */
+    @TransactionAttribute(TransactionAttributeType.MANDATORY)
+    public TransferOutcome apply(Account source, Account target, Money amount, String reference) {
+        if (source == target) {
+            return TransferOutcome.SAME_ACCOUNT;
+        }
+
+        // Verify accounts are active
+        if (source.getStatus() != Account.Status.ACTIVE ||
+            (target != null && target.getStatus() != Account.Status.ACTIVE)) {
+            return TransferOutcome.ACCOUNT_INACTIVE;
+        }
+
+        // Verify sufficient funds
+        if (source.getAvailableBalanceMoney().isLessThan(amount)) {
+            return TransferOutcome.INSUFFICIENT_FUNDS;
+        }
+
+        Money sourceBalance = source.getBalanceMoney().minus(amount);
+        Money sourceAvailable = source.getAvailableBalanceMoney().minus(amount);
+        Money targetBalance = null;
+        Money targetAvailable = null;
+        AccountBalanceStripe stripe = null;
+        // A journaled target is not locked, so its balance is not read
+        boolean journal = target != null && isJournaling();
+        if (target != null && !journal && target.isStriped()) {
+            stripe = lockStripe(target);
+        } else if (target != null && !journal) {
+            targetBalance = target.getBalanceMoney().plus(amount);
+            targetAvailable = target.getAvailableBalanceMoney().plus(amount);
+        }
+
+        source.setBalanceMoney(sourceBalance);
+        source.setAvailableBalanceMoney(sourceAvailable);
+        if (journal) {
+            BalanceJournalEntry entry = new BalanceJournalEntry();
+            entry.setAccount(target);
+            entry.setDelta(amount);
+            entry.setReference(reference);
+            em.persist(entry);
+        } else if (stripe != null) {
+            stripe.setAmount(stripe.getAmount().plus(amount));
+        } else if (target != null) {
+            target.setBalanceMoney(targetBalance);
+            target.setAvailableBalanceMoney(targetAvailable);
+        }
+        return TransferOutcome.COMPLETED;
+    }
+
+    /**
+     * Lock two accounts in id order and move money between them.
+     *
+     * @param sourceAccountId the account to debit
+     * @param targetAccountId the account to credit
+     * @param amount the amount to move
+     * @return the outcome of the transfer
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public TransferOutcome transfer(long sourceAccountId, long targetAccountId, Money amount) {
+        if (sourceAccountId == targetAccountId) {
+            return TransferOutcome.SAME_ACCOUNT;
+        }
+
+        Map<Long, Account> accounts = lockAccounts(
+                Collections.singletonList(sourceAccountId), Collections.singletonList(targetAccountId));
+        Account source = accounts.get(sourceAccountId);
+        Account target = accounts.get(targetAccountId);
+        if (source == null || target == null) {
+            return TransferOutcome.ACCOUNT_NOT_FOUND;
+        }
+
+        TransferOutcome outcome = apply(source, target, amount);
+        if (outcome.isCompleted()) {
+            em.flush();
+            accountSummaryCache.invalidate(sourceAccountId);
+            accountSummaryCache.invalidate(targetAccountId);
+        }
+        return outcome;
+    }
+
+    /**
+     * Add the credits held in an account's stripes to its balance and available balance, and
+     * empty the stripes. The account is locked before its stripes, so credits already holding a
+     * stripe finish first and new credits wait for the fold.
+     *
+     * @param accountId the account ID
+     * @return the amount folded into the balance
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public Money foldStripes(long accountId) {
+        Account account = lockAccounts(Collections.singletonList(accountId)).get(accountId);
+        if (account == null) {
+            return Money.ZERO;
+        }
+        Money folded = fold(account, lockStripes(account));
+        if (folded.signum() != 0) {
+            em.flush();
+            accountSummaryCache.invalidate(accountId);
+        }
+        return folded;
+    }
+
+    /**
+     * Change the number of stripes of an account. Pending credits are folded into the balance
+     * first. Stripe rows are only ever added, so a later increase reuses the existing rows; a count
+     * of 0 turns striping off.
+     *
+     * @param accountId the account ID
+     * @param stripeCount the new number of stripes
+     * @return the account, or null if it does not exist
+     * @throws IllegalArgumentException if the count is negative or too large
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public Account setStripeCount(long accountId, int stripeCount) {
+        if (stripeCount < 0 || stripeCount > AppConstants.MAX_BALANCE_STRIPES) {
+            throw new IllegalArgumentException("Stripe count must be between 0 and " + AppConstants.MAX_BALANCE_STRIPES);
+        }
+
+        Account account = lockAccounts(Collections.singletonList(accountId)).get(accountId);
+        if (account == null) {
+            return null;
+        }
+        List<AccountBalanceStripe> stripes = lockStripes(account);
+        fold(account, stripes);
+        for (int stripe = stripes.size(); stripe < stripeCount; stripe++) {
+            AccountBalanceStripe row = new AccountBalanceStripe();
+            row.setAccount(account);
+            row.setStripe(stripe);
+            em.persist(row);
+        }
+        account.setStripeCount(stripeCount);
+        em.flush();
+        accountSummaryCache.invalidate(accountId);
+        return account;
+    }
+
+    private boolean isJournaling() {
+        return Boolean.TRUE.equals(balanceJournal);
+    }
+
+    private Money fold(Account account, List<AccountBalanceStripe> stripes) {
+        Money folded = Money.ZERO;
+        for (AccountBalanceStripe stripe : stripes) {
+            if (stripe.getAmount().signum() != 0) {
+                folded = folded.plus(stripe.getAmount());
+                stripe.setAmount(Money.ZERO);
+            }
+        }
+        if (folded.signum() != 0) {
+            account.setBalanceMoney(account.getBalanceMoney().plus(folded));
+            account.setAvailableBalanceMoney(account.getAvailableBalanceMoney().plus(folded));
+        }
+        return folded;
+    }
+
+    private List<AccountBalanceStripe> lockStripes(Account account) {
+        return em.createQuery(
+                "SELECT s FROM AccountBalanceStripe s WHERE s.account.id = :accountId ORDER BY s.stripe",
+                AccountBalanceStripe.class)
+                .setParameter("accountId", account.getId())
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    /**
+     * Lock the stripe of a striped account that the current transaction credits. Locking it again
+     * later in the same transaction returns the same row without waiting.
+     */
+    private AccountBalanceStripe lockStripe(Account account) {
+        // Keeping to one stripe means a transaction never holds two stripes of an account
+        String key = CREDIT_STRIPE_KEY + account.getId();
+        Integer stripe = (Integer) transactionRegistry.getResource(key);
+        if (stripe == null) {
+            stripe = ThreadLocalRandom.current().nextInt(account.getStripeCount());
+            transactionRegistry.putResource(key, stripe);
+        }
+        List<AccountBalanceStripe> stripes = em.createQuery(
+                "SELECT s FROM AccountBalanceStripe s WHERE s.account.id = :accountId AND s.stripe = :stripe",
+                AccountBalanceStripe.class)
+                .setParameter("accountId", account.getId())
+                .setParameter("stripe", stripe)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        if (stripes.isEmpty()) {
+            throw new IllegalStateException("Account " + account.getId() + " has no balance stripe " + stripe);
+        }
+        return stripes.get(0);
+    }
+}
@@ -0,0 +1,30 @@
+package com.imeth.chronobank.ejb.service.transfer;
+
+/**
+ * Outcome of a transfer applied by the {@link TransferEngine}.
+ */
+public enum TransferOutcome {
+
+    COMPLETED(null),
+    ACCOUNT_NOT_FOUND("Account not found"),
+    ACCOUNT_INACTIVE("Account inactive"),
+    SAME_ACCOUNT("Source and target account are the same"),
+    INSUFFICIENT_FUNDS("Insufficient funds");
+
+    private final String reason;
+
+    TransferOutcome(String reason) {
+        this.reason = reason;
+    }
+
+    /**
+     * @return why the transfer was rejected, null if it completed
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    public boolean isCompleted() {
+        return this == COMPLETED;
+    }
+}
@@ -0,0 +1,191 @@
+package com.imeth.chronobank.ejb.service.cache;
+
+import com.imeth.chronobank.common.dto.AccountDTO;
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.AccountBalanceStripe;
+import com.imeth.chronobank.common.entity.User;
+import com.imeth.chronobank.common.util.Money;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the AccountSummaryCache class.
+ */
+public class AccountSummaryCacheTest {
+
+    @Mock
+    private EntityManager em;
+
+    @Mock
+    private TypedQuery<Account> accountQuery;
+
+    @Mock
+    private TypedQuery<Number> versionQuery;
+
+    @Mock
+    private TypedQuery<AccountBalanceStripe> stripeQuery;
+
+    @Mock
+    private TypedQuery<Object[]> journalQuery;
+
+    @InjectMocks
+    private AccountSummaryCache accountSummaryCache;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        accountSummaryCache.init();
+
+        when(em.createQuery(contains("JOIN FETCH"), eq(Account.class))).thenReturn(accountQuery);
+        when(em.createQuery(contains("a.version"), eq(Number.class))).thenReturn(versionQuery);
+        when(accountQuery.setParameter(anyString(), eq(1L))).thenReturn(accountQuery);
+        when(versionQuery.setParameter(anyString(), eq(1L))).thenReturn(versionQuery);
+        when(em.createQuery(contains("BalanceJournalEntry"), eq(Object[].class))).thenReturn(journalQuery);
+        when(journalQuery.setParameter(anyString(), eq(1L))).thenReturn(journalQuery);
+        when(journalQuery.getSingleResult()).thenReturn(new Object[] {0L, null});
+    }
+
+    @AfterEach
+    public void tearDown() {
+        accountSummaryCache.destroy();
+    }
+
+    @Test
+    public void testSummaryServedWhileVersionUnchanged() {
+        when(accountQuery.getResultList()).thenReturn(Collections.singletonList(createAccount(3L)));
+        when(versionQuery.getResultList()).thenReturn(Collections.<Number>singletonList(3L));
+
+        AccountDTO first = accountSummaryCache.getAccountSummary(1L);
+        AccountDTO second = accountSummaryCache.getAccountSummary(1L);
+
+        assertSame(first, second);
+        assertEquals("First Last", second.getUserName());
+        verify(accountQuery, times(1)).getResultList();
+        verify(versionQuery, times(1)).getResultList();
+    }
+
+    @Test
+    public void testSummaryReloadedWhenVersionChanges() {
+        when(accountQuery.getResultList())
+                .thenReturn(Collections.singletonList(createAccount(3L)))
+                .thenReturn(Collections.singletonList(createAccount(4L)));
+        when(versionQuery.getResultList()).thenReturn(Collections.<Number>singletonList(4L));
+
+        AccountDTO first = accountSummaryCache.getAccountSummary(1L);
+        AccountDTO second = accountSummaryCache.getAccountSummary(1L);
+
+        assertNotSame(first, second);
+        assertEquals(Long.valueOf(4L), second.getVersion());
+        verify(accountQuery, times(2)).getResultList();
+    }
+
+    @Test
+    public void testInvalidatedSummaryIsReloaded() {
+        when(accountQuery.getResultList()).thenReturn(Collections.singletonList(createAccount(3L)));
+
+        accountSummaryCache.getAccountSummary(1L);
+        accountSummaryCache.invalidate(1L);
+        accountSummaryCache.getAccountSummary(1L);
+
+        // Evicted entries are loaded again without a version check
+        verify(accountQuery, times(2)).getResultList();
+        verify(versionQuery, times(0)).getResultList();
+    }
+
+    @Test
+    public void testRemovedAccountIsNotServed() {
+        when(accountQuery.getResultList())
+                .thenReturn(Collections.singletonList(createAccount(3L)))
+                .thenReturn(Collections.emptyList());
+        when(versionQuery.getResultList()).thenReturn(Collections.emptyList());
+
+        accountSummaryCache.getAccountSummary(1L);
+
+        assertNull(accountSummaryCache.getAccountSummary(1L));
+    }
+
+    @Test
+    public void testStripedAccountSummaryIncludesPendingCredits() {
+        Account account = createAccount(3L);
+        account.setStripeCount(2);
+        when(accountQuery.getResultList()).thenReturn(Collections.singletonList(account));
+        when(em.createQuery(anyString(), eq(AccountBalanceStripe.class))).thenReturn(stripeQuery);
+        when(stripeQuery.setParameter(anyString(), any())).thenReturn(stripeQuery);
+        when(stripeQuery.getResultList()).thenReturn(Arrays.asList(stripe(4L, "12.50"), stripe(2L, "0.00")));
+
+        AccountDTO summary = accountSummaryCache.getAccountSummary(1L);
+
+        assertEquals(new BigDecimal("112.50"), summary.getBalance());
+        assertEquals(new BigDecimal("112.50"), summary.getAvailableBalance());
+        // The version matches the one the version check sums up
+        assertEquals(Long.valueOf(9L), summary.getVersion());
+
+        when(versionQuery.getResultList()).thenReturn(Collections.<Number>singletonList(new BigDecimal("9")));
+        assertSame(summary, accountSummaryCache.getAccountSummary(1L));
+    }
+
+    @Test
+    public void testSummaryIncludesPendingJournalEntries() {
+        when(accountQuery.getResultList()).thenReturn(Collections.singletonList(createAccount(3L)));
+        when(journalQuery.getSingleResult()).thenReturn(new Object[] {2L, new BigDecimal("7.25")});
+
+        AccountDTO summary = accountSummaryCache.getAccountSummary(1L);
+
+        assertEquals(new BigDecimal("107.25"), summary.getBalance());
+        assertEquals(new BigDecimal("107.25"), summary.getAvailableBalance());
+        // The version counts the pending entries, as the version check does
+        assertEquals(Long.valueOf(5L), summary.getVersion());
+
+        when(versionQuery.getResultList()).thenReturn(Collections.<Number>singletonList(5L));
+        assertSame(summary, accountSummaryCache.getAccountSummary(1L));
+    }
+
+    private static AccountBalanceStripe stripe(Long version, String amount) {
+        AccountBalanceStripe stripe = new AccountBalanceStripe();
+        stripe.setVersion(version);
+        stripe.setAmount(Money.of(new BigDecimal(amount)));
+        return stripe;
+    }
+
+    private Account createAccount(Long version) {
+        User user = new User();
+        user.setId(7L);
+        user.setFirstName("First");
+        user.setLastName("Last");
+
+        Account account = new Account();
+        account.setId(1L);
+        account.setVersion(version);
+        account.setAccountNumber("CHB0000001");
+        account.setType(Account.Type.CHECKING);
+        account.setStatus(Account.Status.ACTIVE);
+        account.setBalance(new BigDecimal("100.00"));
+        account.setAvailableBalance(new BigDecimal("100.00"));
+        account.setUser(user);
+        return account;
+    }
+}
@@ -0,0 +1,80 @@
+package com.imeth.chronobank.ejb.service.id;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the IdAllocator class.
+ */
+public class IdAllocatorTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement reserveStatement;
+
+    @Mock
+    private PreparedStatement readStatement;
+
+    @Mock
+    private ResultSet readResult;
+
+    @InjectMocks
+    private IdAllocator idAllocator;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(startsWith("UPDATE id_sequences"))).thenReturn(reserveStatement);
+        when(connection.prepareStatement(startsWith("SELECT next_val"))).thenReturn(readStatement);
+        when(readStatement.executeQuery()).thenReturn(readResult);
+    }
+
+    @Test
+    public void testAllocateReservesBlockEndingAtSequenceValue() throws SQLException {
+        when(reserveStatement.executeUpdate()).thenReturn(1);
+        when(readResult.next()).thenReturn(true);
+        when(readResult.getLong(1)).thenReturn(1500L);
+
+        IdBlock block = idAllocator.allocate(3);
+
+        verify(reserveStatement).setInt(1, 3);
+        verify(reserveStatement).setString(2, "entity_id");
+        assertEquals(3, block.remaining());
+        assertEquals(1498L, block.next());
+        assertEquals(1499L, block.next());
+        assertEquals(1500L, block.next());
+        assertFalse(block.hasNext());
+        assertThrows(NoSuchElementException.class, block::next);
+    }
+
+    @Test
+    public void testAllocateFailsWithoutSequenceRow() throws SQLException {
+        when(reserveStatement.executeUpdate()).thenReturn(0);
+
+        assertThrows(SQLException.class, () -> idAllocator.allocate(10));
+    }
+}
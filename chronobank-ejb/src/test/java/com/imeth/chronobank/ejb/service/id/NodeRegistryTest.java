@@ -0,0 +1,121 @@
+package com.imeth.chronobank.ejb.service.id;
+
+import com.imeth.chronobank.common.entity.ServerNode;
+import com.imeth.chronobank.common.util.ReferenceGenerator;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the NodeRegistry class.
+ */
+public class NodeRegistryTest {
+
+    @Mock
+    private EntityManager em;
+
+    @Mock
+    private TypedQuery<ServerNode> nodeQuery;
+
+    @Mock
+    private TypedQuery<String> referenceQuery;
+
+    @Mock
+    private TypedQuery<String> accountNumberQuery;
+
+    @InjectMocks
+    private NodeRegistry nodeRegistry;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+
+        Field instanceName = NodeRegistry.class.getDeclaredField("instanceName");
+        instanceName.setAccessible(true);
+        instanceName.set(nodeRegistry, "host-a/instance1");
+
+        when(em.createQuery(anyString(), eq(ServerNode.class))).thenReturn(nodeQuery);
+        when(em.createQuery(contains("FROM Transaction t"), eq(String.class))).thenReturn(referenceQuery);
+        when(em.createQuery(contains("FROM Account a"), eq(String.class))).thenReturn(accountNumberQuery);
+        when(referenceQuery.setParameter(anyString(), any())).thenReturn(referenceQuery);
+        when(accountNumberQuery.setParameter(anyString(), any())).thenReturn(accountNumberQuery);
+        when(nodeQuery.getResultList()).thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    public void testStartupSeedsTheGeneratorsWithTheHighestIssuedValues() {
+        // The highest values issued before a restart may lie ahead of the clock
+        String highestReference = ReferenceGenerator.transactionReferenceCeiling();
+        String highestAccountNumber = ReferenceGenerator.accountNumberCeiling();
+        when(referenceQuery.getSingleResult()).thenReturn(highestReference);
+        when(accountNumberQuery.getSingleResult()).thenReturn(highestAccountNumber);
+
+        nodeRegistry.register();
+
+        verify(referenceQuery).setParameter("ceiling", highestReference);
+        assertTrue(ReferenceGenerator.newTransactionReference().compareTo(highestReference) > 0);
+        assertTrue(ReferenceGenerator.newAccountNumber().compareTo(highestAccountNumber) > 0);
+
+        ArgumentCaptor<ServerNode> node = ArgumentCaptor.forClass(ServerNode.class);
+        verify(em).persist(node.capture());
+        assertEquals("host-a/instance1", node.getValue().getInstanceName());
+        assertEquals(ReferenceGenerator.nodeId(), node.getValue().getNodeId());
+    }
+
+    @Test
+    public void testStartupFailsWhileAnotherInstanceUsesTheSameNodeId() {
+        ServerNode other = node("host-b/instance1", ReferenceGenerator.nodeId(), LocalDateTime.now().minusMinutes(1));
+        when(nodeQuery.getResultList()).thenReturn(Collections.singletonList(other));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> nodeRegistry.register());
+        assertTrue(e.getMessage().contains("host-b/instance1"), e.getMessage());
+        verify(em, never()).persist(any());
+        verify(referenceQuery, never()).getSingleResult();
+    }
+
+    @Test
+    public void testStoppedInstancesAndOtherNodeIdsDoNotBlockStartup() {
+        ServerNode self = node("host-a/instance1", ReferenceGenerator.nodeId(), LocalDateTime.now().minusHours(2));
+        ServerNode stopped = node("host-b/instance1", ReferenceGenerator.nodeId(),
+                LocalDateTime.now().minusMinutes(NodeRegistry.LEASE_MINUTES + 1));
+        ServerNode otherNode = node("host-c/instance1", ReferenceGenerator.nodeId() + 1, LocalDateTime.now());
+        when(nodeQuery.getResultList()).thenReturn(Arrays.asList(self, stopped, otherNode));
+
+        nodeRegistry.register();
+
+        // The row left by this instance's previous run is reused
+        verify(em, never()).persist(any());
+        assertTrue(self.getLastSeen().isAfter(LocalDateTime.now().minusMinutes(1)));
+    }
+
+    private static ServerNode node(String instanceName, long nodeId, LocalDateTime lastSeen) {
+        ServerNode node = new ServerNode();
+        node.setInstanceName(instanceName);
+        node.setNodeId((int) nodeId);
+        node.setLastSeen(lastSeen);
+        return node;
+    }
+}
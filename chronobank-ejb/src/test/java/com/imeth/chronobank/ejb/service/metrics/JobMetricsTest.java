@@ -0,0 +1,130 @@
+package com.imeth.chronobank.ejb.service.metrics;
+
+import com.imeth.chronobank.common.entity.JobRun;
+import com.imeth.chronobank.ejb.service.id.IdAllocator;
+import com.imeth.chronobank.ejb.service.id.IdBlock;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the JobMetrics class.
+ */
+public class JobMetricsTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement insertStatement;
+
+    @Mock
+    private IdAllocator idAllocator;
+
+    @InjectMocks
+    private JobMetrics jobMetrics;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(startsWith("INSERT INTO job_runs"))).thenReturn(insertStatement);
+        when(idAllocator.allocate(1)).thenReturn(new IdBlock(301L, 1), new IdBlock(302L, 1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jobMetrics.destroy();
+    }
+
+    @Test
+    public void testFinishedRunIsInsertedIntoHistory() throws SQLException {
+        JobRunRecorder run = new JobRunRecorder("testJob", 60_000L);
+        run.itemCompleted(2_000_000L);
+        run.itemsCompleted(10, 0, 10_000_000L);
+
+        JobRun summary = jobMetrics.finished(run);
+
+        assertEquals(301L, summary.getId());
+        assertEquals(11L, summary.getItemsProcessed());
+        assertEquals(JobRun.Status.SUCCEEDED, summary.getStatus());
+        assertTrue(summary.getMaxItemMicros() >= 2_000L);
+        verify(insertStatement).setLong(1, 301L);
+        verify(insertStatement).setString(2, "testJob");
+        verify(insertStatement).setLong(6, 11L);
+        verify(insertStatement).setString(12, "SUCCEEDED");
+        verify(insertStatement).executeUpdate();
+    }
+
+    @Test
+    public void testStatusFollowsFailures() {
+        JobRunRecorder partial = new JobRunRecorder("partialJob", 60_000L);
+        partial.itemCompleted(1_000L);
+        partial.itemFailed(1_000L);
+        assertEquals(JobRun.Status.PARTIAL, jobMetrics.finished(partial).getStatus());
+
+        JobRunRecorder failed = new JobRunRecorder("failedJob", 60_000L);
+        failed.itemCompleted(1_000L);
+        failed.failed(new IllegalStateException("boom"));
+        JobRun summary = jobMetrics.finished(failed);
+        assertEquals(JobRun.Status.FAILED, summary.getStatus());
+        assertTrue(summary.getError().contains("boom"));
+    }
+
+    @Test
+    public void testStatisticsTrackRunInProgressAndLastRun() {
+        JobRunRecorder run = new JobRunRecorder("statsJob", 60_000L);
+        jobMetrics.started(run);
+        run.itemCompleted(1_000L);
+
+        List<JobStatistics> statistics = jobMetrics.getStatistics();
+        assertEquals(1, statistics.size());
+        JobStatistics stats = statistics.get(0);
+        assertTrue(stats.isRunning());
+        assertEquals(1L, stats.getCurrentItemsProcessed());
+        assertNull(stats.getLastStatus());
+
+        jobMetrics.finished(run);
+
+        assertFalse(stats.isRunning());
+        assertEquals(1L, stats.getRunCount());
+        assertEquals(0L, stats.getFailedRunCount());
+        assertEquals("SUCCEEDED", stats.getLastStatus());
+        assertEquals(1L, stats.getLastItemsProcessed());
+    }
+
+    @Test
+    public void testHistoryFailureDoesNotFailJob() throws SQLException {
+        when(insertStatement.executeUpdate()).thenThrow(new SQLException("table is locked"));
+
+        JobRunRecorder run = new JobRunRecorder("testJob", 60_000L);
+        run.itemCompleted(1_000L);
+        JobRun summary = jobMetrics.finished(run);
+
+        // The run is still summarized and counted
+        assertEquals(JobRun.Status.SUCCEEDED, summary.getStatus());
+        assertEquals(1L, jobMetrics.getStatistics().get(0).getRunCount());
+    }
+}
@@ -0,0 +1,61 @@
+package com.imeth.chronobank.ejb.service.metrics;
+
+import org.eclipse.persistence.internal.databaseaccess.DatabaseCall;
+import org.eclipse.persistence.sessions.SessionEvent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the StatementTracker class.
+ */
+public class StatementTrackerTest {
+
+    private final StatementTrackingListener tracker = new StatementTrackingListener();
+
+    @AfterEach
+    public void tearDown() {
+        StatementTracker.end();
+    }
+
+    @Test
+    public void testStatementsAreRecordedOnlyWhileTracking() {
+        tracker.preExecuteCall(event("SELECT 1"));
+
+        StatementTracker.begin();
+        tracker.preExecuteCall(event("SELECT ID FROM accounts WHERE ID = ?"));
+        tracker.preExecuteCall(event("SELECT ID FROM users WHERE ID = ?"));
+        StatementLog log = StatementTracker.end();
+
+        assertEquals(2, log.getCount());
+        assertEquals("SELECT ID FROM accounts WHERE ID = ?", log.getStatements().get(0));
+
+        // Tracking stops with end()
+        tracker.preExecuteCall(event("SELECT 1"));
+        assertEquals(0, StatementTracker.end().getCount());
+    }
+
+    @Test
+    public void testOnlyTheFirstStatementsAreKept() {
+        StatementTracker.begin();
+        for (int i = 0; i < StatementLog.MAX_STATEMENTS + 25; i++) {
+            tracker.preExecuteCall(event("SELECT " + i));
+        }
+        StatementLog log = StatementTracker.end();
+
+        assertEquals(StatementLog.MAX_STATEMENTS + 25, log.getCount());
+        assertEquals(StatementLog.MAX_STATEMENTS, log.getStatements().size());
+    }
+
+    private static SessionEvent event(String sql) {
+        DatabaseCall call = mock(DatabaseCall.class);
+        when(call.getSQLString()).thenReturn(sql);
+        SessionEvent event = mock(SessionEvent.class);
+        when(event.getCall()).thenReturn(call);
+        return event;
+    }
+}
@@ -0,0 +1,146 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+import com.imeth.chronobank.ejb.service.transfer.TransferEngine;
+
+import jakarta.ejb.SessionContext;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PessimisticLockException;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the BalanceJournalChunkProcessor class.
+ */
+public class BalanceJournalChunkProcessorTest {
+
+    @Mock
+    private EntityManager em;
+
+    @Mock
+    private SessionContext sessionContext;
+
+    @Mock
+    private AccountSummaryCache accountSummaryCache;
+
+    @Mock
+    private TransferEngine transferEngine;
+
+    @Mock
+    private TypedQuery<Object[]> pendingQuery;
+
+    @Mock
+    private TypedQuery<Object[]> entryQuery;
+
+    @Mock
+    private Query foldQuery;
+
+    @Mock
+    private Query deleteQuery;
+
+    @InjectMocks
+    private BalanceJournalChunkProcessor processor;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(em.createQuery(contains("ORDER BY j.id"), eq(Object[].class))).thenReturn(pendingQuery);
+        when(pendingQuery.setParameter(anyString(), any())).thenReturn(pendingQuery);
+        when(pendingQuery.setMaxResults(anyInt())).thenReturn(pendingQuery);
+
+        when(em.createQuery(contains("j.delta"), eq(Object[].class))).thenReturn(entryQuery);
+        when(entryQuery.setParameter(anyString(), any())).thenReturn(entryQuery);
+        when(entryQuery.setLockMode(any())).thenReturn(entryQuery);
+
+        when(em.createNativeQuery(contains("UPDATE accounts"))).thenReturn(foldQuery);
+        when(foldQuery.setParameter(anyInt(), any())).thenReturn(foldQuery);
+        when(em.createQuery(contains("DELETE"))).thenReturn(deleteQuery);
+        when(deleteQuery.setParameter(anyString(), any())).thenReturn(deleteQuery);
+    }
+
+    @Test
+    public void testEntriesAreFoldedPerAccount() {
+        when(pendingQuery.getResultList()).thenReturn(Arrays.asList(
+                new Object[] {21L, 7L}, new Object[] {22L, 3L}, new Object[] {23L, 7L}));
+        // Entry 22 was compacted by another run before its account was locked
+        when(entryQuery.getResultList()).thenReturn(Arrays.asList(
+                new Object[] {21L, 7L, money("10.00")}, new Object[] {23L, 7L, money("2.50")}));
+
+        JournalChunkResult result = processor.compactChunk(20L, 3);
+
+        // Accounts are locked in id order before their entries
+        InOrder order = inOrder(transferEngine, entryQuery);
+        order.verify(transferEngine).lockAccounts(new TreeSet<>(Arrays.asList(3L, 7L)));
+        order.verify(entryQuery).setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        order.verify(entryQuery).getResultList();
+
+        verify(em, times(1)).createNativeQuery(anyString());
+        verify(foldQuery).setParameter(1, new BigDecimal("12.50"));
+        verify(foldQuery).setParameter(3, 2);
+        verify(foldQuery).setParameter(5, 7L);
+        verify(deleteQuery).setParameter("ids", Arrays.asList(21L, 23L));
+        verify(accountSummaryCache).invalidateAll(Collections.singleton(7L));
+
+        assertEquals(23L, result.getLastEntryId());
+        assertEquals(1, result.getAccountsCompacted());
+        assertEquals(2, result.getEntriesCompacted());
+        assertFalse(result.isFailed());
+    }
+
+    @Test
+    public void testEmptyJournal() {
+        when(pendingQuery.getResultList()).thenReturn(Collections.emptyList());
+
+        JournalChunkResult result = processor.compactChunk(40L, 100);
+
+        verify(transferEngine, never()).lockAccounts(any());
+        assertEquals(40L, result.getLastEntryId());
+        assertEquals(0, result.getEntriesCompacted());
+    }
+
+    @Test
+    public void testLockFailureRollsBackTheChunk() {
+        when(pendingQuery.getResultList()).thenReturn(Collections.singletonList(new Object[] {31L, 7L}));
+        when(transferEngine.lockAccounts(any())).thenThrow(new PessimisticLockException("lock wait timeout"));
+
+        JournalChunkResult result = processor.compactChunk(30L, 100);
+
+        verify(sessionContext).setRollbackOnly();
+        verify(deleteQuery, never()).executeUpdate();
+        assertEquals(31L, result.getLastEntryId());
+        assertTrue(result.isFailed());
+    }
+
+    private static Money money(String amount) {
+        return Money.of(new BigDecimal(amount));
+    }
+}
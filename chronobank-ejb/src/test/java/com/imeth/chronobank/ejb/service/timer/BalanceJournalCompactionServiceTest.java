@@ -0,0 +1,83 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+import com.imeth.chronobank.ejb.service.metrics.JobRunRecorder;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the BalanceJournalCompactionService class.
+ */
+public class BalanceJournalCompactionServiceTest {
+
+    @Mock
+    private BalanceJournalChunkProcessor chunkProcessor;
+
+    @Mock
+    private JobMetrics jobMetrics;
+
+    @InjectMocks
+    private BalanceJournalCompactionService compactionService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testChunksAreCompactedUntilTheJournalIsDrained() {
+        when(chunkProcessor.findLastEntryId()).thenReturn(1040L);
+        when(chunkProcessor.compactChunk(anyLong(), anyInt())).thenReturn(JournalChunkResult.empty(0L));
+        when(chunkProcessor.compactChunk(0L, 500)).thenReturn(new JournalChunkResult(500L, 12, 500, false));
+        // A failed chunk is skipped rather than ending the run
+        when(chunkProcessor.compactChunk(500L, 500)).thenReturn(new JournalChunkResult(1000L, 0, 0, true));
+        when(chunkProcessor.compactChunk(1000L, 500)).thenReturn(new JournalChunkResult(1040L, 3, 40, false));
+        when(chunkProcessor.compactChunk(1040L, 500)).thenReturn(JournalChunkResult.empty(1040L));
+
+        compactionService.compactBalanceJournal();
+
+        verify(chunkProcessor, times(3)).compactChunk(anyLong(), anyInt());
+        ArgumentCaptor<JobRunRecorder> run = ArgumentCaptor.forClass(JobRunRecorder.class);
+        verify(jobMetrics).finished(run.capture());
+        assertEquals(3L, run.getValue().getItemsProcessed());
+        assertEquals(1L, run.getValue().getItemsFailed());
+    }
+
+    @Test
+    public void testRunStopsAtTheLastEntryPresentWhenItStarted() {
+        when(chunkProcessor.findLastEntryId()).thenReturn(800L);
+        when(chunkProcessor.compactChunk(0L, 500)).thenReturn(new JournalChunkResult(500L, 4, 500, false));
+        // Entries keep being appended while the run goes on
+        when(chunkProcessor.compactChunk(500L, 500)).thenReturn(new JournalChunkResult(1000L, 6, 500, false));
+        when(chunkProcessor.compactChunk(1000L, 500)).thenReturn(new JournalChunkResult(1500L, 5, 500, false));
+
+        compactionService.compactBalanceJournal();
+
+        verify(chunkProcessor, times(2)).compactChunk(anyLong(), anyInt());
+        verify(chunkProcessor, never()).compactChunk(1000L, 500);
+    }
+
+    @Test
+    public void testEmptyJournalCompactsNothing() {
+        when(chunkProcessor.findLastEntryId()).thenReturn(null);
+
+        compactionService.compactBalanceJournal();
+
+        verify(chunkProcessor, never()).compactChunk(anyLong(), anyInt());
+        verify(jobMetrics).finished(any());
+    }
+}
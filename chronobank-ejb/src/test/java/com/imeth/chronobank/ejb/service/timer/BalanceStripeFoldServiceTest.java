@@ -0,0 +1,71 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+import com.imeth.chronobank.ejb.service.metrics.JobRunRecorder;
+import com.imeth.chronobank.ejb.service.transfer.TransferEngine;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PessimisticLockException;
+import jakarta.persistence.TypedQuery;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the BalanceStripeFoldService class.
+ */
+public class BalanceStripeFoldServiceTest {
+
+    @Mock
+    private EntityManager em;
+
+    @Mock
+    private TypedQuery<Long> accountIdQuery;
+
+    @Mock
+    private TransferEngine transferEngine;
+
+    @Mock
+    private JobMetrics jobMetrics;
+
+    @InjectMocks
+    private BalanceStripeFoldService foldService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(em.createQuery(anyString(), eq(Long.class))).thenReturn(accountIdQuery);
+    }
+
+    @Test
+    public void testEachStripedAccountIsFolded() {
+        when(accountIdQuery.getResultList()).thenReturn(Arrays.asList(3L, 7L, 9L));
+        when(transferEngine.foldStripes(3L)).thenReturn(Money.ofMinor(1250L));
+        when(transferEngine.foldStripes(7L)).thenThrow(new PessimisticLockException("lock wait timeout"));
+        when(transferEngine.foldStripes(9L)).thenReturn(Money.ZERO);
+
+        foldService.foldBalanceStripes();
+
+        // A failed account does not stop the others
+        verify(transferEngine).foldStripes(9L);
+
+        ArgumentCaptor<JobRunRecorder> run = ArgumentCaptor.forClass(JobRunRecorder.class);
+        verify(jobMetrics).finished(run.capture());
+        assertEquals(3L, run.getValue().getItemsProcessed());
+        assertEquals(1L, run.getValue().getItemsFailed());
+    }
+}
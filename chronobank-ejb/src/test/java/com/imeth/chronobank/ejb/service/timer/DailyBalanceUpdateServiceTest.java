@@ -0,0 +1,322 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.BalanceCheckpoint;
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.ejb.service.id.IdAllocator;
+import com.imeth.chronobank.ejb.service.id.IdBlock;
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+import com.imeth.chronobank.ejb.service.metrics.JobRunRecorder;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the DailyBalanceUpdateService class.
+ */
+public class DailyBalanceUpdateServiceTest {
+
+    @Mock
+    private EntityManager em;
+
+    @Mock
+    private TypedQuery<BalanceCheckpoint> checkpointQuery;
+
+    @Mock
+    private TypedQuery<BigDecimal> movementQuery;
+
+    @Mock
+    private TypedQuery<BigDecimal> unsettledQuery;
+
+    @Mock
+    private TypedQuery<Money> journalQuery;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement checkpointStatement;
+
+    @Mock
+    private PreparedStatement movementStatement;
+
+    @Mock
+    private PreparedStatement accountStatement;
+
+    @Mock
+    private PreparedStatement updateStatement;
+
+    @Mock
+    private PreparedStatement insertStatement;
+
+    @Mock
+    private ResultSet checkpointResult;
+
+    @Mock
+    private ResultSet movementResult;
+
+    @Mock
+    private ResultSet accountResult;
+
+    @Mock
+    private IdAllocator idAllocator;
+
+    @Mock
+    private JobMetrics jobMetrics;
+
+    @InjectMocks
+    private DailyBalanceUpdateService dailyBalanceUpdateService;
+
+    private Account account;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        
+        account = new Account();
+        account.setId(7L);
+        account.setAccountNumber("CHB0000007");
+        account.setBalance(new BigDecimal("1000.00"));
+        account.setAvailableBalance(new BigDecimal("1000.00"));
+        when(em.find(Account.class, 7L)).thenReturn(account);
+        
+        // Mock queries
+        when(em.createQuery(anyString(), eq(BalanceCheckpoint.class))).thenReturn(checkpointQuery);
+        when(em.createQuery(anyString(), eq(BigDecimal.class))).thenReturn(movementQuery);
+        when(checkpointQuery.setParameter(anyString(), any())).thenReturn(checkpointQuery);
+        when(movementQuery.setParameter(anyString(), any())).thenReturn(movementQuery);
+        when(em.createQuery(contains("t.postedAt >= :coveredBefore"), eq(BigDecimal.class))).thenReturn(unsettledQuery);
+        when(unsettledQuery.setParameter(anyString(), any())).thenReturn(unsettledQuery);
+        when(checkpointQuery.getResultList()).thenReturn(Collections.emptyList());
+        when(em.createQuery(anyString(), eq(Money.class))).thenReturn(journalQuery);
+        when(journalQuery.setParameter(anyString(), any())).thenReturn(journalQuery);
+        when(journalQuery.getResultList()).thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    public void testFirstReconciliationCreatesCheckpoint() {
+        when(movementQuery.getSingleResult()).thenReturn(new BigDecimal("1000.00"));
+        
+        assertTrue(dailyBalanceUpdateService.manualBalanceUpdate(7L));
+        
+        // The full history is aggregated once
+        verify(em).createQuery(contains("t.postedAt IS NULL OR t.postedAt < :coveredBefore"), eq(BigDecimal.class));
+        verify(movementQuery, never()).setParameter(eq("coveredFrom"), any());
+        
+        ArgumentCaptor<BalanceCheckpoint> captor = ArgumentCaptor.forClass(BalanceCheckpoint.class);
+        verify(em).persist(captor.capture());
+        BalanceCheckpoint checkpoint = captor.getValue();
+        assertEquals(new BigDecimal("1000.00"), checkpoint.getVerifiedBalance());
+        assertEquals(new BigDecimal("1000.00"), checkpoint.getRecordedBalance());
+        assertNotNull(checkpoint.getCoveredBefore());
+        assertNotNull(checkpoint.getReconciledAt());
+    }
+
+    @Test
+    public void testRecordedBalanceIncludesPendingJournalEntries() {
+        when(movementQuery.getSingleResult()).thenReturn(new BigDecimal("1025.00"));
+        when(journalQuery.getResultList()).thenReturn(Arrays.asList(
+                Money.of(new BigDecimal("20.00")), Money.of(new BigDecimal("5.00"))));
+        
+        assertTrue(dailyBalanceUpdateService.manualBalanceUpdate(7L));
+        
+        ArgumentCaptor<BalanceCheckpoint> captor = ArgumentCaptor.forClass(BalanceCheckpoint.class);
+        verify(em).persist(captor.capture());
+        assertEquals(new BigDecimal("1025.00"), captor.getValue().getRecordedBalance());
+    }
+
+    @Test
+    public void testReconciliationOnlyAggregatesSinceCheckpoint() {
+        LocalDateTime previousRun = LocalDateTime.now().minusDays(1);
+        BalanceCheckpoint checkpoint = new BalanceCheckpoint();
+        checkpoint.setAccount(account);
+        checkpoint.setVerifiedBalance(new BigDecimal("900.00"));
+        checkpoint.setCoveredBefore(previousRun);
+        when(checkpointQuery.getResultList()).thenReturn(Collections.singletonList(checkpoint));
+        when(movementQuery.getSingleResult()).thenReturn(new BigDecimal("100.00"));
+        
+        dailyBalanceUpdateService.manualBalanceUpdate(7L);
+        
+        verify(em).createQuery(contains("t.postedAt >= :coveredFrom AND t.postedAt < :coveredBefore"), eq(BigDecimal.class));
+        verify(movementQuery).setParameter("coveredFrom", previousRun);
+        verify(em, never()).persist(any());
+        assertEquals(new BigDecimal("1000.00"), checkpoint.getVerifiedBalance());
+        assertTrue(checkpoint.getCoveredBefore().isAfter(previousRun));
+    }
+
+    @Test
+    public void testPostingWithinSettleLagIsNotADiscrepancy() {
+        BalanceCheckpoint checkpoint = new BalanceCheckpoint();
+        checkpoint.setAccount(account);
+        checkpoint.setVerifiedBalance(new BigDecimal("900.00"));
+        checkpoint.setCoveredBefore(LocalDateTime.now().minusDays(1));
+        when(checkpointQuery.getResultList()).thenReturn(Collections.singletonList(checkpoint));
+        when(movementQuery.getSingleResult()).thenReturn(new BigDecimal("100.00"));
+        
+        // A deposit of 50.00 posted a minute ago is already in the recorded balance
+        account.setBalance(new BigDecimal("1050.00"));
+        when(unsettledQuery.getSingleResult()).thenReturn(new BigDecimal("50.00"));
+        
+        assertTrue(dailyBalanceUpdateService.manualBalanceUpdate(7L));
+        
+        assertEquals(new BigDecimal("1000.00"), checkpoint.getVerifiedBalance());
+        assertEquals(new BigDecimal("1000.00"), checkpoint.getRecordedBalance());
+    }
+
+    @Test
+    public void testNoNewPostingsKeepsVerifiedBalance() {
+        BalanceCheckpoint checkpoint = new BalanceCheckpoint();
+        checkpoint.setAccount(account);
+        checkpoint.setVerifiedBalance(new BigDecimal("1000.00"));
+        checkpoint.setCoveredBefore(LocalDateTime.now().minusDays(1));
+        when(checkpointQuery.getResultList()).thenReturn(Collections.singletonList(checkpoint));
+        when(movementQuery.getSingleResult()).thenReturn(null);
+        
+        dailyBalanceUpdateService.manualBalanceUpdate(7L);
+        
+        assertEquals(new BigDecimal("1000.00"), checkpoint.getVerifiedBalance());
+        assertNotNull(checkpoint.getReconciledAt());
+    }
+
+    @Test
+    public void testNoTransactionsCreatesEmptyCheckpoint() {
+        when(movementQuery.getSingleResult()).thenReturn(null);
+        
+        dailyBalanceUpdateService.manualBalanceUpdate(7L);
+        
+        // The checkpoint records that nothing has been posted yet
+        ArgumentCaptor<BalanceCheckpoint> captor = ArgumentCaptor.forClass(BalanceCheckpoint.class);
+        verify(em).persist(captor.capture());
+        assertNull(captor.getValue().getVerifiedBalance());
+        assertNotNull(captor.getValue().getCoveredBefore());
+    }
+
+    @Test
+    public void testBulkReconciliation() throws SQLException {
+        Timestamp oldestCheckpoint = Timestamp.valueOf(LocalDateTime.now().minusDays(1));
+        mockBulkStatements(0L, oldestCheckpoint);
+        
+        // Ledger movements since the checkpoints, including one for an inactive account
+        when(movementResult.next()).thenReturn(true, true, false);
+        when(movementResult.getLong(1)).thenReturn(7L, 99L);
+        when(movementResult.getBigDecimal(2)).thenReturn(new BigDecimal("100.00"), new BigDecimal("5.00"));
+        
+        // Active accounts: one with a checkpoint and a discrepancy, one that has never had a posting
+        when(accountResult.next()).thenReturn(true, true, false);
+        when(accountResult.getLong(1)).thenReturn(7L, 8L);
+        when(accountResult.getBigDecimal(2)).thenReturn(new BigDecimal("1010.00"), new BigDecimal("50.00"));
+        when(accountResult.getLong(3)).thenReturn(3L, 0L);
+        when(accountResult.wasNull()).thenReturn(false, true);
+        when(accountResult.getBigDecimal(4)).thenReturn(new BigDecimal("900.00"), (BigDecimal) null);
+        
+        assertEquals(1, dailyBalanceUpdateService.reconcileAllAccounts());
+        
+        // Only postings since the oldest checkpoint are scanned, in one grouped query
+        verify(connection).prepareStatement(contains("t.posted_at >= ?"));
+        verify(movementStatement).setTimestamp(3, oldestCheckpoint);
+        verify(movementStatement, times(1)).executeQuery();
+        
+        // The existing checkpoint is updated and the missing one inserted, in batches
+        verify(updateStatement).setBigDecimal(1, new BigDecimal("1000.00"));
+        verify(updateStatement, times(1)).addBatch();
+        verify(insertStatement).setLong(1, 5001L);
+        verify(insertStatement).setLong(2, 8L);
+        verify(insertStatement).setBigDecimal(3, null);
+        verify(insertStatement, times(1)).addBatch();
+        verify(updateStatement).executeBatch();
+        verify(insertStatement).executeBatch();
+        
+        // The run is recorded once it finishes
+        verify(jobMetrics).started(any(JobRunRecorder.class));
+        verify(jobMetrics).finished(any(JobRunRecorder.class));
+    }
+
+    @Test
+    public void testBulkReconciliationIgnoresPostingsWithinSettleLag() throws SQLException {
+        mockBulkStatements(0L, Timestamp.valueOf(LocalDateTime.now().minusDays(1)));
+        
+        // 100.00 posted since the checkpoint, and 60.00 posted a minute ago
+        when(movementResult.next()).thenReturn(true, false);
+        when(movementResult.getLong(1)).thenReturn(7L);
+        when(movementResult.getBigDecimal(2)).thenReturn(new BigDecimal("100.00"));
+        when(movementResult.getBigDecimal(3)).thenReturn(new BigDecimal("60.00"));
+        
+        when(accountResult.next()).thenReturn(true, false);
+        when(accountResult.getLong(1)).thenReturn(7L);
+        when(accountResult.getBigDecimal(2)).thenReturn(new BigDecimal("1060.00"));
+        when(accountResult.getLong(3)).thenReturn(3L);
+        when(accountResult.wasNull()).thenReturn(false);
+        when(accountResult.getBigDecimal(4)).thenReturn(new BigDecimal("900.00"));
+        
+        assertEquals(0, dailyBalanceUpdateService.reconcileAllAccounts());
+        
+        // The checkpoint stops at the cutoff, on both sides
+        verify(updateStatement).setBigDecimal(1, new BigDecimal("1000.00"));
+        verify(updateStatement).setBigDecimal(2, new BigDecimal("1000.00"));
+    }
+
+    @Test
+    public void testBulkReconciliationScansFullHistoryForNewAccounts() throws SQLException {
+        mockBulkStatements(2L, null);
+        when(movementResult.next()).thenReturn(false);
+        when(accountResult.next()).thenReturn(false);
+        
+        assertEquals(0, dailyBalanceUpdateService.reconcileAllAccounts());
+        
+        verify(connection, never()).prepareStatement(contains("t.posted_at >= ?"));
+        verify(movementStatement, never()).setTimestamp(eq(3), any());
+    }
+    
+    private void mockBulkStatements(long accountsWithoutCheckpoint, Timestamp oldestCheckpoint) throws SQLException {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(idAllocator.allocate(anyInt())).thenAnswer(invocation -> new IdBlock(5001L, invocation.getArgument(0)));
+        when(connection.prepareStatement(contains("MIN(c.covered_before)"))).thenReturn(checkpointStatement);
+        when(connection.prepareStatement(contains("UNION ALL"))).thenReturn(movementStatement);
+        when(connection.prepareStatement(contains("a.id > ?"))).thenReturn(accountStatement);
+        when(connection.prepareStatement(contains("UPDATE balance_checkpoints"))).thenReturn(updateStatement);
+        when(connection.prepareStatement(contains("INSERT INTO balance_checkpoints"))).thenReturn(insertStatement);
+        
+        when(checkpointStatement.executeQuery()).thenReturn(checkpointResult);
+        when(checkpointResult.next()).thenReturn(true);
+        when(checkpointResult.getLong(1)).thenReturn(accountsWithoutCheckpoint);
+        when(checkpointResult.getTimestamp(2)).thenReturn(oldestCheckpoint);
+        
+        when(movementStatement.executeQuery()).thenReturn(movementResult);
+        when(accountStatement.executeQuery()).thenReturn(accountResult);
+    }
+}
@@ -0,0 +1,158 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.AccountBalanceStripe;
+import com.imeth.chronobank.common.entity.BalanceJournalEntry;
+import com.imeth.chronobank.common.entity.User;
+import com.imeth.chronobank.common.util.Money;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for the DailyReportExporter class, run against an in-memory database.
+ */
+public class DailyReportExporterTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 3, 14);
+
+    private static EntityManagerFactory emf;
+
+    private static User owner;
+
+    private EntityManager em;
+
+    private DailyReportExporter exporter;
+
+    @TempDir
+    Path reportDirectory;
+
+    @BeforeAll
+    public static void createDatabase() {
+        emf = Persistence.createEntityManagerFactory("ChronoBankEjbTestPU");
+
+        EntityManager setup = emf.createEntityManager();
+        setup.getTransaction().begin();
+        owner = new User();
+        owner.setUsername("reported");
+        owner.setPasswordHash("hash");
+        owner.setFirstName("Report");
+        owner.setLastName("Owner");
+        owner.setEmail("owner@example.com");
+        owner.setRole(User.Role.CUSTOMER);
+        setup.persist(owner);
+        setup.getTransaction().commit();
+        setup.close();
+    }
+
+    @AfterAll
+    public static void closeDatabase() {
+        emf.close();
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        em = emf.createEntityManager();
+        exporter = new DailyReportExporter();
+        Field entityManager = DailyReportExporter.class.getDeclaredField("em");
+        entityManager.setAccessible(true);
+        entityManager.set(exporter, em);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        em.getTransaction().begin();
+        em.createQuery("DELETE FROM AccountBalanceStripe s").executeUpdate();
+        em.createQuery("DELETE FROM BalanceJournalEntry j").executeUpdate();
+        em.createQuery("DELETE FROM Account a").executeUpdate();
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @Test
+    public void testBalanceReportIncludesCreditsPendingInStripes() throws Exception {
+        em.getTransaction().begin();
+        Account plain = account("CHB0000001", "100.00");
+        Account striped = account("CHB0000002", "250.00");
+        striped.setStripeCount(2);
+        stripe(striped, 0, "10.25");
+        stripe(striped, 1, "4.75");
+        em.getTransaction().commit();
+
+        ReportFileResult result = exporter.exportAccountBalanceReport(DATE, reportDirectory.toString(), false);
+
+        List<String> lines = Files.readAllLines(Paths.get(result.getFileName()));
+        assertEquals(3, lines.size(), lines.toString());
+        assertEquals(plain.getId() + ",CHB0000001,SAVINGS,100.00,100.00,ACTIVE,Report Owner,owner@example.com",
+                lines.get(1));
+        assertEquals(striped.getId() + ",CHB0000002,SAVINGS,265.00,265.00,ACTIVE,Report Owner,owner@example.com",
+                lines.get(2));
+    }
+
+    @Test
+    public void testBalanceReportIncludesCreditsPendingInTheJournal() throws Exception {
+        em.getTransaction().begin();
+        Account journaled = account("CHB0000003", "40.00");
+        journal(journaled, "12.30", "TXN-1");
+        journal(journaled, "0.70", "TXN-2");
+        Account striped = account("CHB0000004", "5.00");
+        striped.setStripeCount(2);
+        stripe(striped, 1, "1.00");
+        journal(striped, "2.00", "TXN-3");
+        em.getTransaction().commit();
+
+        ReportFileResult result = exporter.exportAccountBalanceReport(DATE, reportDirectory.toString(), false);
+
+        List<String> lines = Files.readAllLines(Paths.get(result.getFileName()));
+        assertEquals(3, lines.size(), lines.toString());
+        assertEquals(journaled.getId() + ",CHB0000003,SAVINGS,53.00,53.00,ACTIVE,Report Owner,owner@example.com",
+                lines.get(1));
+        assertEquals(striped.getId() + ",CHB0000004,SAVINGS,8.00,8.00,ACTIVE,Report Owner,owner@example.com",
+                lines.get(2));
+    }
+
+    private Account account(String accountNumber, String balance) {
+        Account account = new Account();
+        account.setAccountNumber(accountNumber);
+        account.setType(Account.Type.SAVINGS);
+        account.setBalance(new BigDecimal(balance));
+        account.setAvailableBalance(new BigDecimal(balance));
+        account.setUser(em.find(User.class, owner.getId()));
+        em.persist(account);
+        return account;
+    }
+
+    private void stripe(Account account, int index, String amount) {
+        AccountBalanceStripe stripe = new AccountBalanceStripe();
+        stripe.setAccount(account);
+        stripe.setStripe(index);
+        stripe.setAmount(Money.of(new BigDecimal(amount)));
+        em.persist(stripe);
+    }
+
+    private void journal(Account account, String delta, String reference) {
+        BalanceJournalEntry entry = new BalanceJournalEntry();
+        entry.setAccount(account);
+        entry.setDelta(Money.of(new BigDecimal(delta)));
+        entry.setReference(reference);
+        em.persist(entry);
+    }
+}
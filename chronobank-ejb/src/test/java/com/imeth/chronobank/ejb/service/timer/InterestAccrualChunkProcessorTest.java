@@ -0,0 +1,199 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+import com.imeth.chronobank.ejb.service.id.IdAllocator;
+import com.imeth.chronobank.ejb.service.id.IdBlock;
+
+import jakarta.ejb.SessionContext;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the InterestAccrualChunkProcessor class.
+ */
+public class InterestAccrualChunkProcessorTest {
+
+    @Mock
+    private EntityManager em;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private SessionContext sessionContext;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement updateStatement;
+
+    @Mock
+    private PreparedStatement insertStatement;
+
+    @Mock
+    private PreparedStatement journalStatement;
+
+    @Mock
+    private TypedQuery<Object[]> accountQuery;
+
+    @Mock
+    private AccountSummaryCache accountSummaryCache;
+
+    @Mock
+    private IdAllocator idAllocator;
+
+    @InjectMocks
+    private InterestAccrualChunkProcessor processor;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        
+        when(em.createQuery(anyString(), eq(Object[].class))).thenReturn(accountQuery);
+        when(accountQuery.setParameter(anyString(), any())).thenReturn(accountQuery);
+        when(accountQuery.setMaxResults(anyInt())).thenReturn(accountQuery);
+        
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(contains("UPDATE accounts"))).thenReturn(updateStatement);
+        when(connection.prepareStatement(contains("INSERT INTO transactions"))).thenReturn(insertStatement);
+        when(connection.prepareStatement(contains("INSERT INTO balance_journal"))).thenReturn(journalStatement);
+        when(idAllocator.allocate(anyInt())).thenAnswer(invocation -> new IdBlock(9001L, invocation.getArgument(0)));
+    }
+
+    @Test
+    public void testAccrueChunk() throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(createAccountRow(11L, new BigDecimal("1000.00"), new BigDecimal("0.05")));
+        rows.add(createAccountRow(12L, new BigDecimal("5000.00"), new BigDecimal("0.07")));
+        when(accountQuery.getResultList()).thenReturn(rows);
+        when(updateStatement.executeBatch()).thenReturn(new int[] {1, 1});
+        
+        AccrualChunkResult result = processor.accrueChunk(10L, 100L, 2);
+        
+        // Verify that balances and transactions were written in one batch each
+        verify(updateStatement, times(2)).addBatch();
+        verify(updateStatement, times(1)).executeBatch();
+        verify(insertStatement, times(2)).addBatch();
+        verify(insertStatement, times(1)).executeBatch();
+        // Transaction ids come from one reserved block
+        verify(idAllocator, times(1)).allocate(2);
+        verify(insertStatement).setLong(1, 9001L);
+        verify(insertStatement).setLong(1, 9002L);
+        verify(em).clear();
+        
+        assertEquals(12L, result.getLastAccountId());
+        assertEquals(2, result.getAccountsScanned());
+        assertEquals(2, result.getAccountsCredited());
+        assertEquals(0, result.getAccountsFailed());
+        assertEquals(new BigDecimal("1.10"), result.getTotalInterest());
+    }
+
+    @Test
+    public void testAccrueChunkSkipsConcurrentlyModifiedAccount() throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(createAccountRow(11L, new BigDecimal("1000.00"), new BigDecimal("0.05")));
+        rows.add(createAccountRow(12L, new BigDecimal("5000.00"), new BigDecimal("0.07")));
+        when(accountQuery.getResultList()).thenReturn(rows);
+        when(updateStatement.executeBatch()).thenReturn(new int[] {1, 0});
+        
+        AccrualChunkResult result = processor.accrueChunk(10L, 100L, 2);
+        
+        verify(insertStatement, times(1)).addBatch();
+        // Only the credited account's cached summary is evicted
+        verify(accountSummaryCache).invalidateAll(Collections.singletonList(11L));
+        assertEquals(1, result.getAccountsCredited());
+        assertEquals(1, result.getAccountsFailed());
+    }
+
+    @Test
+    public void testAccrueChunkRollsBackOnBatchFailure() throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(createAccountRow(11L, new BigDecimal("1000.00"), new BigDecimal("0.05")));
+        when(accountQuery.getResultList()).thenReturn(rows);
+        when(updateStatement.executeBatch()).thenThrow(new SQLException("Lock wait timeout"));
+        
+        AccrualChunkResult result = processor.accrueChunk(10L, 100L, 1);
+        
+        verify(sessionContext).setRollbackOnly();
+        assertEquals(11L, result.getLastAccountId());
+        assertEquals(1, result.getAccountsFailed());
+    }
+
+    @Test
+    public void testAccrueChunkEmpty() throws SQLException {
+        when(accountQuery.getResultList()).thenReturn(Collections.emptyList());
+        
+        AccrualChunkResult result = processor.accrueChunk(42L, 100L, 100);
+        
+        verify(dataSource, never()).getConnection();
+        assertEquals(42L, result.getLastAccountId());
+        assertEquals(0, result.getAccountsScanned());
+    }
+
+    @Test
+    public void testAccrueChunkAppendsToBalanceJournal() throws Exception {
+        Field balanceJournal = InterestAccrualChunkProcessor.class.getDeclaredField("balanceJournal");
+        balanceJournal.setAccessible(true);
+        balanceJournal.set(processor, Boolean.TRUE);
+        List<Object[]> rows = new ArrayList<>();
+        // 600.00 of the balance is still pending in the journal
+        rows.add(new Object[] {11L, 1L, Money.of(new BigDecimal("400.00")), new BigDecimal("0.05"),
+                new BigDecimal("600.00")});
+        rows.add(new Object[] {12L, 1L, Money.of(new BigDecimal("5000.00")), new BigDecimal("0.07"), null});
+        when(accountQuery.getResultList()).thenReturn(rows);
+        
+        AccrualChunkResult result = processor.accrueChunk(10L, 100L, 2);
+        
+        // The accounts are not updated; the interest goes to the journal
+        verify(em).createQuery(contains("BalanceJournalEntry"), eq(Object[].class));
+        verify(connection, never()).prepareStatement(contains("UPDATE accounts"));
+        verify(journalStatement).setBigDecimal(3, new BigDecimal("0.14"));
+        verify(journalStatement).setBigDecimal(3, new BigDecimal("0.96"));
+        verify(journalStatement, times(1)).executeBatch();
+        verify(insertStatement, times(2)).addBatch();
+        assertEquals(2, result.getAccountsCredited());
+        assertEquals(new BigDecimal("1.10"), result.getTotalInterest());
+    }
+
+    @Test
+    public void testDailyInterest() {
+        assertEquals(Money.of(new BigDecimal("0.14")), InterestAccrualChunkProcessor.dailyInterest(
+                Money.of(new BigDecimal("1000.00")), Money.periodicRate(new BigDecimal("0.05"), 365)));
+        assertEquals(Money.of(new BigDecimal("0.96")), InterestAccrualChunkProcessor.dailyInterest(
+                Money.of(new BigDecimal("5000.00")), Money.periodicRate(new BigDecimal("0.07"), 365)));
+    }
+    
+    private Object[] createAccountRow(Long id, BigDecimal balance, BigDecimal interestRate) {
+        // Matches the projection: id, version, balance, interest rate
+        return new Object[] {id, 1L, Money.of(balance), interestRate};
+    }
+}
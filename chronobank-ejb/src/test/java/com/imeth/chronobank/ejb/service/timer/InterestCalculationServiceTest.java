@@ -1,26 +1,36 @@
 package com.imeth.chronobank.ejb.service.timer;
 
-import com.imeth.chronobank.common.entity.Account;
-import com.imeth.chronobank.common.entity.Transaction;
-import com.imeth.chronobank.common.entity.User;
+import com.imeth.chronobank.common.constants.AppConstants;
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
 
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
 import jakarta.persistence.TypedQuery;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -30,11 +40,22 @@ import static org.mockito.Mockito.when;
  */
 public class InterestCalculationServiceTest {
 
+    private static final int CHUNK_SIZE = AppConstants.DEFAULT_BATCH_CHUNK_SIZE;
+
     @Mock
     private EntityManager em;
 
     @Mock
-    private TypedQuery<Account> accountQuery;
+    private TypedQuery<Object[]> boundsQuery;
+
+    @Mock
+    private InterestAccrualChunkProcessor accrualProcessor;
+
+    @Mock
+    private ManagedExecutorService executor;
+
+    @Mock
+    private JobMetrics jobMetrics;
 
     @InjectMocks
     private InterestCalculationService interestCalculationService;
@@ -42,48 +63,116 @@ public class InterestCalculationServiceTest {
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        
+        // Mock the id range query
+        when(em.createQuery(anyString(), eq(Object[].class))).thenReturn(boundsQuery);
+        when(boundsQuery.setParameter(anyString(), any())).thenReturn(boundsQuery);
+        when(boundsQuery.getSingleResult()).thenReturn(new Object[] {1L, 940L});
+        
+        // Run submitted shards on the calling thread
+        when(executor.submit(ArgumentMatchers.<Callable<AccrualShardResult>>any())).thenAnswer(invocation -> {
+            Callable<AccrualShardResult> task = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(task.call());
+        });
+        
+        when(accrualProcessor.accrueChunk(anyLong(), anyLong(), anyInt()))
+                .thenAnswer(invocation -> AccrualChunkResult.empty(invocation.getArgument(0)));
     }
 
     @Test
     public void testCalculateDailyInterest() {
-        // Mock query
-        when(em.createQuery(anyString(), eq(Account.class))).thenReturn(accountQuery);
+        // Execute the method
+        interestCalculationService.calculateDailyInterest();
         
-        // Create test accounts
-        List<Account> accounts = new ArrayList<>();
-        accounts.add(createTestAccount("1001", Account.Type.SAVINGS, new BigDecimal("1000.00"), new BigDecimal("0.05")));
-        accounts.add(createTestAccount("1002", Account.Type.INVESTMENT, new BigDecimal("5000.00"), new BigDecimal("0.07")));
+        // Verify that the default number of shards was submitted, each starting at its own range
+        verify(executor, times(AppConstants.DEFAULT_ACCRUAL_SHARDS)).submit(ArgumentMatchers.<Callable<AccrualShardResult>>any());
+        verify(accrualProcessor).accrueChunk(0L, 235L, CHUNK_SIZE);
+        verify(accrualProcessor).accrueChunk(235L, 470L, CHUNK_SIZE);
+        verify(accrualProcessor).accrueChunk(470L, 705L, CHUNK_SIZE);
+        verify(accrualProcessor).accrueChunk(705L, 940L, CHUNK_SIZE);
         
-        when(accountQuery.getResultList()).thenReturn(accounts);
+        // The service itself no longer touches entities
+        verify(em, never()).merge(any());
+    }
+
+    @Test
+    public void testChunksArePagedWithinShard() {
+        // Mock two chunks: a full one followed by a partial one
+        when(accrualProcessor.accrueChunk(0L, 940L, CHUNK_SIZE))
+                .thenReturn(new AccrualChunkResult(612L, CHUNK_SIZE, CHUNK_SIZE - 1, 1, new BigDecimal("250.00")));
+        when(accrualProcessor.accrueChunk(612L, 940L, CHUNK_SIZE))
+                .thenReturn(new AccrualChunkResult(940L, 2, 2, 0, new BigDecimal("1.10")));
         
-        // Execute the method
-        interestCalculationService.calculateDailyInterest();
+        List<AccrualShardResult> results = interestCalculationService.calculateDailyInterestPartitioned(1);
         
-        // Verify that the accounts were updated
-        verify(em, times(2)).merge(any(Account.class));
+        // A single shard runs on the calling thread
+        verify(executor, never()).submit(ArgumentMatchers.<Callable<AccrualShardResult>>any());
+        verify(accrualProcessor, times(2)).accrueChunk(anyLong(), anyLong(), anyInt());
         
-        // Verify that transactions were created
-        verify(em, times(2)).persist(any(Transaction.class));
+        assertEquals(1, results.size());
+        AccrualShardResult shard = results.get(0);
+        assertEquals(2, shard.getChunks());
+        assertEquals(CHUNK_SIZE + 2, shard.getAccountsScanned());
+        assertEquals(CHUNK_SIZE + 1, shard.getAccountsCredited());
+        assertEquals(1, shard.getAccountsFailed());
+        assertEquals(new BigDecimal("251.10"), shard.getTotalInterest());
     }
-    
-    private Account createTestAccount(String accountNumber, Account.Type type, BigDecimal balance, BigDecimal interestRate) {
-        Account account = new Account();
-        account.setAccountNumber(accountNumber);
-        account.setType(type);
-        account.setBalance(balance);
-        account.setAvailableBalance(balance);
-        account.setInterestRate(interestRate);
-        account.setStatus(Account.Status.ACTIVE);
-        
-        User user = new User();
-        user.setId(1L);
-        user.setUsername("testuser");
-        user.setFirstName("Test");
-        user.setLastName("User");
-        user.setEmail("test@example.com");
-        
-        account.setUser(user);
-        
-        return account;
+
+    @Test
+    public void testShardFailureDoesNotAffectOtherShards() {
+        when(accrualProcessor.accrueChunk(0L, 470L, CHUNK_SIZE)).thenThrow(new IllegalStateException("Connection lost"));
+        when(accrualProcessor.findChunkAccountIds(0L, 470L, CHUNK_SIZE)).thenThrow(new IllegalStateException("Connection lost"));
+        when(accrualProcessor.accrueChunk(470L, 940L, CHUNK_SIZE))
+                .thenReturn(new AccrualChunkResult(900L, 3, 3, 0, new BigDecimal("4.20")));
+        
+        List<AccrualShardResult> results = interestCalculationService.calculateDailyInterestPartitioned(2);
+        
+        assertEquals(2, results.size());
+        assertFalse(results.get(0).isSuccessful());
+        assertTrue(results.get(1).isSuccessful());
+        assertEquals(3, results.get(1).getAccountsCredited());
+        assertEquals(results, interestCalculationService.getLastAccrualRun());
+    }
+
+    @Test
+    public void testFailedChunkIsSkipped() {
+        when(accrualProcessor.accrueChunk(0L, 940L, CHUNK_SIZE)).thenThrow(new PersistenceException("Lock wait timeout"));
+        List<Long> failedIds = LongStream.rangeClosed(1L, CHUNK_SIZE).boxed().collect(Collectors.toList());
+        when(accrualProcessor.findChunkAccountIds(0L, 940L, CHUNK_SIZE)).thenReturn(failedIds);
+        when(accrualProcessor.accrueChunk(CHUNK_SIZE, 940L, CHUNK_SIZE))
+                .thenReturn(new AccrualChunkResult(940L, 2, 2, 0, new BigDecimal("1.10")));
+        
+        List<AccrualShardResult> results = interestCalculationService.calculateDailyInterestPartitioned(1);
+        
+        // The shard moves on to the accounts after the failed chunk
+        AccrualShardResult shard = results.get(0);
+        assertTrue(shard.isSuccessful());
+        assertEquals(CHUNK_SIZE + 2, shard.getAccountsScanned());
+        assertEquals(2, shard.getAccountsCredited());
+        assertEquals(CHUNK_SIZE, shard.getAccountsFailed());
+    }
+
+    @Test
+    public void testCalculateDailyInterestNoAccounts() {
+        when(boundsQuery.getSingleResult()).thenReturn(new Object[] {null, null});
+        
+        interestCalculationService.calculateDailyInterest();
+        
+        verify(accrualProcessor, never()).accrueChunk(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    public void testPlanShards() {
+        List<AccrualShardResult> plan = InterestCalculationService.planShards(5L, 6L, 4);
+        
+        // Never more shards than ids
+        assertEquals(2, plan.size());
+        assertEquals(4L, plan.get(0).getAfterAccountId());
+        assertEquals(5L, plan.get(0).getMaxAccountId());
+        assertEquals(6L, plan.get(1).getMaxAccountId());
+        
+        plan = InterestCalculationService.planShards(1L, 10L, 3);
+        assertEquals(3, plan.size());
+        assertEquals(10L, plan.get(2).getMaxAccountId());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,115 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the ReportGenerationService class.
+ */
+public class ReportGenerationServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    Path reportDirectory;
+
+    @Mock
+    private DailyReportExporter exporter;
+
+    @Mock
+    private ManagedExecutorService executor;
+
+    @Mock
+    private JobMetrics jobMetrics;
+
+    @InjectMocks
+    private ReportGenerationService reportGenerationService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+
+        // The report directory is an injected resource
+        Field directory = ReportGenerationService.class.getDeclaredField("reportDirectory");
+        directory.setAccessible(true);
+        directory.set(reportGenerationService, reportDirectory.toString());
+
+        // Run submitted reports on the calling thread
+        when(executor.submit(ArgumentMatchers.<Callable<ReportFileResult>>any())).thenAnswer(invocation -> {
+            Callable<ReportFileResult> task = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(task.call());
+        });
+    }
+
+    @Test
+    public void testReportsRunAsSeparateTasksWithManifest() throws IOException {
+        when(exporter.exportTransactionReport(eq(DATE), anyString(), anyBoolean())).thenReturn(
+                new ReportFileResult("transactions", "transaction_report_2024-03-01.csv", 1200, 98765, 40));
+        when(exporter.exportAccountBalanceReport(eq(DATE), anyString(), anyBoolean())).thenReturn(
+                new ReportFileResult("account_balances", "account_balance_report_2024-03-01.csv", 300, 21000, 15));
+
+        List<ReportFileResult> results = reportGenerationService.generateReportsForDate(DATE);
+
+        // Each report is its own task, and the exporter's transactions are not shared
+        verify(executor, times(2)).submit(ArgumentMatchers.<Callable<ReportFileResult>>any());
+        verify(exporter).exportTransactionReport(DATE, reportDirectory.toString(), false);
+        verify(exporter).exportAccountBalanceReport(DATE, reportDirectory.toString(), false);
+        assertEquals(2, results.size());
+
+        List<String> manifest = Files.readAllLines(reportDirectory.resolve("report_manifest_2024-03-01.csv"),
+                StandardCharsets.UTF_8);
+        assertEquals(3, manifest.size());
+        assertEquals(ReportGenerationService.MANIFEST_HEADER, manifest.get(0));
+        assertEquals("transactions,transaction_report_2024-03-01.csv,1200,98765,40,\"OK\"", manifest.get(1));
+        assertEquals("account_balances,account_balance_report_2024-03-01.csv,300,21000,15,\"OK\"", manifest.get(2));
+    }
+
+    @Test
+    public void testFailedReportDoesNotStopOthers() throws IOException {
+        when(exporter.exportTransactionReport(eq(DATE), anyString(), anyBoolean()))
+                .thenThrow(new IOException("Disk full"));
+        when(exporter.exportAccountBalanceReport(eq(DATE), anyString(), anyBoolean())).thenReturn(
+                new ReportFileResult("account_balances", "account_balance_report_2024-03-01.csv", 300, 21000, 15));
+
+        List<ReportFileResult> results = reportGenerationService.generateReportsForDate(DATE);
+
+        assertFalse(results.get(0).isSuccessful());
+        assertTrue(results.get(0).getError().contains("Disk full"));
+        assertTrue(results.get(1).isSuccessful());
+
+        List<String> manifest = Files.readAllLines(reportDirectory.resolve("report_manifest_2024-03-01.csv"),
+                StandardCharsets.UTF_8);
+        assertTrue(manifest.get(1).startsWith("transactions,,0,0,"));
+        assertTrue(manifest.get(1).endsWith("\"FAILED: java.io.IOException: Disk full\""));
+    }
+}
@@ -0,0 +1,309 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.Transaction;
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+import com.imeth.chronobank.ejb.service.transfer.TransferEngine;
+import com.imeth.chronobank.ejb.service.transfer.TransferOutcome;
+
+import jakarta.ejb.EJBTransactionRolledbackException;
+import jakarta.ejb.SessionContext;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the ScheduledTransferChunkProcessor class.
+ */
+public class ScheduledTransferChunkProcessorTest {
+
+    private static final LocalDateTime DUE_BY = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @Mock
+    private EntityManager em;
+
+    @Mock
+    private SessionContext sessionContext;
+
+    @Mock
+    private Query claimQuery;
+
+    @Mock
+    private TypedQuery<Transaction> transactionQuery;
+
+    @Mock
+    private AccountSummaryCache accountSummaryCache;
+
+    @Spy
+    private TransferEngine transferEngine = new TransferEngine();
+
+    @InjectMocks
+    private ScheduledTransferChunkProcessor processor;
+
+    private Account source;
+    private Account target;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(em.createNativeQuery(anyString())).thenReturn(claimQuery);
+        when(claimQuery.setParameter(anyInt(), any())).thenReturn(claimQuery);
+        when(em.createQuery(anyString(), eq(Transaction.class))).thenReturn(transactionQuery);
+        when(transactionQuery.setParameter(anyString(), any())).thenReturn(transactionQuery);
+
+        source = account(1L, "500.00");
+        target = account(2L, "100.00");
+
+        // Lock whichever of the two accounts are asked for
+        doAnswer(invocation -> {
+            Map<Long, Account> locked = new HashMap<>();
+            for (int argument = 0; argument < 2; argument++) {
+                for (Long id : invocation.<Collection<Long>>getArgument(argument)) {
+                    locked.put(id, id == 1L ? source : target);
+                }
+            }
+            return locked;
+        }).when(transferEngine).lockAccounts(anyCollection(), anyCollection());
+    }
+
+    @Test
+    public void testChunkClaimsDueTransfersWithSkipLocked() {
+        when(claimQuery.getResultList()).thenReturn(Arrays.asList(claimed(11L, 1L, 2L), claimed(12L, 2L, 1L)));
+        when(transactionQuery.getResultList()).thenReturn(Arrays.asList(
+                transfer(11L, source, target, "150.00"), transfer(12L, target, source, "50.00")));
+
+        TransferChunkResult result = processor.processChunk(10L, DUE_BY, 2);
+
+        verify(em).createNativeQuery(contains("FOR UPDATE SKIP LOCKED"));
+        verify(claimQuery).setParameter(3, 10L);
+        verify(claimQuery).setParameter(4, 2);
+        assertEquals(2, result.getTransfersClaimed());
+        assertEquals(2, result.getTransfersCompleted());
+        assertEquals(12L, result.getLastTransactionId());
+        assertFalse(result.isRolledBack());
+
+        // Both accounts are locked once, before the transfers are loaded
+        verify(transferEngine).lockAccounts(new HashSet<>(Arrays.asList(1L, 2L)), new HashSet<>(Arrays.asList(2L, 1L)));
+
+        // Both transfers are applied to the same managed accounts
+        assertEquals(new BigDecimal("400.00"), source.getBalance());
+        assertEquals(new BigDecimal("200.00"), target.getBalance());
+        verify(em).flush();
+        verify(accountSummaryCache).invalidate(1L);
+        verify(accountSummaryCache).invalidate(2L);
+    }
+
+    @Test
+    public void testFailedTransferDoesNotAffectOthers() {
+        Transaction tooLarge = transfer(11L, target, source, "1000.00");
+        Transaction fine = transfer(12L, source, target, "100.00");
+        when(claimQuery.getResultList()).thenReturn(Arrays.asList(claimed(11L, 2L, 1L), claimed(12L, 1L, 2L)));
+        when(transactionQuery.getResultList()).thenReturn(Arrays.asList(tooLarge, fine));
+
+        TransferChunkResult result = processor.processChunk(0L, DUE_BY, 100);
+
+        assertEquals(1, result.getTransfersCompleted());
+        assertEquals(1, result.getTransfersFailed());
+        assertEquals(Transaction.Status.FAILED, tooLarge.getStatus());
+        assertTrue(tooLarge.getDescription().endsWith("Failed: Insufficient funds"));
+        assertEquals(Transaction.Status.COMPLETED, fine.getStatus());
+        assertEquals(new BigDecimal("400.00"), source.getBalance());
+        assertEquals(new BigDecimal("200.00"), target.getBalance());
+    }
+
+    @Test
+    public void testInactiveAccountFailsTransfer() {
+        target.setStatus(Account.Status.FROZEN);
+        Transaction transaction = transfer(11L, source, target, "10.00");
+        when(claimQuery.getResultList()).thenReturn(Collections.singletonList(claimed(11L, 1L, 2L)));
+        when(transactionQuery.getResultList()).thenReturn(Collections.singletonList(transaction));
+
+        TransferChunkResult result = processor.processChunk(0L, DUE_BY, 100);
+
+        assertEquals(1, result.getTransfersFailed());
+        assertEquals(Transaction.Status.FAILED, transaction.getStatus());
+        assertEquals(new BigDecimal("500.00"), source.getBalance());
+    }
+
+    @Test
+    public void testChunkThatCannotBeWrittenIsRolledBack() {
+        when(claimQuery.getResultList()).thenReturn(Arrays.asList(claimed(11L, 1L, 2L), claimed(12L, 1L, 2L)));
+        when(transactionQuery.getResultList()).thenReturn(Arrays.asList(
+                transfer(11L, source, target, "10.00"), transfer(12L, source, target, "10.00")));
+        doThrow(new OptimisticLockException("account changed")).when(em).flush();
+
+        TransferChunkResult result = processor.processChunk(0L, DUE_BY, 100);
+
+        assertTrue(result.isRolledBack());
+        assertEquals(Arrays.asList(11L, 12L), result.getClaimedIds());
+        verify(sessionContext).setRollbackOnly();
+        verify(accountSummaryCache, never()).invalidate(any());
+    }
+
+    @Test
+    public void testChunkIsRolledBackWhenAccountsCannotBeLocked() {
+        when(claimQuery.getResultList()).thenReturn(Collections.singletonList(claimed(11L, 1L, 2L)));
+        doThrow(new PessimisticLockException("lock wait timeout")).when(transferEngine).lockAccounts(anyCollection(), anyCollection());
+
+        TransferChunkResult result = processor.processChunk(0L, DUE_BY, 100);
+
+        assertTrue(result.isRolledBack());
+        assertEquals(Collections.singletonList(11L), result.getClaimedIds());
+        verify(sessionContext).setRollbackOnly();
+        verify(em, never()).createQuery(anyString(), eq(Transaction.class));
+    }
+
+    @Test
+    public void testEngineFailureRollsBackTheChunkForRetry() throws Exception {
+        Transaction fine = transfer(11L, source, target, "10.00");
+        Transaction broken = transfer(12L, source, target, "10.00");
+        when(claimQuery.getResultList()).thenReturn(Arrays.asList(claimed(11L, 1L, 2L), claimed(12L, 1L, 2L)));
+        when(transactionQuery.getResultList()).thenReturn(Arrays.asList(fine, broken));
+        Field engine = ScheduledTransferChunkProcessor.class.getDeclaredField("transferEngine");
+        engine.setAccessible(true);
+        engine.set(processor, new ContainerTransferEngine("TRX12"));
+
+        TransferChunkResult result = processor.processChunk(0L, DUE_BY, 100);
+
+        // Nothing is reported as done in a transaction that will not commit
+        assertTrue(result.isRolledBack());
+        assertEquals(Arrays.asList(11L, 12L), result.getClaimedIds());
+        assertEquals(0, result.getTransfersCompleted());
+        assertEquals(Transaction.Status.SCHEDULED, broken.getStatus());
+        verify(accountSummaryCache, never()).invalidate(any());
+    }
+
+    @Test
+    public void testNoDueTransfers() {
+        when(claimQuery.getResultList()).thenReturn(Collections.emptyList());
+
+        TransferChunkResult result = processor.processChunk(40L, DUE_BY, 100);
+
+        assertEquals(0, result.getTransfersClaimed());
+        assertEquals(40L, result.getLastTransactionId());
+        verify(em, never()).createQuery(anyString(), eq(Transaction.class));
+    }
+
+    @Test
+    public void testListedTransfersAreClaimedById() {
+        when(claimQuery.getResultList()).thenReturn(Collections.singletonList(claimed(12L, 1L, 2L)));
+        when(transactionQuery.getResultList()).thenReturn(Collections.singletonList(transfer(12L, source, target, "10.00")));
+
+        TransferChunkResult result = processor.processTransfers(Arrays.asList(11L, 12L));
+
+        // Transfer 11 is no longer scheduled or is held by another worker
+        verify(em).createNativeQuery(contains("id IN (?, ?)"));
+        verify(claimQuery).setParameter(2, 11L);
+        verify(claimQuery).setParameter(3, 12L);
+        assertEquals(Collections.singletonList(12L), result.getClaimedIds());
+        assertEquals(1, result.getTransfersCompleted());
+    }
+
+    @Test
+    public void testMarkFailedOnlyTouchesScheduledTransfers() {
+        Transaction scheduled = transfer(11L, source, target, "10.00");
+        Transaction completed = transfer(12L, source, target, "10.00");
+        completed.setStatus(Transaction.Status.COMPLETED);
+        when(em.find(Transaction.class, 11L)).thenReturn(scheduled);
+        when(em.find(Transaction.class, 12L)).thenReturn(completed);
+
+        processor.markFailed(11L, "account changed");
+        processor.markFailed(12L, "account changed");
+
+        assertEquals(Transaction.Status.FAILED, scheduled.getStatus());
+        assertEquals(Transaction.Status.COMPLETED, completed.getStatus());
+    }
+
+    /**
+     * Behaves like the container's view of the engine: a runtime exception thrown inside it marks
+     * the caller's transaction for rollback and reaches the caller wrapped.
+     */
+    private class ContainerTransferEngine extends TransferEngine {
+
+        private final String failingReference;
+
+        ContainerTransferEngine(String failingReference) {
+            this.failingReference = failingReference;
+        }
+
+        @Override
+        public Map<Long, Account> lockAccounts(Collection<Long> debitedIds, Collection<Long> creditedIds) {
+            Map<Long, Account> locked = new HashMap<>();
+            locked.put(1L, source);
+            locked.put(2L, target);
+            return locked;
+        }
+
+        @Override
+        public TransferOutcome apply(Account from, Account to, Money amount, String reference) {
+            if (failingReference.equals(reference)) {
+                sessionContext.setRollbackOnly();
+                throw new EJBTransactionRolledbackException("Transaction marked for rollback",
+                        new IllegalStateException("Account 2 has no balance stripe 3"));
+            }
+            return super.apply(from, to, amount, reference);
+        }
+    }
+
+    private static Object[] claimed(long transactionId, long accountId, Long targetAccountId) {
+        return new Object[] {transactionId, accountId, targetAccountId};
+    }
+
+    private static Account account(long id, String balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setStatus(Account.Status.ACTIVE);
+        account.setBalance(new BigDecimal(balance));
+        account.setAvailableBalance(new BigDecimal(balance));
+        return account;
+    }
+
+    private static Transaction transfer(long id, Account from, Account to, String amount) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setTransactionReference("TRX" + id);
+        transaction.setType(Transaction.Type.TRANSFER);
+        transaction.setStatus(Transaction.Status.SCHEDULED);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setDescription("Standing order");
+        transaction.setAccount(from);
+        transaction.setTargetAccount(to);
+        return transaction;
+    }
+}
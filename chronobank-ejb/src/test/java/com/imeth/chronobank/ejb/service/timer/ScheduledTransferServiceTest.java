@@ -0,0 +1,267 @@
+package com.imeth.chronobank.ejb.service.timer;
+
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+import com.imeth.chronobank.ejb.service.metrics.JobRunRecorder;
+
+import jakarta.ejb.Timer;
+import jakarta.ejb.TimerConfig;
+import jakarta.ejb.TimerService;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the ScheduledTransferService class.
+ */
+public class ScheduledTransferServiceTest {
+
+    private static final LocalDateTime DUE_BY = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @Mock
+    private ScheduledTransferChunkProcessor transferProcessor;
+
+    @Mock
+    private JobMetrics jobMetrics;
+
+    @Mock
+    private ManagedExecutorService executor;
+
+    @Mock
+    private TimerService timerService;
+
+    @InjectMocks
+    private ScheduledTransferService scheduledTransferService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+
+        Field chunkSize = ScheduledTransferService.class.getDeclaredField("chunkSize");
+        chunkSize.setAccessible(true);
+        chunkSize.set(scheduledTransferService, 2);
+
+        // Run submitted workers on the calling thread
+        when(executor.submit(ArgumentMatchers.<Callable<TransferRunResult>>any())).thenAnswer(invocation -> {
+            Callable<TransferRunResult> task = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(task.call());
+        });
+        when(transferProcessor.findScheduledTransfers(anyLong(), any(), anyInt())).thenReturn(Collections.emptyMap());
+    }
+
+    @Test
+    public void testBacklogIsDrainedChunkByChunk() {
+        when(transferProcessor.processChunk(0L, DUE_BY, 2))
+                .thenReturn(new TransferChunkResult(12L, Arrays.asList(11L, 12L), 2, 0, null));
+        when(transferProcessor.processChunk(12L, DUE_BY, 2))
+                .thenReturn(new TransferChunkResult(15L, Collections.singletonList(15L), 0, 1, null));
+
+        TransferRunResult result = scheduledTransferService.processDueTransfers(DUE_BY, 1);
+
+        assertEquals(2, result.getChunks());
+        assertEquals(2, result.getTransfersCompleted());
+        assertEquals(1, result.getTransfersFailed());
+        assertTrue(result.isSuccessful());
+
+        // The short chunk ends the run
+        verify(transferProcessor, times(2)).processChunk(anyLong(), eq(DUE_BY), anyInt());
+
+        ArgumentCaptor<JobRunRecorder> run = ArgumentCaptor.forClass(JobRunRecorder.class);
+        verify(jobMetrics).finished(run.capture());
+        assertEquals(3L, run.getValue().getItemsProcessed());
+        assertEquals(1L, run.getValue().getItemsFailed());
+    }
+
+    @Test
+    public void testRolledBackChunkIsRetriedTransferByTransfer() {
+        when(transferProcessor.processChunk(0L, DUE_BY, 2))
+                .thenReturn(TransferChunkResult.rolledBack(Arrays.asList(11L, 12L), "account changed"));
+        when(transferProcessor.processChunk(12L, DUE_BY, 2)).thenReturn(TransferChunkResult.empty(12L));
+        when(transferProcessor.processTransfer(11L))
+                .thenReturn(new TransferChunkResult(11L, Collections.singletonList(11L), 1, 0, null));
+        when(transferProcessor.processTransfer(12L))
+                .thenReturn(TransferChunkResult.rolledBack(Collections.singletonList(12L), "account changed"));
+
+        TransferRunResult result = scheduledTransferService.processDueTransfers(DUE_BY, 1);
+
+        // Only the transfer that fails on its own is marked FAILED
+        verify(transferProcessor, never()).markFailed(eq(11L), any());
+        verify(transferProcessor).markFailed(12L, "account changed");
+        assertEquals(1, result.getRolledBackChunks());
+        assertEquals(2, result.getTransfersRetried());
+        assertEquals(1, result.getTransfersCompleted());
+        assertEquals(1, result.getTransfersFailed());
+
+        // The run continues after the rolled back chunk
+        verify(transferProcessor).processChunk(12L, DUE_BY, 2);
+    }
+
+    @Test
+    public void testWorkersDrainConcurrently() {
+        when(transferProcessor.processChunk(0L, DUE_BY, 2))
+                .thenReturn(new TransferChunkResult(12L, Arrays.asList(11L, 12L), 2, 0, null))
+                .thenReturn(TransferChunkResult.empty(0L));
+        when(transferProcessor.processChunk(12L, DUE_BY, 2)).thenReturn(TransferChunkResult.empty(12L));
+
+        TransferRunResult result = scheduledTransferService.processDueTransfers(DUE_BY, 3);
+
+        verify(executor, times(3)).submit(ArgumentMatchers.<Callable<TransferRunResult>>any());
+        assertEquals(2, result.getTransfersCompleted());
+        assertNull(result.getError());
+    }
+
+    @Test
+    public void testFailedChunkDoesNotEndTheWorker() {
+        Map<Long, LocalDateTime> due = new LinkedHashMap<>();
+        due.put(11L, DUE_BY);
+        due.put(12L, DUE_BY);
+        when(transferProcessor.processChunk(0L, DUE_BY, 2)).thenThrow(new IllegalStateException("lock wait timeout"));
+        when(transferProcessor.findScheduledTransfers(0L, DUE_BY, 2)).thenReturn(due);
+        when(transferProcessor.processTransfer(11L))
+                .thenReturn(new TransferChunkResult(11L, Collections.singletonList(11L), 1, 0, null));
+        when(transferProcessor.processTransfer(12L)).thenThrow(new IllegalStateException("lock wait timeout"));
+        when(transferProcessor.processChunk(12L, DUE_BY, 2))
+                .thenReturn(new TransferChunkResult(14L, Collections.singletonList(14L), 1, 0, null));
+
+        TransferRunResult result = scheduledTransferService.processDueTransfers(DUE_BY, 1);
+
+        // The transfers of the failed chunk are retried alone, and the worker carries on after them
+        verify(transferProcessor, never()).markFailed(eq(11L), any());
+        verify(transferProcessor).markFailed(eq(12L), any());
+        verify(transferProcessor).processChunk(12L, DUE_BY, 2);
+        assertEquals(2, result.getTransfersCompleted());
+        assertEquals(1, result.getTransfersFailed());
+        assertTrue(result.getError().contains("lock wait timeout"));
+
+        ArgumentCaptor<JobRunRecorder> run = ArgumentCaptor.forClass(JobRunRecorder.class);
+        verify(jobMetrics).finished(run.capture());
+        assertEquals(1L, run.getValue().getItemsFailed());
+    }
+
+    @Test
+    public void testWorkerErrorIsRecordedOnRun() {
+        when(transferProcessor.processChunk(anyLong(), any(), anyInt())).thenThrow(new IllegalStateException("database down"));
+
+        TransferRunResult result = scheduledTransferService.processDueTransfers(DUE_BY, 1);
+
+        assertFalse(result.isSuccessful());
+        assertTrue(result.getError().contains("database down"));
+        verify(jobMetrics).finished(any(JobRunRecorder.class));
+    }
+
+    @Test
+    public void testWheelIsLoadedAtStartupAndDrivenBySingleTimer() {
+        Map<Long, LocalDateTime> pending = new LinkedHashMap<>();
+        pending.put(11L, LocalDateTime.now().minusMinutes(5));
+        pending.put(12L, LocalDateTime.now().plusMinutes(30));
+        when(transferProcessor.findScheduledTransfers(eq(0L), any(), anyInt())).thenReturn(pending);
+        when(transferProcessor.processTransfers(Collections.singletonList(11L)))
+                .thenReturn(new TransferChunkResult(11L, Collections.singletonList(11L), 1, 0, null));
+
+        scheduledTransferService.init();
+        scheduledTransferService.handleTimeout(wheelTimer());
+
+        // The overdue transfer fires on the first tick, the other one stays in the wheel
+        verify(timerService).createIntervalTimer(eq(1000L), eq(1000L), any(TimerConfig.class));
+        verify(transferProcessor).processTransfers(Collections.singletonList(11L));
+        verify(transferProcessor, never()).processTransfers(Collections.singletonList(12L));
+    }
+
+    @Test
+    public void testScheduledTransferFiresFromWheelWithoutPersistentTimer() {
+        scheduledTransferService.init();
+
+        // Due a second ago, so they fire on the next tick
+        scheduledTransferService.scheduleTransfer(21L, -1_000L);
+        scheduledTransferService.scheduleTransfer(20L, -1_000L);
+        when(transferProcessor.processTransfers(Arrays.asList(20L, 21L)))
+                .thenReturn(new TransferChunkResult(21L, Arrays.asList(20L, 21L), 2, 0, null));
+        scheduledTransferService.handleTimeout(wheelTimer());
+
+        verify(timerService, never()).createSingleActionTimer(anyLong(), any(TimerConfig.class));
+        verify(transferProcessor).processTransfers(Arrays.asList(20L, 21L));
+    }
+
+    @Test
+    public void testRolledBackWheelChunkIsRetriedTransferByTransfer() {
+        scheduledTransferService.init();
+        scheduledTransferService.scheduleTransfer(11L, -1_000L);
+        scheduledTransferService.scheduleTransfer(12L, -1_000L);
+        when(transferProcessor.processTransfers(Arrays.asList(11L, 12L)))
+                .thenReturn(TransferChunkResult.rolledBack(Arrays.asList(11L, 12L), "lock wait timeout"));
+        when(transferProcessor.processTransfer(11L))
+                .thenReturn(new TransferChunkResult(11L, Collections.singletonList(11L), 1, 0, null));
+        when(transferProcessor.processTransfer(12L))
+                .thenReturn(TransferChunkResult.rolledBack(Collections.singletonList(12L), "lock wait timeout"));
+
+        scheduledTransferService.handleTimeout(wheelTimer());
+
+        verify(transferProcessor, never()).markFailed(eq(11L), any());
+        verify(transferProcessor).markFailed(12L, "lock wait timeout");
+    }
+
+    @Test
+    public void testHourlySweepTopsUpWheel() {
+        scheduledTransferService.init();
+        when(transferProcessor.processChunk(anyLong(), any(), anyInt())).thenReturn(TransferChunkResult.empty(0L));
+        when(transferProcessor.findScheduledTransfers(eq(0L), any(), anyInt()))
+                .thenReturn(Collections.singletonMap(41L, LocalDateTime.now().minusSeconds(5)));
+        when(transferProcessor.processTransfers(Collections.singletonList(41L)))
+                .thenReturn(TransferChunkResult.empty(41L));
+
+        scheduledTransferService.processScheduledTransfers();
+        scheduledTransferService.handleTimeout(wheelTimer());
+
+        verify(transferProcessor).processTransfers(Collections.singletonList(41L));
+    }
+
+    @Test
+    public void testPersistentTimerFromEarlierVersionStillRunsTransfer() {
+        Timer timer = mock(Timer.class);
+        when(timer.getInfo()).thenReturn(31L);
+        when(transferProcessor.processTransfer(31L)).thenReturn(TransferChunkResult.empty(31L));
+
+        scheduledTransferService.handleTimeout(timer);
+
+        verify(transferProcessor).processTransfer(31L);
+    }
+
+    /**
+     * The interval timer created by {@link ScheduledTransferService#init()}.
+     */
+    private Timer wheelTimer() {
+        ArgumentCaptor<TimerConfig> config = ArgumentCaptor.forClass(TimerConfig.class);
+        verify(timerService).createIntervalTimer(anyLong(), anyLong(), config.capture());
+        Timer timer = mock(Timer.class);
+        when(timer.getInfo()).thenReturn(config.getValue().getInfo());
+        return timer;
+    }
+}
@@ -0,0 +1,349 @@
+package com.imeth.chronobank.ejb.service.transfer;
+
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.AccountBalanceStripe;
+import com.imeth.chronobank.common.entity.BalanceJournalEntry;
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the TransferEngine class.
+ */
+public class TransferEngineTest {
+
+    @Mock
+    private EntityManager em;
+
+    @Mock
+    private TypedQuery<Account> accountQuery;
+
+    @Mock
+    private TypedQuery<Account> stripedQuery;
+
+    @Mock
+    private TypedQuery<AccountBalanceStripe> stripeQuery;
+
+    @Mock
+    private AccountSummaryCache accountSummaryCache;
+
+    @Mock
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    @InjectMocks
+    private TransferEngine transferEngine;
+
+    private Account low;
+    private Account high;
+
+    // The resources of the current transaction
+    private final Map<Object, Object> transactionResources = new HashMap<>();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(em.createQuery(anyString(), eq(Account.class))).thenReturn(accountQuery);
+        when(accountQuery.setParameter(anyString(), any())).thenReturn(accountQuery);
+        when(accountQuery.setLockMode(any())).thenReturn(accountQuery);
+
+        // No account is striped unless a test says so
+        when(em.createQuery(contains("stripeCount"), eq(Account.class))).thenReturn(stripedQuery);
+        when(stripedQuery.setParameter(anyString(), any())).thenReturn(stripedQuery);
+        when(stripedQuery.getResultList()).thenReturn(Collections.emptyList());
+
+        when(em.createQuery(anyString(), eq(AccountBalanceStripe.class))).thenReturn(stripeQuery);
+        when(stripeQuery.setParameter(anyString(), any())).thenReturn(stripeQuery);
+        when(stripeQuery.setLockMode(any())).thenReturn(stripeQuery);
+
+        when(transactionRegistry.getResource(any())).thenAnswer(
+                invocation -> transactionResources.get(invocation.getArgument(0)));
+        doAnswer(invocation -> transactionResources.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(transactionRegistry).putResource(any(), any());
+
+        low = account(3L, "500.00");
+        high = account(7L, "100.00");
+        when(accountQuery.getResultList()).thenReturn(Arrays.asList(low, high));
+    }
+
+    @Test
+    public void testAccountsAreLockedInIdOrder() {
+        Map<Long, Account> locked = transferEngine.lockAccounts(Arrays.asList(7L, null, 3L, 7L));
+
+        verify(accountQuery).setParameter("ids", new ArrayList<>(Arrays.asList(3L, 7L)));
+        verify(accountQuery).setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        assertEquals(Arrays.asList(3L, 7L), new ArrayList<>(locked.keySet()));
+    }
+
+    @Test
+    public void testNoAccountsToLock() {
+        assertTrue(transferEngine.lockAccounts(Collections.singletonList(null)).isEmpty());
+        verify(em, never()).createQuery(anyString(), eq(Account.class));
+    }
+
+    @Test
+    public void testTransfersInBothDirectionsLockInTheSameOrder() {
+        assertEquals(TransferOutcome.COMPLETED, transferEngine.transfer(7L, 3L, money("40.00")));
+        assertEquals(TransferOutcome.COMPLETED, transferEngine.transfer(3L, 7L, money("10.00")));
+
+        verify(accountQuery, times(2)).setParameter("ids", new ArrayList<>(Arrays.asList(3L, 7L)));
+        assertEquals(new BigDecimal("530.00"), low.getBalance());
+        assertEquals(new BigDecimal("70.00"), high.getAvailableBalance());
+        verify(accountSummaryCache, times(2)).invalidate(3L);
+        verify(accountSummaryCache, times(2)).invalidate(7L);
+    }
+
+    @Test
+    public void testInsufficientFundsLeavesBothAccountsUntouched() {
+        assertEquals(TransferOutcome.INSUFFICIENT_FUNDS, transferEngine.transfer(7L, 3L, money("100.01")));
+
+        assertEquals(new BigDecimal("500.00"), low.getBalance());
+        assertEquals(new BigDecimal("100.00"), high.getBalance());
+        verify(em, never()).flush();
+        verify(accountSummaryCache, never()).invalidate(any());
+    }
+
+    @Test
+    public void testInactiveAccountIsRejected() {
+        low.setStatus(Account.Status.FROZEN);
+
+        assertEquals(TransferOutcome.ACCOUNT_INACTIVE, transferEngine.apply(high, low, money("1.00")));
+        assertEquals(new BigDecimal("100.00"), high.getBalance());
+    }
+
+    @Test
+    public void testMissingAccountIsRejected() {
+        when(accountQuery.getResultList()).thenReturn(Collections.singletonList(low));
+
+        assertEquals(TransferOutcome.ACCOUNT_NOT_FOUND, transferEngine.transfer(3L, 9L, money("1.00")));
+        assertEquals(new BigDecimal("500.00"), low.getBalance());
+    }
+
+    @Test
+    public void testTransferToTheSameAccountIsRejected() {
+        assertEquals(TransferOutcome.SAME_ACCOUNT, transferEngine.transfer(3L, 3L, money("1.00")));
+        assertEquals(TransferOutcome.SAME_ACCOUNT, transferEngine.apply(low, low, money("1.00")));
+        assertEquals(new BigDecimal("500.00"), low.getBalance());
+    }
+
+    @Test
+    public void testDebitWithoutTarget() {
+        assertEquals(TransferOutcome.COMPLETED, transferEngine.apply(low, null, money("25.00")));
+        assertEquals(new BigDecimal("475.00"), low.getBalance());
+        assertEquals(new BigDecimal("475.00"), low.getAvailableBalance());
+    }
+
+    @Test
+    public void testStripedTargetIsCreditedThroughItsStripeWithoutLockingIt() {
+        high.setStripeCount(4);
+        AccountBalanceStripe stripe = stripe(high, "0.00");
+        when(stripedQuery.getResultList()).thenReturn(Collections.singletonList(high));
+        when(accountQuery.getResultList()).thenReturn(Collections.singletonList(low));
+        when(stripeQuery.getResultList()).thenReturn(Collections.singletonList(stripe));
+
+        assertEquals(TransferOutcome.COMPLETED, transferEngine.transfer(3L, 7L, money("40.00")));
+
+        // Only the source account row is locked; the target's stripe is locked instead
+        verify(accountQuery).setParameter("ids", new ArrayList<>(Collections.singletonList(3L)));
+        verify(stripeQuery, times(2)).setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        assertEquals(new BigDecimal("460.00"), low.getBalance());
+        assertEquals(new BigDecimal("100.00"), high.getBalance());
+        assertEquals(new BigDecimal("40.00"), stripe.getAmount().toBigDecimal());
+        verify(accountSummaryCache).invalidate(7L);
+    }
+
+    @Test
+    public void testCreditsSpreadOverTheStripesButKeepOneStripePerTransaction() {
+        high.setStripeCount(4);
+        when(stripedQuery.getResultList()).thenReturn(Collections.singletonList(high));
+        when(accountQuery.getResultList()).thenReturn(Collections.singletonList(low));
+        when(stripeQuery.getResultList()).thenReturn(Collections.singletonList(stripe(high, "0.00")));
+
+        ArgumentCaptor<Object> stripes = ArgumentCaptor.forClass(Object.class);
+        for (int i = 0; i < 200; i++) {
+            transactionResources.clear();
+            transferEngine.transfer(3L, 7L, money("1.00"));
+        }
+
+        // Each transfer locks the stripe in lockAccounts and again when it credits it
+        verify(stripeQuery, times(400)).setParameter(eq("stripe"), stripes.capture());
+        List<Object> chosen = stripes.getAllValues();
+        for (int i = 0; i < chosen.size(); i += 2) {
+            assertEquals(chosen.get(i), chosen.get(i + 1));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3)), new HashSet<>(chosen));
+    }
+
+    @Test
+    public void testDebitedStripedAccountIsLockedBeforeItsStripe() {
+        high.setStripeCount(4);
+        when(stripeQuery.getResultList()).thenReturn(Collections.singletonList(stripe(high, "0.00")));
+
+        transferEngine.lockAccounts(Arrays.asList(3L, 7L), Collections.singletonList(7L));
+
+        verify(em, never()).createQuery(contains("stripeCount"), eq(Account.class));
+        verify(accountQuery).setParameter("ids", new ArrayList<>(Arrays.asList(3L, 7L)));
+        verify(stripeQuery).setParameter("accountId", 7L);
+    }
+
+    @Test
+    public void testJournalModeOnlyLocksDebitedAccounts() throws Exception {
+        enableJournal();
+        high.setStripeCount(4);
+        @SuppressWarnings("unchecked")
+        TypedQuery<Account> lockedQuery = mock(TypedQuery.class);
+        when(em.createQuery(contains("ORDER BY a.id"), eq(Account.class))).thenReturn(lockedQuery);
+        when(lockedQuery.setParameter(anyString(), any())).thenReturn(lockedQuery);
+        when(lockedQuery.setLockMode(any())).thenReturn(lockedQuery);
+        when(lockedQuery.getResultList()).thenReturn(Collections.singletonList(low));
+        when(accountQuery.getResultList()).thenReturn(Collections.singletonList(high));
+
+        Map<Long, Account> accounts = transferEngine.lockAccounts(
+                Collections.singletonList(3L), Collections.singletonList(7L));
+
+        assertEquals(Arrays.asList(3L, 7L), new ArrayList<>(accounts.keySet()));
+        verify(lockedQuery).setParameter("ids", new ArrayList<>(Collections.singletonList(3L)));
+        verify(accountQuery).setParameter("ids", new ArrayList<>(Collections.singletonList(7L)));
+        verify(accountQuery, never()).setLockMode(any());
+        // Journaled credits do not use the stripes either
+        verify(em, never()).createQuery(anyString(), eq(AccountBalanceStripe.class));
+    }
+
+    @Test
+    public void testJournaledCreditIsAppendedWithoutChangingTheTarget() throws Exception {
+        enableJournal();
+
+        assertEquals(TransferOutcome.COMPLETED, transferEngine.apply(low, high, money("40.00"), "TXN-1"));
+
+        assertEquals(new BigDecimal("460.00"), low.getBalance());
+        assertEquals(new BigDecimal("460.00"), low.getAvailableBalance());
+        assertEquals(new BigDecimal("100.00"), high.getBalance());
+        ArgumentCaptor<BalanceJournalEntry> entry = ArgumentCaptor.forClass(BalanceJournalEntry.class);
+        verify(em).persist(entry.capture());
+        assertSame(high, entry.getValue().getAccount());
+        assertEquals(money("40.00"), entry.getValue().getDelta());
+        assertEquals("TXN-1", entry.getValue().getReference());
+    }
+
+    @Test
+    public void testJournalModeStillChecksFunds() throws Exception {
+        enableJournal();
+
+        assertEquals(TransferOutcome.INSUFFICIENT_FUNDS, transferEngine.apply(high, low, money("100.01"), "TXN-2"));
+        verify(em, never()).persist(any());
+    }
+
+    @Test
+    public void testFoldStripesAddsPendingCreditsToTheBalance() {
+        high.setStripeCount(3);
+        AccountBalanceStripe first = stripe(high, "10.00");
+        AccountBalanceStripe second = stripe(high, "0.00");
+        AccountBalanceStripe third = stripe(high, "2.50");
+        when(stripeQuery.getResultList()).thenReturn(Arrays.asList(first, second, third));
+
+        assertEquals(money("12.50"), transferEngine.foldStripes(7L));
+
+        assertEquals(new BigDecimal("112.50"), high.getBalance());
+        assertEquals(new BigDecimal("112.50"), high.getAvailableBalance());
+        assertEquals(Money.ZERO, first.getAmount());
+        assertEquals(Money.ZERO, third.getAmount());
+        verify(em).flush();
+        verify(accountSummaryCache).invalidate(7L);
+    }
+
+    @Test
+    public void testNothingToFold() {
+        high.setStripeCount(1);
+        when(stripeQuery.getResultList()).thenReturn(Collections.singletonList(stripe(high, "0.00")));
+
+        assertEquals(Money.ZERO, transferEngine.foldStripes(7L));
+        verify(em, never()).flush();
+    }
+
+    @Test
+    public void testSetStripeCountFoldsAndAddsStripes() {
+        high.setStripeCount(2);
+        when(stripeQuery.getResultList()).thenReturn(Arrays.asList(stripe(high, "5.00"), stripe(high, "0.00")));
+
+        assertEquals(high, transferEngine.setStripeCount(7L, 4));
+
+        ArgumentCaptor<AccountBalanceStripe> added = ArgumentCaptor.forClass(AccountBalanceStripe.class);
+        verify(em, times(2)).persist(added.capture());
+        assertEquals(2, added.getAllValues().get(0).getStripe());
+        assertEquals(3, added.getAllValues().get(1).getStripe());
+        assertEquals(Integer.valueOf(4), high.getStripeCount());
+        assertEquals(new BigDecimal("105.00"), high.getBalance());
+        verify(accountSummaryCache).invalidate(7L);
+    }
+
+    @Test
+    public void testInvalidStripeCountIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> transferEngine.setStripeCount(7L, -1));
+        assertThrows(IllegalArgumentException.class, () -> transferEngine.setStripeCount(7L, 65));
+        verify(em, never()).createQuery(anyString(), eq(Account.class));
+    }
+
+    private void enableJournal() throws Exception {
+        Field balanceJournal = TransferEngine.class.getDeclaredField("balanceJournal");
+        balanceJournal.setAccessible(true);
+        balanceJournal.set(transferEngine, Boolean.TRUE);
+    }
+
+    private static AccountBalanceStripe stripe(Account account, String amount) {
+        AccountBalanceStripe stripe = new AccountBalanceStripe();
+        stripe.setAccount(account);
+        stripe.setStripe(account.getBalanceStripes().size());
+        stripe.setAmount(money(amount));
+        account.getBalanceStripes().add(stripe);
+        return stripe;
+    }
+
+    private static Money money(String amount) {
+        return Money.of(new BigDecimal(amount));
+    }
+
+    private static Account account(long id, String balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setStatus(Account.Status.ACTIVE);
+        account.setBalance(new BigDecimal(balance));
+        account.setAvailableBalance(new BigDecimal(balance));
+        return account;
+    }
+}
@@ -0,0 +1,111 @@
+package com.imeth.chronobank.web.monitoring;
+
+import com.imeth.chronobank.common.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request statistics of one REST endpoint since the application started.
+ */
+public class EndpointStatistics implements EndpointStatisticsMXBean {
+
+    private final String endpoint;
+    private final LatencyHistogram latencyMicros = new LatencyHistogram();
+    private final LatencyHistogram statements = new LatencyHistogram();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LongAccumulator maxResponseBytes = new LongAccumulator(Math::max, 0L);
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder slowRequests = new LongAdder();
+
+    EndpointStatistics(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    void record(int status, long micros, long bytes, int statementCount, boolean slow) {
+        latencyMicros.record(micros);
+        statements.record(statementCount);
+        responseBytes.add(bytes);
+        maxResponseBytes.accumulate(bytes);
+        if (status >= 500) {
+            serverErrors.increment();
+        } else if (status >= 400) {
+            clientErrors.increment();
+        }
+        if (slow) {
+            slowRequests.increment();
+        }
+    }
+
+    @Override
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public long getRequestCount() {
+        return latencyMicros.getCount();
+    }
+
+    @Override
+    public long getClientErrorCount() {
+        return clientErrors.sum();
+    }
+
+    @Override
+    public long getServerErrorCount() {
+        return serverErrors.sum();
+    }
+
+    @Override
+    public long getSlowRequestCount() {
+        return slowRequests.sum();
+    }
+
+    @Override
+    public long getP50LatencyMicros() {
+        return latencyMicros.getPercentile(50);
+    }
+
+    @Override
+    public long getP90LatencyMicros() {
+        return latencyMicros.getPercentile(90);
+    }
+
+    @Override
+    public long getP99LatencyMicros() {
+        return latencyMicros.getPercentile(99);
+    }
+
+    @Override
+    public long getMaxLatencyMicros() {
+        return latencyMicros.getMax();
+    }
+
+    @Override
+    public double getMeanResponseBytes() {
+        long count = latencyMicros.getCount();
+        return count > 0L ? (double) responseBytes.sum() / count : 0.0;
+    }
+
+    @Override
+    public long getMaxResponseBytes() {
+        return maxResponseBytes.get();
+    }
+
+    @Override
+    public double getMeanStatements() {
+        return statements.getMean();
+    }
+
+    @Override
+    public long getP99Statements() {
+        return statements.getPercentile(99);
+    }
+
+    @Override
+    public long getMaxStatements() {
+        return statements.getMax();
+    }
+}
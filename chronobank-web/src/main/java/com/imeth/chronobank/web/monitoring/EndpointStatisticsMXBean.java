@@ -0,0 +1,48 @@
+package com.imeth.chronobank.web.monitoring;
+
+/**
+ * Management view of a REST endpoint, registered with JMX under
+ * {@code com.imeth.chronobank:type=Endpoint,name=<method> <path template>}.
+ * <p>
+ * Latencies are measured from the start of the resource method until the response body has been
+ * written. A statement count that grows with the page size points at an N+1 query.
+ */
+public interface EndpointStatisticsMXBean {
+
+    String getEndpoint();
+
+    long getRequestCount();
+
+    /**
+     * @return the number of requests answered with a 4xx status
+     */
+    long getClientErrorCount();
+
+    /**
+     * @return the number of requests answered with a 5xx status
+     */
+    long getServerErrorCount();
+
+    /**
+     * @return the number of requests that took longer than the slow request threshold
+     */
+    long getSlowRequestCount();
+
+    long getP50LatencyMicros();
+
+    long getP90LatencyMicros();
+
+    long getP99LatencyMicros();
+
+    long getMaxLatencyMicros();
+
+    double getMeanResponseBytes();
+
+    long getMaxResponseBytes();
+
+    double getMeanStatements();
+
+    long getP99Statements();
+
+    long getMaxStatements();
+}
@@ -0,0 +1,112 @@
+package com.imeth.chronobank.web.monitoring;
+
+import com.imeth.chronobank.common.util.JmxRegistration;
+import com.imeth.chronobank.ejb.service.metrics.StatementLog;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.Path;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Per-endpoint request statistics of the REST layer, fed by {@link RequestMetricsFilter}.
+ * <p>
+ * Each endpoint gets an {@link EndpointStatisticsMXBean} under
+ * {@code com.imeth.chronobank:type=Endpoint}. Requests slower than the
+ * {@code slowRequestThresholdMillis} env-entry are logged together with the SQL they issued.
+ */
+@ApplicationScoped
+public class RequestMetrics {
+
+    private static final Logger LOGGER = Logger.getLogger(RequestMetrics.class.getName());
+
+    static final String MBEAN_TYPE = "Endpoint";
+
+    @Resource(name = "slowRequestThresholdMillis")
+    private long slowRequestThresholdMillis = 500L;
+
+    private final ConcurrentMap<Method, EndpointStatistics> byMethod = new ConcurrentHashMap<>();
+
+    @PreDestroy
+    public void destroy() {
+        for (EndpointStatistics statistics : byMethod.values()) {
+            JmxRegistration.unregister(MBEAN_TYPE, statistics.getEndpoint());
+        }
+    }
+
+    /**
+     * Record a finished request.
+     *
+     * @param httpMethod the HTTP method of the request
+     * @param resourceMethod the resource method that handled it
+     * @param uri the request path, logged for slow requests
+     * @param status the response status
+     * @param nanos the time the request took
+     * @param responseBytes the size of the response body
+     * @param statements the statements the request executed
+     */
+    public void record(String httpMethod, Method resourceMethod, String uri, int status, long nanos,
+                       long responseBytes, StatementLog statements) {
+        EndpointStatistics statistics = byMethod.computeIfAbsent(resourceMethod, method -> {
+            EndpointStatistics endpoint = new EndpointStatistics(httpMethod + " " + pathOf(method));
+            JmxRegistration.register(endpoint, MBEAN_TYPE, endpoint.getEndpoint());
+            return endpoint;
+        });
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        boolean slow = millis >= slowRequestThresholdMillis;
+        statistics.record(status, TimeUnit.NANOSECONDS.toMicros(nanos), responseBytes, statements.getCount(), slow);
+        if (slow) {
+            LOGGER.warning(slowRequestMessage(statistics.getEndpoint(), uri, status, millis, statements));
+        }
+    }
+
+    /**
+     * Get the statistics of every endpoint that has been called since the application started.
+     *
+     * @return the statistics, ordered by endpoint
+     */
+    public List<EndpointStatistics> getStatistics() {
+        List<EndpointStatistics> result = new ArrayList<>(byMethod.values());
+        result.sort(Comparator.comparing(EndpointStatistics::getEndpoint));
+        return result;
+    }
+
+    private static String pathOf(Method method) {
+        StringBuilder path = new StringBuilder();
+        Path classPath = method.getDeclaringClass().getAnnotation(Path.class);
+        if (classPath != null) {
+            path.append(classPath.value());
+        }
+        Path methodPath = method.getAnnotation(Path.class);
+        if (methodPath != null) {
+            path.append(methodPath.value());
+        }
+        return path.toString();
+    }
+
+    private static String slowRequestMessage(String endpoint, String uri, int status, long millis,
+                                             StatementLog statements) {
+        StringBuilder message = new StringBuilder("Slow request ").append(endpoint)
+                .append(" (").append(uri).append(") returned ").append(status)
+                .append(" after ").append(millis).append(" ms with ")
+                .append(statements.getCount()).append(" statement(s)");
+        for (String sql : statements.getStatements()) {
+            message.append("\n  ").append(sql);
+        }
+        int omitted = statements.getCount() - statements.getStatements().size();
+        if (omitted > 0) {
+            message.append("\n  ... ").append(omitted).append(" more");
+        }
+        return message.toString();
+    }
+}
@@ -0,0 +1,163 @@
+package com.imeth.chronobank.web.monitoring;
+
+import com.imeth.chronobank.common.constants.AppConstants;
+import com.imeth.chronobank.ejb.service.metrics.StatementLog;
+import com.imeth.chronobank.ejb.service.metrics.StatementTracker;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+
+/**
+ * Measures every matched REST request: latency, response size and the number of JPA statements.
+ * <p>
+ * Measurement starts in the request filter and ends once the response body has been written, so
+ * statements issued while serializing lazily loaded entities are counted too. Responses without a
+ * body are recorded in the response filter instead. Priority 0 makes the filter run before
+ * all other request filters and after all other response filters.
+ * <p>
+ * A resource that throws an exception no mapper handles skips both, so the class is also a
+ * servlet filter around the REST API. Once the request has been handled it records any request
+ * still unfinished, such as one that failed this way, and clears the statement recording of the
+ * thread, which would otherwise be left on the pooled thread. Request properties are servlet request attributes, so
+ * both sides see the same state.
+ */
+@Provider
+@Priority(0)
+@WebFilter(AppConstants.API_BASE_PATH + "/*")
+public class RequestMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor,
+        Filter {
+
+    static final String START_PROPERTY = RequestMetricsFilter.class.getName() + ".start";
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Inject
+    private RequestMetrics requestMetrics;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (resourceInfo.getResourceMethod() == null) {
+            return;
+        }
+        requestContext.setProperty(START_PROPERTY, new RequestStart(requestContext.getMethod(),
+                resourceInfo.getResourceMethod(), requestContext.getUriInfo().getPath()));
+        StatementTracker.begin();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        RequestStart start = (RequestStart) requestContext.getProperty(START_PROPERTY);
+        if (start == null) {
+            return;
+        }
+        if (responseContext.hasEntity()) {
+            // Recorded once the body has been written
+            start.status = responseContext.getStatus();
+            return;
+        }
+        requestContext.removeProperty(START_PROPERTY);
+        record(start, responseContext.getStatus(), 0L);
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        RequestStart start = (RequestStart) context.getProperty(START_PROPERTY);
+        if (start == null) {
+            context.proceed();
+            return;
+        }
+        context.removeProperty(START_PROPERTY);
+        CountingOutputStream body = new CountingOutputStream(context.getOutputStream());
+        context.setOutputStream(body);
+        try {
+            context.proceed();
+        } finally {
+            record(start, start.status, body.count);
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            StatementLog statements = StatementTracker.end();
+            RequestStart start = (RequestStart) request.getAttribute(START_PROPERTY);
+            if (start != null) {
+                request.removeAttribute(START_PROPERTY);
+                // Without a status from the response filter, the exception became a server error
+                requestMetrics.record(start.httpMethod, start.resourceMethod, start.uri,
+                        start.status != 0 ? start.status : 500, System.nanoTime() - start.nanos, 0L, statements);
+            }
+        }
+    }
+
+    private void record(RequestStart start, int status, long responseBytes) {
+        requestMetrics.record(start.httpMethod, start.resourceMethod, start.uri, status,
+                System.nanoTime() - start.nanos, responseBytes, StatementTracker.end());
+    }
+
+    /**
+     * The state of a request between the request filter and the end of the response.
+     */
+    private static final class RequestStart {
+
+        private final String httpMethod;
+        private final Method resourceMethod;
+        private final String uri;
+        private final long nanos = System.nanoTime();
+        private int status;
+
+        private RequestStart(String httpMethod, Method resourceMethod, String uri) {
+            this.httpMethod = httpMethod;
+            this.resourceMethod = resourceMethod;
+            this.uri = uri;
+        }
+    }
+
+    /**
+     * Counts the bytes written to the response body.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
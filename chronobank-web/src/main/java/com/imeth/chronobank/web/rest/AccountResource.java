@@ -1,14 +1,29 @@
 package com.imeth.chronobank.web.rest;
 
 import com.imeth.chronobank.common.constants.AppConstants;
+import com.imeth.chronobank.common.dto.AccountBatchResult;
 import com.imeth.chronobank.common.dto.AccountDTO;
 import com.imeth.chronobank.common.entity.Account;
 import com.imeth.chronobank.common.entity.User;
+import com.imeth.chronobank.common.util.ReferenceGenerator;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+import com.imeth.chronobank.ejb.service.cache.AccountVersion;
+import com.imeth.chronobank.ejb.service.transfer.TransferEngine;
+import com.imeth.chronobank.web.security.CallerIdentity;
+import com.imeth.chronobank.web.security.PrincipalCache;
 
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
 import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonParser;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
@@ -16,6 +31,7 @@ import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
@@ -23,12 +39,32 @@ import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.core.UriInfo;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -42,18 +78,51 @@ public class AccountResource {
 
     private static final Logger LOGGER = Logger.getLogger(AccountResource.class.getName());
 
+    static final String COUNT_EXACT = "exact";
+    static final String COUNT_ESTIMATE = "estimate";
+    static final String COUNT_NONE = "none";
+
+    private static final String CURSOR_PREFIX = "a:";
+    private static final Base64.Encoder CURSOR_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final AtomicReference<CountEstimate> ACCOUNT_COUNT_ESTIMATE = new AtomicReference<>();
+
+    // Lists accounts with their owners and the pending amounts and versions that the summaries include
+    private static final String SUMMARY_SELECT =
+            "SELECT a, " + AccountSummaryCache.PENDING_AMOUNT + ", a.version + " + AccountSummaryCache.PENDING_VERSIONS +
+            " FROM Account a JOIN FETCH a.user ";
+
     @PersistenceContext
     private EntityManager em;
 
+    @Inject
+    private PrincipalCache principalCache;
+
+    @EJB
+    private AccountSummaryCache accountSummaryCache;
+
+    @EJB
+    private TransferEngine transferEngine;
+
     @Context
     private SecurityContext securityContext;
 
+    @Context
+    private UriInfo uriInfo;
+
     /**
      * Get all accounts.
      * Only accessible by administrators and managers.
+     * <p>
+     * Pages can be requested by number, or by passing the opaque cursor from a previous
+     * response's {@code X-Next-Cursor} header as {@code after}. Cursor pages seek directly to the
+     * next id, so they cost the same however deep they are. The total count is served from a
+     * periodically refreshed estimate by default; pass {@code count=exact} for an exact count or
+     * {@code count=none} to skip it.
      *
-     * @param page the page number (0-based)
+     * @param page the page number (0-based), ignored when a cursor is given
      * @param size the page size
+     * @param after the cursor of the last account on the previous page
+     * @param count how to report the total count: estimate, exact or none
      * @return a list of account DTOs
      */
     @GET
@@ -61,7 +130,9 @@ public class AccountResource {
     @RolesAllowed({AppConstants.ROLE_ADMIN, AppConstants.ROLE_MANAGER})
     public Response getAllAccounts(
             @QueryParam("page") @DefaultValue("0") int page,
-            @QueryParam("size") @DefaultValue("20") int size) {
+            @QueryParam("size") @DefaultValue("20") int size,
+            @QueryParam("after") String after,
+            @QueryParam("count") @DefaultValue(COUNT_ESTIMATE) String count) {
         
         try {
             // Validate pagination parameters
@@ -72,28 +143,67 @@ public class AccountResource {
                 size = AppConstants.DEFAULT_PAGE_SIZE;
             }
             
-            // Get total count
-            Long totalCount = em.createQuery("SELECT COUNT(a) FROM Account a", Long.class)
-                    .getSingleResult();
+            Long afterId = null;
+            if (after != null && !after.isEmpty()) {
+                afterId = decodeCursor(after);
+                if (afterId == null) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("Invalid cursor: " + after)
+                            .build();
+                }
+            }
             
-            // Get paginated accounts
-            TypedQuery<Account> query = em.createQuery("SELECT a FROM Account a ORDER BY a.id", Account.class);
-            query.setFirstResult(page * size);
-            query.setMaxResults(size);
+            // Get paginated accounts with their owners and pending balances, reading one extra row to tell
+            // whether there is a next page
+            TypedQuery<Object[]> query;
+            if (afterId != null) {
+                query = em.createQuery(SUMMARY_SELECT + "WHERE a.id > :afterId ORDER BY a.id", Object[].class);
+                query.setParameter("afterId", afterId);
+            } else {
+                query = em.createQuery(SUMMARY_SELECT + "ORDER BY a.id", Object[].class);
+                query.setFirstResult(page * size);
+            }
+            query.setMaxResults(size + 1);
             
-            List<Account> accounts = query.getResultList();
+            List<Object[]> rows = query.getResultList();
+            boolean hasNext = rows.size() > size;
+            if (hasNext) {
+                rows = rows.subList(0, size);
+            }
             
             // Convert to DTOs
-            List<AccountDTO> accountDTOs = accounts.stream()
-                    .map(AccountDTO::new)
+            List<AccountDTO> accountDTOs = rows.stream()
+                    .map(AccountResource::toSummary)
                     .collect(Collectors.toList());
             
             // Return response with pagination metadata
-            return Response.ok(accountDTOs)
-                    .header("X-Total-Count", totalCount)
-                    .header("X-Page", page)
-                    .header("X-Page-Size", size)
-                    .build();
+            Response.ResponseBuilder response = Response.ok(accountDTOs)
+                    .header("X-Page-Size", size);
+            if (afterId == null) {
+                response.header("X-Page", page);
+            }
+            
+            if (hasNext) {
+                String nextCursor = encodeCursor(accountDTOs.get(accountDTOs.size() - 1).getId());
+                response.header("X-Next-Cursor", nextCursor);
+                if (uriInfo != null) {
+                    URI next = uriInfo.getRequestUriBuilder()
+                            .replaceQueryParam("page")
+                            .replaceQueryParam("after", nextCursor)
+                            .replaceQueryParam("size", size)
+                            .build();
+                    response.link(next, "next");
+                }
+            }
+            
+            if (COUNT_EXACT.equalsIgnoreCase(count)) {
+                response.header("X-Total-Count", countAccounts());
+            } else if (!COUNT_NONE.equalsIgnoreCase(count)) {
+                response.header("X-Total-Count", estimateAccountCount());
+                response.header("X-Total-Count-Estimated", true);
+            }
+            
+            return response.build();
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error retrieving accounts", e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -104,17 +214,33 @@ public class AccountResource {
 
     /**
      * Get an account by ID.
+     * The account is served from the shared summary cache while its version is unchanged.
+     * <p>
+     * The response carries a strong ETag built from the account id and version. A request whose
+     * {@code If-None-Match} header matches the current tag is answered with 304 Not Modified
+     * from a version-only query, without loading the account.
      *
      * @param id the account ID
+     * @param ifNoneMatch the entity tags the client already holds, if any
      * @return the account DTO
      */
     @GET
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
     @RolesAllowed({AppConstants.ROLE_ADMIN, AppConstants.ROLE_MANAGER, AppConstants.ROLE_CUSTOMER})
-    public Response getAccountById(@PathParam("id") Long id) {
+    public Response getAccountById(@PathParam("id") Long id, @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
         try {
-            Account account = em.find(Account.class, id);
+            if (ifNoneMatch != null) {
+                AccountVersion current = accountSummaryCache.getAccountVersion(id);
+                if (current != null) {
+                    EntityTag tag = accountTag(id, current.getVersion());
+                    if (matches(ifNoneMatch, tag) && canView(current.getUserId())) {
+                        return Response.notModified(tag).build();
+                    }
+                }
+            }
+            
+            AccountDTO account = accountSummaryCache.getAccountSummary(id);
             
             if (account == null) {
                 return Response.status(Response.Status.NOT_FOUND)
@@ -123,24 +249,13 @@ public class AccountResource {
             }
             
             // Check if the user has permission to view this account
-            String username = securityContext.getUserPrincipal().getName();
-            boolean isAdmin = securityContext.isUserInRole(AppConstants.ROLE_ADMIN);
-            boolean isManager = securityContext.isUserInRole(AppConstants.ROLE_MANAGER);
-            
-            if (!isAdmin && !isManager) {
-                // For customers, check if the account belongs to them
-                User user = em.createQuery("SELECT u FROM User u WHERE u.username = :username", User.class)
-                        .setParameter("username", username)
-                        .getSingleResult();
-                
-                if (!account.getUser().getId().equals(user.getId())) {
-                    return Response.status(Response.Status.FORBIDDEN)
-                            .entity("You do not have permission to view this account")
-                            .build();
-                }
+            if (!canView(account.getUserId())) {
+                return Response.status(Response.Status.FORBIDDEN)
+                        .entity("You do not have permission to view this account")
+                        .build();
             }
             
-            return Response.ok(new AccountDTO(account)).build();
+            return Response.ok(account).tag(accountTag(id, account.getVersion())).build();
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error retrieving account with ID: " + id, e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -178,8 +293,7 @@ public class AccountResource {
             
             // Create the account
             Account account = new Account();
-            account.setAccountNumber(AppConstants.ACCOUNT_PREFIX + 
-                    UUID.randomUUID().toString().substring(0, AppConstants.ACCOUNT_NUMBER_LENGTH - 3));
+            account.setAccountNumber(ReferenceGenerator.newAccountNumber());
             account.setType(Account.Type.valueOf(accountDTO.getType()));
             account.setBalance(accountDTO.getBalance());
             account.setAvailableBalance(accountDTO.getAvailableBalance());
@@ -188,12 +302,12 @@ public class AccountResource {
             account.setUser(user);
             
             em.persist(account);
-            em.flush(); // Ensure the ID is generated
+            em.flush(); // Surface constraint violations here and set the version
             
             return Response.status(Response.Status.CREATED)
                     .entity(new AccountDTO(account))
                     .build();
-        } catch (IllegalArgumentException e) {
+        } catch (IllegalArgumentException | ArithmeticException e) {
             return Response.status(Response.Status.BAD_REQUEST)
                     .entity("Invalid account data: " + e.getMessage())
                     .build();
@@ -205,6 +319,96 @@ public class AccountResource {
         }
     }
 
+    /**
+     * Create many accounts in one request, for onboarding and migrations.
+     * The body is either a JSON array of account objects or an NDJSON stream with one account
+     * object per line. Every row is validated first and the owners of all valid rows are resolved
+     * together; the valid rows are then inserted in JDBC batches within one transaction. Invalid
+     * rows are reported and skipped without affecting the others.
+     *
+     * @param contentType the media type of the body
+     * @param body the accounts to create
+     * @return the result of each row, in submission order
+     */
+    @POST
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, AppConstants.MEDIA_TYPE_NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    @RolesAllowed({AppConstants.ROLE_ADMIN, AppConstants.ROLE_MANAGER})
+    public Response createAccountsBatch(@HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        List<Object> rows;
+        try {
+            boolean ndjson = contentType != null && contentType.startsWith(AppConstants.MEDIA_TYPE_NDJSON);
+            rows = ndjson ? readNdjsonRows(body) : readJsonArrayRows(body);
+        } catch (BatchTooLargeException e) {
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE)
+                    .entity("A batch may contain at most " + AppConstants.MAX_ACCOUNT_BATCH_SIZE + " accounts")
+                    .build();
+        } catch (IOException | JsonException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Invalid batch: " + e.getMessage())
+                    .build();
+        }
+        
+        try {
+            // Validate every row before touching the database
+            Account[] accounts = new Account[rows.size()];
+            String[] errors = new String[rows.size()];
+            Set<Long> userIds = new HashSet<>();
+            for (int i = 0; i < rows.size(); i++) {
+                Object row = rows.get(i);
+                if (row instanceof String) {
+                    errors[i] = (String) row;
+                    continue;
+                }
+                try {
+                    accounts[i] = toAccount((JsonObject) row);
+                    userIds.add(accounts[i].getUser().getId());
+                } catch (IllegalArgumentException | ClassCastException | ArithmeticException e) {
+                    errors[i] = "Invalid account data: " + e.getMessage();
+                }
+            }
+            
+            // Resolve the owners of all rows together
+            Map<Long, User> users = findUsers(userIds);
+            
+            AccountBatchResult result = new AccountBatchResult();
+            List<Account> pending = new ArrayList<>(AppConstants.DEFAULT_BATCH_CHUNK_SIZE);
+            for (int i = 0; i < accounts.length; i++) {
+                Account account = accounts[i];
+                if (account == null) {
+                    result.rejected(i, errors[i]);
+                    continue;
+                }
+                User user = users.get(account.getUser().getId());
+                if (user == null) {
+                    result.rejected(i, "User not found with ID: " + account.getUser().getId());
+                    continue;
+                }
+                account.setUser(user);
+                account.setAccountNumber(ReferenceGenerator.newAccountNumber());
+                
+                // Ids come from the pooled sequence on persist, so nothing has to be flushed per row
+                em.persist(account);
+                result.created(i, account.getId(), account.getAccountNumber());
+                pending.add(account);
+                if (pending.size() == AppConstants.DEFAULT_BATCH_CHUNK_SIZE) {
+                    flushAndDetach(pending);
+                }
+            }
+            flushAndDetach(pending);
+            
+            LOGGER.info("Batch account creation: " + result.getCreated() + " created, " +
+                    result.getRejected() + " rejected");
+            return Response.ok(result).build();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error creating accounts in batch", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("Error creating accounts: " + e.getMessage())
+                    .build();
+        }
+    }
+
     /**
      * Update an existing account.
      *
@@ -237,9 +441,10 @@ public class AccountResource {
             }
             
             em.merge(account);
+            accountSummaryCache.invalidate(id);
             
             return Response.ok(new AccountDTO(account)).build();
-        } catch (IllegalArgumentException e) {
+        } catch (IllegalArgumentException | ArithmeticException e) {
             return Response.status(Response.Status.BAD_REQUEST)
                     .entity("Invalid account data: " + e.getMessage())
                     .build();
@@ -274,6 +479,7 @@ public class AccountResource {
             // Instead of deleting, set status to CLOSED
             account.setStatus(Account.Status.CLOSED);
             em.merge(account);
+            accountSummaryCache.invalidate(id);
             
             return Response.ok().entity("Account closed successfully").build();
         } catch (Exception e) {
@@ -284,37 +490,104 @@ public class AccountResource {
         }
     }
 
+    /**
+     * Set the number of balance stripes of a hot account. Credits to a striped account are spread
+     * over its stripes and folded into its balance every few minutes; a count of 0 turns striping
+     * off. Pending credits are folded into the balance first.
+     * Only accessible by administrators.
+     *
+     * @param id the account ID
+     * @param count the number of stripes
+     * @return the updated account
+     */
+    @PUT
+    @Path("/{id}/stripes")
+    @Produces(MediaType.APPLICATION_JSON)
+    @RolesAllowed({AppConstants.ROLE_ADMIN})
+    public Response setBalanceStripes(@PathParam("id") Long id, @QueryParam("count") Integer count) {
+        if (count == null || count < 0 || count > AppConstants.MAX_BALANCE_STRIPES) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Stripe count must be between 0 and " + AppConstants.MAX_BALANCE_STRIPES)
+                    .build();
+        }
+
+        try {
+            Account account = transferEngine.setStripeCount(id, count);
+
+            if (account == null) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity("Account not found with ID: " + id)
+                        .build();
+            }
+
+            return Response.ok(accountSummaryCache.getAccountSummary(id)).build();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error setting balance stripes of account with ID: " + id, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("Error setting balance stripes: " + e.getMessage())
+                    .build();
+        }
+    }
+
     /**
      * Get accounts for the current user.
      * Only accessible by customers.
+     * <p>
+     * The response carries a strong ETag built from the id and version of every account in the
+     * list, where the versions include those of the balance stripes and journal entries as in
+     * {@link AccountSummaryCache}. A request whose {@code If-None-Match} header matches the current
+     * tag is answered with 304 Not Modified from a query of the ids and versions alone.
      *
+     * @param ifNoneMatch the entity tags the client already holds, if any
      * @return a list of account DTOs
      */
     @GET
     @Path("/my-accounts")
     @Produces(MediaType.APPLICATION_JSON)
     @RolesAllowed({AppConstants.ROLE_CUSTOMER})
-    public Response getMyAccounts() {
+    public Response getMyAccounts(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
         try {
             String username = securityContext.getUserPrincipal().getName();
             
             // Find the user
-            User user = em.createQuery("SELECT u FROM User u WHERE u.username = :username", User.class)
-                    .setParameter("username", username)
-                    .getSingleResult();
-            
-            // Get accounts for the user
-            List<Account> accounts = em.createQuery(
-                    "SELECT a FROM Account a WHERE a.user = :user ORDER BY a.id", Account.class)
-                    .setParameter("user", user)
+            CallerIdentity caller = principalCache.resolve(username);
+            if (caller == null || !caller.isActive()) {
+                return Response.status(Response.Status.FORBIDDEN)
+                        .entity("User account is not active")
+                        .build();
+            }
+            
+            if (ifNoneMatch != null) {
+                List<Object[]> versions = em.createQuery(
+                        "SELECT a.id, a.version + " + AccountSummaryCache.PENDING_VERSIONS +
+                        " FROM Account a WHERE a.user.id = :userId ORDER BY a.id", Object[].class)
+                        .setParameter("userId", caller.getUserId())
+                        .getResultList();
+                List<long[]> pairs = new ArrayList<>(versions.size());
+                for (Object[] row : versions) {
+                    pairs.add(new long[] {(Long) row[0], ((Number) row[1]).longValue()});
+                }
+                EntityTag tag = accountListTag(caller.getUserId(), pairs);
+                if (matches(ifNoneMatch, tag)) {
+                    return Response.notModified(tag).build();
+                }
+            }
+            
+            // Get accounts for the user, with the owner and pending balances loaded in the same statement
+            List<Object[]> rows = em.createQuery(
+                    SUMMARY_SELECT + "WHERE a.user.id = :userId ORDER BY a.id", Object[].class)
+                    .setParameter("userId", caller.getUserId())
                     .getResultList();
             
             // Convert to DTOs
-            List<AccountDTO> accountDTOs = accounts.stream()
-                    .map(AccountDTO::new)
+            List<AccountDTO> accountDTOs = rows.stream()
+                    .map(AccountResource::toSummary)
+                    .collect(Collectors.toList());
+            List<long[]> pairs = accountDTOs.stream()
+                    .map(a -> new long[] {a.getId(), a.getVersion()})
                     .collect(Collectors.toList());
             
-            return Response.ok(accountDTOs).build();
+            return Response.ok(accountDTOs).tag(accountListTag(caller.getUserId(), pairs)).build();
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error retrieving accounts for current user", e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -322,4 +595,311 @@ public class AccountResource {
                     .build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Check whether the caller may view an account. Administrators and managers may view every
+     * account, customers only their own.
+     *
+     * @param ownerId the ID of the account's owner
+     * @return true if the caller may view the account
+     */
+    private boolean canView(Long ownerId) {
+        if (securityContext.isUserInRole(AppConstants.ROLE_ADMIN)
+                || securityContext.isUserInRole(AppConstants.ROLE_MANAGER)) {
+            return true;
+        }
+        CallerIdentity caller = principalCache.resolve(securityContext.getUserPrincipal().getName());
+        return caller != null && caller.isActive() && caller.getUserId().equals(ownerId);
+    }
+
+    /**
+     * Read the rows of a JSON array body one element at a time.
+     *
+     * @param body the request body
+     * @return a JsonObject per row, or an error message for elements that are not objects
+     */
+    private static List<Object> readJsonArrayRows(InputStream body) throws BatchTooLargeException {
+        List<Object> rows = new ArrayList<>();
+        try (JsonParser parser = Json.createParser(body)) {
+            if (!parser.hasNext() || parser.next() != JsonParser.Event.START_ARRAY) {
+                throw new JsonException("Expected a JSON array of accounts");
+            }
+            while (parser.hasNext()) {
+                JsonParser.Event event = parser.next();
+                if (event == JsonParser.Event.END_ARRAY) {
+                    break;
+                }
+                if (rows.size() == AppConstants.MAX_ACCOUNT_BATCH_SIZE) {
+                    throw new BatchTooLargeException();
+                }
+                if (event == JsonParser.Event.START_OBJECT) {
+                    rows.add(parser.getObject());
+                } else {
+                    parser.getValue();
+                    rows.add("Expected a JSON object");
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Read the rows of an NDJSON body, one object per non-blank line. A line that is not a valid
+     * JSON object only rejects that row.
+     *
+     * @param body the request body
+     * @return a JsonObject per row, or an error message for lines that could not be parsed
+     */
+    private static List<Object> readNdjsonRows(InputStream body) throws IOException, BatchTooLargeException {
+        List<Object> rows = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (rows.size() == AppConstants.MAX_ACCOUNT_BATCH_SIZE) {
+                throw new BatchTooLargeException();
+            }
+            try (JsonReader lineReader = Json.createReader(new StringReader(line))) {
+                rows.add(lineReader.readObject());
+            } catch (JsonException e) {
+                rows.add("Invalid JSON: " + e.getMessage());
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Build an unsaved account from a row of a batch. The owner is set to a placeholder that only
+     * carries the user id.
+     *
+     * @param row the row
+     * @return the account
+     * @throws IllegalArgumentException if the row is invalid
+     */
+    private static Account toAccount(JsonObject row) {
+        if (!row.containsKey("userId") || row.isNull("userId")) {
+            throw new IllegalArgumentException("User ID is required");
+        }
+        if (!row.containsKey("type") || row.isNull("type")) {
+            throw new IllegalArgumentException("Account type is required");
+        }
+        
+        User owner = new User();
+        owner.setId(row.getJsonNumber("userId").longValueExact());
+        
+        Account account = new Account();
+        account.setUser(owner);
+        account.setType(Account.Type.valueOf(row.getString("type")));
+        account.setStatus(Account.Status.valueOf(row.getString("status", Account.Status.ACTIVE.name())));
+        
+        BigDecimal balance = decimal(row, "balance");
+        if (balance == null) {
+            balance = BigDecimal.ZERO;
+        }
+        if (balance.signum() < 0) {
+            throw new IllegalArgumentException("Balance must not be negative");
+        }
+        BigDecimal availableBalance = decimal(row, "availableBalance");
+        account.setBalance(balance);
+        account.setAvailableBalance(availableBalance != null ? availableBalance : balance);
+        account.setInterestRate(decimal(row, "interestRate"));
+        return account;
+    }
+
+    private static BigDecimal decimal(JsonObject row, String name) {
+        if (!row.containsKey(name) || row.isNull(name)) {
+            return null;
+        }
+        JsonValue value = row.get(name);
+        if (value.getValueType() == JsonValue.ValueType.STRING) {
+            return new BigDecimal(((JsonString) value).getString());
+        }
+        return ((JsonNumber) value).bigDecimalValue();
+    }
+
+    /**
+     * Load users by id, in chunks so that the IN lists stay bounded.
+     *
+     * @param userIds the user ids
+     * @return the users found, keyed by id
+     */
+    private Map<Long, User> findUsers(Set<Long> userIds) {
+        Map<Long, User> users = new HashMap<>();
+        List<Long> ids = new ArrayList<>(userIds);
+        for (int from = 0; from < ids.size(); from += AppConstants.DEFAULT_BATCH_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + AppConstants.DEFAULT_BATCH_CHUNK_SIZE, ids.size()));
+            for (User user : em.createQuery("SELECT u FROM User u WHERE u.id IN :ids", User.class)
+                    .setParameter("ids", chunk)
+                    .getResultList()) {
+                users.put(user.getId(), user);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Write the pending accounts as one batch and stop managing them, so that memory stays flat
+     * however large the request is. Their owners stay managed for the following rows.
+     *
+     * @param pending the accounts persisted since the last flush
+     */
+    private void flushAndDetach(List<Account> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        em.flush();
+        for (Account account : pending) {
+            em.detach(account);
+        }
+        pending.clear();
+    }
+
+    /**
+     * Count all accounts.
+     *
+     * @return the exact number of accounts
+     */
+    private long countAccounts() {
+        long total = em.createQuery("SELECT COUNT(a) FROM Account a", Long.class)
+                .getSingleResult();
+        ACCOUNT_COUNT_ESTIMATE.set(new CountEstimate(total, System.currentTimeMillis()));
+        return total;
+    }
+
+    /**
+     * Get the account count from the shared estimate, refreshing it once it is older than
+     * {@link AppConstants#ACCOUNT_COUNT_ESTIMATE_TTL_SECONDS}.
+     *
+     * @return the approximate number of accounts
+     */
+    private long estimateAccountCount() {
+        CountEstimate estimate = ACCOUNT_COUNT_ESTIMATE.get();
+        long now = System.currentTimeMillis();
+        if (estimate != null && now - estimate.countedAt < AppConstants.ACCOUNT_COUNT_ESTIMATE_TTL_SECONDS * 1000L) {
+            return estimate.count;
+        }
+        return countAccounts();
+    }
+
+    /**
+     * Encode an account id as an opaque page cursor.
+     *
+     * @param id the id of the last account on a page
+     * @return the cursor
+     */
+    static String encodeCursor(long id) {
+        return CURSOR_ENCODER.encodeToString((CURSOR_PREFIX + id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decode a page cursor created by {@link #encodeCursor(long)}.
+     *
+     * @param cursor the cursor
+     * @return the account id, or null if the cursor is malformed
+     */
+    static Long decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!decoded.startsWith(CURSOR_PREFIX)) {
+                return null;
+            }
+            return Long.valueOf(decoded.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Build the summary of an account from a row of {@link #SUMMARY_SELECT}.
+     *
+     * @param row the account, its pending amount and its version
+     * @return the account summary
+     */
+    private static AccountDTO toSummary(Object[] row) {
+        return AccountSummaryCache.summarize((Account) row[0], (Number) row[1], (Number) row[2]);
+    }
+
+    /**
+     * Build the entity tag of a single account.
+     *
+     * @param id the account id
+     * @param version the account version
+     * @return a strong entity tag that changes whenever the account does
+     */
+    static EntityTag accountTag(Long id, Long version) {
+        return new EntityTag(id + "-" + version);
+    }
+
+    /**
+     * Build the entity tag of a user's account list from the id and version of each account.
+     *
+     * @param userId the owner of the accounts
+     * @param accounts the id and version of each account, in list order
+     * @return a strong entity tag that changes whenever an account is added, removed or changed
+     */
+    static EntityTag accountListTag(Long userId, List<long[]> accounts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+            for (long[] account : accounts) {
+                buffer.clear();
+                buffer.putLong(account[0]).putLong(account[1]);
+                digest.update(buffer.array());
+            }
+            byte[] hash = digest.digest();
+            StringBuilder tag = new StringBuilder().append(userId).append('-').append(accounts.size()).append('-');
+            for (int i = 0; i < 8; i++) {
+                tag.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+            return new EntityTag(tag.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Check an {@code If-None-Match} header against the current entity tag, using the weak
+     * comparison that RFC 7232 prescribes for this header.
+     *
+     * @param ifNoneMatch the header value
+     * @param current the current entity tag
+     * @return true if the client's copy is current
+     */
+    static boolean matches(String ifNoneMatch, EntityTag current) {
+        String expected = '"' + current.getValue() + '"';
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Thrown while reading a batch that has more rows than allowed.
+     */
+    private static final class BatchTooLargeException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Account count shared by all resource instances, with the time it was taken.
+     */
+    private static final class CountEstimate {
+
+        private final long count;
+        private final long countedAt;
+
+        private CountEstimate(long count, long countedAt) {
+            this.count = count;
+            this.countedAt = countedAt;
+        }
+    }
+}
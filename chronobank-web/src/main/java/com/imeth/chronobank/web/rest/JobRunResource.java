@@ -0,0 +1,136 @@
+package com.imeth.chronobank.web.rest;
+
+import com.imeth.chronobank.common.constants.AppConstants;
+import com.imeth.chronobank.common.dto.JobRunDTO;
+import com.imeth.chronobank.common.entity.JobRun;
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Read-only REST endpoint for the run history and live statistics of the timer jobs.
+ * Only accessible by administrators.
+ */
+@Path(AppConstants.API_BASE_PATH + AppConstants.API_VERSION + AppConstants.API_ADMIN_PATH + "/job-runs")
+@Stateless
+@RolesAllowed(AppConstants.ROLE_ADMIN)
+public class JobRunResource {
+
+    private static final Logger LOGGER = Logger.getLogger(JobRunResource.class.getName());
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @EJB
+    private JobMetrics jobMetrics;
+
+    /**
+     * Get the most recently finished runs, newest first.
+     * <p>
+     * Runs are ordered by id, which follows the order in which they finished. To get the next
+     * page, pass the {@code X-Next-Cursor} header of a response as {@code before}.
+     *
+     * @param job the job name to filter by, all jobs if omitted
+     * @param before the id below which to list runs, the newest runs if omitted
+     * @param size the page size
+     * @return a list of job run DTOs
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getRuns(
+            @QueryParam("job") String job,
+            @QueryParam("before") Long before,
+            @QueryParam("size") Integer size) {
+
+        try {
+            int pageSize = size == null || size <= 0 || size > AppConstants.MAX_PAGE_SIZE
+                    ? AppConstants.DEFAULT_PAGE_SIZE : size;
+
+            StringBuilder jpql = new StringBuilder("SELECT r FROM JobRun r WHERE 1 = 1");
+            if (job != null && !job.isEmpty()) {
+                jpql.append(" AND r.jobName = :job");
+            }
+            if (before != null) {
+                jpql.append(" AND r.id < :before");
+            }
+            jpql.append(" ORDER BY r.id DESC");
+
+            TypedQuery<JobRun> query = em.createQuery(jpql.toString(), JobRun.class);
+            if (job != null && !job.isEmpty()) {
+                query.setParameter("job", job);
+            }
+            if (before != null) {
+                query.setParameter("before", before);
+            }
+            query.setMaxResults(pageSize + 1);
+
+            List<JobRun> runs = query.getResultList();
+            boolean hasNext = runs.size() > pageSize;
+            if (hasNext) {
+                runs = runs.subList(0, pageSize);
+            }
+
+            Response.ResponseBuilder response = Response.ok(runs.stream()
+                    .map(JobRunDTO::new)
+                    .collect(Collectors.toList()));
+            if (hasNext) {
+                response.header("X-Next-Cursor", runs.get(runs.size() - 1).getId());
+            }
+            return response.build();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error retrieving job runs", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("Error retrieving job runs: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Get a run by ID.
+     *
+     * @param id the run ID
+     * @return the job run DTO
+     */
+    @GET
+    @Path("/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getRun(@PathParam("id") Long id) {
+        JobRun run = em.find(JobRun.class, id);
+        if (run == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Job run not found with ID: " + id)
+                    .build();
+        }
+        return Response.ok(new JobRunDTO(run)).build();
+    }
+
+    /**
+     * Get the live statistics of each job on this node: whether a run is in progress, how far
+     * into its window it is, and a summary of the last finished run.
+     *
+     * @return the statistics of every job that has run since the node started
+     */
+    @GET
+    @Path("/current")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getCurrent() {
+        return Response.ok(jobMetrics.getStatistics()).build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.imeth.chronobank.web.security;
+
+import com.imeth.chronobank.common.entity.User;
+
+import java.io.Serializable;
+
+/**
+ * The user behind an authenticated principal, reduced to what authorization checks need.
+ */
+public final class CallerIdentity implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long userId;
+    private final User.Role role;
+    private final boolean active;
+
+    public CallerIdentity(Long userId, User.Role role, boolean active) {
+        this.userId = userId;
+        this.role = role;
+        this.active = active;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public User.Role getRole() {
+        return role;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+}
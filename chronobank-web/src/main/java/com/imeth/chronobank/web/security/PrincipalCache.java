@@ -0,0 +1,81 @@
+package com.imeth.chronobank.web.security;
+
+import com.imeth.chronobank.common.constants.AppConstants;
+import com.imeth.chronobank.common.entity.User;
+import com.imeth.chronobank.common.entity.UserChangeListener;
+import com.imeth.chronobank.common.util.BoundedCache;
+import com.imeth.chronobank.common.util.JmxRegistration;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Resolves authenticated principal names to the caller's user id, role and status, caching the
+ * result so that authorization checks do not query the users table on every request.
+ * <p>
+ * Entries are dropped when the user is updated or removed through JPA, and otherwise expire
+ * after {@link AppConstants#PRINCIPAL_CACHE_TTL_SECONDS}. Cache statistics are exposed over
+ * JMX as {@code com.imeth.chronobank:type=Cache,name="principals"}.
+ */
+@ApplicationScoped
+public class PrincipalCache {
+
+    static final String CACHE_NAME = "principals";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final BoundedCache<String, CallerIdentity> cache = new BoundedCache<>(CACHE_NAME,
+            AppConstants.PRINCIPAL_CACHE_MAX_ENTRIES, AppConstants.PRINCIPAL_CACHE_TTL_SECONDS * 1000L);
+
+    private final Consumer<String> invalidator = cache::invalidate;
+
+    @PostConstruct
+    public void init() {
+        UserChangeListener.subscribe(invalidator);
+        JmxRegistration.register(cache, "Cache", CACHE_NAME);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        UserChangeListener.unsubscribe(invalidator);
+        JmxRegistration.unregister("Cache", CACHE_NAME);
+    }
+
+    /**
+     * Resolve a principal name to the caller's identity.
+     *
+     * @param username the principal name
+     * @return the caller's identity, or null if no user has that name
+     */
+    public CallerIdentity resolve(String username) {
+        return cache.get(username, this::load);
+    }
+
+    /**
+     * Drop the cached identity of a user.
+     *
+     * @param username the user's name
+     */
+    public void invalidate(String username) {
+        cache.invalidate(username);
+    }
+
+    private CallerIdentity load(String username) {
+        List<Object[]> rows = em.createQuery(
+                "SELECT u.id, u.role, u.active FROM User u WHERE u.username = :username", Object[].class)
+                .setParameter("username", username)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        return new CallerIdentity((Long) row[0], (User.Role) row[1], (Boolean) row[2]);
+    }
+}
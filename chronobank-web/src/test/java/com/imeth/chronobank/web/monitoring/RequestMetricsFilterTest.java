@@ -0,0 +1,235 @@
+package com.imeth.chronobank.web.monitoring;
+
+import com.imeth.chronobank.ejb.service.metrics.StatementTracker;
+import com.imeth.chronobank.ejb.service.metrics.StatementTrackingListener;
+import com.imeth.chronobank.web.rest.AccountResource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.UriInfo;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import org.eclipse.persistence.internal.databaseaccess.DatabaseCall;
+import org.eclipse.persistence.sessions.SessionEvent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the RequestMetricsFilter class.
+ */
+public class RequestMetricsFilterTest {
+
+    @Mock
+    private ResourceInfo resourceInfo;
+
+    @Mock
+    private ContainerRequestContext requestContext;
+
+    @Mock
+    private ContainerResponseContext responseContext;
+
+    @Mock
+    private WriterInterceptorContext writerContext;
+
+    @Mock
+    private UriInfo uriInfo;
+
+    @Mock
+    private ServletRequest servletRequest;
+
+    @Mock
+    private ServletResponse servletResponse;
+
+    @InjectMocks
+    private RequestMetricsFilter filter;
+
+    private RequestMetrics requestMetrics;
+
+    private final Map<String, Object> properties = new HashMap<>();
+
+    private OutputStream body;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+
+        requestMetrics = new RequestMetrics();
+        Field metrics = RequestMetricsFilter.class.getDeclaredField("requestMetrics");
+        metrics.setAccessible(true);
+        metrics.set(filter, requestMetrics);
+
+        Method getAccountById = AccountResource.class.getMethod("getAccountById", Long.class, String.class);
+        when(resourceInfo.getResourceMethod()).thenReturn(getAccountById);
+        when(requestContext.getMethod()).thenReturn("GET");
+        when(requestContext.getUriInfo()).thenReturn(uriInfo);
+        when(uriInfo.getPath()).thenReturn("/v1/accounts/42");
+
+        // Request properties are shared between the filters and the interceptor
+        doAnswer(invocation -> properties.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(requestContext).setProperty(anyString(), any());
+        when(requestContext.getProperty(anyString())).thenAnswer(invocation -> properties.get(invocation.getArgument(0)));
+        doAnswer(invocation -> properties.remove(invocation.getArgument(0)))
+                .when(requestContext).removeProperty(anyString());
+        when(writerContext.getProperty(anyString())).thenAnswer(invocation -> properties.get(invocation.getArgument(0)));
+        doAnswer(invocation -> properties.remove(invocation.getArgument(0)))
+                .when(writerContext).removeProperty(anyString());
+        when(servletRequest.getAttribute(anyString())).thenAnswer(invocation -> properties.get(invocation.getArgument(0)));
+        doAnswer(invocation -> properties.remove(invocation.getArgument(0)))
+                .when(servletRequest).removeAttribute(anyString());
+
+        // The body is written to whatever stream the interceptor installed
+        body = new ByteArrayOutputStream();
+        when(writerContext.getOutputStream()).thenReturn(body);
+        doAnswer(invocation -> body = invocation.getArgument(0)).when(writerContext).setOutputStream(any());
+        doAnswer(invocation -> {
+            body.write("{\"id\":42}".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(writerContext).proceed();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        requestMetrics.destroy();
+        StatementTracker.end();
+    }
+
+    @Test
+    public void testRequestWithBodyIsRecordedAfterWriting() throws Exception {
+        filter.filter(requestContext);
+        executeStatement("SELECT ID FROM accounts WHERE ID = ?");
+        executeStatement("SELECT ID FROM users WHERE ID = ?");
+
+        when(responseContext.hasEntity()).thenReturn(true);
+        when(responseContext.getStatus()).thenReturn(200);
+        filter.filter(requestContext, responseContext);
+
+        // Nothing is recorded until the body has been written
+        assertTrue(requestMetrics.getStatistics().isEmpty());
+
+        filter.aroundWriteTo(writerContext);
+
+        assertEquals(1, requestMetrics.getStatistics().size());
+        EndpointStatistics statistics = requestMetrics.getStatistics().get(0);
+        assertEquals("GET /api/v1/accounts/{id}", statistics.getEndpoint());
+        assertEquals(1L, statistics.getRequestCount());
+        assertEquals(9L, statistics.getMaxResponseBytes());
+        assertEquals(2L, statistics.getMaxStatements());
+        assertEquals(0L, statistics.getServerErrorCount());
+    }
+
+    @Test
+    public void testRequestWithoutBodyIsRecordedInResponseFilter() {
+        filter.filter(requestContext);
+
+        when(responseContext.hasEntity()).thenReturn(false);
+        when(responseContext.getStatus()).thenReturn(404);
+        filter.filter(requestContext, responseContext);
+
+        EndpointStatistics statistics = requestMetrics.getStatistics().get(0);
+        assertEquals(1L, statistics.getRequestCount());
+        assertEquals(1L, statistics.getClientErrorCount());
+        assertEquals(0L, statistics.getMaxResponseBytes());
+    }
+
+    @Test
+    public void testSlowRequestsAreCounted() throws Exception {
+        Field threshold = RequestMetrics.class.getDeclaredField("slowRequestThresholdMillis");
+        threshold.setAccessible(true);
+        threshold.set(requestMetrics, 0L);
+
+        filter.filter(requestContext);
+        executeStatement("SELECT ID FROM accounts WHERE ID = ?");
+        when(responseContext.hasEntity()).thenReturn(false);
+        when(responseContext.getStatus()).thenReturn(500);
+        filter.filter(requestContext, responseContext);
+
+        EndpointStatistics statistics = requestMetrics.getStatistics().get(0);
+        assertEquals(1L, statistics.getSlowRequestCount());
+        assertEquals(1L, statistics.getServerErrorCount());
+    }
+
+    @Test
+    public void testUnmappedExceptionIsRecordedAndReleasesTheThread() {
+        FilterChain chain = (request, response) -> {
+            filter.filter(requestContext);
+            executeStatement("SELECT ID FROM accounts WHERE ID = ?");
+            // No mapper handles the exception, so no response filter or interceptor runs
+            throw new ServletException(new IllegalStateException("unmapped"));
+        };
+
+        assertThrows(ServletException.class, () -> filter.doFilter(servletRequest, servletResponse, chain));
+
+        EndpointStatistics statistics = requestMetrics.getStatistics().get(0);
+        assertEquals(1L, statistics.getRequestCount());
+        assertEquals(1L, statistics.getServerErrorCount());
+        assertEquals(1L, statistics.getMaxStatements());
+        assertTrue(properties.isEmpty());
+
+        // Statements of the next task on this thread are no longer recorded
+        executeStatement("SELECT ID FROM users WHERE ID = ?");
+        assertEquals(0, StatementTracker.end().getCount());
+    }
+
+    @Test
+    public void testCompletedRequestIsRecordedOnceByTheServletFilter() throws Exception {
+        FilterChain chain = (request, response) -> {
+            filter.filter(requestContext);
+            when(responseContext.hasEntity()).thenReturn(true);
+            when(responseContext.getStatus()).thenReturn(200);
+            filter.filter(requestContext, responseContext);
+            filter.aroundWriteTo(writerContext);
+        };
+
+        filter.doFilter(servletRequest, servletResponse, chain);
+
+        EndpointStatistics statistics = requestMetrics.getStatistics().get(0);
+        assertEquals(1L, statistics.getRequestCount());
+        assertEquals(0L, statistics.getServerErrorCount());
+    }
+
+    @Test
+    public void testUnmatchedRequestsAreIgnored() throws Exception {
+        when(resourceInfo.getResourceMethod()).thenReturn(null);
+
+        filter.filter(requestContext);
+        filter.filter(requestContext, responseContext);
+        filter.aroundWriteTo(writerContext);
+
+        assertTrue(requestMetrics.getStatistics().isEmpty());
+    }
+
+    private static void executeStatement(String sql) {
+        DatabaseCall call = mock(DatabaseCall.class);
+        when(call.getSQLString()).thenReturn(sql);
+        SessionEvent event = mock(SessionEvent.class);
+        when(event.getCall()).thenReturn(call);
+        new StatementTrackingListener().preExecuteCall(event);
+    }
+}
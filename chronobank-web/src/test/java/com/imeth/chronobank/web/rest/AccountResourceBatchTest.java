@@ -0,0 +1,170 @@
+package com.imeth.chronobank.web.rest;
+
+import com.imeth.chronobank.common.constants.AppConstants;
+import com.imeth.chronobank.common.dto.AccountBatchResult;
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.BaseEntity;
+import com.imeth.chronobank.common.entity.User;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies bulk account creation against an in-memory database.
+ */
+public class AccountResourceBatchTest {
+
+    private static EntityManagerFactory emf;
+
+    private static Long ownerId;
+
+    private EntityManager em;
+
+    private AccountResource accountResource;
+
+    @BeforeAll
+    public static void createDatabase() {
+        emf = Persistence.createEntityManagerFactory("ChronoBankTestPU");
+        EntityManager setup = emf.createEntityManager();
+        setup.getTransaction().begin();
+        User user = new User();
+        user.setUsername("owner");
+        user.setPasswordHash("hash");
+        user.setFirstName("Batch");
+        user.setLastName("Owner");
+        user.setEmail("owner@example.com");
+        user.setRole(User.Role.CUSTOMER);
+        setup.persist(user);
+        setup.getTransaction().commit();
+        ownerId = user.getId();
+        setup.close();
+    }
+
+    @AfterAll
+    public static void closeDatabase() {
+        emf.close();
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        em = emf.createEntityManager();
+        accountResource = new AccountResource();
+        Field field = AccountResource.class.getDeclaredField("em");
+        field.setAccessible(true);
+        field.set(accountResource, em);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        em.close();
+    }
+
+    @Test
+    public void testNdjsonRowsAreValidatedIndividually() {
+        String body = "{\"userId\": " + ownerId + ", \"type\": \"SAVINGS\", \"balance\": 150.25, \"interestRate\": \"0.0350\"}\n"
+                + "{\"userId\": 999999, \"type\": \"CHECKING\"}\n"
+                + "\n"
+                + "{\"userId\": " + ownerId + ", \"type\": \"SAVINGS\"\n"
+                + "{\"userId\": " + ownerId + ", \"type\": \"PIGGY_BANK\"}\n"
+                + "{\"type\": \"CHECKING\"}\n"
+                + "{\"userId\": " + ownerId + ", \"type\": \"CHECKING\", \"status\": \"FROZEN\"}\n";
+
+        AccountBatchResult result = post(AppConstants.MEDIA_TYPE_NDJSON, body);
+
+        assertEquals(2, result.getCreated());
+        assertEquals(4, result.getRejected());
+        List<AccountBatchResult.Row> rows = result.getResults();
+        assertEquals(6, rows.size());
+        assertEquals(AccountBatchResult.CREATED, rows.get(0).getStatus());
+        assertTrue(rows.get(1).getError().contains("User not found"));
+        assertTrue(rows.get(2).getError().startsWith("Invalid JSON"));
+        assertTrue(rows.get(3).getError().contains("PIGGY_BANK"));
+        assertEquals("User ID is required", rows.get(4).getError().replace("Invalid account data: ", ""));
+        assertEquals(AccountBatchResult.CREATED, rows.get(5).getStatus());
+        assertNull(rows.get(1).getAccountId());
+
+        Account created = em.find(Account.class, rows.get(0).getAccountId());
+        assertEquals(0, new BigDecimal("150.25").compareTo(created.getBalance()));
+        assertEquals(0, new BigDecimal("150.25").compareTo(created.getAvailableBalance()));
+        assertEquals(Account.Status.ACTIVE, created.getStatus());
+        assertEquals(ownerId, created.getUser().getId());
+        assertEquals(Account.Status.FROZEN, em.find(Account.class, rows.get(5).getAccountId()).getStatus());
+    }
+
+    @Test
+    public void testLargeJsonArrayIsInsertedInBatches() {
+        int count = AppConstants.DEFAULT_BATCH_CHUNK_SIZE * 2 + 100;
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"userId\": ").append(ownerId).append(", \"type\": \"CHECKING\", \"balance\": ").append(i).append('}');
+        }
+        body.append(']');
+
+        StatementCounter.reset();
+        AccountBatchResult result = post(MediaType.APPLICATION_JSON, body.toString());
+
+        assertEquals(count, result.getCreated());
+        Set<Long> ids = new HashSet<>();
+        for (AccountBatchResult.Row row : result.getResults()) {
+            assertNotNull(row.getAccountId());
+            ids.add(row.getAccountId());
+        }
+        assertEquals(count, ids.size());
+        // One user lookup and one sequence allocation per 50 ids, with no identity read per row
+        assertEquals(1, StatementCounter.count("SELECT") - StatementCounter.count("SELECT next_val"));
+        assertEquals((count + BaseEntity.ID_ALLOCATION_SIZE - 1) / BaseEntity.ID_ALLOCATION_SIZE,
+                StatementCounter.count("UPDATE id_sequences"));
+        assertEquals(count, StatementCounter.count("INSERT INTO accounts"));
+
+        long stored = em.createQuery("SELECT COUNT(a) FROM Account a WHERE a.id IN :ids", Long.class)
+                .setParameter("ids", ids)
+                .getSingleResult();
+        assertEquals(count, stored);
+    }
+
+    @Test
+    public void testMalformedJsonArrayIsRejected() {
+        em.getTransaction().begin();
+        Response response = accountResource.createAccountsBatch(MediaType.APPLICATION_JSON,
+                new ByteArrayInputStream("{\"userId\": 1}".getBytes(StandardCharsets.UTF_8)));
+        em.getTransaction().rollback();
+
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
+
+    private AccountBatchResult post(String contentType, String body) {
+        em.getTransaction().begin();
+        Response response = accountResource.createAccountsBatch(contentType,
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        em.getTransaction().commit();
+        em.clear();
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        return (AccountBatchResult) response.getEntity();
+    }
+}
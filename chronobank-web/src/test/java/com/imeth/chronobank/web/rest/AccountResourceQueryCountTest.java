@@ -0,0 +1,299 @@
+package com.imeth.chronobank.web.rest;
+
+import com.imeth.chronobank.common.dto.AccountDTO;
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.AccountBalanceStripe;
+import com.imeth.chronobank.common.entity.BalanceJournalEntry;
+import com.imeth.chronobank.common.entity.User;
+import com.imeth.chronobank.common.util.Money;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+import com.imeth.chronobank.web.security.PrincipalCache;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.security.Principal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies against an in-memory database that account listings load their owners in the same
+ * statement, so the number of statements per page does not grow with the page size.
+ */
+public class AccountResourceQueryCountTest {
+
+    private static final int USERS = 60;
+
+    private static EntityManagerFactory emf;
+
+    private EntityManager em;
+
+    private AccountResource accountResource;
+
+    @BeforeAll
+    public static void createDatabase() {
+        emf = Persistence.createEntityManagerFactory("ChronoBankTestPU");
+        EntityManager setup = emf.createEntityManager();
+        setup.getTransaction().begin();
+        for (int i = 1; i <= USERS; i++) {
+            // Every account has its own owner so that lazy owner loading would show up per row
+            User user = new User();
+            user.setUsername("user" + i);
+            user.setPasswordHash("hash");
+            user.setFirstName("First" + i);
+            user.setLastName("Last" + i);
+            user.setEmail("user" + i + "@example.com");
+            user.setRole(User.Role.CUSTOMER);
+            setup.persist(user);
+
+            Account account = new Account();
+            account.setAccountNumber(String.format("CHB%07d", i));
+            account.setType(Account.Type.SAVINGS);
+            account.setBalance(BigDecimal.valueOf(100L * i));
+            account.setAvailableBalance(BigDecimal.valueOf(100L * i));
+            account.setUser(user);
+            setup.persist(account);
+        }
+        setup.getTransaction().commit();
+        setup.close();
+    }
+
+    @AfterAll
+    public static void closeDatabase() {
+        emf.close();
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        em = emf.createEntityManager();
+        accountResource = new AccountResource();
+        setField("em", em);
+
+        PrincipalCache principalCache = new PrincipalCache();
+        Field cacheEm = PrincipalCache.class.getDeclaredField("em");
+        cacheEm.setAccessible(true);
+        cacheEm.set(principalCache, em);
+        setField("principalCache", principalCache);
+
+        AccountSummaryCache accountSummaryCache = new AccountSummaryCache();
+        Field summaryEm = AccountSummaryCache.class.getDeclaredField("em");
+        summaryEm.setAccessible(true);
+        summaryEm.set(accountSummaryCache, em);
+        accountSummaryCache.init();
+        setField("accountSummaryCache", accountSummaryCache);
+
+        SecurityContext securityContext = mock(SecurityContext.class);
+        Principal principal = mock(Principal.class);
+        when(securityContext.getUserPrincipal()).thenReturn(principal);
+        when(principal.getName()).thenReturn("user7");
+        setField("securityContext", securityContext);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        em.close();
+    }
+
+    @Test
+    public void testStatementCountIndependentOfPageSize() {
+        int smallPage = statementsForPage(5);
+        int largePage = statementsForPage(50);
+
+        assertEquals(smallPage, largePage);
+        assertEquals(1, largePage);
+    }
+
+    @Test
+    public void testOwnerNamesLoadedWithAccounts() {
+        StatementCounter.reset();
+        Response response = accountResource.getAllAccounts(0, 10, null, AccountResource.COUNT_NONE);
+
+        @SuppressWarnings("unchecked")
+        List<AccountDTO> accounts = (List<AccountDTO>) response.getEntity();
+        assertEquals(10, accounts.size());
+        for (AccountDTO account : accounts) {
+            int owner = Integer.parseInt(account.getAccountNumber().substring(3));
+            assertNotNull(account.getUserId());
+            assertEquals("First" + owner + " Last" + owner, account.getUserName());
+        }
+        assertEquals(1, StatementCounter.count());
+    }
+
+    @Test
+    public void testMyAccountsStatementCount() {
+        StatementCounter.reset();
+        Response response = accountResource.getMyAccounts(null);
+
+        @SuppressWarnings("unchecked")
+        List<AccountDTO> accounts = (List<AccountDTO>) response.getEntity();
+        assertEquals(1, accounts.size());
+        assertEquals("First7 Last7", accounts.get(0).getUserName());
+        // One statement to resolve the caller, one for the accounts with their owner
+        assertEquals(2, StatementCounter.count());
+
+        // The caller's identity is cached after the first request
+        em.clear();
+        StatementCounter.reset();
+        accountResource.getMyAccounts(null);
+        assertEquals(1, StatementCounter.count());
+    }
+
+    @Test
+    public void testMyAccountsNotModifiedUntilAnAccountChanges() {
+        Response first = accountResource.getMyAccounts(null);
+        EntityTag tag = (EntityTag) first.getHeaders().getFirst("ETag");
+        assertNotNull(tag);
+
+        // A matching tag is answered from the ids and versions alone
+        em.clear();
+        StatementCounter.reset();
+        Response unchanged = accountResource.getMyAccounts('"' + tag.getValue() + '"');
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), unchanged.getStatus());
+        assertEquals(1, StatementCounter.count());
+
+        // Any change to an account bumps its version and so the tag
+        em.getTransaction().begin();
+        Account account = em.createQuery("SELECT a FROM Account a WHERE a.user.username = 'user7'", Account.class)
+                .getSingleResult();
+        account.setBalance(account.getBalance().add(BigDecimal.ONE));
+        em.getTransaction().commit();
+        em.clear();
+
+        Response changed = accountResource.getMyAccounts('"' + tag.getValue() + '"');
+        assertEquals(Response.Status.OK.getStatusCode(), changed.getStatus());
+        assertNotEquals(tag, changed.getHeaders().getFirst("ETag"));
+    }
+
+    @Test
+    public void testListsIncludePendingStripeCredits() {
+        Response first = accountResource.getMyAccounts(null);
+        EntityTag tag = (EntityTag) first.getHeaders().getFirst("ETag");
+        @SuppressWarnings("unchecked")
+        BigDecimal balance = ((List<AccountDTO>) first.getEntity()).get(0).getBalance();
+
+        // A credit to a stripe leaves the account row untouched
+        em.getTransaction().begin();
+        Account account = em.createQuery("SELECT a FROM Account a WHERE a.user.username = 'user7'", Account.class)
+                .getSingleResult();
+        AccountBalanceStripe stripe = new AccountBalanceStripe();
+        stripe.setAccount(account);
+        stripe.setStripe(0);
+        stripe.setAmount(Money.of(new BigDecimal("30.00")));
+        em.persist(stripe);
+        em.getTransaction().commit();
+        em.clear();
+
+        try {
+            StatementCounter.reset();
+            Response changed = accountResource.getMyAccounts('"' + tag.getValue() + '"');
+            assertEquals(Response.Status.OK.getStatusCode(), changed.getStatus());
+            assertNotEquals(tag, changed.getHeaders().getFirst("ETag"));
+            @SuppressWarnings("unchecked")
+            List<AccountDTO> accounts = (List<AccountDTO>) changed.getEntity();
+            assertEquals(0, balance.add(new BigDecimal("30.00")).compareTo(accounts.get(0).getBalance()));
+            // One statement for the versions, one for the accounts
+            assertEquals(2, StatementCounter.count());
+
+            em.clear();
+            Response page = accountResource.getAllAccounts(0, 10, null, AccountResource.COUNT_NONE);
+            @SuppressWarnings("unchecked")
+            List<AccountDTO> listed = (List<AccountDTO>) page.getEntity();
+            AccountDTO listedAccount = listed.stream()
+                    .filter(a -> a.getId().equals(account.getId()))
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals(accounts.get(0).getBalance(), listedAccount.getBalance());
+            assertEquals(accounts.get(0).getVersion(), listedAccount.getVersion());
+        } finally {
+            em.getTransaction().begin();
+            em.createQuery("DELETE FROM AccountBalanceStripe s").executeUpdate();
+            em.getTransaction().commit();
+        }
+    }
+
+    @Test
+    public void testMyAccountsIncludePendingJournalEntries() {
+        Response first = accountResource.getMyAccounts(null);
+        EntityTag tag = (EntityTag) first.getHeaders().getFirst("ETag");
+        @SuppressWarnings("unchecked")
+        BigDecimal balance = ((List<AccountDTO>) first.getEntity()).get(0).getBalance();
+
+        // A journaled credit is appended without touching the account row
+        em.getTransaction().begin();
+        Account account = em.createQuery("SELECT a FROM Account a WHERE a.user.username = 'user7'", Account.class)
+                .getSingleResult();
+        BalanceJournalEntry entry = new BalanceJournalEntry();
+        entry.setAccount(account);
+        entry.setDelta(Money.of(new BigDecimal("12.50")));
+        em.persist(entry);
+        em.getTransaction().commit();
+        em.clear();
+
+        try {
+            Response changed = accountResource.getMyAccounts('"' + tag.getValue() + '"');
+            assertEquals(Response.Status.OK.getStatusCode(), changed.getStatus());
+            EntityTag changedTag = (EntityTag) changed.getHeaders().getFirst("ETag");
+            assertNotEquals(tag, changedTag);
+            @SuppressWarnings("unchecked")
+            List<AccountDTO> accounts = (List<AccountDTO>) changed.getEntity();
+            assertEquals(0, balance.add(new BigDecimal("12.50")).compareTo(accounts.get(0).getBalance()));
+
+            // The new tag is current until the journal changes again
+            em.clear();
+            Response unchanged = accountResource.getMyAccounts('"' + changedTag.getValue() + '"');
+            assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), unchanged.getStatus());
+        } finally {
+            em.getTransaction().begin();
+            em.createQuery("DELETE FROM BalanceJournalEntry j").executeUpdate();
+            em.getTransaction().commit();
+        }
+    }
+
+    @Test
+    public void testCustomerCannotReadAnotherCustomersAccount() {
+        Long otherAccountId = em.createQuery(
+                "SELECT a.id FROM Account a WHERE a.accountNumber = :number", Long.class)
+                .setParameter("number", "CHB0000008")
+                .getSingleResult();
+
+        Response response = accountResource.getAccountById(otherAccountId, null);
+        assertEquals(Response.Status.FORBIDDEN.getStatusCode(), response.getStatus());
+
+        // Nor learn that a guessed tag is current
+        Long version = em.find(Account.class, otherAccountId).getVersion();
+        Response conditional = accountResource.getAccountById(otherAccountId,
+                '"' + AccountResource.accountTag(otherAccountId, version).getValue() + '"');
+        assertEquals(Response.Status.FORBIDDEN.getStatusCode(), conditional.getStatus());
+    }
+
+    private int statementsForPage(int size) {
+        em.clear();
+        StatementCounter.reset();
+        Response response = accountResource.getAllAccounts(0, size, null, AccountResource.COUNT_NONE);
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        return StatementCounter.count();
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = AccountResource.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(accountResource, value);
+    }
+}
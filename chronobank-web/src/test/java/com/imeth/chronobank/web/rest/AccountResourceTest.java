@@ -3,9 +3,13 @@ package com.imeth.chronobank.web.rest;
 import com.imeth.chronobank.common.dto.AccountDTO;
 import com.imeth.chronobank.common.entity.Account;
 import com.imeth.chronobank.common.entity.User;
+import com.imeth.chronobank.ejb.service.cache.AccountSummaryCache;
+import com.imeth.chronobank.ejb.service.cache.AccountVersion;
+import com.imeth.chronobank.ejb.service.transfer.TransferEngine;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.SecurityContext;
 
@@ -21,12 +25,18 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -44,11 +54,17 @@ public class AccountResourceTest {
     private Principal principal;
 
     @Mock
-    private TypedQuery<Account> accountQuery;
+    private TypedQuery<Object[]> accountQuery;
 
     @Mock
     private TypedQuery<Long> countQuery;
 
+    @Mock
+    private AccountSummaryCache accountSummaryCache;
+
+    @Mock
+    private TransferEngine transferEngine;
+
     @InjectMocks
     private AccountResource accountResource;
 
@@ -66,21 +82,21 @@ public class AccountResourceTest {
     public void testGetAllAccounts() {
         // Mock queries
         when(em.createQuery(anyString(), eq(Long.class))).thenReturn(countQuery);
-        when(em.createQuery(anyString(), eq(Account.class))).thenReturn(accountQuery);
+        when(em.createQuery(anyString(), eq(Object[].class))).thenReturn(accountQuery);
         
         when(countQuery.getSingleResult()).thenReturn(2L);
         
-        // Create test accounts
-        List<Account> accounts = new ArrayList<>();
-        accounts.add(createTestAccount(1L, "1001", Account.Type.CHECKING));
-        accounts.add(createTestAccount(2L, "1002", Account.Type.SAVINGS));
+        // Create test accounts, the second with 25.00 pending in its stripes
+        List<Object[]> accounts = new ArrayList<>();
+        accounts.add(summaryRow(createTestAccount(1L, "1001", Account.Type.CHECKING), BigDecimal.ZERO, 3L));
+        accounts.add(summaryRow(createTestAccount(2L, "1002", Account.Type.SAVINGS), new BigDecimal("25.00"), 5L));
         
         when(accountQuery.setFirstResult(anyInt())).thenReturn(accountQuery);
         when(accountQuery.setMaxResults(anyInt())).thenReturn(accountQuery);
         when(accountQuery.getResultList()).thenReturn(accounts);
         
         // Execute the method
-        Response response = accountResource.getAllAccounts(0, 10);
+        Response response = accountResource.getAllAccounts(0, 10, null, AccountResource.COUNT_EXACT);
         
         // Verify the response
         assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
@@ -89,16 +105,66 @@ public class AccountResourceTest {
         @SuppressWarnings("unchecked")
         List<AccountDTO> result = (List<AccountDTO>) response.getEntity();
         assertEquals(2, result.size());
+        assertEquals(0, new BigDecimal("1000").compareTo(result.get(0).getBalance()));
+        assertEquals(0, new BigDecimal("1025.00").compareTo(result.get(1).getBalance()));
+        assertEquals(0, new BigDecimal("1025.00").compareTo(result.get(1).getAvailableBalance()));
+        assertEquals(Long.valueOf(5L), result.get(1).getVersion());
+        assertEquals(2L, response.getHeaders().getFirst("X-Total-Count"));
+        assertNull(response.getHeaders().getFirst("X-Next-Cursor"));
+    }
+
+    @Test
+    public void testGetAllAccountsWithCursor() {
+        when(em.createQuery(anyString(), eq(Object[].class))).thenReturn(accountQuery);
+        when(accountQuery.setParameter(anyString(), any())).thenReturn(accountQuery);
+        when(accountQuery.setMaxResults(anyInt())).thenReturn(accountQuery);
+        
+        // One row more than the page size means there is a next page
+        List<Object[]> accounts = new ArrayList<>();
+        accounts.add(summaryRow(createTestAccount(41L, "1041", Account.Type.CHECKING), BigDecimal.ZERO, 3L));
+        accounts.add(summaryRow(createTestAccount(42L, "1042", Account.Type.SAVINGS), BigDecimal.ZERO, 3L));
+        accounts.add(summaryRow(createTestAccount(43L, "1043", Account.Type.SAVINGS), BigDecimal.ZERO, 3L));
+        when(accountQuery.getResultList()).thenReturn(accounts);
+        
+        // Execute the method
+        Response response = accountResource.getAllAccounts(0, 2, AccountResource.encodeCursor(40L),
+                AccountResource.COUNT_NONE);
+        
+        // Verify that the query seeks past the cursor instead of skipping rows
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        verify(accountQuery).setParameter("afterId", 40L);
+        verify(accountQuery).setMaxResults(3);
+        verify(accountQuery, never()).setFirstResult(anyInt());
+        verify(em, never()).createQuery(anyString(), eq(Long.class));
+        
+        @SuppressWarnings("unchecked")
+        List<AccountDTO> result = (List<AccountDTO>) response.getEntity();
+        assertEquals(2, result.size());
+        assertEquals(AccountResource.encodeCursor(42L), response.getHeaders().getFirst("X-Next-Cursor"));
+        assertNull(response.getHeaders().getFirst("X-Total-Count"));
+    }
+
+    @Test
+    public void testGetAllAccountsWithInvalidCursor() {
+        Response response = accountResource.getAllAccounts(0, 10, "not-a-cursor", AccountResource.COUNT_NONE);
+        
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
+
+    @Test
+    public void testCursorRoundTrip() {
+        assertEquals(Long.valueOf(123456789L), AccountResource.decodeCursor(AccountResource.encodeCursor(123456789L)));
+        assertNull(AccountResource.decodeCursor("%%%"));
     }
 
     @Test
     public void testGetAccountById() {
-        // Mock find method
+        // Mock the summary cache
         Account account = createTestAccount(1L, "1001", Account.Type.CHECKING);
-        when(em.find(Account.class, 1L)).thenReturn(account);
+        when(accountSummaryCache.getAccountSummary(1L)).thenReturn(new AccountDTO(account));
         
         // Execute the method
-        Response response = accountResource.getAccountById(1L);
+        Response response = accountResource.getAccountById(1L, null);
         
         // Verify the response
         assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
@@ -106,20 +172,102 @@ public class AccountResourceTest {
         
         AccountDTO result = (AccountDTO) response.getEntity();
         assertEquals("1001", result.getAccountNumber());
+        assertEquals(new EntityTag("1-3"), response.getHeaders().getFirst("ETag"));
+    }
+
+    @Test
+    public void testGetAccountByIdNotModified() {
+        when(accountSummaryCache.getAccountVersion(1L)).thenReturn(new AccountVersion(1L, 1L, 3L));
+        
+        Response response = accountResource.getAccountById(1L, "\"1-3\"");
+        
+        // The current version is answered without loading the account
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), response.getStatus());
+        assertEquals(new EntityTag("1-3"), response.getHeaders().getFirst("ETag"));
+        verify(accountSummaryCache, never()).getAccountSummary(any());
+    }
+
+    @Test
+    public void testGetAccountByIdChangedSinceTag() {
+        Account account = createTestAccount(1L, "1001", Account.Type.CHECKING);
+        when(accountSummaryCache.getAccountVersion(1L)).thenReturn(new AccountVersion(1L, 1L, 3L));
+        when(accountSummaryCache.getAccountSummary(1L)).thenReturn(new AccountDTO(account));
+        
+        Response response = accountResource.getAccountById(1L, "\"1-2\"");
+        
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(new EntityTag("1-3"), response.getHeaders().getFirst("ETag"));
+    }
+
+    @Test
+    public void testIfNoneMatchComparison() {
+        EntityTag tag = AccountResource.accountTag(7L, 12L);
+        
+        assertTrue(AccountResource.matches("\"7-12\"", tag));
+        assertTrue(AccountResource.matches("W/\"7-12\"", tag));
+        assertTrue(AccountResource.matches("\"7-11\", \"7-12\"", tag));
+        assertTrue(AccountResource.matches("*", tag));
+        assertFalse(AccountResource.matches("\"7-11\"", tag));
+        assertFalse(AccountResource.matches("\"17-12\"", tag));
     }
 
     @Test
     public void testGetAccountByIdNotFound() {
-        // Mock find method to return null
-        when(em.find(Account.class, 999L)).thenReturn(null);
+        // Mock the summary cache to return null
+        when(accountSummaryCache.getAccountSummary(999L)).thenReturn(null);
         
         // Execute the method
-        Response response = accountResource.getAccountById(999L);
+        Response response = accountResource.getAccountById(999L, null);
         
         // Verify the response
         assertEquals(Response.Status.NOT_FOUND.getStatusCode(), response.getStatus());
     }
-    
+
+    @Test
+    public void testCreateAccountRejectsAmountsWithMoreThanTwoDecimals() {
+        when(em.find(User.class, 5L)).thenReturn(new User());
+        AccountDTO accountDTO = new AccountDTO();
+        accountDTO.setUserId(5L);
+        accountDTO.setType("SAVINGS");
+        accountDTO.setBalance(new BigDecimal("10.005"));
+        accountDTO.setAvailableBalance(new BigDecimal("10.00"));
+        accountDTO.setStatus("ACTIVE");
+
+        Response response = accountResource.createAccount(accountDTO);
+
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+        assertEquals("Invalid account data: Amount 10.005 has more than 2 decimal places", response.getEntity());
+        verify(em, never()).persist(any());
+    }
+
+    @Test
+    public void testSetBalanceStripes() {
+        Account account = createTestAccount(1L, "1001", Account.Type.CHECKING);
+        AccountDTO summary = new AccountDTO(account);
+        when(transferEngine.setStripeCount(1L, 8)).thenReturn(account);
+        when(accountSummaryCache.getAccountSummary(1L)).thenReturn(summary);
+
+        Response response = accountResource.setBalanceStripes(1L, 8);
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(summary, response.getEntity());
+    }
+
+    @Test
+    public void testSetBalanceStripesRejectsInvalidCount() {
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), accountResource.setBalanceStripes(1L, -1).getStatus());
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), accountResource.setBalanceStripes(1L, null).getStatus());
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), accountResource.setBalanceStripes(1L, 65).getStatus());
+        verify(transferEngine, never()).setStripeCount(anyLong(), anyInt());
+
+        when(transferEngine.setStripeCount(999L, 4)).thenReturn(null);
+        assertEquals(Response.Status.NOT_FOUND.getStatusCode(), accountResource.setBalanceStripes(999L, 4).getStatus());
+    }
+
+    private Object[] summaryRow(Account account, BigDecimal pendingAmount, long version) {
+        return new Object[] {account, pendingAmount, version};
+    }
+
     private Account createTestAccount(Long id, String accountNumber, Account.Type type) {
         Account account = new Account();
         account.setId(id);
@@ -128,6 +276,7 @@ public class AccountResourceTest {
         account.setBalance(BigDecimal.valueOf(1000));
         account.setAvailableBalance(BigDecimal.valueOf(1000));
         account.setStatus(Account.Status.ACTIVE);
+        account.setVersion(3L);
         
         User user = new User();
         user.setId(1L);
@@ -0,0 +1,142 @@
+package com.imeth.chronobank.web.rest;
+
+import com.imeth.chronobank.common.entity.Account;
+import com.imeth.chronobank.common.entity.User;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifies with the shared cache turned on, as in production, that account changes written
+ * with JDBC or native updates by the batch jobs are seen by the next entity manager.
+ */
+public class AccountSharedCacheTest {
+
+    private static final String URL = "jdbc:h2:mem:chronobank-shared-cache;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static EntityManagerFactory emf;
+
+    private static Long accountId;
+
+    private static Long foldedAccountId;
+
+    @BeforeAll
+    public static void createDatabase() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("jakarta.persistence.jdbc.url", URL);
+        properties.put("eclipselink.cache.shared.default", "true");
+        emf = Persistence.createEntityManagerFactory("ChronoBankTestPU", properties);
+
+        EntityManager setup = emf.createEntityManager();
+        setup.getTransaction().begin();
+        User user = new User();
+        user.setUsername("cached");
+        user.setPasswordHash("hash");
+        user.setFirstName("Cached");
+        user.setLastName("User");
+        user.setEmail("cached@example.com");
+        user.setRole(User.Role.CUSTOMER);
+        setup.persist(user);
+
+        Account account = new Account();
+        account.setAccountNumber("CHB9000001");
+        account.setType(Account.Type.SAVINGS);
+        account.setBalance(new BigDecimal("100.00"));
+        account.setAvailableBalance(new BigDecimal("100.00"));
+        account.setUser(user);
+        setup.persist(account);
+
+        Account folded = new Account();
+        folded.setAccountNumber("CHB9000002");
+        folded.setType(Account.Type.SAVINGS);
+        folded.setBalance(new BigDecimal("40.00"));
+        folded.setAvailableBalance(new BigDecimal("40.00"));
+        folded.setUser(user);
+        setup.persist(folded);
+        setup.getTransaction().commit();
+        accountId = account.getId();
+        foldedAccountId = folded.getId();
+        setup.close();
+    }
+
+    @AfterAll
+    public static void closeDatabase() {
+        emf.close();
+    }
+
+    @Test
+    public void testJdbcBalanceUpdateIsNotHiddenByTheSharedCache() throws SQLException {
+        // Load the account once so that a shared cache would hold it
+        EntityManager before = emf.createEntityManager();
+        Long version = before.find(Account.class, accountId).getVersion();
+        before.close();
+
+        // The same statement shape as the interest accrual
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE accounts SET balance = balance + 5, version = version + 1 WHERE id = ?")) {
+            update.setLong(1, accountId);
+            update.executeUpdate();
+        }
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            Account found = em.find(Account.class, accountId);
+            assertEquals(Long.valueOf(version + 1), found.getVersion());
+            assertEquals(0, new BigDecimal("105.00").compareTo(found.getBalance()));
+
+            Account queried = em.createQuery(
+                    "SELECT a FROM Account a JOIN FETCH a.user WHERE a.id = :id", Account.class)
+                    .setParameter("id", accountId)
+                    .getSingleResult();
+            assertEquals(Long.valueOf(version + 1), queried.getVersion());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    public void testJournalFoldIsNotHiddenByTheSharedCache() {
+        EntityManager before = emf.createEntityManager();
+        Long version = before.find(Account.class, foldedAccountId).getVersion();
+        before.close();
+
+        // The journal compaction folds entries with a native update through the entity manager
+        EntityManager fold = emf.createEntityManager();
+        fold.getTransaction().begin();
+        fold.createNativeQuery("UPDATE accounts SET balance = balance + ?, available_balance = available_balance + ?, " +
+                "version = version + ? WHERE id = ?")
+                .setParameter(1, new BigDecimal("2.50"))
+                .setParameter(2, new BigDecimal("2.50"))
+                .setParameter(3, 2)
+                .setParameter(4, foldedAccountId)
+                .executeUpdate();
+        fold.getTransaction().commit();
+        fold.close();
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            Account found = em.find(Account.class, foldedAccountId);
+            assertEquals(Long.valueOf(version + 2), found.getVersion());
+            assertEquals(0, new BigDecimal("42.50").compareTo(found.getBalance()));
+            assertEquals(0, new BigDecimal("42.50").compareTo(found.getAvailableBalance()));
+        } finally {
+            em.close();
+        }
+    }
+}
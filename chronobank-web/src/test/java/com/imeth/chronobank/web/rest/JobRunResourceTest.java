@@ -0,0 +1,111 @@
+package com.imeth.chronobank.web.rest;
+
+import com.imeth.chronobank.common.dto.JobRunDTO;
+import com.imeth.chronobank.common.entity.JobRun;
+import com.imeth.chronobank.ejb.service.metrics.JobMetrics;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.ws.rs.core.Response;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the JobRunResource class.
+ */
+public class JobRunResourceTest {
+
+    @Mock
+    private EntityManager em;
+
+    @Mock
+    private TypedQuery<JobRun> runQuery;
+
+    @Mock
+    private JobMetrics jobMetrics;
+
+    @InjectMocks
+    private JobRunResource jobRunResource;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(em.createQuery(anyString(), eq(JobRun.class))).thenReturn(runQuery);
+        when(runQuery.setParameter(anyString(), any())).thenReturn(runQuery);
+        when(runQuery.setMaxResults(anyInt())).thenReturn(runQuery);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetRunsReturnsCursorWhenMoreRunsExist() {
+        List<JobRun> runs = new ArrayList<>();
+        for (long id = 30; id > 27; id--) {
+            runs.add(run(id));
+        }
+        when(runQuery.getResultList()).thenReturn(runs);
+
+        Response response = jobRunResource.getRuns("dailyBalanceUpdate", 31L, 2);
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        List<JobRunDTO> page = (List<JobRunDTO>) response.getEntity();
+        assertEquals(2, page.size());
+        assertEquals(30L, page.get(0).getId());
+        assertEquals(29L, response.getHeaders().getFirst("X-Next-Cursor"));
+        verify(em).createQuery(contains("r.id < :before"), eq(JobRun.class));
+        verify(runQuery).setParameter("job", "dailyBalanceUpdate");
+        verify(runQuery).setParameter("before", 31L);
+        verify(runQuery).setMaxResults(3);
+    }
+
+    @Test
+    public void testLastPageHasNoCursor() {
+        List<JobRun> runs = new ArrayList<>();
+        runs.add(run(1L));
+        when(runQuery.getResultList()).thenReturn(runs);
+
+        Response response = jobRunResource.getRuns(null, null, null);
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertNull(response.getHeaders().getFirst("X-Next-Cursor"));
+    }
+
+    @Test
+    public void testGetRunNotFound() {
+        when(em.find(JobRun.class, 99L)).thenReturn(null);
+
+        Response response = jobRunResource.getRun(99L);
+
+        assertEquals(Response.Status.NOT_FOUND.getStatusCode(), response.getStatus());
+    }
+
+    private static JobRun run(long id) {
+        JobRun run = new JobRun();
+        run.setId(id);
+        run.setJobName("dailyBalanceUpdate");
+        run.setStartedAt(LocalDateTime.of(2024, 3, 1, 0, 0));
+        run.setFinishedAt(LocalDateTime.of(2024, 3, 1, 0, 5));
+        run.setDurationMillis(300_000L);
+        run.setItemsProcessed(600L);
+        run.setStatus(JobRun.Status.SUCCEEDED);
+        return run;
+    }
+}
@@ -0,0 +1,47 @@
+package com.imeth.chronobank.web.rest;
+
+import org.eclipse.persistence.internal.databaseaccess.DatabaseCall;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * EclipseLink session listener that counts the SQL statements sent to the database.
+ */
+public class StatementCounter extends SessionEventAdapter {
+
+    private static final AtomicInteger COUNT = new AtomicInteger();
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void preExecuteCall(SessionEvent event) {
+        COUNT.incrementAndGet();
+        if (event.getCall() instanceof DatabaseCall) {
+            STATEMENTS.add(((DatabaseCall) event.getCall()).getSQLString());
+        }
+    }
+
+    public static void reset() {
+        COUNT.set(0);
+        STATEMENTS.clear();
+    }
+
+    public static int count() {
+        return COUNT.get();
+    }
+
+    /**
+     * Count the statements since the last reset whose SQL starts with a prefix.
+     *
+     * @param prefix the start of the SQL, compared case-insensitively
+     * @return the number of matching statements
+     */
+    public static long count(String prefix) {
+        return STATEMENTS.stream()
+                .filter(sql -> sql != null && sql.regionMatches(true, 0, prefix, 0, prefix.length()))
+                .count();
+    }
+}